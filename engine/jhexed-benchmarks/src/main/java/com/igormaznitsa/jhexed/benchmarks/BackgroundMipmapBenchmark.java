@@ -0,0 +1,208 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.hexmap.HexMapPanel;
+import com.igormaznitsa.jhexed.hexmap.LayerableHexValueSource;
+import com.igormaznitsa.jhexed.renders.svg.SVGImage;
+import com.igormaznitsa.jhexed.values.HexFieldValue;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of painting of a Full HD viewport panned over a big and complex
+ * SVG background image, with the mipmap of rasterized tiles and with direct
+ * rendering of the image. The Mipmap is warmed before measurement.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class BackgroundMipmapBenchmark {
+
+  private static final int IMAGE_WIDTH = 4096;
+  private static final int IMAGE_HEIGHT = 3072;
+  private static final int VIEW_WIDTH = 1920;
+  private static final int VIEW_HEIGHT = 1080;
+  private static final int STEP = 64;
+
+  @Param({"0", "67108864"})
+  public long budget;
+
+  private HexMapPanel panel;
+  private BufferedImage image;
+  private Graphics2D gfx;
+  private int offset;
+
+  private static final class EmptyModel implements HexEngineModel<Object>, LayerableHexValueSource {
+
+    @Override
+    public Iterable<HexFieldValue> getHexStackAtPosition(final int col, final int row) {
+      return Collections.<HexFieldValue>emptyList();
+    }
+
+    @Override
+    public int getColumnNumber() {
+      return 1;
+    }
+
+    @Override
+    public int getRowNumber() {
+      return 1;
+    }
+
+    @Override
+    public Object getValueAt(final int col, final int row) {
+      return null;
+    }
+
+    @Override
+    public Object getValueAt(final HexPosition pos) {
+      return null;
+    }
+
+    @Override
+    public void setValueAt(final int col, final int row, final Object value) {
+    }
+
+    @Override
+    public void setValueAt(final HexPosition pos, final Object value) {
+    }
+
+    @Override
+    public boolean isPositionValid(final int col, final int row) {
+      return col == 0 && row == 0;
+    }
+
+    @Override
+    public boolean isPositionValid(final HexPosition pos) {
+      return isPositionValid(pos.getColumn(), pos.getRow());
+    }
+
+    @Override
+    public void attachedToEngine(final HexEngine<?> engine) {
+    }
+
+    @Override
+    public void detachedFromEngine(final HexEngine<?> engine) {
+    }
+  }
+
+  private static File makeSvg() throws Exception {
+    final Random rnd = new Random(12345L);
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append("<?xml version=\"1.0\"?><svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(IMAGE_WIDTH).append("\" height=\"").append(IMAGE_HEIGHT).append("\">");
+    buffer.append("<linearGradient id=\"g\"><stop offset=\"0\" stop-color=\"#c0e0ff\"/><stop offset=\"1\" stop-color=\"#208040\"/></linearGradient>");
+    buffer.append("<rect width=\"100%\" height=\"100%\" fill=\"url(#g)\"/>");
+    for (int i = 0; i < 3000; i++) {
+      final int x = rnd.nextInt(IMAGE_WIDTH);
+      final int y = rnd.nextInt(IMAGE_HEIGHT);
+      buffer.append("<path d=\"M").append(x).append(',').append(y)
+              .append(" c").append(rnd.nextInt(200) - 100).append(',').append(rnd.nextInt(200) - 100)
+              .append(' ').append(rnd.nextInt(200) - 100).append(',').append(rnd.nextInt(200) - 100)
+              .append(' ').append(rnd.nextInt(200) - 100).append(',').append(rnd.nextInt(200) - 100)
+              .append("\" fill=\"none\" stroke=\"#").append(Integer.toHexString(0x100000 + rnd.nextInt(0xEFFFFF)))
+              .append("\" stroke-width=\"").append(1 + rnd.nextInt(6)).append("\" stroke-opacity=\"0.7\"/>");
+    }
+    buffer.append("</svg>");
+
+    final File file = File.createTempFile("jhexed", ".svg");
+    file.deleteOnExit();
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(buffer.toString().getBytes("UTF-8"));
+    }
+    finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private long paintWholeImage() {
+    final BufferedImage whole = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = whole.createGraphics();
+    final long start = System.nanoTime();
+    this.panel.paint(g);
+    final long result = System.nanoTime() - start;
+    g.dispose();
+    return result;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    final SVGImage svg = new SVGImage(makeSvg());
+    SwingUtilities.invokeAndWait(new Runnable() {
+
+      @Override
+      public void run() {
+        panel = new HexMapPanel(new EmptyModel());
+        panel.getHexRenderer().setShowBorders(false);
+        panel.setBackgroundCacheBudget(budget);
+        panel.setImage(svg);
+        panel.setSize(panel.getPreferredSize());
+        panel.doLayout();
+      }
+    });
+
+    if (this.budget > 0L) {
+      // wait for background rasterization of all tiles
+      final long first = paintWholeImage();
+      for (int i = 0; i < 120; i++) {
+        Thread.sleep(500L);
+        if (paintWholeImage() < first / 8L) {
+          break;
+        }
+      }
+    }
+
+    this.image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    this.gfx = this.image.createGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.gfx.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage paintPannedViewport() {
+    this.offset = (this.offset + STEP) % (IMAGE_WIDTH - VIEW_WIDTH);
+    final Graphics2D g = (Graphics2D) this.gfx.create();
+    try {
+      g.translate(-this.offset, 0);
+      g.setClip(this.offset, 0, VIEW_WIDTH, VIEW_HEIGHT);
+      this.panel.paint(g);
+    }
+    finally {
+      g.dispose();
+    }
+    return this.image;
+  }
+}
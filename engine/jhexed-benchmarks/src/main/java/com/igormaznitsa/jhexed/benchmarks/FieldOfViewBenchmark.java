@@ -0,0 +1,134 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.fov.ByteTableBlockingPredicate;
+import com.igormaznitsa.jhexed.engine.fov.HexFieldOfView;
+import com.igormaznitsa.jhexed.engine.misc.HexAxial;
+import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of field of view of 64 units over a 512x512 terrain layer,
+ * shadowcasting against naive line checks to every hexagon in range.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldOfViewBenchmark {
+
+  private static final int SIZE = 512;
+  private static final int VIEWERS = 64;
+
+  @Param({"8", "20"})
+  public int radius;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private HexEngine<Object> engine;
+  private HexFieldLayer terrain;
+  private HexFieldOfView fov;
+  private ByteTableBlockingPredicate predicate;
+  private ExecutorService executor;
+  private final long[] viewers = new long[VIEWERS];
+  private final BitSet[] results = new BitSet[VIEWERS];
+  private long[] range;
+  private long[] line;
+
+  @Setup
+  public void setup() {
+    this.terrain = new HexFieldLayer("terrain", "", SIZE, SIZE);
+    final Random rnd = new Random(12345L);
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        this.terrain.setByte(c, r, (byte) (rnd.nextInt(100) < 10 ? 1 : 0));
+      }
+    }
+    for (int i = 0; i < VIEWERS; i++) {
+      this.viewers[i] = HexEngine.packColumnRowLong(rnd.nextInt(SIZE), rnd.nextInt(SIZE));
+      this.results[i] = new BitSet();
+    }
+
+    this.engine = new HexEngine<Object>(16, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    this.engine.setModel(this.terrain);
+    this.fov = new HexFieldOfView(this.engine);
+    this.predicate = new ByteTableBlockingPredicate(this.terrain, new boolean[]{false, true});
+    this.executor = Executors.newFixedThreadPool(this.threads);
+    this.range = new long[3 * this.radius * (this.radius + 1) + 1];
+    this.line = new long[this.radius + 1];
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int naiveLines() {
+    int visible = 0;
+    for (int v = 0; v < VIEWERS; v++) {
+      final int col = HexEngine.extractColumnLong(this.viewers[v]);
+      final int row = HexEngine.extractRowLong(this.viewers[v]);
+      final BitSet result = this.results[v];
+      result.clear();
+      this.engine.getPackedRangePositionsLong(this.range, col, row, this.radius);
+      for (final long target : this.range) {
+        final int tc = HexEngine.extractColumnLong(target);
+        final int tr = HexEngine.extractRowLong(target);
+        if (!this.terrain.isPositionValid(tc, tr)) {
+          continue;
+        }
+        final long[] points = HexAxial.line(HexEngine.ORIENTATION_HORIZONTAL, col, row, tc, tr, this.line);
+        final int length = HexAxial.distance(HexEngine.ORIENTATION_HORIZONTAL, col, row, tc, tr) + 1;
+        boolean blocked = false;
+        for (int i = 1; i < length - 1 && !blocked; i++) {
+          blocked = this.predicate.isBlocking(HexEngine.extractColumnLong(points[i]), HexEngine.extractRowLong(points[i]));
+        }
+        if (!blocked) {
+          result.set(tr * SIZE + tc);
+          visible++;
+        }
+      }
+    }
+    return visible;
+  }
+
+  @Benchmark
+  public int shadowcasting() {
+    int visible = 0;
+    for (int v = 0; v < VIEWERS; v++) {
+      visible += this.fov.calculate(HexEngine.extractColumnLong(this.viewers[v]), HexEngine.extractRowLong(this.viewers[v]), this.radius, this.predicate, this.results[v]);
+    }
+    return visible;
+  }
+
+  @Benchmark
+  public BitSet[] shadowcastingBatch() throws InterruptedException {
+    return this.fov.calculate(this.viewers, VIEWERS, this.radius, this.predicate, this.results, this.executor);
+  }
+}
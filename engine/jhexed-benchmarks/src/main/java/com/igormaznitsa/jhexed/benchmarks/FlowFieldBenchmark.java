@@ -0,0 +1,95 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.path.ByteTableCostFunction;
+import com.igormaznitsa.jhexed.engine.path.HexFlowField;
+import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of flow field building for several goals over a 1000x1000 terrain
+ * layer, single thread build against the tiled parallel one.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FlowFieldBenchmark {
+
+  private static final int SIZE = 1000;
+
+  @Param({"1", "2", "4"})
+  public int threads;
+
+  @Param({"64"})
+  public int tileSize;
+
+  private HexFlowField field;
+  private ByteTableCostFunction cost;
+  private ExecutorService executor;
+  private final long[] goals = new long[8];
+
+  @Setup
+  public void setup() {
+    final HexFieldLayer terrain = new HexFieldLayer("terrain", "", SIZE, SIZE);
+    final Random rnd = new Random(12345L);
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        final int chance = rnd.nextInt(100);
+        terrain.setByte(c, r, (byte) (chance < 15 ? 0 : chance < 70 ? 1 : 2));
+      }
+    }
+    for (int i = 0; i < this.goals.length; i++) {
+      final int col = rnd.nextInt(SIZE);
+      final int row = rnd.nextInt(SIZE);
+      terrain.setByte(col, row, (byte) 1);
+      this.goals[i] = HexEngine.packColumnRowLong(col, row);
+    }
+
+    final HexEngine<Object> engine = new HexEngine<Object>(16, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    engine.setModel(terrain);
+    this.field = new HexFlowField(engine);
+    this.cost = new ByteTableCostFunction(terrain, new float[]{Float.POSITIVE_INFINITY, 1.0f, 3.0f});
+    this.executor = Executors.newFixedThreadPool(this.threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int[] sequential() {
+    this.field.build(this.goals, this.goals.length, this.cost);
+    return this.field.getDistances();
+  }
+
+  @Benchmark
+  public int[] tiled() throws InterruptedException {
+    this.field.build(this.goals, this.goals.length, this.cost, this.tileSize, this.executor);
+    return this.field.getDistances();
+  }
+}
@@ -0,0 +1,102 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.path.ByteTableCostFunction;
+import com.igormaznitsa.jhexed.engine.path.HexHierarchicalPathFinder;
+import com.igormaznitsa.jhexed.engine.path.HexPathFinder;
+import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of long routes over a big terrain layer, flat A* against
+ * hierarchical search with prebuilt clusters.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class HierarchicalPathFinderBenchmark {
+
+  private static final int SIZE = 2000;
+  private static final int QUERIES = 32;
+
+  @Param({"16", "32"})
+  public int clusterSize;
+
+  private HexPathFinder flat;
+  private HexHierarchicalPathFinder hierarchical;
+  private ByteTableCostFunction cost;
+  private final int[] queries = new int[QUERIES * 4];
+  private int next;
+
+  @Setup
+  public void setup() {
+    final HexFieldLayer terrain = new HexFieldLayer("terrain", "", SIZE, SIZE);
+    final Random rnd = new Random(12345L);
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        final int chance = rnd.nextInt(100);
+        terrain.setByte(c, r, (byte) (chance < 15 ? 0 : chance < 70 ? 1 : 2));
+      }
+    }
+
+    for (int i = 0; i < QUERIES; i++) {
+      final int startCol = rnd.nextInt(SIZE / 4);
+      final int startRow = rnd.nextInt(SIZE);
+      final int goalCol = SIZE - 1 - rnd.nextInt(SIZE / 4);
+      final int goalRow = rnd.nextInt(SIZE);
+      terrain.setByte(startCol, startRow, (byte) 1);
+      terrain.setByte(goalCol, goalRow, (byte) 1);
+      this.queries[i * 4] = startCol;
+      this.queries[i * 4 + 1] = startRow;
+      this.queries[i * 4 + 2] = goalCol;
+      this.queries[i * 4 + 3] = goalRow;
+    }
+
+    final HexEngine<Object> engine = new HexEngine<Object>(16, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    engine.setModel(terrain);
+    this.cost = new ByteTableCostFunction(terrain, new float[]{Float.POSITIVE_INFINITY, 1.0f, 3.0f});
+    this.flat = new HexPathFinder(engine);
+    this.hierarchical = new HexHierarchicalPathFinder(engine, this.cost, this.clusterSize);
+    this.hierarchical.prebuild();
+  }
+
+  private int nextQuery() {
+    final int result = this.next;
+    this.next = (this.next + 4) % this.queries.length;
+    return result;
+  }
+
+  @Benchmark
+  public float flatAStar() {
+    final int q = nextQuery();
+    return this.flat.findPath(this.queries[q], this.queries[q + 1], this.queries[q + 2], this.queries[q + 3], this.cost);
+  }
+
+  @Benchmark
+  public float hierarchical() {
+    final int q = nextQuery();
+    return this.hierarchical.findPath(this.queries[q], this.queries[q + 1], this.queries[q + 2], this.queries[q + 3]);
+  }
+}
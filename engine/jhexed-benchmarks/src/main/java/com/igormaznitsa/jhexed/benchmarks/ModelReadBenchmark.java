@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of reading whole model as it is made during rendering of a full
+ * frame, boxed access against primitive one.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelReadBenchmark {
+
+  private static final int SIZE = 512;
+
+  private DefaultIntegerHexModel model;
+
+  @Setup
+  public void setup() {
+    this.model = new DefaultIntegerHexModel(SIZE, SIZE, -1);
+    final Random rnd = new Random(12345L);
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        this.model.setInt(c, r, rnd.nextInt(100000));
+      }
+    }
+  }
+
+  @Benchmark
+  public long readBoxed() {
+    final HexEngineModel<Integer> m = this.model;
+    long sum = 0L;
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        sum += m.getValueAt(c, r);
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long readPrimitive() {
+    final DefaultIntegerHexModel m = this.model;
+    long sum = 0L;
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        sum += m.getInt(c, r);
+      }
+    }
+    return sum;
+  }
+}
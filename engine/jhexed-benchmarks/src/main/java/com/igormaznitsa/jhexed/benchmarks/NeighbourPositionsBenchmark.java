@@ -0,0 +1,106 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRangeCursor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for generation of packed neighbour positions for different
+ * distances, with a reusable buffer, with a new array for every call and with
+ * the range cursor, plus filled range sweeps clipped by a 128x128 model.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NeighbourPositionsBenchmark {
+
+  @Param({"0", "1"})
+  public int orientation;
+
+  @Param({"1", "2", "8", "32"})
+  public int distance;
+
+  private HexEngine<Object> engine;
+  private int[] buffer;
+  private long[] longBuffer;
+  private long[] rangeBuffer;
+  private HexRangeCursor cursor;
+
+  @Setup
+  public void setup() {
+    this.engine = new HexEngine<Object>(48, 48, this.orientation);
+    this.buffer = new int[this.distance * 6];
+    this.longBuffer = new long[this.distance * 6];
+    this.rangeBuffer = new long[3 * this.distance * (this.distance + 1) + 1];
+    this.cursor = new HexRangeCursor(this.orientation).setBounds(128, 128);
+  }
+
+  @Benchmark
+  public int[] packedNeighboursReusedBuffer() {
+    return this.engine.getPackedNeighbourPositions(this.buffer, 100, 101, this.distance);
+  }
+
+  @Benchmark
+  public int[] packedNeighboursNewArray() {
+    return this.engine.getPackedNeighbourPositions(null, 100, 101, this.distance);
+  }
+
+  @Benchmark
+  public long[] longPackedNeighboursReusedBuffer() {
+    return this.engine.getPackedNeighbourPositionsLong(this.longBuffer, 100, 101, this.distance);
+  }
+
+  @Benchmark
+  public long ringCursor() {
+    long result = 0L;
+    this.cursor.clearBounds().ring(100, 101, this.distance);
+    while (this.cursor.next()) {
+      result += this.cursor.getColumn() ^ this.cursor.getRow();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public long filledRangeClippedByLoop() {
+    long result = 0L;
+    for (final long packed : this.engine.getPackedRangePositionsLong(this.rangeBuffer, 120, 101, this.distance)) {
+      final int col = HexEngine.extractColumnLong(packed);
+      final int row = HexEngine.extractRowLong(packed);
+      if (col >= 0 && row >= 0 && col < 128 && row < 128) {
+        result += col ^ row;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public long filledRangeCursor() {
+    long result = 0L;
+    this.cursor.setBounds(128, 128).range(120, 101, this.distance);
+    while (this.cursor.next()) {
+      result += this.cursor.getColumn() ^ this.cursor.getRow();
+    }
+    return result;
+  }
+}
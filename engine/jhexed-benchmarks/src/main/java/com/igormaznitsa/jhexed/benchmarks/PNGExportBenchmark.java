@@ -0,0 +1,116 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.renders.swing.ColorHexRender;
+import com.igormaznitsa.jhexed.renders.swing.StreamingPNGWriter;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of export of a 4096x4096 map into PNG, by rendering of the whole
+ * image and encoding through ImageIO and by rendering of horizontal strips
+ * streamed into the PNG writer. Run it with "-prof gc" to see allocated
+ * memory per export.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx512m"})
+@State(Scope.Thread)
+public class PNGExportBenchmark {
+
+  private static final int SIZE = 4096;
+
+  @Param({"256"})
+  public int stripHeight;
+
+  private HexEngine<Graphics2D> engine;
+
+  private static final class NullOutputStream extends OutputStream {
+
+    private long counter;
+
+    @Override
+    public void write(final int b) {
+      this.counter++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      this.counter += len;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    this.engine = new HexEngine<Graphics2D>(48, 48, HexEngine.ORIENTATION_HORIZONTAL);
+    this.engine.setModel(new DefaultIntegerHexModel(96, 96, -1));
+    this.engine.setRenderer(new ColorHexRender());
+    final HexRect2D visible = this.engine.getVisibleSize();
+    this.engine.setScale(SIZE / visible.getWidth(), SIZE / visible.getHeight());
+  }
+
+  @Benchmark
+  public long wholeImageThroughImageIO() throws IOException {
+    final BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D gfx = image.createGraphics();
+    this.engine.drawArea(gfx, new HexRect2D(0, 0, SIZE, SIZE), false);
+    gfx.dispose();
+    final NullOutputStream out = new NullOutputStream();
+    ImageIO.write(image, "png", out);
+    return out.counter;
+  }
+
+  @Benchmark
+  public long stripsThroughStreamingWriter() throws IOException {
+    final BufferedImage strip = new BufferedImage(SIZE, this.stripHeight, BufferedImage.TYPE_INT_ARGB);
+    final int[] pixels = ((DataBufferInt) strip.getRaster().getDataBuffer()).getData();
+    final NullOutputStream out = new NullOutputStream();
+    final StreamingPNGWriter writer = new StreamingPNGWriter(out, SIZE, SIZE);
+    try {
+      final float margin = this.engine.getScaledCellHeight();
+      for (int y = 0; y < SIZE; y += this.stripHeight) {
+        final int rows = Math.min(this.stripHeight, SIZE - y);
+        Arrays.fill(pixels, 0);
+        final Graphics2D gfx = strip.createGraphics();
+        gfx.clipRect(0, 0, SIZE, rows);
+        gfx.translate(0, -y);
+        this.engine.drawArea(gfx, new HexRect2D(0, y - margin, SIZE, rows + margin * 2), false);
+        gfx.dispose();
+        writer.writeRows(pixels, 0, SIZE, rows);
+      }
+      writer.finish();
+    }
+    finally {
+      writer.close();
+    }
+    return out.counter;
+  }
+}
@@ -0,0 +1,169 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.renders.swing.ColorHexRender;
+import com.igormaznitsa.jhexed.renders.swing.StreamingPNGWriter;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of the strip scheme of the parallel PNG export of the editor for a
+ * 4096x4096 map: every strip is painted by a task with its own engine and
+ * render, into a part of the whole image or into a strip buffer which is
+ * streamed into the PNG writer in order. Cells are painted by the plain color
+ * render, so that the benchmark doesn't cover icons, background images and
+ * commentaries, and it shows scaling only on a multi-core machine.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx512m"})
+@State(Scope.Thread)
+public class ParallelPNGExportBenchmark {
+
+  private static final int SIZE = 4096;
+  private static final int STRIP_PIXELS = 4 * 1024 * 1024;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  private DefaultIntegerHexModel model;
+  private ExecutorService executor;
+  private int stripHeight;
+
+  private static final class NullOutputStream extends OutputStream {
+
+    private long counter;
+
+    @Override
+    public void write(final int b) {
+      this.counter++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      this.counter += len;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    this.model = new DefaultIntegerHexModel(96, 96, -1);
+    this.executor = Executors.newFixedThreadPool(this.threads);
+    this.stripHeight = Math.min(SIZE, STRIP_PIXELS / SIZE);
+    if (this.threads > 1) {
+      final int strips = this.threads * 4;
+      this.stripHeight = Math.min(this.stripHeight, Math.max(64, Math.min(STRIP_PIXELS / (this.threads * 2) / SIZE, (SIZE + strips - 1) / strips)));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  private HexEngine<Graphics2D> makeEngine() {
+    final HexEngine<Graphics2D> engine = new HexEngine<Graphics2D>(48, 48, HexEngine.ORIENTATION_HORIZONTAL);
+    engine.setModel(this.model);
+    engine.setRenderer(new ColorHexRender());
+    final HexRect2D visible = engine.getVisibleSize();
+    engine.setScale(SIZE / visible.getWidth(), SIZE / visible.getHeight());
+    return engine;
+  }
+
+  private Callable<BufferedImage> stripTask(final BufferedImage target, final int y, final int rows, final boolean clear) {
+    return new Callable<BufferedImage>() {
+      @Override
+      public BufferedImage call() {
+        if (clear) {
+          Arrays.fill(((DataBufferInt) target.getRaster().getDataBuffer()).getData(), 0);
+        }
+        final HexEngine<Graphics2D> engine = makeEngine();
+        final float margin = engine.getScaledCellHeight();
+        final Graphics2D gfx = target.createGraphics();
+        try {
+          gfx.clipRect(0, 0, SIZE, rows);
+          gfx.translate(0, -y);
+          engine.drawArea(gfx, new HexRect2D(0, y - margin, SIZE, rows + margin * 2), false);
+        }
+        finally {
+          gfx.dispose();
+        }
+        return target;
+      }
+    };
+  }
+
+  @Benchmark
+  public BufferedImage wholeImage() throws Exception {
+    final BufferedImage result = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+    final List<Future<BufferedImage>> tasks = new ArrayList<Future<BufferedImage>>();
+    for (int y = 0; y < SIZE; y += this.stripHeight) {
+      final int rows = Math.min(this.stripHeight, SIZE - y);
+      tasks.add(this.executor.submit(stripTask(result.getSubimage(0, y, SIZE, rows), y, rows, false)));
+    }
+    for (final Future<BufferedImage> task : tasks) {
+      task.get();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public long stripsThroughStreamingWriter() throws Exception {
+    final NullOutputStream out = new NullOutputStream();
+    final StreamingPNGWriter writer = new StreamingPNGWriter(out, SIZE, SIZE);
+    try {
+      final Queue<Future<BufferedImage>> inWork = new ArrayDeque<Future<BufferedImage>>();
+      final List<BufferedImage> freeStrips = new ArrayList<BufferedImage>();
+      int paintY = 0;
+      int writeY = 0;
+      while (writeY < SIZE) {
+        while (paintY < SIZE && inWork.size() < this.threads * 2) {
+          final int rows = Math.min(this.stripHeight, SIZE - paintY);
+          final BufferedImage strip = freeStrips.isEmpty() ? new BufferedImage(SIZE, this.stripHeight, BufferedImage.TYPE_INT_ARGB) : freeStrips.remove(freeStrips.size() - 1);
+          inWork.add(this.executor.submit(stripTask(strip, paintY, rows, true)));
+          paintY += rows;
+        }
+        final BufferedImage strip = inWork.remove().get();
+        final int rows = Math.min(this.stripHeight, SIZE - writeY);
+        writer.writeRows(((DataBufferInt) strip.getRaster().getDataBuffer()).getData(), 0, SIZE, rows);
+        writeY += rows;
+        freeStrips.add(strip);
+      }
+      writer.finish();
+    }
+    finally {
+      writer.close();
+    }
+    return out.counter;
+  }
+}
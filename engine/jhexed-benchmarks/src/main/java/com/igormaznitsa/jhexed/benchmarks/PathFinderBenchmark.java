@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.path.ByteTableCostFunction;
+import com.igormaznitsa.jhexed.engine.path.HexPathFinder;
+import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of path queries over a 1000x1000 terrain layer, A* against
+ * Dijkstra for unit moves of limited length.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PathFinderBenchmark {
+
+  private static final int SIZE = 1000;
+  private static final int QUERIES = 64;
+
+  @Param({"0", "1"})
+  public int orientation;
+
+  @Param({"20", "100"})
+  public int distance;
+
+  private HexPathFinder finder;
+  private ByteTableCostFunction cost;
+  private final int[] queries = new int[QUERIES * 4];
+  private int next;
+
+  @Setup
+  public void setup() {
+    final HexFieldLayer terrain = new HexFieldLayer("terrain", "", SIZE, SIZE);
+    final Random rnd = new Random(12345L);
+    for (int r = 0; r < SIZE; r++) {
+      for (int c = 0; c < SIZE; c++) {
+        final int chance = rnd.nextInt(100);
+        terrain.setByte(c, r, (byte) (chance < 15 ? 0 : chance < 70 ? 1 : 2));
+      }
+    }
+
+    final HexEngine<Object> engine = new HexEngine<Object>(16, 16, this.orientation);
+    engine.setModel(terrain);
+    this.finder = new HexPathFinder(engine);
+    this.cost = new ByteTableCostFunction(terrain, new float[]{Float.POSITIVE_INFINITY, 1.0f, 3.0f});
+
+    for (int i = 0; i < QUERIES; i++) {
+      final int startCol = this.distance + rnd.nextInt(SIZE - this.distance * 2);
+      final int startRow = this.distance + rnd.nextInt(SIZE - this.distance * 2);
+      this.queries[i * 4] = startCol;
+      this.queries[i * 4 + 1] = startRow;
+      this.queries[i * 4 + 2] = startCol + rnd.nextInt(this.distance * 2 + 1) - this.distance;
+      this.queries[i * 4 + 3] = startRow + rnd.nextInt(this.distance * 2 + 1) - this.distance;
+      terrain.setByte(startCol, startRow, (byte) 1);
+      terrain.setByte(this.queries[i * 4 + 2], this.queries[i * 4 + 3], (byte) 1);
+    }
+  }
+
+  private int nextQuery() {
+    final int result = this.next;
+    this.next = (this.next + 4) % this.queries.length;
+    return result;
+  }
+
+  @Benchmark
+  public float aStar() {
+    final int q = nextQuery();
+    this.finder.setHeuristicFactor(1.0f);
+    return this.finder.findPath(this.queries[q], this.queries[q + 1], this.queries[q + 2], this.queries[q + 3], this.cost);
+  }
+
+  @Benchmark
+  public float dijkstra() {
+    final int q = nextQuery();
+    this.finder.setHeuristicFactor(0.0f);
+    return this.finder.findPath(this.queries[q], this.queries[q + 1], this.queries[q + 2], this.queries[q + 3], this.cost);
+  }
+}
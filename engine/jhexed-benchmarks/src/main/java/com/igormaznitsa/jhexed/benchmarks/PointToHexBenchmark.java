@@ -0,0 +1,107 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for picking operations of the engine which are called for every
+ * mouse move (column and row calculation for a point).
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PointToHexBenchmark {
+
+  private static final int POINTS = 1024;
+
+  @Param({"0", "1"})
+  public int orientation;
+
+  @Param({"0.5", "1.0", "2.5"})
+  public float scale;
+
+  private HexEngine<Object> engine;
+  private final float[] xs = new float[POINTS];
+  private final float[] ys = new float[POINTS];
+  private final int[] packed = new int[POINTS];
+
+  @Setup
+  public void setup() {
+    this.engine = new HexEngine<Object>(48, 48, this.orientation);
+    this.engine.setModel(new DefaultIntegerHexModel(256, 256, -1));
+    this.engine.setScale(this.scale, this.scale);
+
+    final HexRect2D area = this.engine.getVisibleSize();
+    final Random rnd = new Random(12345L);
+    for (int i = 0; i < POINTS; i++) {
+      this.xs[i] = rnd.nextFloat() * area.getWidth();
+      this.ys[i] = rnd.nextFloat() * area.getHeight();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POINTS)
+  public void calculateColumn(final Blackhole bh) {
+    for (int i = 0; i < POINTS; i++) {
+      bh.consume(this.engine.calculateColumn(this.xs[i], this.ys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POINTS)
+  public void calculateRow(final Blackhole bh) {
+    for (int i = 0; i < POINTS; i++) {
+      bh.consume(this.engine.calculateRow(this.xs[i], this.ys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POINTS)
+  public void pointToHex(final Blackhole bh) {
+    for (int i = 0; i < POINTS; i++) {
+      bh.consume(this.engine.pointToHex(this.xs[i], this.ys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POINTS)
+  public void packedColumnRowPerPoint(final Blackhole bh) {
+    for (int i = 0; i < POINTS; i++) {
+      final float x = this.xs[i];
+      final float y = this.ys[i];
+      bh.consume(HexEngine.packColumnRow(this.engine.calculateColumn(x, y), this.engine.calculateRow(x, y)));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POINTS)
+  public int[] pointsToHexes() {
+    this.engine.pointsToHexes(this.xs, this.ys, this.packed, POINTS);
+    return this.packed;
+  }
+}
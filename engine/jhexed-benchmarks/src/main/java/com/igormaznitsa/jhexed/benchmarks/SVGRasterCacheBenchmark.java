@@ -0,0 +1,122 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.renders.svg.SVGImage;
+import com.igormaznitsa.jhexed.renders.svg.SVGRasterCache;
+import com.igormaznitsa.jhexed.values.HexSVGImageValue;
+import java.awt.Image;
+import java.awt.geom.Path2D;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of prerasterization of an SVG value for zooming back and forth
+ * between several zoom levels, with the shared raster cache and without it.
+ * Cold zooms show time spent by the calling thread when no raster of the
+ * needed size is cached, for synchronous and background rasterization.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SVGRasterCacheBenchmark {
+
+  private static final String SVG = "<?xml version=\"1.0\"?>"
+          + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+          + "<radialGradient id=\"g\"><stop offset=\"0\" stop-color=\"yellow\"/><stop offset=\"1\" stop-color=\"green\"/></radialGradient>"
+          + "<circle cx=\"50\" cy=\"50\" r=\"45\" fill=\"url(#g)\" stroke=\"black\" stroke-width=\"3\"/>"
+          + "<path d=\"M10,90 C30,10 70,10 90,90 Z\" fill=\"blue\" fill-opacity=\"0.5\"/>"
+          + "<text x=\"20\" y=\"60\" font-size=\"24\">Hex</text>"
+          + "</svg>";
+
+  private static final float[] ZOOMS = new float[]{1.0f, 1.2f, 1.44f, 1.728f, 1.44f, 1.2f};
+
+  @Param({"0", "33554432"})
+  public long budget;
+
+  private HexSVGImageValue value;
+  private Path2D[] shapes;
+  private int zoomIndex;
+
+  private static Path2D makeHex(final float size) {
+    final Path2D path = new Path2D.Float();
+    path.moveTo(size * 0.25f, 0);
+    path.lineTo(size * 0.75f, 0);
+    path.lineTo(size, size * 0.5f);
+    path.lineTo(size * 0.75f, size);
+    path.lineTo(size * 0.25f, size);
+    path.lineTo(0, size * 0.5f);
+    path.closePath();
+    return path;
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    final File file = File.createTempFile("jhexed", ".svg");
+    file.deleteOnExit();
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(SVG.getBytes("UTF-8"));
+    }
+    finally {
+      out.close();
+    }
+
+    SVGRasterCache.clear();
+    SVGRasterCache.setBudget(this.budget);
+    this.value = new HexSVGImageValue("svg", null, new SVGImage(file), 1);
+    this.shapes = new Path2D[ZOOMS.length];
+    for (int i = 0; i < ZOOMS.length; i++) {
+      this.shapes[i] = makeHex(48.0f * ZOOMS[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    SVGRasterCache.setBudget(SVGRasterCache.DEFAULT_BUDGET);
+  }
+
+  @Benchmark
+  public Image zoomBackAndForth() {
+    this.zoomIndex = (this.zoomIndex + 1) % this.shapes.length;
+    this.value.prerasterizeIcon(this.shapes[this.zoomIndex]);
+    return this.value.getPrerasterized();
+  }
+
+  @Benchmark
+  public Image coldZoomSynchronous() {
+    SVGRasterCache.clear();
+    this.zoomIndex = (this.zoomIndex + 1) % this.shapes.length;
+    this.value.prerasterizeIcon(this.shapes[this.zoomIndex]);
+    return this.value.getPrerasterized();
+  }
+
+  @Benchmark
+  public Image coldZoomAsynchronous() {
+    SVGRasterCache.clear();
+    this.zoomIndex = (this.zoomIndex + 1) % this.shapes.length;
+    this.value.prerasterizeIconAsync(this.shapes[this.zoomIndex], null);
+    return this.value.getPrerasterized();
+  }
+}
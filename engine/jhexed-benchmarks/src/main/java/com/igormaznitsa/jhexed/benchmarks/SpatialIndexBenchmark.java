@@ -0,0 +1,109 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexCellVisitor;
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.engine.misc.HexSpatialIndex;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of looking for values placed on hexagons of a full HD viewport
+ * over a 1000x1000 map, probing every visible hexagon in a map keyed by
+ * positions against the spatial index query.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpatialIndexBenchmark {
+
+  private static final int SIZE = 1000;
+
+  @Param({"100", "100000"})
+  public int values;
+
+  private HexEngine<Object> engine;
+  private HexRect2D viewport;
+  private final Map<HexPosition, String> map = new HashMap<HexPosition, String>();
+  private final HexSpatialIndex<String> index = new HexSpatialIndex<String>();
+  private final Counter counter = new Counter();
+
+  private static final class Counter implements HexCellVisitor<String> {
+
+    private int value;
+
+    @Override
+    public boolean visitCell(final int col, final int row, final String value) {
+      this.value += value.length();
+      return true;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    this.engine = new HexEngine<Object>(32, 32, HexEngine.ORIENTATION_HORIZONTAL);
+    this.engine.setModel(new DefaultIntegerHexModel(SIZE, SIZE, 0));
+    this.viewport = new HexRect2D(5000.5f, 7000.5f, 1920f, 1080f);
+
+    final Random rnd = new Random(12345L);
+    for (int i = 0; i < this.values; i++) {
+      final int col = rnd.nextInt(SIZE);
+      final int row = rnd.nextInt(SIZE);
+      final String text = "value" + i;
+      this.map.put(new HexPosition(col, row), text);
+      this.index.put(col, row, text);
+    }
+  }
+
+  @Benchmark
+  public int probeMapForEveryVisibleHex() {
+    int result = 0;
+    final int minCol = this.engine.calculateColumn(this.viewport.getLeft(), this.viewport.getTop()) - 1;
+    final int minRow = this.engine.calculateRow(this.viewport.getLeft(), this.viewport.getTop()) - 1;
+    final int maxCol = this.engine.calculateColumn(this.viewport.getRight(), this.viewport.getBottom()) + 1;
+    final int maxRow = this.engine.calculateRow(this.viewport.getRight(), this.viewport.getBottom()) + 1;
+    for (int r = minRow; r <= maxRow; r++) {
+      for (int c = minCol; c <= maxCol; c++) {
+        if (this.engine.isPositionVisible(c, r, this.viewport, false)) {
+          final String text = this.map.get(new HexPosition(c, r));
+          if (text != null) {
+            result += text.length();
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int spatialIndexVisible() {
+    this.counter.value = 0;
+    this.index.visitVisible(this.engine, this.viewport, false, this.counter);
+    return this.counter.value;
+  }
+}
@@ -0,0 +1,162 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.hexmap.LayerableHexValueSource;
+import com.igormaznitsa.jhexed.hexmap.LayerableHexValueSourceRender;
+import com.igormaznitsa.jhexed.values.HexColorValue;
+import com.igormaznitsa.jhexed.values.HexFieldValue;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of rendering of a Full HD area of cells with stacks of
+ * semi-transparent layer values, with and without the cache of composited
+ * stacks. The map contains sixteen different stacks.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class StackCompositeBenchmark {
+
+  private static final int STACKS = 16;
+
+  @Param({"4", "12"})
+  public int layers;
+
+  @Param({"false", "true"})
+  public boolean cache;
+
+  private HexEngine<Graphics2D> engine;
+  private HexRect2D area;
+  private BufferedImage image;
+  private Graphics2D gfx;
+
+  private static final class StackModel implements HexEngineModel<Object>, LayerableHexValueSource {
+
+    private final List<List<HexFieldValue>> stacks;
+
+    private StackModel(final List<List<HexFieldValue>> stacks) {
+      this.stacks = stacks;
+    }
+
+    @Override
+    public Iterable<HexFieldValue> getHexStackAtPosition(final int col, final int row) {
+      return this.stacks.get((col * 7 + row * 3) % STACKS);
+    }
+
+    @Override
+    public int getColumnNumber() {
+      return 128;
+    }
+
+    @Override
+    public int getRowNumber() {
+      return 128;
+    }
+
+    @Override
+    public Object getValueAt(final int col, final int row) {
+      return null;
+    }
+
+    @Override
+    public Object getValueAt(final HexPosition pos) {
+      return null;
+    }
+
+    @Override
+    public void setValueAt(final int col, final int row, final Object value) {
+    }
+
+    @Override
+    public void setValueAt(final HexPosition pos, final Object value) {
+    }
+
+    @Override
+    public boolean isPositionValid(final int col, final int row) {
+      return col >= 0 && row >= 0 && col < 128 && row < 128;
+    }
+
+    @Override
+    public boolean isPositionValid(final HexPosition pos) {
+      return isPositionValid(pos.getColumn(), pos.getRow());
+    }
+
+    @Override
+    public void attachedToEngine(final HexEngine<?> engine) {
+    }
+
+    @Override
+    public void detachedFromEngine(final HexEngine<?> engine) {
+    }
+  }
+
+  @Setup
+  public void setup() {
+    final LayerableHexValueSourceRender render = new LayerableHexValueSourceRender();
+    render.setStackCacheEnabled(this.cache);
+
+    this.engine = new HexEngine<Graphics2D>(32, 32, HexEngine.ORIENTATION_HORIZONTAL);
+    this.engine.setRenderer(render);
+
+    final List<List<HexFieldValue>> stacks = new ArrayList<List<HexFieldValue>>();
+    final HexFieldValue[][] values = new HexFieldValue[this.layers][2];
+    for (int l = 0; l < this.layers; l++) {
+      for (int v = 0; v < 2; v++) {
+        values[l][v] = new HexColorValue("v" + l + '_' + v, null, new Color((l * 40 + v * 120) & 0xFF, (l * 90) & 0xFF, 200, 64), v + 1);
+        values[l][v].prerasterizeIcon(render.getHexPath());
+      }
+    }
+    for (int s = 0; s < STACKS; s++) {
+      final List<HexFieldValue> stack = new ArrayList<HexFieldValue>();
+      for (int l = 0; l < this.layers; l++) {
+        stack.add(values[l][(s >> (l & 3)) & 1]);
+      }
+      stacks.add(stack);
+    }
+    this.engine.setModel(new StackModel(stacks));
+
+    this.area = new HexRect2D(0, 0, 1920, 1080);
+    this.image = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB);
+    this.gfx = this.image.createGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.gfx.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage drawArea() {
+    this.engine.drawArea(this.gfx, this.area, false);
+    return this.image;
+  }
+}
@@ -0,0 +1,159 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.hexmap.HexMapPanel;
+import com.igormaznitsa.jhexed.hexmap.LayerableHexValueSource;
+import com.igormaznitsa.jhexed.values.HexColorValue;
+import com.igormaznitsa.jhexed.values.HexFieldValue;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of painting of a Full HD viewport panned by 16 pixels for every
+ * frame over a hex map panel, with the tile cache and with direct rendering.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TileCacheBenchmark {
+
+  private static final int VIEW_WIDTH = 1920;
+  private static final int VIEW_HEIGHT = 1080;
+  private static final int STEP = 16;
+
+  @Param({"0", "67108864"})
+  public long budget;
+
+  private HexMapPanel panel;
+  private BufferedImage image;
+  private Graphics2D gfx;
+  private int offset;
+
+  private static final class StackModel implements HexEngineModel<Object>, LayerableHexValueSource {
+
+    private final List<HexFieldValue> even;
+    private final List<HexFieldValue> odd;
+
+    private StackModel(final HexFieldValue even, final HexFieldValue odd) {
+      this.even = Collections.singletonList(even);
+      this.odd = Collections.singletonList(odd);
+    }
+
+    @Override
+    public Iterable<HexFieldValue> getHexStackAtPosition(final int col, final int row) {
+      return ((col ^ row) & 1) == 0 ? this.even : this.odd;
+    }
+
+    @Override
+    public int getColumnNumber() {
+      return 256;
+    }
+
+    @Override
+    public int getRowNumber() {
+      return 256;
+    }
+
+    @Override
+    public Object getValueAt(final int col, final int row) {
+      return null;
+    }
+
+    @Override
+    public Object getValueAt(final HexPosition pos) {
+      return null;
+    }
+
+    @Override
+    public void setValueAt(final int col, final int row, final Object value) {
+    }
+
+    @Override
+    public void setValueAt(final HexPosition pos, final Object value) {
+    }
+
+    @Override
+    public boolean isPositionValid(final int col, final int row) {
+      return col >= 0 && row >= 0 && col < 256 && row < 256;
+    }
+
+    @Override
+    public boolean isPositionValid(final HexPosition pos) {
+      return isPositionValid(pos.getColumn(), pos.getRow());
+    }
+
+    @Override
+    public void attachedToEngine(final HexEngine<?> engine) {
+    }
+
+    @Override
+    public void detachedFromEngine(final HexEngine<?> engine) {
+    }
+  }
+
+  @Setup
+  public void setup() {
+    final HexFieldValue even = new HexColorValue("even", null, Color.ORANGE, 1);
+    final HexFieldValue odd = new HexColorValue("odd", null, Color.GREEN, 2);
+    this.panel = new HexMapPanel(new StackModel(even, odd));
+    this.panel.setTileCacheBudget(this.budget);
+    final Path2D shape = this.panel.getHexShape();
+    even.prerasterizeIcon(shape);
+    odd.prerasterizeIcon(shape);
+
+    this.panel.setSize(this.panel.getPreferredSize());
+    this.panel.doLayout();
+
+    this.image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    this.gfx = this.image.createGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.gfx.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage paintPannedViewport() {
+    final int range = Math.max(1, this.panel.getWidth() - VIEW_WIDTH);
+    this.offset = (this.offset + STEP) % range;
+    final Graphics2D g = (Graphics2D) this.gfx.create();
+    try {
+      g.translate(-this.offset, 0);
+      g.setClip(this.offset, 0, VIEW_WIDTH, VIEW_HEIGHT);
+      this.panel.paint(g);
+    }
+    finally {
+      g.dispose();
+    }
+    return this.image;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.renders.swing.BufferedImageTileFactory;
+import com.igormaznitsa.jhexed.renders.swing.ColorHexRender;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of sequential and tiled parallel rendering of a 4K area with the
+ * Swing color renderer.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TiledDrawAreaBenchmark {
+
+  @Param({"1", "2", "4"})
+  public int threads;
+
+  @Param({"256", "512"})
+  public int tileSize;
+
+  private HexEngine<Graphics2D> engine;
+  private HexRect2D area;
+  private BufferedImage image;
+  private Graphics2D gfx;
+  private ForkJoinPool pool;
+  private final BufferedImageTileFactory factory = new BufferedImageTileFactory();
+
+  @Setup
+  public void setup() {
+    this.engine = new HexEngine<Graphics2D>(48, 48, HexEngine.ORIENTATION_HORIZONTAL);
+    this.engine.setModel(new DefaultIntegerHexModel(128, 128, -1));
+    this.engine.setRenderer(new ColorHexRender());
+
+    this.area = new HexRect2D(0, 0, 3840, 2160);
+    this.image = new BufferedImage(3840, 2160, BufferedImage.TYPE_INT_ARGB);
+    this.gfx = this.image.createGraphics();
+    this.pool = new ForkJoinPool(this.threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.gfx.dispose();
+    this.pool.shutdownNow();
+  }
+
+  @Benchmark
+  public BufferedImage drawAreaSequential() {
+    this.engine.drawArea(this.gfx, this.area, false);
+    return this.image;
+  }
+
+  @Benchmark
+  public BufferedImage drawAreaTiled() throws InterruptedException {
+    this.engine.drawArea(this.gfx, this.area, false, this.tileSize, this.pool, this.factory);
+    return this.image;
+  }
+}
@@ -0,0 +1,98 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.benchmarks;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.engine.renders.NullHexRender;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for culling operations of the engine which are called for every
+ * repaint (visibility check, covered hexes and area drawing).
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VisibilityBenchmark {
+
+  @Param({"0", "1"})
+  public int orientation;
+
+  @Param({"0.5", "1.0", "2.5"})
+  public float scale;
+
+  private HexEngine<Object> engine;
+  private HexRect2D viewport;
+  private final Object gfx = new Object();
+
+  @Setup
+  public void setup() {
+    this.engine = new HexEngine<Object>(48, 48, this.orientation);
+    this.engine.setModel(new DefaultIntegerHexModel(512, 512, -1));
+    this.engine.setRenderer(new NullHexRender<Object>());
+    this.engine.setScale(this.scale, this.scale);
+
+    // a typical full HD window somewhere in the middle of the map
+    this.viewport = new HexRect2D(1000.3f, 700.7f, 1920f, 1080f);
+  }
+
+  @Benchmark
+  public void isPositionVisibleRough(final Blackhole bh) {
+    for (int row = 0; row < 64; row++) {
+      for (int col = 0; col < 64; col++) {
+        bh.consume(this.engine.isPositionVisible(col, row, this.viewport, false));
+      }
+    }
+  }
+
+  @Benchmark
+  public void isPositionVisibleAccurate(final Blackhole bh) {
+    for (int row = 0; row < 64; row++) {
+      for (int col = 0; col < 64; col++) {
+        bh.consume(this.engine.isPositionVisible(col, row, this.viewport, true));
+      }
+    }
+  }
+
+  @Benchmark
+  public Object getCoveredHexesRough() {
+    return this.engine.getCoveredHexes(this.viewport, false);
+  }
+
+  @Benchmark
+  public Object getCoveredHexesAccurate() {
+    return this.engine.getCoveredHexes(this.viewport, true);
+  }
+
+  @Benchmark
+  public void drawAreaRough() {
+    this.engine.drawArea(this.gfx, this.viewport, false);
+  }
+
+  @Benchmark
+  public void drawAreaAccurate() {
+    this.engine.drawArea(this.gfx, this.viewport, true);
+  }
+}
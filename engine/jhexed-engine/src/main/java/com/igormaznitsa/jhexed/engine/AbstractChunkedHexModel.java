@@ -0,0 +1,386 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import java.util.Arrays;
+
+/**
+ * Base of sparse models which keep values in square chunks of cells. A Chunk is
+ * allocated only for the first write of a non-default value into it and it is
+ * released when all its cells get the default value again, so mostly empty
+ * maps need memory only for their filled parts. The Class keeps geometry of
+ * chunks and counters of non-default cells, successors keep chunks themselves.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @param <E> object type saved in a cell
+ * @see ChunkedIntHexModel
+ * @see ChunkedByteHexModel
+ */
+public abstract class AbstractChunkedHexModel<E> implements HexEngineModel<E> {
+
+  /**
+   * Default size of a chunk side in cells.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64;
+
+  /**
+   * Number of columns
+   */
+  protected final int columns;
+
+  /**
+   * Number of rows
+   */
+  protected final int rows;
+
+  /**
+   * Shift to get chunk index from cell index.
+   */
+  protected final int chunkShift;
+
+  /**
+   * Mask to get index inside chunk from cell index.
+   */
+  protected final int chunkMask;
+
+  /**
+   * Number of chunk columns.
+   */
+  protected final int chunkColumns;
+
+  /**
+   * Number of chunk rows.
+   */
+  protected final int chunkRows;
+
+  /**
+   * Number of non-default cells in every chunk.
+   */
+  private final int[] chunkCounters;
+
+  /**
+   * Number of allocated chunks.
+   */
+  private int occupiedChunks;
+
+  /**
+   * The Constructor
+   *
+   * @param columns the column number in the model, must not be negative
+   * @param rows the row number in the model, must not be negative
+   * @param chunkSize the size of chunk side in cells, must be power of two
+   */
+  protected AbstractChunkedHexModel(final int columns, final int rows, final int chunkSize) {
+    if (columns < 0) {
+      throw new IllegalArgumentException("Column number must not be negative [" + columns + ']');
+    }
+    if (rows < 0) {
+      throw new IllegalArgumentException("Row number must not be negative [" + rows + ']');
+    }
+    if (chunkSize <= 0 || chunkSize > 4096 || Integer.bitCount(chunkSize) != 1) {
+      throw new IllegalArgumentException("Chunk size must be power of two [" + chunkSize + ']');
+    }
+
+    this.columns = columns;
+    this.rows = rows;
+
+    this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+    this.chunkMask = chunkSize - 1;
+    this.chunkColumns = (columns + this.chunkMask) >>> this.chunkShift;
+    this.chunkRows = (rows + this.chunkMask) >>> this.chunkShift;
+
+    this.chunkCounters = new int[this.chunkColumns * this.chunkRows];
+  }
+
+  /**
+   * Copy constructor, chunks must be copied by successor.
+   *
+   * @param model the model which geometry and counters will be copied
+   */
+  protected AbstractChunkedHexModel(final AbstractChunkedHexModel<E> model) {
+    this.columns = model.columns;
+    this.rows = model.rows;
+    this.chunkShift = model.chunkShift;
+    this.chunkMask = model.chunkMask;
+    this.chunkColumns = model.chunkColumns;
+    this.chunkRows = model.chunkRows;
+    this.chunkCounters = model.chunkCounters.clone();
+    this.occupiedChunks = model.occupiedChunks;
+  }
+
+  /**
+   * Check that a chunk has been allocated.
+   *
+   * @param chunkIndex the chunk index
+   * @return true if the chunk is allocated
+   */
+  protected abstract boolean isChunkAllocated(int chunkIndex);
+
+  /**
+   * Release memory of a chunk.
+   *
+   * @param chunkIndex the chunk index
+   */
+  protected abstract void releaseChunk(int chunkIndex);
+
+  @Override
+  public int getColumnNumber() {
+    return this.columns;
+  }
+
+  @Override
+  public int getRowNumber() {
+    return this.rows;
+  }
+
+  /**
+   * Get size of chunk side in cells.
+   *
+   * @return the chunk size
+   */
+  public int getChunkSize() {
+    return this.chunkMask + 1;
+  }
+
+  /**
+   * Get number of chunk columns.
+   *
+   * @return number of chunks at horizontal
+   */
+  public int getChunkColumnNumber() {
+    return this.chunkColumns;
+  }
+
+  /**
+   * Get number of chunk rows.
+   *
+   * @return number of chunks at vertical
+   */
+  public int getChunkRowNumber() {
+    return this.chunkRows;
+  }
+
+  /**
+   * Check that a chunk is allocated, i.e. it contains non-default values.
+   *
+   * @param chunkColumn the chunk column
+   * @param chunkRow the chunk row
+   * @return true if the chunk is allocated, false otherwise
+   */
+  public boolean isChunkOccupied(final int chunkColumn, final int chunkRow) {
+    if (chunkColumn < 0 || chunkRow < 0 || chunkColumn >= this.chunkColumns || chunkRow >= this.chunkRows) {
+      return false;
+    }
+    return isChunkAllocated(chunkColumn + chunkRow * this.chunkColumns);
+  }
+
+  /**
+   * Get number of allocated chunks.
+   *
+   * @return number of chunks which contain non-default values
+   */
+  public int getOccupiedChunkNumber() {
+    return this.occupiedChunks;
+  }
+
+  /**
+   * Get positions of allocated chunks as packed column-row pairs in row-major
+   * order.
+   *
+   * @param array the array will be used for result but it can be null or it can
+   * be smaller than needed one and in the case a new array will be generated
+   * @return array with first {@link #getOccupiedChunkNumber()} elements
+   * contains chunk column-row values packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}
+   * @see HexEngine#extractColumnLong(long)
+   * @see HexEngine#extractRowLong(long)
+   */
+  public long[] getOccupiedChunks(final long[] array) {
+    final long[] result = array == null || array.length < this.occupiedChunks ? new long[this.occupiedChunks] : array;
+    int pos = 0;
+    for (int i = 0; i < this.chunkCounters.length && pos < this.occupiedChunks; i++) {
+      if (isChunkAllocated(i)) {
+        result[pos++] = HexEngine.packColumnRowLong(i % this.chunkColumns, i / this.chunkColumns);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reset all cells to the default value and release all chunks.
+   */
+  public void clear() {
+    for (int i = 0; i < this.chunkCounters.length; i++) {
+      if (isChunkAllocated(i)) {
+        releaseChunk(i);
+      }
+    }
+    Arrays.fill(this.chunkCounters, 0);
+    this.occupiedChunks = 0;
+  }
+
+  @Override
+  public boolean isPositionValid(final int col, final int row) {
+    return col >= 0 && row >= 0 && col < this.columns && row < this.rows;
+  }
+
+  @Override
+  public boolean isPositionValid(final HexPosition pos) {
+    return this.isPositionValid(pos.getColumn(), pos.getRow());
+  }
+
+  @Override
+  public E getValueAt(final HexPosition pos) {
+    return this.getValueAt(pos.getColumn(), pos.getRow());
+  }
+
+  @Override
+  public void setValueAt(final HexPosition pos, final E value) {
+    this.setValueAt(pos.getColumn(), pos.getRow(), value);
+  }
+
+  @Override
+  public void attachedToEngine(final HexEngine<?> engine) {
+  }
+
+  @Override
+  public void detachedFromEngine(final HexEngine<?> engine) {
+  }
+
+  /**
+   * Get number of chunks.
+   *
+   * @return number of chunks in the model
+   */
+  protected final int getChunkNumber() {
+    return this.chunkCounters.length;
+  }
+
+  /**
+   * Get number of cells in a chunk.
+   *
+   * @return number of cells in a chunk including ones outside of the model
+   */
+  protected final int getChunkCellNumber() {
+    return (this.chunkMask + 1) << this.chunkShift;
+  }
+
+  /**
+   * Get index of the chunk which contains a cell.
+   *
+   * @param col the valid column of the cell
+   * @param row the valid row of the cell
+   * @return the chunk index
+   */
+  protected final int chunkIndex(final int col, final int row) {
+    return (col >>> this.chunkShift) + (row >>> this.chunkShift) * this.chunkColumns;
+  }
+
+  /**
+   * Get index of a cell inside its chunk.
+   *
+   * @param col the valid column of the cell
+   * @param row the valid row of the cell
+   * @return the index inside the chunk
+   */
+  protected final int cellIndex(final int col, final int row) {
+    return (col & this.chunkMask) + ((row & this.chunkMask) << this.chunkShift);
+  }
+
+  /**
+   * Get the first model column of a chunk.
+   *
+   * @param chunkIndex the chunk index
+   * @return the column of the left cells of the chunk
+   */
+  protected final int chunkStartColumn(final int chunkIndex) {
+    return (chunkIndex % this.chunkColumns) << this.chunkShift;
+  }
+
+  /**
+   * Get the first model row of a chunk.
+   *
+   * @param chunkIndex the chunk index
+   * @return the row of the top cells of the chunk
+   */
+  protected final int chunkStartRow(final int chunkIndex) {
+    return (chunkIndex / this.chunkColumns) << this.chunkShift;
+  }
+
+  /**
+   * Get number of chunk columns inside of the model.
+   *
+   * @param chunkIndex the chunk index
+   * @return the width of the chunk, it is smaller than chunk size for right
+   * chunks
+   */
+  protected final int chunkWidth(final int chunkIndex) {
+    return Math.min(this.chunkMask + 1, this.columns - chunkStartColumn(chunkIndex));
+  }
+
+  /**
+   * Get number of chunk rows inside of the model.
+   *
+   * @param chunkIndex the chunk index
+   * @return the height of the chunk, it is smaller than chunk size for bottom
+   * chunks
+   */
+  protected final int chunkHeight(final int chunkIndex) {
+    return Math.min(this.chunkMask + 1, this.rows - chunkStartRow(chunkIndex));
+  }
+
+  /**
+   * Must be called by successor after allocation of a chunk.
+   */
+  protected final void chunkAllocated() {
+    this.occupiedChunks++;
+  }
+
+  /**
+   * Count change of a cell value, the chunk is released if it doesn't contain
+   * non-default values anymore.
+   *
+   * @param chunkIndex the index of the allocated chunk
+   * @param wasDefault true if the old value is the default one
+   * @param isDefault true if the new value is the default one
+   */
+  protected final void countCellChange(final int chunkIndex, final boolean wasDefault, final boolean isDefault) {
+    if (wasDefault) {
+      if (!isDefault) {
+        this.chunkCounters[chunkIndex]++;
+      }
+    }
+    else if (isDefault) {
+      setChunkCounter(chunkIndex, this.chunkCounters[chunkIndex] - 1);
+    }
+  }
+
+  /**
+   * Set number of non-default cells of an allocated chunk after bulk change,
+   * the chunk is released if the number is zero.
+   *
+   * @param chunkIndex the index of the allocated chunk
+   * @param counter the number of non-default cells in the chunk
+   */
+  protected final void setChunkCounter(final int chunkIndex, final int counter) {
+    this.chunkCounters[chunkIndex] = counter;
+    if (counter == 0) {
+      releaseChunk(chunkIndex);
+      this.occupiedChunks--;
+    }
+  }
+}
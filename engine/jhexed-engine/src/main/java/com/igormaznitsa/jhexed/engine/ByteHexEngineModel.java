@@ -0,0 +1,46 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+/**
+ * Interface describes a hexagonal model keeping byte values, it allows to read
+ * and write cells without boxing.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexEngineModel
+ */
+public interface ByteHexEngineModel extends HexEngineModel<Byte> {
+
+  /**
+   * Get cell value at coordinates as primitive.
+   *
+   * @param col the column index.
+   * @param row the row index.
+   * @return the value saved in the cell or the outbound value for invalid
+   * position.
+   */
+  byte getByte(int col, int row);
+
+  /**
+   * Set primitive value into a cell for position. Invalid positions are
+   * ignored.
+   *
+   * @param col the column index of a cell.
+   * @param row the row index of a cell.
+   * @param value the value to be saved into the cell.
+   */
+  void setByte(int col, int row, byte value);
+}
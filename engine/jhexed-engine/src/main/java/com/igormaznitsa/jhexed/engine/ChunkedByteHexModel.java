@@ -0,0 +1,267 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+import java.util.Arrays;
+
+/**
+ * Sparse model keeps byte values in square chunks of cells, see
+ * {@link AbstractChunkedHexModel}. Values can be also remapped through a table,
+ * so that the model can be used as storage of layers.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see AbstractChunkedHexModel
+ */
+public class ChunkedByteHexModel extends AbstractChunkedHexModel<Byte> implements ByteHexEngineModel {
+
+  /**
+   * The Value of cells which have not been written.
+   */
+  private final byte defaultValue;
+
+  /**
+   * The Value returned if requested position is not a valid one.
+   */
+  private final byte outboundValue;
+
+  /**
+   * Chunks, null for not allocated ones.
+   */
+  private final byte[][] chunks;
+
+  /**
+   * The Constructor, default chunk size will be used.
+   *
+   * @param columns the column number in the model, must not be negative
+   * @param rows the row number in the model, must not be negative
+   * @param defaultValue the value of not written cells
+   * @param outboundValue the value to be used for illegal positions.
+   */
+  public ChunkedByteHexModel(final int columns, final int rows, final byte defaultValue, final byte outboundValue) {
+    this(columns, rows, defaultValue, outboundValue, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * The Constructor
+   *
+   * @param columns the column number in the model, must not be negative
+   * @param rows the row number in the model, must not be negative
+   * @param defaultValue the value of not written cells
+   * @param outboundValue the value to be used for illegal positions.
+   * @param chunkSize the size of chunk side in cells, must be power of two
+   */
+  public ChunkedByteHexModel(final int columns, final int rows, final byte defaultValue, final byte outboundValue, final int chunkSize) {
+    super(columns, rows, chunkSize);
+    this.defaultValue = defaultValue;
+    this.outboundValue = outboundValue;
+    this.chunks = new byte[getChunkNumber()][];
+  }
+
+  private ChunkedByteHexModel(final ChunkedByteHexModel model) {
+    super(model);
+    this.defaultValue = model.defaultValue;
+    this.outboundValue = model.outboundValue;
+    this.chunks = new byte[model.chunks.length][];
+    for (int i = 0; i < this.chunks.length; i++) {
+      final byte[] chunk = model.chunks[i];
+      this.chunks[i] = chunk == null ? null : chunk.clone();
+    }
+  }
+
+  /**
+   * Make a copy of the model, only allocated chunks are copied.
+   *
+   * @return a new model with the same content
+   */
+  public ChunkedByteHexModel cloneModel() {
+    return new ChunkedByteHexModel(this);
+  }
+
+  /**
+   * Get the default value of not written cells.
+   *
+   * @return the default value
+   */
+  public byte getDefaultValue() {
+    return this.defaultValue;
+  }
+
+  @Override
+  protected boolean isChunkAllocated(final int chunkIndex) {
+    return this.chunks[chunkIndex] != null;
+  }
+
+  @Override
+  protected void releaseChunk(final int chunkIndex) {
+    this.chunks[chunkIndex] = null;
+  }
+
+  private byte[] allocateChunk(final int chunkIndex) {
+    final byte[] chunk = new byte[getChunkCellNumber()];
+    if (this.defaultValue != 0) {
+      Arrays.fill(chunk, this.defaultValue);
+    }
+    this.chunks[chunkIndex] = chunk;
+    chunkAllocated();
+    return chunk;
+  }
+
+  /**
+   * Set all cells to a value, chunks are allocated only if the value is not
+   * the default one.
+   *
+   * @param value the value for all cells
+   */
+  public void fill(final byte value) {
+    clear();
+    if (value == this.defaultValue) {
+      return;
+    }
+    for (int i = 0; i < this.chunks.length; i++) {
+      final byte[] chunk = allocateChunk(i);
+      final int width = chunkWidth(i);
+      final int height = chunkHeight(i);
+      for (int y = 0; y < height; y++) {
+        Arrays.fill(chunk, y << this.chunkShift, (y << this.chunkShift) + width, value);
+      }
+      setChunkCounter(i, width * height);
+    }
+  }
+
+  /**
+   * Get whole content as a row-major array.
+   *
+   * @return a new array with columns*rows elements
+   */
+  public byte[] toArray() {
+    final byte[] result = new byte[this.columns * this.rows];
+    if (this.defaultValue != 0) {
+      Arrays.fill(result, this.defaultValue);
+    }
+    for (int i = 0; i < this.chunks.length; i++) {
+      final byte[] chunk = this.chunks[i];
+      if (chunk != null) {
+        final int start = chunkStartRow(i) * this.columns + chunkStartColumn(i);
+        final int width = chunkWidth(i);
+        final int height = chunkHeight(i);
+        for (int y = 0; y < height; y++) {
+          System.arraycopy(chunk, y << this.chunkShift, result, start + y * this.columns, width);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replace whole content by a row-major array.
+   *
+   * @param array the array with columns*rows elements, must not be null
+   */
+  public void loadArray(final byte[] array) {
+    if (array.length != this.columns * this.rows) {
+      throw new IllegalArgumentException("Wrong array length [" + array.length + ']');
+    }
+    clear();
+    int index = 0;
+    for (int row = 0; row < this.rows; row++) {
+      for (int col = 0; col < this.columns; col++) {
+        final byte value = array[index++];
+        if (value != this.defaultValue) {
+          this.setByte(col, row, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Replace every value of cells through a table.
+   *
+   * @param table the table of new values, a value is used as unsigned index,
+   * must have 256 elements
+   */
+  public void remapValues(final byte[] table) {
+    if (table.length != 256) {
+      throw new IllegalArgumentException("Table must have 256 elements [" + table.length + ']');
+    }
+    if (table[this.defaultValue & 0xFF] != this.defaultValue) {
+      final byte[] array = this.toArray();
+      for (int i = 0; i < array.length; i++) {
+        array[i] = table[array[i] & 0xFF];
+      }
+      this.loadArray(array);
+      return;
+    }
+    for (int i = 0; i < this.chunks.length; i++) {
+      final byte[] chunk = this.chunks[i];
+      if (chunk != null) {
+        int counter = 0;
+        for (int j = 0; j < chunk.length; j++) {
+          final byte value = table[chunk[j] & 0xFF];
+          chunk[j] = value;
+          if (value != this.defaultValue) {
+            counter++;
+          }
+        }
+        setChunkCounter(i, counter);
+      }
+    }
+  }
+
+  @Override
+  public byte getByte(final int col, final int row) {
+    if (!isPositionValid(col, row)) {
+      return this.outboundValue;
+    }
+    final byte[] chunk = this.chunks[chunkIndex(col, row)];
+    return chunk == null ? this.defaultValue : chunk[cellIndex(col, row)];
+  }
+
+  @Override
+  public void setByte(final int col, final int row, final byte value) {
+    if (!isPositionValid(col, row)) {
+      return;
+    }
+
+    final int chunkIndex = chunkIndex(col, row);
+    byte[] chunk = this.chunks[chunkIndex];
+    if (chunk == null) {
+      if (value == this.defaultValue) {
+        return;
+      }
+      chunk = allocateChunk(chunkIndex);
+    }
+
+    final int cellIndex = cellIndex(col, row);
+    final byte old = chunk[cellIndex];
+    if (old != value) {
+      chunk[cellIndex] = value;
+      countCellChange(chunkIndex, old == this.defaultValue, value == this.defaultValue);
+    }
+  }
+
+  @Override
+  public Byte getValueAt(final int col, final int row) {
+    return this.getByte(col, row);
+  }
+
+  @Override
+  public void setValueAt(final int col, final int row, final Byte value) {
+    if (value == null) {
+      throw new NullPointerException("Null value");
+    }
+    this.setByte(col, row, value);
+  }
+}
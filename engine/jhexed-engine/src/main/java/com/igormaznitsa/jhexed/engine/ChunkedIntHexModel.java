@@ -0,0 +1,233 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+import java.util.Arrays;
+
+/**
+ * Sparse model keeps integer values in square chunks of cells, see
+ * {@link AbstractChunkedHexModel}. Occupied chunks can be enumerated to iterate
+ * only through filled parts of the map.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see AbstractChunkedHexModel
+ */
+public class ChunkedIntHexModel extends AbstractChunkedHexModel<Integer> implements IntHexEngineModel {
+
+  /**
+   * The Value of cells which have not been written.
+   */
+  private final int defaultValue;
+
+  /**
+   * The Value returned if requested position is not a valid one.
+   */
+  private final int outboundValue;
+
+  /**
+   * Chunks, null for not allocated ones.
+   */
+  private final int[][] chunks;
+
+  /**
+   * The Constructor, default chunk size will be used.
+   *
+   * @param columns the column number in the model, must not be negative
+   * @param rows the row number in the model, must not be negative
+   * @param defaultValue the value of not written cells
+   * @param outboundValue the value to be used for illegal positions.
+   */
+  public ChunkedIntHexModel(final int columns, final int rows, final int defaultValue, final int outboundValue) {
+    this(columns, rows, defaultValue, outboundValue, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * The Constructor
+   *
+   * @param columns the column number in the model, must not be negative
+   * @param rows the row number in the model, must not be negative
+   * @param defaultValue the value of not written cells
+   * @param outboundValue the value to be used for illegal positions.
+   * @param chunkSize the size of chunk side in cells, must be power of two
+   */
+  public ChunkedIntHexModel(final int columns, final int rows, final int defaultValue, final int outboundValue, final int chunkSize) {
+    super(columns, rows, chunkSize);
+    this.defaultValue = defaultValue;
+    this.outboundValue = outboundValue;
+    this.chunks = new int[getChunkNumber()][];
+  }
+
+  private ChunkedIntHexModel(final ChunkedIntHexModel model) {
+    super(model);
+    this.defaultValue = model.defaultValue;
+    this.outboundValue = model.outboundValue;
+    this.chunks = new int[model.chunks.length][];
+    for (int i = 0; i < this.chunks.length; i++) {
+      final int[] chunk = model.chunks[i];
+      this.chunks[i] = chunk == null ? null : chunk.clone();
+    }
+  }
+
+  /**
+   * Make a copy of the model, only allocated chunks are copied.
+   *
+   * @return a new model with the same content
+   */
+  public ChunkedIntHexModel cloneModel() {
+    return new ChunkedIntHexModel(this);
+  }
+
+  /**
+   * Get the default value of not written cells.
+   *
+   * @return the default value
+   */
+  public int getDefaultValue() {
+    return this.defaultValue;
+  }
+
+  @Override
+  protected boolean isChunkAllocated(final int chunkIndex) {
+    return this.chunks[chunkIndex] != null;
+  }
+
+  @Override
+  protected void releaseChunk(final int chunkIndex) {
+    this.chunks[chunkIndex] = null;
+  }
+
+  private int[] allocateChunk(final int chunkIndex) {
+    final int[] chunk = new int[getChunkCellNumber()];
+    if (this.defaultValue != 0) {
+      Arrays.fill(chunk, this.defaultValue);
+    }
+    this.chunks[chunkIndex] = chunk;
+    chunkAllocated();
+    return chunk;
+  }
+
+  /**
+   * Set all cells to a value, chunks are allocated only if the value is not
+   * the default one.
+   *
+   * @param value the value for all cells
+   */
+  public void fill(final int value) {
+    clear();
+    if (value == this.defaultValue) {
+      return;
+    }
+    for (int i = 0; i < this.chunks.length; i++) {
+      final int[] chunk = allocateChunk(i);
+      final int width = chunkWidth(i);
+      final int height = chunkHeight(i);
+      for (int y = 0; y < height; y++) {
+        Arrays.fill(chunk, y << this.chunkShift, (y << this.chunkShift) + width, value);
+      }
+      setChunkCounter(i, width * height);
+    }
+  }
+
+  /**
+   * Get whole content as a row-major array.
+   *
+   * @return a new array with columns*rows elements
+   */
+  public int[] toArray() {
+    final int[] result = new int[this.columns * this.rows];
+    if (this.defaultValue != 0) {
+      Arrays.fill(result, this.defaultValue);
+    }
+    for (int i = 0; i < this.chunks.length; i++) {
+      final int[] chunk = this.chunks[i];
+      if (chunk != null) {
+        final int start = chunkStartRow(i) * this.columns + chunkStartColumn(i);
+        final int width = chunkWidth(i);
+        final int height = chunkHeight(i);
+        for (int y = 0; y < height; y++) {
+          System.arraycopy(chunk, y << this.chunkShift, result, start + y * this.columns, width);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replace whole content by a row-major array.
+   *
+   * @param array the array with columns*rows elements, must not be null
+   */
+  public void loadArray(final int[] array) {
+    if (array.length != this.columns * this.rows) {
+      throw new IllegalArgumentException("Wrong array length [" + array.length + ']');
+    }
+    clear();
+    int index = 0;
+    for (int row = 0; row < this.rows; row++) {
+      for (int col = 0; col < this.columns; col++) {
+        final int value = array[index++];
+        if (value != this.defaultValue) {
+          this.setInt(col, row, value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int getInt(final int col, final int row) {
+    if (!isPositionValid(col, row)) {
+      return this.outboundValue;
+    }
+    final int[] chunk = this.chunks[chunkIndex(col, row)];
+    return chunk == null ? this.defaultValue : chunk[cellIndex(col, row)];
+  }
+
+  @Override
+  public void setInt(final int col, final int row, final int value) {
+    if (!isPositionValid(col, row)) {
+      return;
+    }
+
+    final int chunkIndex = chunkIndex(col, row);
+    int[] chunk = this.chunks[chunkIndex];
+    if (chunk == null) {
+      if (value == this.defaultValue) {
+        return;
+      }
+      chunk = allocateChunk(chunkIndex);
+    }
+
+    final int cellIndex = cellIndex(col, row);
+    final int old = chunk[cellIndex];
+    if (old != value) {
+      chunk[cellIndex] = value;
+      countCellChange(chunkIndex, old == this.defaultValue, value == this.defaultValue);
+    }
+  }
+
+  @Override
+  public Integer getValueAt(final int col, final int row) {
+    return this.getInt(col, row);
+  }
+
+  @Override
+  public void setValueAt(final int col, final int row, final Integer value) {
+    if (value == null) {
+      throw new NullPointerException("Null value");
+    }
+    this.setInt(col, row, value);
+  }
+}
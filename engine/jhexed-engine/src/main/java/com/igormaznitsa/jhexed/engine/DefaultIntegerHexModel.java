@@ -22,7 +22,7 @@ import com.igormaznitsa.jhexed.engine.misc.HexPosition;
  *
  * @author Igor Maznitsa (http://www.igormaznitsa.com)
  */
-public class DefaultIntegerHexModel implements HexEngineModel<Integer> {
+public class DefaultIntegerHexModel implements IntHexEngineModel {
 
   /**
    * Inside array to keep values
@@ -90,6 +90,23 @@ public class DefaultIntegerHexModel implements HexEngineModel<Integer> {
     }
   }
 
+  @Override
+  public int getInt(final int col, final int row) {
+    if (isPositionValid(col, row)) {
+      return this.array[col + row * this.columns];
+    }
+    else {
+      return this.outboundIValue;
+    }
+  }
+
+  @Override
+  public void setInt(final int col, final int row, final int value) {
+    if (isPositionValid(col, row)) {
+      this.array[col + row * this.columns] = value;
+    }
+  }
+
   @Override
   public boolean isPositionValid(final int col, final int row) {
     return col >= 0 && row >= 0 && col < this.columns && row < this.rows;
@@ -115,9 +132,7 @@ public class DefaultIntegerHexModel implements HexEngineModel<Integer> {
     if (value == null) {
       throw new NullPointerException("Null value");
     }
-    if (isPositionValid(col, row)) {
-      this.array[col + row * this.columns] = value;
-    }
+    this.setInt(col, row, value);
   }
 
   public void attachedToEngine(final HexEngine<?> layer) {
@@ -19,11 +19,18 @@ import com.igormaznitsa.jhexed.engine.misc.*;
 import com.igormaznitsa.jhexed.engine.renders.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * The Class implements a Hexagonal engine controller. It work as the central
  * manager of the engine and ensure communication between model and rendering
  * parts.
+ * <p>
+ * Drawing and picking operations don't take locks, they work over an immutable
+ * geometry snapshot and the current renderer and model which are read once per
+ * operation, so several threads can render and pick concurrently. Changes of
+ * scale, base parameters, renderer or model are serialized between writers.
+ * </p>
  *
  * @author Igor Maznitsa (http://www.igormaznitsa.com)
  * @param <G> the type of graphics context to be used for rendering operations.
@@ -37,11 +44,6 @@ public final class HexEngine<G> {
    */
   private static final float DEFAULT_COEFF = 0.22f;
 
-  /**
-   * The Value contains the current coefficient for hexagon shape.
-   */
-  private float coeff = DEFAULT_COEFF;
-
   /**
    * Horizontal orientation of hexagons.
    */
@@ -52,54 +54,511 @@ public final class HexEngine<G> {
   public static final int ORIENTATION_VERTICAL = 1;
 
   /**
-   * The base cell width.
+   * Immutable snapshot of the engine geometry, it contains base parameters of
+   * hexagons and their scaled values for a scale factor. A new snapshot is
+   * published for every change of parameters so that readers can work without
+   * locks and see consistent values during whole operation.
    */
-  private float cellWidth;
   /**
-   * The scaled cell width for the current scale X factor.
+   * Receiver of neighbor positions found by a ring walk.
    */
-  private float scaledCellWidth;
+  private abstract static class NeighbourConsumer {
 
-  /**
-   * The base cell height.
-   */
-  private float cellHeight;
+    abstract void accept(int index, int col, int row);
+  }
 
-  /**
-   * The scaled cell height for the current scale Y factor.
-   */
-  private float scaledCellHeight;
+  private static final class Geometry {
+
+    /**
+     * The Coefficient for hexagon shape.
+     */
+    private final float coeff;
+    /**
+     * The Orientation of hexagons on the layer.
+     */
+    private final int orientation;
+    /**
+     * The base cell width.
+     */
+    private final float cellWidth;
+    /**
+     * The base cell height.
+     */
+    private final float cellHeight;
+    /**
+     * The Offset of the edge side.
+     */
+    private final float offsetForEdgeSide;
+    /**
+     * The half of side.
+     */
+    private final float halfOfSide;
+    /**
+     * Points of the hexagon.
+     */
+    private final HexPoint2D[] points;
+
+    /**
+     * The X scale factor.
+     */
+    private final float scaleX;
+    /**
+     * The Y scale factor.
+     */
+    private final float scaleY;
+    /**
+     * The scaled cell width for the current scale X factor.
+     */
+    private final float scaledCellWidth;
+    /**
+     * The scaled cell height for the current scale Y factor.
+     */
+    private final float scaledCellHeight;
+    /**
+     * The scaled offset of the edge side.
+     */
+    private final float scaledOffsetForEdgeSide;
+    /**
+     * The scaled half of side.
+     */
+    private final float scaledHalfOfSide;
+    /**
+     * Scaled points for the hexagon.
+     */
+    private final HexPoint2D[] scaledPoints;
+
+    /**
+     * A Constructor.
+     *
+     * @param cellWidth the cell width, must not be less than 1
+     * @param cellHeight the cell height, must not be less than 1
+     * @param coeff the coefficient for hexagon form-factor
+     * @param orientation the hexagon orientation
+     * @param scaleX the X scale factor
+     * @param scaleY the Y scale factor
+     */
+    private Geometry(final float cellWidth, final float cellHeight, final float coeff, final int orientation, final float scaleX, final float scaleY) {
+      this.coeff = coeff;
+      this.orientation = orientation;
+      this.cellWidth = cellWidth;
+      this.cellHeight = cellHeight;
 
-  /**
-   * The Orientation of hexagons on the layer.
-   */
-  private int orientation;
+      this.points = new HexPoint2D[6];
 
-  /**
-   * The Offset of the edge side.
-   */
-  private float offsetForEdgeSide;
-  /**
-   * The scaled offset of the edge side.
-   */
-  private float scaledOffsetForEdgeSide;
-  /**
-   * The half of side.
-   */
-  private float halfOfSide;
-  /**
-   * The scaled half of side.
-   */
-  private float scaledHalfOfSide;
+      switch (orientation) {
+        case ORIENTATION_HORIZONTAL: {
+          this.offsetForEdgeSide = Math.round(cellWidth * coeff);
+          this.halfOfSide = Math.round(cellHeight / 2f);
+
+          this.points[0] = new HexPoint2D(this.offsetForEdgeSide, 0.0f);
+          this.points[1] = new HexPoint2D(cellWidth - this.offsetForEdgeSide, this.points[0].getY());
+          this.points[2] = new HexPoint2D(cellWidth, this.halfOfSide);
+          this.points[3] = new HexPoint2D(this.points[1], cellHeight);
+          this.points[4] = new HexPoint2D(this.points[0].getX(), this.points[3].getY());
+          this.points[5] = new HexPoint2D(0, this.points[2]);
+
+          this.scaledHalfOfSide = this.halfOfSide * scaleY;
+          this.scaledOffsetForEdgeSide = this.offsetForEdgeSide * scaleX;
+        }
+        break;
+        case ORIENTATION_VERTICAL: {
+          this.offsetForEdgeSide = Math.round(cellHeight * coeff);
+          this.halfOfSide = Math.round(cellWidth / 2f);
+
+          this.points[0] = new HexPoint2D(this.halfOfSide, 0);
+          this.points[1] = new HexPoint2D(cellWidth, this.offsetForEdgeSide);
+          this.points[2] = new HexPoint2D(this.points[1], cellHeight - this.offsetForEdgeSide);
+          this.points[3] = new HexPoint2D(this.points[0], cellHeight);
+          this.points[4] = new HexPoint2D(0, this.points[2]);
+          this.points[5] = new HexPoint2D(0, this.points[1]);
+
+          this.scaledHalfOfSide = this.halfOfSide * scaleX;
+          this.scaledOffsetForEdgeSide = this.offsetForEdgeSide * scaleY;
+        }
+        break;
+        default: {
+          throw new Error("Unsupported orientation " + orientation);
+        }
+      }
+
+      this.scaleX = scaleX;
+      this.scaleY = scaleY;
+
+      this.scaledCellWidth = cellWidth * scaleX;
+      this.scaledCellHeight = cellHeight * scaleY;
+
+      this.scaledPoints = new HexPoint2D[6];
+      for (int i = 0; i < 6; i++) {
+        this.scaledPoints[i] = new HexPoint2D(this.points[i], scaleX, scaleY);
+      }
+    }
+
+    /**
+     * Make a snapshot with the same base parameters but another scale factor.
+     *
+     * @param scaleX the X scale factor
+     * @param scaleY the Y scale factor
+     * @return a new geometry snapshot
+     */
+    private Geometry withScale(final float scaleX, final float scaleY) {
+      return new Geometry(this.cellWidth, this.cellHeight, this.coeff, this.orientation, scaleX, scaleY);
+    }
+
+    /**
+     * Calculate the left X offset of a cell.
+     *
+     * @param column the column number.
+     * @param row the row number.
+     * @return the calculated X.
+     */
+    private float calculateX(final int column, final int row) {
+      switch (this.orientation) {
+        case ORIENTATION_HORIZONTAL: {
+          return column * (this.scaledCellWidth - this.scaledOffsetForEdgeSide);
+        }
+        case ORIENTATION_VERTICAL: {
+          return (column * this.scaledCellWidth) + ((row & 1) == 0 ? 0 : this.scaledHalfOfSide);
+        }
+        default: {
+          throw new Error("Unsupported orientation");
+        }
+      }
+    }
+
+    /**
+     * Calculate the top Y offset of a cell.
+     *
+     * @param column the column number.
+     * @param row the row number.
+     * @return the calculated Y.
+     */
+    private float calculateY(final int column, final int row) {
+      switch (this.orientation) {
+        case ORIENTATION_HORIZONTAL: {
+          return (row * this.scaledCellHeight) + ((column & 1) == 0 ? 0 : this.scaledHalfOfSide);
+        }
+        case ORIENTATION_VERTICAL: {
+          return row * (this.scaledCellHeight - this.scaledOffsetForEdgeSide);
+        }
+        default: {
+          throw new Error("Unsupported orientation");
+        }
+      }
+    }
+
+    /**
+     * Calculate hexagon column for X,Y coordinates.
+     *
+     * @param x the X coordinate of point inside of the hexagon.
+     * @param y the Y coordinate of point inside of the hexagon.
+     * @return the hexagon column index.
+     */
+    private int calculateColumn(final float x, final float y) {
+
+      if (x < 0) {
+        return -1;
+      }
+
+      switch (this.orientation) {
+        case ORIENTATION_HORIZONTAL: {
+          int column = (int) (x / (this.scaledCellWidth - this.scaledOffsetForEdgeSide));
+          final int row = (int) ((y - ((column & 1) == 0 ? 0 : this.scaledHalfOfSide)) / this.scaledCellHeight);
+
+          final float xoffset = calculateX(column, row);
+          final float yoffset = calculateY(column, row);
+
+          final float normalX = x - xoffset;
+          final float normalY = y - yoffset;
+
+          if (normalX < this.scaledOffsetForEdgeSide) {
+            if (!this.scaledPoints[0].isPointInTriangle(this.scaledPoints[4], this.scaledPoints[5], normalX, normalY)) {
+              column--;
+            }
+          }
+          else if (normalX > this.scaledCellWidth - this.scaledOffsetForEdgeSide) {
+            if (!this.scaledPoints[1].isPointInTriangle(this.scaledPoints[2], this.scaledPoints[3], normalX, normalY)) {
+              column++;
+            }
+          }
+          return column;
+        }
+        case ORIENTATION_VERTICAL: {
+          final int row = (int) (y / (this.scaledCellHeight - this.scaledOffsetForEdgeSide));
+
+          int column = (int) ((x - ((row & 1) == 0 ? 0 : this.scaledHalfOfSide)) / this.scaledCellWidth);
+
+          final boolean emptyHexCase = x < this.scaledHalfOfSide && (row & 1) != 0;
+
+          float xoffset = calculateX(column, row);
+          final float yoffset = calculateY(column, row);
+
+          final float normalX = x - xoffset;
+          final float normalY = y - yoffset;
+
+          if (normalY < this.scaledOffsetForEdgeSide) {
+            if (!this.scaledPoints[5].isPointInTriangle(this.scaledPoints[0], this.scaledPoints[1], normalX, normalY)) {
+              column += (normalX > this.scaledHalfOfSide ? row & 1 : -((row & 1) ^ 1));
+            }
+          }
+          else if (emptyHexCase) {
+            column = -1;
+          }
+
+          return column;
+        }
+        default:
+          throw new Error("Unsupported orientation");
+      }
+    }
+
+    /**
+     * Calculate hexagon row for X,Y coordinates.
+     *
+     * @param x the X coordinate of point inside of the hexagon.
+     * @param y the Y coordinate of point inside of the hexagon.
+     * @return the hexagon row index.
+     */
+    private int calculateRow(final float x, final float y) {
+      if (y < 0) {
+        return -1;
+      }
+
+      switch (this.orientation) {
+        case ORIENTATION_HORIZONTAL: {
+          final int column = calculateColumn(x, y);
+
+          int row;
+
+          if ((column & 1) == 0) {
+            row = (int) (y / this.scaledCellHeight);
+          }
+          else {
+            if (y < this.scaledHalfOfSide) {
+              row = -1;
+            }
+            else {
+              row = (int) ((y - this.scaledHalfOfSide) / this.scaledCellHeight);
+            }
+          }
+
+          return row;
+        }
+        case ORIENTATION_VERTICAL: {
+          int row = (int) (y / (this.scaledCellHeight - this.scaledOffsetForEdgeSide));
+          final int column = (int) ((x - ((row & 1) == 0 ? 0 : this.scaledHalfOfSide)) / this.scaledCellWidth);
+
+          final float xoffset = calculateX(column, row);
+          final float yoffset = calculateY(column, row);
+
+          final float normalX = x - xoffset;
+          final float normalY = y - yoffset;
+
+          if (normalY < this.scaledOffsetForEdgeSide) {
+            if (!this.scaledPoints[5].isPointInTriangle(this.scaledPoints[0], this.scaledPoints[1], normalX, normalY)) {
+              row--;
+            }
+          }
+          else if (normalY > this.scaledCellHeight - this.scaledOffsetForEdgeSide) {
+            if (!this.scaledPoints[2].isPointInTriangle(this.scaledPoints[3], this.scaledPoints[4], normalX, normalY)) {
+              row++;
+            }
+          }
+
+          return row;
+        }
+        default:
+          throw new Error("Unsupported orientation");
+      }
+    }
+
+    /**
+     * Calculate both column and row for a point in one pass.
+     *
+     * @param x the X coordinate of point inside of the hexagon.
+     * @param y the Y coordinate of point inside of the hexagon.
+     * @return the column in the high 32 bits and the row in the low 32 bits
+     */
+    private long calculateColumnRow(final float x, final float y) {
+      final int column;
+      final int row;
+
+      switch (this.orientation) {
+        case ORIENTATION_HORIZONTAL: {
+          if (x < 0) {
+            column = -1;
+          }
+          else {
+            final float columnStep = this.scaledCellWidth - this.scaledOffsetForEdgeSide;
+            int col = (int) (x / columnStep);
+            final float shiftY = (col & 1) == 0 ? 0 : this.scaledHalfOfSide;
+            final int baseRow = (int) ((y - shiftY) / this.scaledCellHeight);
+
+            final float normalX = x - col * columnStep;
+            final float normalY = y - (baseRow * this.scaledCellHeight + shiftY);
+
+            if (normalX < this.scaledOffsetForEdgeSide) {
+              if (!this.scaledPoints[0].isPointInTriangle(this.scaledPoints[4], this.scaledPoints[5], normalX, normalY)) {
+                col--;
+              }
+            }
+            else if (normalX > columnStep) {
+              if (!this.scaledPoints[1].isPointInTriangle(this.scaledPoints[2], this.scaledPoints[3], normalX, normalY)) {
+                col++;
+              }
+            }
+            column = col;
+          }
+
+          if (y < 0) {
+            row = -1;
+          }
+          else if ((column & 1) == 0) {
+            row = (int) (y / this.scaledCellHeight);
+          }
+          else if (y < this.scaledHalfOfSide) {
+            row = -1;
+          }
+          else {
+            row = (int) ((y - this.scaledHalfOfSide) / this.scaledCellHeight);
+          }
+        }
+        break;
+        case ORIENTATION_VERTICAL: {
+          final float rowStep = this.scaledCellHeight - this.scaledOffsetForEdgeSide;
+          final int baseRow = (int) (y / rowStep);
+          final int oddRow = baseRow & 1;
+          final float shiftX = oddRow == 0 ? 0 : this.scaledHalfOfSide;
+          final int baseColumn = (int) ((x - shiftX) / this.scaledCellWidth);
+
+          final float normalX = x - (baseColumn * this.scaledCellWidth + shiftX);
+          final float normalY = y - baseRow * rowStep;
+
+          final boolean topTriangleMiss = normalY < this.scaledOffsetForEdgeSide
+                  && !this.scaledPoints[5].isPointInTriangle(this.scaledPoints[0], this.scaledPoints[1], normalX, normalY);
+
+          if (x < 0) {
+            column = -1;
+          }
+          else if (normalY < this.scaledOffsetForEdgeSide) {
+            column = topTriangleMiss ? baseColumn + (normalX > this.scaledHalfOfSide ? oddRow : -(oddRow ^ 1)) : baseColumn;
+          }
+          else if (x < this.scaledHalfOfSide && oddRow != 0) {
+            column = -1;
+          }
+          else {
+            column = baseColumn;
+          }
+
+          if (y < 0) {
+            row = -1;
+          }
+          else if (normalY < this.scaledOffsetForEdgeSide) {
+            row = topTriangleMiss ? baseRow - 1 : baseRow;
+          }
+          else if (normalY > rowStep) {
+            row = this.scaledPoints[2].isPointInTriangle(this.scaledPoints[3], this.scaledPoints[4], normalX, normalY) ? baseRow : baseRow + 1;
+          }
+          else {
+            row = baseRow;
+          }
+        }
+        break;
+        default:
+          throw new Error("Unsupported orientation");
+      }
+
+      return packColumnRowLong(column, row);
+    }
+
+    /**
+     * Check is the hexagon visible for a rectangle.
+     *
+     * @param col the hexagon column.
+     * @param row the hexagon row.
+     * @param rect the rectangle to check.
+     * @param accurately true - to check the visibility accurately, false -
+     * rough fast check.
+     * @return true if the hexagon is visible, false otherwise
+     */
+    private boolean isPositionVisible(final int col, final int row, final HexRect2D rect, final boolean accurately) {
+      final float cellX = calculateX(col, row);
+      final float cellY = calculateY(col, row);
+
+      float cx0 = cellX;
+      float cy0 = cellY;
+
+      float cx1 = cx0 + this.scaledCellWidth;
+      float cy1 = cy0 + this.scaledCellHeight;
+
+      final float rw = rect.getWidth();
+      final float rh = rect.getHeight();
+      if (rw <= 0.0f || rh <= 0.0f) {
+        return false;
+      }
+
+      final float rx0 = rect.getLeft();
+      final float rx1 = rect.getRight();
+      final float ry0 = rect.getTop();
+      final float ry1 = rect.getBottom();
+
+      if (cx0 >= rx1 || cx1 < rx0 || cy0 >= ry1 || cy1 < ry0) {
+        return false;
+      }
+
+      if (accurately) {
+
+        // check inside rectangle intersection to figure out that intersection is not in "gray" zones
+        switch (this.orientation) {
+          case ORIENTATION_VERTICAL: {
+            cy0 += this.scaledOffsetForEdgeSide;
+            cy1 -= this.scaledOffsetForEdgeSide;
+            if (cx0 >= rx1 || cx1 < rx0 || cy0 >= ry1 || cy1 < ry0) {
+              if (this.scaledPoints[5].intersectsRectangle(this.scaledPoints[0], rect, cellX, cellY)) {
+                return true;
+              }
+              if (this.scaledPoints[0].intersectsRectangle(this.scaledPoints[1], rect, cellX, cellY)) {
+                return true;
+              }
+              if (this.scaledPoints[2].intersectsRectangle(this.scaledPoints[3], rect, cellX, cellY)) {
+                return true;
+              }
+              if (this.scaledPoints[3].intersectsRectangle(this.scaledPoints[4], rect, cellX, cellY)) {
+                return true;
+              }
+              return false;
+            }
+          }
+          break;
+          case ORIENTATION_HORIZONTAL: {
+            cx0 += this.scaledOffsetForEdgeSide;
+            cx1 -= this.scaledOffsetForEdgeSide;
+            if (cx0 >= rx1 || cx1 < rx0 || cy0 >= ry1 || cy1 < ry0) {
+              if (this.scaledPoints[0].intersectsRectangle(this.scaledPoints[1], rect, cellX, cellY)) {
+                return true;
+              }
+              if (this.scaledPoints[1].intersectsRectangle(this.scaledPoints[2], rect, cellX, cellY)) {
+                return true;
+              }
+              if (this.scaledPoints[3].intersectsRectangle(this.scaledPoints[4], rect, cellX, cellY)) {
+                return true;
+              }
+              return this.scaledPoints[4].intersectsRectangle(this.scaledPoints[5], rect, cellX, cellY);
+            }
+          }
+          break;
+          default:
+            throw new Error("Unsupported orientation");
+        }
+      }
+      return true;
+    }
+  }
 
   /**
-   * Points of the hexagon.
-   */
-  private HexPoint2D[] points;
-  /**
-   * Scaled points for the hexagon.
+   * The Current geometry snapshot, it is replaced as whole for every change of
+   * engine parameters or scale.
    */
-  private HexPoint2D[] scaledPoints;
+  private volatile Geometry geometry;
 
   /**
    * Inside locker for operations over renderer
@@ -113,25 +572,16 @@ public final class HexEngine<G> {
   /**
    * The Current engine renderer.
    */
-  private HexEngineRender<G> renderer = new NullHexRender<G>();
+  private volatile HexEngineRender<G> renderer = new NullHexRender<G>();
   /**
    * The Current engine model.
    */
-  private HexEngineModel<?> model = new DefaultIntegerHexModel(5, 5, -1);
+  private volatile HexEngineModel<?> model = new DefaultIntegerHexModel(5, 5, -1);
 
   /**
    * List of listeners listening inside engine events
    */
-  private final List<HexEngineListener> listeners = new ArrayList<HexEngineListener>();
-
-  /**
-   * The X scale factor.
-   */
-  private float scaleX = 1.0f;
-  /**
-   * The Y scale factor.
-   */
-  private float scaleY = 1.0f;
+  private final List<HexEngineListener> listeners = new CopyOnWriteArrayList<HexEngineListener>();
 
   /**
    * A Constructor.
@@ -158,64 +608,20 @@ public final class HexEngine<G> {
    * @see #ORIENTATION_VERTICAL
    */
   private void _initMainParameters(final float cellWidth, final float cellHeight, final float coeff, final int orientation) {
-    synchronized (rendererLock) {
-      if (cellWidth < 1) {
-        throw new IllegalArgumentException("Cell width must be greater than 2");
-      }
-      if (cellHeight < 1) {
-        throw new IllegalArgumentException("Cell height must be greater than 2");
-      }
-
-      this.coeff = coeff;
-
-      this.orientation = orientation;
-      this.cellWidth = cellWidth;
-      this.cellHeight = cellHeight;
-
-      this.points = new HexPoint2D[6];
-
-      switch (orientation) {
-        case ORIENTATION_HORIZONTAL: {
-          this.offsetForEdgeSide = Math.round(this.cellWidth * coeff);
-          this.halfOfSide = Math.round(this.cellHeight / 2f);
-
-          this.points[0] = new HexPoint2D(this.offsetForEdgeSide, 0.0f);
-          this.points[1] = new HexPoint2D(this.cellWidth - this.offsetForEdgeSide, this.points[0].getY());
-          this.points[2] = new HexPoint2D(this.cellWidth, this.halfOfSide);
-          this.points[3] = new HexPoint2D(this.points[1], this.cellHeight);
-          this.points[4] = new HexPoint2D(this.points[0].getX(), this.points[3].getY());
-          this.points[5] = new HexPoint2D(0, this.points[2]);
-        }
-        break;
-        case ORIENTATION_VERTICAL: {
-          this.offsetForEdgeSide = Math.round(this.cellHeight * coeff);
-          this.halfOfSide = Math.round(this.cellWidth / 2f);
+    if (cellWidth < 1) {
+      throw new IllegalArgumentException("Cell width must be greater than 2");
+    }
+    if (cellHeight < 1) {
+      throw new IllegalArgumentException("Cell height must be greater than 2");
+    }
 
-          this.points[0] = new HexPoint2D(this.halfOfSide, 0);
-          this.points[1] = new HexPoint2D(this.cellWidth, offsetForEdgeSide);
-          this.points[2] = new HexPoint2D(this.points[1], this.cellHeight - offsetForEdgeSide);
-          this.points[3] = new HexPoint2D(this.points[0], this.cellHeight);
-          this.points[4] = new HexPoint2D(0, this.points[2]);
-          this.points[5] = new HexPoint2D(0, this.points[1]);
-        }
-        break;
-        default: {
-          throw new Error("Unsupported orientation " + orientation);
-        }
-      }
+    synchronized (this.rendererLock) {
+      final Geometry current = this.geometry;
+      this.geometry = new Geometry(cellWidth, cellHeight, coeff, orientation, current == null ? 1.0f : current.scaleX, current == null ? 1.0f : current.scaleY);
+    }
 
-      if (!this.listeners.isEmpty()) {
-        final List<HexEngineListener> temp = new ArrayList<HexEngineListener>(this.listeners);
-        this.listeners.clear();
-        setScale(this.scaleX, this.scaleY);
-        this.listeners.addAll(temp);
-        for (final HexEngineListener l : this.listeners) {
-          l.onEngineReconfigured(this);
-        }
-      }
-      else {
-        setScale(this.scaleX, this.scaleY);
-      }
+    for (final HexEngineListener l : this.listeners) {
+      l.onEngineReconfigured(this);
     }
   }
 
@@ -256,7 +662,7 @@ public final class HexEngine<G> {
    * @see #ORIENTATION_VERTICAL
    */
   public void changeEngineBaseParameters(final float cellWidth, final float cellHeight, final int orientation) {
-    this.changeEnginebaseParameters(cellWidth, cellHeight, this.coeff, orientation);
+    this.changeEnginebaseParameters(cellWidth, cellHeight, this.geometry.coeff, orientation);
   }
 
   /**
@@ -265,7 +671,7 @@ public final class HexEngine<G> {
    * @return the cell width
    */
   public float getCellWidth() {
-    return this.cellWidth;
+    return this.geometry.cellWidth;
   }
 
   /**
@@ -274,7 +680,7 @@ public final class HexEngine<G> {
    * @return the current scaled cell width
    */
   public float getScaledCellWidth() {
-    return this.scaledCellWidth;
+    return this.geometry.scaledCellWidth;
   }
 
   /**
@@ -282,7 +688,7 @@ public final class HexEngine<G> {
    * @return the cell height
    */
   public float getCellHeight() {
-    return this.cellHeight;
+    return this.geometry.cellHeight;
   }
 
   /**
@@ -291,7 +697,7 @@ public final class HexEngine<G> {
    * @return the current scaled cell height
    */
   public float getScaledCellHeight() {
-    return this.scaledCellHeight;
+    return this.geometry.scaledCellHeight;
   }
   
   /**
@@ -321,7 +727,7 @@ public final class HexEngine<G> {
    * @return the form-factor of the hexagon
    */
   public float getHexCoefficient() {
-    return this.coeff;
+    return this.geometry.coeff;
   }
 
   /**
@@ -330,7 +736,6 @@ public final class HexEngine<G> {
    * @param scaleX the X scale factor.
    * @param scaleY the Y scale factor.
    */
-  @SuppressWarnings("unchecked")
   public void setScale(final float scaleX, final float scaleY) {
     if (scaleX <= 0.0f) {
       throw new IllegalArgumentException("Too small value as scale X [" + scaleX + ']');
@@ -340,37 +745,11 @@ public final class HexEngine<G> {
     }
 
     synchronized (this.rendererLock) {
-      this.scaleX = scaleX;
-      this.scaleY = scaleY;
-
-      this.scaledCellWidth = this.cellWidth * this.scaleX;
-      this.scaledCellHeight = this.cellHeight * this.scaleY;
-
-      this.scaledPoints = new HexPoint2D[6];
-      for (int i = 0; i < 6; i++) {
-        this.scaledPoints[i] = new HexPoint2D(this.points[i], scaleX, scaleY);
-      }
-
-      switch (this.orientation) {
-        case ORIENTATION_HORIZONTAL: {
-          this.scaledHalfOfSide = this.halfOfSide * scaleY;
-          this.scaledOffsetForEdgeSide = this.offsetForEdgeSide * scaleX;
-        }
-        break;
-        case ORIENTATION_VERTICAL: {
-          this.scaledHalfOfSide = this.halfOfSide * scaleX;
-          this.scaledOffsetForEdgeSide = this.offsetForEdgeSide * scaleY;
-        }
-        break;
-        default:
-          throw new Error("Unsupported orientation");
-      }
+      this.geometry = this.geometry.withScale(scaleX, scaleY);
     }
 
-    if (!this.listeners.isEmpty()) {
-      for (final HexEngineListener l : this.listeners) {
-        l.onScaleFactorChanged(this, scaleX, scaleY);
-      }
+    for (final HexEngineListener l : this.listeners) {
+      l.onScaleFactorChanged(this, scaleX, scaleY);
     }
   }
 
@@ -380,7 +759,7 @@ public final class HexEngine<G> {
    * @return the X scale factor as float
    */
   public float getScaleX() {
-    return this.scaleX;
+    return this.geometry.scaleX;
   }
 
   /**
@@ -389,7 +768,7 @@ public final class HexEngine<G> {
    * @return the Y scale factor as float
    */
   public float getScaleY() {
-    return this.scaleY;
+    return this.geometry.scaleY;
   }
 
   /**
@@ -406,16 +785,14 @@ public final class HexEngine<G> {
     final HexEngineRender<G> old;
     synchronized (this.rendererLock) {
       old = this.renderer;
-      if (this.renderer != null) {
-        this.renderer.detachedFromEngine(this);
+      if (old != null) {
+        old.detachedFromEngine(this);
       }
+      renderer.attachedToEngine(this);
       this.renderer = renderer;
-      this.renderer.attachedToEngine(this);
     }
-    if (!this.listeners.isEmpty()) {
-      for (final HexEngineListener l : this.listeners) {
-        l.onRenderChanged(this, old, renderer);
-      }
+    for (final HexEngineListener l : this.listeners) {
+      l.onRenderChanged(this, old, renderer);
     }
   }
 
@@ -442,17 +819,15 @@ public final class HexEngine<G> {
     synchronized (this.modelLock) {
       old = this.model;
 
-      if (this.model != null) {
-        this.model.detachedFromEngine(this);
+      if (old != null) {
+        old.detachedFromEngine(this);
       }
+      model.attachedToEngine(this);
       this.model = model;
-      this.model.attachedToEngine(this);
     }
 
-    if (!this.listeners.isEmpty()) {
-      for (final HexEngineListener l : this.listeners) {
-        l.onModelChanged(this, old, model);
-      }
+    for (final HexEngineListener l : this.listeners) {
+      l.onModelChanged(this, old, model);
     }
   }
 
@@ -473,17 +848,7 @@ public final class HexEngine<G> {
    * @return the calculated X.
    */
   public float calculateX(final int column, final int row) {
-    switch (this.orientation) {
-      case ORIENTATION_HORIZONTAL: {
-        return column * (this.scaledCellWidth - this.scaledOffsetForEdgeSide);
-      }
-      case ORIENTATION_VERTICAL: {
-        return (column * this.scaledCellWidth) + ((row & 1) == 0 ? 0 : this.scaledHalfOfSide);
-      }
-      default: {
-        throw new Error("Unsupported orientation");
-      }
-    }
+    return this.geometry.calculateX(column, row);
   }
 
   /**
@@ -493,134 +858,90 @@ public final class HexEngine<G> {
    * @return the hex coordinate
    */
   public HexPosition pointToHex(final float pointX, final float pointY) {
-    return new HexPosition(calculateColumn(pointX, pointY), calculateRow(pointX, pointY));
+    final long columnRow = this.geometry.calculateColumnRow(pointX, pointY);
+    return new HexPosition(extractColumnLong(columnRow), extractRowLong(columnRow));
   }
 
   /**
-   * Calculate hexagon column for X,Y coordinates. It takes in count the scale
-   * factor.
+   * Calculate the covered hex position by a point coordinates in the hex
    *
-   * @param x the X coordinate of point inside of the hexagon.
-   * @param y the Y coordinate of point inside of the hexagon.
-   * @return the hexagon column index.
+   * @param pointX the point x
+   * @param pointY the point y
+   * @return the column-row pair packed by {@link #packColumnRowLong(int, int)}
    */
-  public int calculateColumn(final float x, final float y) {
+  public long pointToHexLong(final float pointX, final float pointY) {
+    return this.geometry.calculateColumnRow(pointX, pointY);
+  }
 
-    if (x < 0) {
-      return -1;
+  /**
+   * Calculate covered hex positions for a batch of points. It takes in count
+   * the scale factor and gives the same results as
+   * {@link #calculateColumn(float, float)} and
+   * {@link #calculateRow(float, float)} but makes only one pass per point and
+   * doesn't allocate any objects.
+   *
+   * @param xs the X coordinates of points
+   * @param ys the Y coordinates of points
+   * @param outPacked the array to be filled by packed column-row pairs for
+   * points, packed by {@link #packColumnRow(int, int)}
+   * @param count the number of points to be processed
+   * @see #extractColumn(int)
+   * @see #extractRow(int)
+   */
+  public void pointsToHexes(final float[] xs, final float[] ys, final int[] outPacked, final int count) {
+    if (count < 0 || count > xs.length || count > ys.length || count > outPacked.length) {
+      throw new IllegalArgumentException("Wrong number of points [" + count + ']');
     }
+    final Geometry g = this.geometry;
+    for (int i = 0; i < count; i++) {
+      final long columnRow = g.calculateColumnRow(xs[i], ys[i]);
+      outPacked[i] = packColumnRow(extractColumnLong(columnRow), extractRowLong(columnRow));
+    }
+  }
 
-    switch (this.orientation) {
-      case ORIENTATION_HORIZONTAL: {
-        int column = (int) (x / (this.scaledCellWidth - this.scaledOffsetForEdgeSide));
-        final int row = (int) ((y - ((column & 1) == 0 ? 0 : this.scaledHalfOfSide)) / this.scaledCellHeight);
-
-        final float xoffset = calculateX(column, row);
-        final float yoffset = calculateY(column, row);
-
-        final float normalX = x - xoffset;
-        final float normalY = y - yoffset;
-
-        if (normalX < this.scaledOffsetForEdgeSide) {
-          if (!this.scaledPoints[0].isPointInTriangle(this.scaledPoints[4], this.scaledPoints[5], normalX, normalY)) {
-            column--;
-          }
-        }
-        else if (normalX > this.scaledCellWidth - this.scaledOffsetForEdgeSide) {
-          if (!this.scaledPoints[1].isPointInTriangle(this.scaledPoints[2], this.scaledPoints[3], normalX, normalY)) {
-            column++;
-          }
-        }
-        return column;
-      }
-      case ORIENTATION_VERTICAL: {
-        final int row = (int) (y / (this.scaledCellHeight - this.scaledOffsetForEdgeSide));
-
-        int column = (int) ((x - ((row & 1) == 0 ? 0 : this.scaledHalfOfSide)) / this.scaledCellWidth);
-
-        final boolean emptyHexCase = x < this.scaledHalfOfSide && (row & 1) != 0;
-
-        float xoffset = calculateX(column, row);
-        final float yoffset = calculateY(column, row);
-
-        final float normalX = x - xoffset;
-        final float normalY = y - yoffset;
-
-        if (normalY < this.scaledOffsetForEdgeSide) {
-          if (!this.scaledPoints[5].isPointInTriangle(this.scaledPoints[0], this.scaledPoints[1], normalX, normalY)) {
-            column += (normalX > this.scaledHalfOfSide ? row & 1 : -((row & 1) ^ 1));
-          }
-        }
-        else if (emptyHexCase) {
-          column = -1;
-        }
-
-        return column;
-      }
-      default:
-        throw new Error("Unsupported orientation");
+  /**
+   * Calculate covered hex positions for a batch of points as column-row pairs
+   * packed into long values, so that it works for any size of field.
+   *
+   * @param xs the X coordinates of points
+   * @param ys the Y coordinates of points
+   * @param outPacked the array to be filled by packed column-row pairs for
+   * points, packed by {@link #packColumnRowLong(int, int)}
+   * @param count the number of points to be processed
+   * @see #pointsToHexes(float[], float[], int[], int)
+   */
+  public void pointsToHexesLong(final float[] xs, final float[] ys, final long[] outPacked, final int count) {
+    if (count < 0 || count > xs.length || count > ys.length || count > outPacked.length) {
+      throw new IllegalArgumentException("Wrong number of points [" + count + ']');
+    }
+    final Geometry g = this.geometry;
+    for (int i = 0; i < count; i++) {
+      outPacked[i] = g.calculateColumnRow(xs[i], ys[i]);
     }
   }
 
   /**
-   * Calculate hexagon row for X,Y coordinates. It takes in count the scale
+   * Calculate hexagon column for X,Y coordinates. It takes in count the scale
    * factor.
    *
    * @param x the X coordinate of point inside of the hexagon.
    * @param y the Y coordinate of point inside of the hexagon.
-   * @return the hexagon row index.
+   * @return the hexagon column index.
    */
-  public int calculateRow(final float x, final float y) {
-    if (y < 0) {
-      return -1;
-    }
-
-    switch (this.orientation) {
-      case ORIENTATION_HORIZONTAL: {
-        final int column = calculateColumn(x, y);
-
-        int row;
-
-        if ((column & 1) == 0) {
-          row = (int) (y / this.scaledCellHeight);
-        }
-        else {
-          if (y < this.scaledHalfOfSide) {
-            row = -1;
-          }
-          else {
-            row = (int) ((y - this.scaledHalfOfSide) / this.scaledCellHeight);
-          }
-        }
-
-        return row;
-      }
-      case ORIENTATION_VERTICAL: {
-        int row = (int) (y / (this.scaledCellHeight - this.scaledOffsetForEdgeSide));
-        final int column = (int) ((x - ((row & 1) == 0 ? 0 : this.scaledHalfOfSide)) / this.scaledCellWidth);
-
-        final float xoffset = calculateX(column, row);
-        final float yoffset = calculateY(column, row);
-
-        final float normalX = x - xoffset;
-        final float normalY = y - yoffset;
-
-        if (normalY < this.scaledOffsetForEdgeSide) {
-          if (!this.scaledPoints[5].isPointInTriangle(this.scaledPoints[0], this.scaledPoints[1], normalX, normalY)) {
-            row--;
-          }
-        }
-        else if (normalY > this.scaledCellHeight - this.scaledOffsetForEdgeSide) {
-          if (!this.scaledPoints[2].isPointInTriangle(this.scaledPoints[3], this.scaledPoints[4], normalX, normalY)) {
-            row++;
-          }
-        }
+  public int calculateColumn(final float x, final float y) {
+    return this.geometry.calculateColumn(x, y);
+  }
 
-        return row;
-      }
-      default:
-        throw new Error("Unsupported orientation");
-    }
+  /**
+   * Calculate hexagon row for X,Y coordinates. It takes in count the scale
+   * factor.
+   *
+   * @param x the X coordinate of point inside of the hexagon.
+   * @param y the Y coordinate of point inside of the hexagon.
+   * @return the hexagon row index.
+   */
+  public int calculateRow(final float x, final float y) {
+    return this.geometry.calculateRow(x, y);
   }
 
   /**
@@ -631,17 +952,7 @@ public final class HexEngine<G> {
    * @return the calculated Y.
    */
   public float calculateY(final int column, final int row) {
-    switch (this.orientation) {
-      case ORIENTATION_HORIZONTAL: {
-        return (row * this.scaledCellHeight) + ((column & 1) == 0 ? 0 : this.scaledHalfOfSide);
-      }
-      case ORIENTATION_VERTICAL: {
-        return row * (this.scaledCellHeight - this.scaledOffsetForEdgeSide);
-      }
-      default: {
-        throw new Error("Unsupported orientation");
-      }
-    }
+    return this.geometry.calculateY(column, row);
   }
 
   /**
@@ -668,90 +979,22 @@ public final class HexEngine<G> {
    * @return true if the hexagon is visible, false otherwise
    */
   public boolean isPositionVisible(final int col, final int row, final HexRect2D rect, final boolean accurately) {
-    final float cellX = calculateX(col, row);
-    final float cellY = calculateY(col, row);
-
-    float cx0 = cellX;
-    float cy0 = cellY;
-
-    float cx1 = cx0 + this.scaledCellWidth;
-    float cy1 = cy0 + this.scaledCellHeight;
-
-    final float rw = rect.getWidth();
-    final float rh = rect.getHeight();
-    if (rw <= 0.0f || rh <= 0.0f) {
-      return false;
-    }
-
-    final float rx0 = rect.getLeft();
-    final float rx1 = rect.getRight();
-    final float ry0 = rect.getTop();
-    final float ry1 = rect.getBottom();
-
-    if (cx0 >= rx1 || cx1 < rx0 || cy0 >= ry1 || cy1 < ry0) {
-      return false;
-    }
-
-    if (accurately) {
-
-      // check inside rectangle intersection to figure out that intersection is not in "gray" zones
-      switch (this.orientation) {
-        case ORIENTATION_VERTICAL: {
-          cy0 += scaledOffsetForEdgeSide;
-          cy1 -= scaledOffsetForEdgeSide;
-          if (cx0 >= rx1 || cx1 < rx0 || cy0 >= ry1 || cy1 < ry0) {
-            if (this.scaledPoints[5].intersectsRectangle(this.scaledPoints[0], rect, cellX, cellY)) {
-              return true;
-            }
-            if (this.scaledPoints[0].intersectsRectangle(this.scaledPoints[1], rect, cellX, cellY)) {
-              return true;
-            }
-            if (this.scaledPoints[2].intersectsRectangle(this.scaledPoints[3], rect, cellX, cellY)) {
-              return true;
-            }
-            if (this.scaledPoints[3].intersectsRectangle(this.scaledPoints[4], rect, cellX, cellY)) {
-              return true;
-            }
-            return false;
-          }
-        }
-        break;
-        case ORIENTATION_HORIZONTAL: {
-          cx0 += this.scaledOffsetForEdgeSide;
-          cx1 -= this.scaledOffsetForEdgeSide;
-          if (cx0 >= rx1 || cx1 < rx0 || cy0 >= ry1 || cy1 < ry0) {
-            if (this.scaledPoints[0].intersectsRectangle(this.scaledPoints[1], rect, cellX, cellY)) {
-              return true;
-            }
-            if (this.scaledPoints[1].intersectsRectangle(this.scaledPoints[2], rect, cellX, cellY)) {
-              return true;
-            }
-            if (this.scaledPoints[3].intersectsRectangle(this.scaledPoints[4], rect, cellX, cellY)) {
-              return true;
-            }
-            return this.scaledPoints[4].intersectsRectangle(this.scaledPoints[5], rect, cellX, cellY);
-          }
-        }
-        break;
-        default:
-          throw new Error("Unsupported orientation");
-      }
-    }
-    return true;
+    return this.geometry.isPositionVisible(col, row, rect, accurately);
   }
 
   /**
    * Draw a hexagon. It is used by internal operations.
    *
+   * @param render the renderer to be used for draw operation.
+   * @param g the geometry snapshot to calculate coordinates of the hexagon.
    * @param gfx the object to used for draw operation.
    * @param column the column of the hexagon.
    * @param row the row of the hexagon.
    */
-  @SuppressWarnings("unchecked")
-  private void _drawHex(final G gfx, final int column, final int row) {
-    final float calcx = calculateX(column, row);
-    final float calcy = calculateY(column, row);
-    this.renderer.renderHexCell(this, gfx, calcx, calcy, column, row);
+  private void _drawHex(final HexEngineRender<G> render, final Geometry g, final G gfx, final int column, final int row) {
+    final float calcx = g.calculateX(column, row);
+    final float calcy = g.calculateY(column, row);
+    render.renderHexCell(this, gfx, calcx, calcy, column, row);
   }
 
   /**
@@ -762,11 +1005,7 @@ public final class HexEngine<G> {
    * @param row the row of the hexagon.
    */
   public void drawHex(final G gfx, final int column, final int row) {
-    synchronized (this.rendererLock) {
-      synchronized (this.modelLock) {
-        _drawHex(gfx, column, row);
-      }
-    }
+    _drawHex(this.renderer, this.geometry, gfx, column, row);
   }
 
   /**
@@ -777,23 +1016,24 @@ public final class HexEngine<G> {
    * @return the list of covered hexagonal positions by the rectangle.
    */
   public List<HexPosition> getCoveredHexes(final HexRect2D rect, final boolean accurately) {
-    final int elementsNum = Math.round((rect.getWidth() / this.scaledCellWidth + 1) * (rect.getHeight() / this.scaledCellHeight + 1));
+    final Geometry g = this.geometry;
+    final HexEngineModel<?> m = this.model;
+
+    final int elementsNum = Math.round((rect.getWidth() / g.scaledCellWidth + 1) * (rect.getHeight() / g.scaledCellHeight + 1));
     final List<HexPosition> result = new ArrayList<HexPosition>(elementsNum);
 
-    synchronized (this.modelLock) {
-      final float rightx = rect.getRight();
-      final float righty = rect.getBottom();
-
-      int tlColumn = calculateColumn(rect.getLeft(), rect.getTop()) - 1;
-      int tlRow = calculateRow(rect.getLeft(), rect.getTop()) - 1;
-      int brColumn = calculateColumn(rightx, righty) + 1;
-      int brRow = calculateRow(rightx, righty) + 1;
-
-      for (int y = tlRow; y <= brRow; y++) {
-        for (int x = tlColumn; x <= brColumn; x++) {
-          if (this.model.isPositionValid(x, y) && isPositionVisible(x, y, rect, accurately)) {
-            result.add(new HexPosition(x, y));
-          }
+    final float rightx = rect.getRight();
+    final float righty = rect.getBottom();
+
+    int tlColumn = g.calculateColumn(rect.getLeft(), rect.getTop()) - 1;
+    int tlRow = g.calculateRow(rect.getLeft(), rect.getTop()) - 1;
+    int brColumn = g.calculateColumn(rightx, righty) + 1;
+    int brRow = g.calculateRow(rightx, righty) + 1;
+
+    for (int y = tlRow; y <= brRow; y++) {
+      for (int x = tlColumn; x <= brColumn; x++) {
+        if (m.isPositionValid(x, y) && g.isPositionVisible(x, y, rect, accurately)) {
+          result.add(new HexPosition(x, y));
         }
       }
     }
@@ -809,22 +1049,172 @@ public final class HexEngine<G> {
    * should be fast but rough.
    */
   public void drawArea(final G gfx, final HexRect2D rect, final boolean accurately) {
-    synchronized (this.rendererLock) {
-      synchronized (this.modelLock) {
-        final float rightx = rect.getRight();
-        final float righty = rect.getBottom();
-
-        int tlColumn = calculateColumn(rect.getLeft(), rect.getTop()) - 1;
-        int tlRow = calculateRow(rect.getLeft(), rect.getTop()) - 1;
-        int brColumn = calculateColumn(rightx, righty) + 1;
-        int brRow = calculateRow(rightx, righty) + 1;
-
-        for (int y = tlRow; y <= brRow; y++) {
-          for (int x = tlColumn; x <= brColumn; x++) {
-            if (this.model.isPositionValid(x, y) && isPositionVisible(x, y, rect, accurately)) {
-              _drawHex(gfx, x, y);
+    _drawArea(this.renderer, this.geometry, this.model, gfx, rect, accurately);
+  }
+
+  /**
+   * Draw hexagons covered by a rectangle in parallel. The Rectangle is split
+   * into square tiles, every tile is rendered by a task of the executor into its
+   * own graphics context provided by the factory and then all tiles are
+   * composited into the destination graphics in the calling thread. Every tile
+   * has a margin of a cell around its area, hexagons visible in the rectangle
+   * are drawn into the tile if they touch the tile with the margin and only the
+   * area is composited, so that borders and antialiased edges crossing tile
+   * sides are not cut and the rectangle looks the same as it is drawn by
+   * {@link #drawArea(java.lang.Object, com.igormaznitsa.jhexed.engine.misc.HexRect2D, boolean)}.
+   * The Renderer must allow concurrent calls of
+   * {@link HexEngineRender#renderHexCell(com.igormaznitsa.jhexed.engine.HexEngine, java.lang.Object, float, float, int, int)}
+   * for different graphics contexts.
+   *
+   * @param <T> the type of tile object
+   * @param gfx a graphic object to be used for draw.
+   * @param rect the rectangle area.
+   * @param accurately true if to check coverage accurately, false if check
+   * should be fast but rough.
+   * @param tileSize the size of tile side, must be greater than zero
+   * @param executor the executor to render tiles, for instance a fork-join
+   * pool, must not be null
+   * @param factory the factory of tiles and their graphics, must not be null
+   * @throws InterruptedException if the current thread has been interrupted
+   * during waiting for tiles, all not started tiles are cancelled
+   */
+  public <T> void drawArea(final G gfx, final HexRect2D rect, final boolean accurately, final int tileSize, final ExecutorService executor, final HexTileGraphicsFactory<G, T> factory) throws InterruptedException {
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("Tile size must be greater than zero [" + tileSize + ']');
+    }
+    if (executor == null) {
+      throw new NullPointerException("Executor must not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Tile factory must not be null");
+    }
+
+    if (rect.getWidth() <= 0.0f || rect.getHeight() <= 0.0f) {
+      return;
+    }
+
+    final Geometry g = this.geometry;
+    final HexEngineRender<G> render = this.renderer;
+    final HexEngineModel<?> m = this.model;
+
+    final float rectLeft = rect.getLeft();
+    final float rectTop = rect.getTop();
+    final float rectRight = rect.getRight();
+    final float rectBottom = rect.getBottom();
+
+    // a hexagon touching the area is whole inside of the margin
+    final float marginX = g.scaledCellWidth;
+    final float marginY = g.scaledCellHeight;
+
+    final List<HexRect2D> areas = new ArrayList<HexRect2D>();
+    final List<HexRect2D> bounds = new ArrayList<HexRect2D>();
+    for (int ty = (int) Math.floor(rectTop); ty < rectBottom; ty += tileSize) {
+      for (int tx = (int) Math.floor(rectLeft); tx < rectRight; tx += tileSize) {
+        final float x0 = Math.max(tx, rectLeft);
+        final float y0 = Math.max(ty, rectTop);
+        final float x1 = Math.min(tx + tileSize, rectRight);
+        final float y1 = Math.min(ty + tileSize, rectBottom);
+        areas.add(new HexRect2D(x0, y0, x1 - x0, y1 - y0));
+        bounds.add(new HexRect2D(x0 - marginX, y0 - marginY, x1 - x0 + marginX * 2.0f, y1 - y0 + marginY * 2.0f));
+      }
+    }
+
+    final List<Future<T>> futures = new ArrayList<Future<T>>(areas.size());
+    try {
+      for (final HexRect2D tileBounds : bounds) {
+        futures.add(executor.submit(new Callable<T>() {
+          public T call() throws Exception {
+            final T tile = factory.makeTile(tileBounds);
+            final G tileGfx = factory.getTileGraphics(tile, tileBounds);
+            try {
+              _drawAreaPart(render, g, m, tileGfx, rect, tileBounds, accurately);
             }
+            finally {
+              factory.releaseTileGraphics(tile, tileGfx);
+            }
+            return tile;
+          }
+        }));
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        final T tile;
+        try {
+          tile = futures.get(i).get();
+        }
+        catch (ExecutionException ex) {
+          final Throwable cause = ex.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
           }
+          throw new RuntimeException("Error during tile rendering", cause);
+        }
+        factory.compositeTile(gfx, tile, bounds.get(i), areas.get(i));
+      }
+    }
+    finally {
+      for (final Future<T> f : futures) {
+        f.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Inside method to draw hexagons covered by a rectangle.
+   *
+   * @param render the renderer to be used for draw operation.
+   * @param g the geometry snapshot
+   * @param m the model
+   * @param gfx a graphic object to be used for draw.
+   * @param rect the rectangle area.
+   * @param accurately true if to check coverage accurately, false if check
+   * should be fast but rough.
+   */
+  private void _drawArea(final HexEngineRender<G> render, final Geometry g, final HexEngineModel<?> m, final G gfx, final HexRect2D rect, final boolean accurately) {
+    final float rightx = rect.getRight();
+    final float righty = rect.getBottom();
+
+    int tlColumn = g.calculateColumn(rect.getLeft(), rect.getTop()) - 1;
+    int tlRow = g.calculateRow(rect.getLeft(), rect.getTop()) - 1;
+    int brColumn = g.calculateColumn(rightx, righty) + 1;
+    int brRow = g.calculateRow(rightx, righty) + 1;
+
+    for (int y = tlRow; y <= brRow; y++) {
+      for (int x = tlColumn; x <= brColumn; x++) {
+        if (m.isPositionValid(x, y) && g.isPositionVisible(x, y, rect, accurately)) {
+          _drawHex(render, g, gfx, x, y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Inside method to draw a tile of a rectangle. Hexagons are drawn in the same
+   * order as by the whole rectangle drawing, but only if they are visible in
+   * the rectangle and touch the tile bounds.
+   *
+   * @param render the renderer to be used for draw operation.
+   * @param g the geometry snapshot
+   * @param m the model
+   * @param gfx a graphic object of the tile to be used for draw.
+   * @param rect the whole rectangle area.
+   * @param part the tile bounds including the margin.
+   * @param accurately true if to check coverage of the rectangle accurately,
+   * false if check should be fast but rough.
+   */
+  private void _drawAreaPart(final HexEngineRender<G> render, final Geometry g, final HexEngineModel<?> m, final G gfx, final HexRect2D rect, final HexRect2D part, final boolean accurately) {
+    int tlColumn = g.calculateColumn(part.getLeft(), part.getTop()) - 1;
+    int tlRow = g.calculateRow(part.getLeft(), part.getTop()) - 1;
+    int brColumn = g.calculateColumn(part.getRight(), part.getBottom()) + 1;
+    int brRow = g.calculateRow(part.getRight(), part.getBottom()) + 1;
+
+    for (int y = tlRow; y <= brRow; y++) {
+      for (int x = tlColumn; x <= brColumn; x++) {
+        if (m.isPositionValid(x, y) && g.isPositionVisible(x, y, part, false) && g.isPositionVisible(x, y, rect, accurately)) {
+          _drawHex(render, g, gfx, x, y);
         }
       }
     }
@@ -836,13 +1226,15 @@ public final class HexEngine<G> {
    * @param gfx a graphic object to be used for draw.
    */
   public void draw(final G gfx) {
-    synchronized (this.rendererLock) {
-      synchronized (this.modelLock) {
-        for (int r = 0; r < this.model.getRowNumber(); r++) {
-          for (int c = 0; c < this.model.getColumnNumber(); c++) {
-            _drawHex(gfx, c, r);
-          }
-        }
+    final Geometry g = this.geometry;
+    final HexEngineRender<G> render = this.renderer;
+    final HexEngineModel<?> m = this.model;
+
+    final int rows = m.getRowNumber();
+    final int columns = m.getColumnNumber();
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        _drawHex(render, g, gfx, c, r);
       }
     }
   }
@@ -853,16 +1245,18 @@ public final class HexEngine<G> {
    * @param gfx a graphic object to be used for draw.
    */
   public void drawWithThreadInterruptionCheck(final G gfx) {
-    synchronized (this.rendererLock) {
-      synchronized (this.modelLock) {
-        for (int r = 0; r < this.model.getRowNumber(); r++) {
-          for (int c = 0; c < this.model.getColumnNumber(); c++) {
-            if (Thread.currentThread().isInterrupted()) {
-              return;
-            }
-            _drawHex(gfx, c, r);
-          }
+    final Geometry g = this.geometry;
+    final HexEngineRender<G> render = this.renderer;
+    final HexEngineModel<?> m = this.model;
+
+    final int rows = m.getRowNumber();
+    final int columns = m.getColumnNumber();
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        if (Thread.currentThread().isInterrupted()) {
+          return;
         }
+        _drawHex(render, g, gfx, c, r);
       }
     }
   }
@@ -873,7 +1267,7 @@ public final class HexEngine<G> {
    * @return
    */
   public int getOrientation() {
-    return this.orientation;
+    return this.geometry.orientation;
   }
 
   /**
@@ -882,7 +1276,7 @@ public final class HexEngine<G> {
    * @return pointe of a hexagon area for 0,0
    */
   public HexPoint2D[] getHexPoints() {
-    return this.points;
+    return this.geometry.points;
   }
 
   /**
@@ -892,7 +1286,7 @@ public final class HexEngine<G> {
    * @return pointe of a hexagon area for 0,0
    */
   public HexPoint2D[] getHexScaledPoints() {
-    return this.scaledPoints;
+    return this.geometry.scaledPoints;
   }
 
   /**
@@ -916,7 +1310,7 @@ public final class HexEngine<G> {
    */
   public HexPosition getNearestNeighbourPosition(final int col, final int row, final int neighbourIndex) {
     final HexPosition result;
-    switch (this.orientation) {
+    switch (this.geometry.orientation) {
       case ORIENTATION_HORIZONTAL: {
         switch (neighbourIndex) {
           case 0: { // -
@@ -985,6 +1379,100 @@ public final class HexEngine<G> {
     return result;
   }
 
+  /**
+   * Get the nearest neighbor position for an index without object allocation.
+   *
+   * @param col the hexagon column
+   * @param row the hexagon row
+   * @param neighbourIndex an index of a neighbor (0..5)
+   * @return column and row of the neighbor packed by
+   * {@link #packColumnRowLong(int, int)}
+   * @see #getNearestNeighbourPosition(int, int, int)
+   */
+  public long getNearestNeighbourPositionLong(final int col, final int row, final int neighbourIndex) {
+    if (neighbourIndex < 0 || neighbourIndex > 5) {
+      throw new IllegalArgumentException("Neighbour index must be 0..5 [" + neighbourIndex + ']');
+    }
+    final int orientation = this.geometry.orientation;
+    final int q = HexAxial.offsetToQ(orientation, col, row) + HexAxial.getDirectionQ(orientation, neighbourIndex);
+    final int r = HexAxial.offsetToR(orientation, col, row) + HexAxial.getDirectionR(orientation, neighbourIndex);
+    return packColumnRowLong(HexAxial.axialToColumn(orientation, q, r), HexAxial.axialToRow(orientation, q, r));
+  }
+
+  /**
+   * Calculate exact distance between two hexagons for the current orientation.
+   *
+   * @param col1 the column of the first hexagon
+   * @param row1 the row of the first hexagon
+   * @param col2 the column of the second hexagon
+   * @param row2 the row of the second hexagon
+   * @return the number of steps between hexagons
+   * @see HexAxial#distance(int, int, int, int, int)
+   */
+  public int calculateDistance(final int col1, final int row1, final int col2, final int row2) {
+    return HexAxial.distance(this.geometry.orientation, col1, row1, col2, row2);
+  }
+
+  /**
+   * Get positions of all hexagons in a distance from a hexagon, including the
+   * hexagon itself.
+   *
+   * @param array the array will be used for result but it can be null or it can
+   * be smaller than needed one and in the case a new array will be generated
+   * @param col the column of the center hexagon
+   * @param row the row of the center hexagon
+   * @param distance the max distance, negative one is processed as zero
+   * @return array with first 3*distance*(distance+1)+1 elements contains
+   * column-row pairs packed by {@link #packColumnRowLong(int, int)}
+   */
+  public long[] getPackedRangePositionsLong(final long[] array, final int col, final int row, final int distance) {
+    final int dist = Math.max(0, distance);
+    final int resultLen = 3 * dist * (dist + 1) + 1;
+
+    final long[] result;
+    if (array == null || array.length < resultLen) {
+      result = new long[resultLen];
+    }
+    else {
+      result = array;
+    }
+
+    final int orientation = this.geometry.orientation;
+    final int centerQ = HexAxial.offsetToQ(orientation, col, row);
+    final int centerR = HexAxial.offsetToR(orientation, col, row);
+
+    int pos = 0;
+    for (int dq = -dist; dq <= dist; dq++) {
+      final int minR = Math.max(-dist, -dq - dist);
+      final int maxR = Math.min(dist, -dq + dist);
+      final int q = centerQ + dq;
+      for (int dr = minR; dr <= maxR; dr++) {
+        final int r = centerR + dr;
+        result[pos++] = packColumnRowLong(HexAxial.axialToColumn(orientation, q, r), HexAxial.axialToRow(orientation, q, r));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get positions of a line of hexagons between two hexagons.
+   *
+   * @param array the array will be used for result but it can be null or it can
+   * be smaller than needed one and in the case a new array will be generated
+   * @param col1 the start column
+   * @param row1 the start row
+   * @param col2 the end column
+   * @param row2 the end row
+   * @return array with first distance+1 elements contains column-row pairs
+   * packed by {@link #packColumnRowLong(int, int)}
+   * @see #calculateDistance(int, int, int, int)
+   * @see HexAxial#line(int, int, int, int, int, long[])
+   */
+  public long[] getPackedLinePositionsLong(final long[] array, final int col1, final int row1, final int col2, final int row2) {
+    return HexAxial.line(this.geometry.orientation, col1, row1, col2, row2, array);
+  }
+
   /**
    * Get all neighbor positions for a hexagon position.
    *
@@ -1033,14 +1521,15 @@ public final class HexEngine<G> {
    * model which can fill the rectangular area
    */
   public WidthHeightPair calculateHexesForRectangle(final float areaWidth, final float areaHeight) {
+    final Geometry g = this.geometry;
     final WidthHeightPair result;
 
-    switch (this.orientation) {
+    switch (g.orientation) {
       case ORIENTATION_HORIZONTAL: {
-        int columns = (int) ((areaWidth - this.offsetForEdgeSide) / (this.cellWidth - this.offsetForEdgeSide));
-        int rows = (int) ((areaHeight - (columns > 1 ? this.halfOfSide : 0)) / this.cellHeight);
+        int columns = (int) ((areaWidth - g.offsetForEdgeSide) / (g.cellWidth - g.offsetForEdgeSide));
+        int rows = (int) ((areaHeight - (columns > 1 ? g.halfOfSide : 0)) / g.cellHeight);
 
-        if (columns > 0 && rows == 0 && areaHeight >= this.cellHeight) {
+        if (columns > 0 && rows == 0 && areaHeight >= g.cellHeight) {
           rows = 1;
           columns = 1;
         }
@@ -1049,10 +1538,10 @@ public final class HexEngine<G> {
       }
       break;
       case ORIENTATION_VERTICAL: {
-        int rows = (int) ((areaHeight - this.offsetForEdgeSide) / (this.cellHeight - this.offsetForEdgeSide));
-        int columns = (int) ((areaWidth - (rows > 1 ? this.halfOfSide : 0)) / this.cellWidth);
+        int rows = (int) ((areaHeight - g.offsetForEdgeSide) / (g.cellHeight - g.offsetForEdgeSide));
+        int columns = (int) ((areaWidth - (rows > 1 ? g.halfOfSide : 0)) / g.cellWidth);
 
-        if (columns > 0 && rows == 0 && areaHeight >= this.cellHeight) {
+        if (columns > 0 && rows == 0 && areaHeight >= g.cellHeight) {
           rows = 1;
           columns = 1;
         }
@@ -1072,25 +1561,27 @@ public final class HexEngine<G> {
    * @return the rectangle to show whole hexagonal area for the current zoom
    */
   public HexRect2D getVisibleSize() {
-    final int cellsAtHorz = this.model.getColumnNumber();
-    final int cellsAtVert = this.model.getRowNumber();
+    final Geometry g = this.geometry;
+    final HexEngineModel<?> m = this.model;
+    final int cellsAtHorz = m.getColumnNumber();
+    final int cellsAtVert = m.getRowNumber();
 
     float w;
     float h;
 
-    switch (this.orientation) {
+    switch (g.orientation) {
       case ORIENTATION_HORIZONTAL: {
-        w = (this.scaledCellWidth - this.scaledOffsetForEdgeSide) * cellsAtHorz + this.scaledOffsetForEdgeSide;
-        h = this.scaledCellHeight * cellsAtVert + (cellsAtHorz > 1 ? this.scaledHalfOfSide : 0);
+        w = (g.scaledCellWidth - g.scaledOffsetForEdgeSide) * cellsAtHorz + g.scaledOffsetForEdgeSide;
+        h = g.scaledCellHeight * cellsAtVert + (cellsAtHorz > 1 ? g.scaledHalfOfSide : 0);
       }
       break;
       case ORIENTATION_VERTICAL: {
-        w = this.scaledCellWidth * cellsAtHorz + (cellsAtVert > 1 ? this.scaledHalfOfSide : 0);
-        h = (this.scaledCellHeight - this.scaledOffsetForEdgeSide) * cellsAtVert + this.scaledOffsetForEdgeSide;
+        w = g.scaledCellWidth * cellsAtHorz + (cellsAtVert > 1 ? g.scaledHalfOfSide : 0);
+        h = (g.scaledCellHeight - g.scaledOffsetForEdgeSide) * cellsAtVert + g.scaledOffsetForEdgeSide;
       }
       break;
       default: {
-        throw new IllegalStateException("Unsupported orientation [" + this.orientation + ']');
+        throw new IllegalStateException("Unsupported orientation [" + g.orientation + ']');
       }
     }
 
@@ -1132,6 +1623,43 @@ public final class HexEngine<G> {
     return result == 0xFFFF ? -1 : result;
   }
 
+  /**
+   * Auxiliary method to pack column-row into a long value. It keeps whole
+   * range of integer values including negative ones, so that it can be used
+   * for fields which are bigger than 0xFFFF hexagons in a row or column.
+   *
+   * @param col the column
+   * @param row the row
+   * @return the packed value as long
+   */
+  public static long packColumnRowLong(final int col, final int row) {
+    return ((long) col << 32) | (row & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Auxiliary method to extract the column value from a column-row pair packed
+   * into a long value.
+   *
+   * @param packedValue a packed column-row pair
+   * @return the column value extracted from the pair
+   * @see #packColumnRowLong(int, int)
+   */
+  public static int extractColumnLong(final long packedValue) {
+    return (int) (packedValue >> 32);
+  }
+
+  /**
+   * Auxiliary method to extract the row value from a column-row pair packed
+   * into a long value.
+   *
+   * @param packedValue a packed column-row pair
+   * @return the row value extracted from the pair
+   * @see #packColumnRowLong(int, int)
+   */
+  public static int extractRowLong(final long packedValue) {
+    return (int) packedValue;
+  }
+
   /**
    * Get neighbor positions as packed column-row pairs for a distance.
    *
@@ -1158,92 +1686,53 @@ public final class HexEngine<G> {
       result = array;
     }
 
-    switch (this.orientation) {
-      case ORIENTATION_HORIZONTAL: {
-        int varCol = col;
-        int varRow = row - distance;
-
-        int pos = 0;
-
-        for (int i = 0; i < distance; i++) { // \
-          result[pos++] = packColumnRow(varCol, varRow);
-          varRow += varCol & 1;
-          varCol++;
-        }
-
-        for (int i = 0; i < distance; i++) { // |
-          result[pos++] = packColumnRow(varCol, varRow);
-          varRow++;
-        }
-
-        for (int i = 0; i < distance; i++) { // /
-          result[pos++] = packColumnRow(varCol, varRow);
-          varRow += varCol & 1;
-          varCol--;
-        }
-
-        for (int i = 0; i < distance; i++) { // \
-          result[pos++] = packColumnRow(varCol, varRow);
-          varCol--;
-          varRow -= varCol & 1;
-        }
-
-        for (int i = 0; i < distance; i++) { // |
-          result[pos++] = packColumnRow(varCol, varRow);
-          varRow--;
-        }
+    walkNeighbourRing(col, row, distance, new NeighbourConsumer() {
 
-        for (int i = 0; i < distance; i++) { // /
-          result[pos++] = packColumnRow(varCol, varRow);
-          varCol++;
-          varRow -= varCol & 1;
-        }
+      @Override
+      void accept(final int index, final int neighbourCol, final int neighbourRow) {
+        result[index] = packColumnRow(neighbourCol, neighbourRow);
       }
-      break;
-      case ORIENTATION_VERTICAL: {
-        int varCol = col + (distance >> 1) + (row & distance & 1);
-        int varRow = row - distance;
-
-        int pos = 0;
+    });
 
-        for (int i = 0; i < distance; i++) { // \
-          result[pos++] = packColumnRow(varCol, varRow);
-          varCol += varRow & 1;
-          varRow++;
-        }
+    return result;
+  }
 
-        for (int i = 0; i < distance; i++) { // /
-          result[pos++] = packColumnRow(varCol, varRow);
-          varRow++;
-          varCol -= varRow & 1;
-        }
+  /**
+   * Get neighbor positions as column-row pairs packed into long values for a
+   * distance. Unlike {@link #getPackedNeighbourPositions(int[], int, int, int)}
+   * it keeps whole range of integer coordinates including negative ones.
+   *
+   * @param array the array will be used for result but it can be null or it can
+   * be smaller than needed one and in the case a new array will be generated
+   * @param col the column of a hex to get its neighbors
+   * @param row the row of a hex to get its neighbors
+   * @param distance a distance
+   * @return array with first distance*6 elements contains packed column-row
+   * values
+   * @see #packColumnRowLong(int, int)
+   */
+  public long[] getPackedNeighbourPositionsLong(final long[] array, final int col, final int row, final int distance) {
+    if (distance <= 0) {
+      return new long[]{packColumnRowLong(col, row)};
+    }
 
-        for (int i = 0; i < distance; i++) { // -
-          result[pos++] = packColumnRow(varCol, varRow);
-          varCol--;
-        }
+    final int resultLen = distance * 6;
 
-        for (int i = 0; i < distance; i++) { // \
-          result[pos++] = packColumnRow(varCol, varRow);
-          varRow--;
-          varCol -= varRow & 1;
-        }
+    final long[] result;
+    if (array == null || array.length < resultLen) {
+      result = new long[resultLen];
+    }
+    else {
+      result = array;
+    }
 
-        for (int i = 0; i < distance; i++) { // /
-          result[pos++] = packColumnRow(varCol, varRow);
-          varCol += varRow & 1;
-          varRow--;
-        }
+    walkNeighbourRing(col, row, distance, new NeighbourConsumer() {
 
-        for (int i = 0; i < distance; i++) { // -
-          result[pos++] = packColumnRow(varCol, varRow);
-          varCol++;
-        }
+      @Override
+      void accept(final int index, final int neighbourCol, final int neighbourRow) {
+        result[index] = packColumnRowLong(neighbourCol, neighbourRow);
       }
-      break;
-      default:
-        throw new Error("Unsupported orientation");
-    }
+    });
 
     return result;
   }
@@ -1274,7 +1763,28 @@ public final class HexEngine<G> {
       result = array;
     }
 
-    switch (this.orientation) {
+    walkNeighbourRing(col, row, distance, new NeighbourConsumer() {
+
+      @Override
+      void accept(final int index, final int neighbourCol, final int neighbourRow) {
+        result[index] = new HexPosition(neighbourCol, neighbourRow);
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Walk the ring of neighbors for a distance and pass every position to a
+   * consumer.
+   *
+   * @param col the column of the hex
+   * @param row the row of the hex
+   * @param distance the distance, must be positive
+   * @param consumer the consumer of positions in the ring order
+   */
+  private void walkNeighbourRing(final int col, final int row, final int distance, final NeighbourConsumer consumer) {
+    switch (this.geometry.orientation) {
       case ORIENTATION_HORIZONTAL: {
         int varCol = col;
         int varRow = row - distance;
@@ -1282,35 +1792,35 @@ public final class HexEngine<G> {
         int pos = 0;
 
         for (int i = 0; i < distance; i++) { // \
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varRow += varCol & 1;
           varCol++;
         }
 
         for (int i = 0; i < distance; i++) { // |
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varRow++;
         }
 
         for (int i = 0; i < distance; i++) { // /
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varRow += varCol & 1;
           varCol--;
         }
 
         for (int i = 0; i < distance; i++) { // \
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varCol--;
           varRow -= varCol & 1;
         }
 
         for (int i = 0; i < distance; i++) { // |
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varRow--;
         }
 
         for (int i = 0; i < distance; i++) { // /
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varCol++;
           varRow -= varCol & 1;
         }
@@ -1323,36 +1833,36 @@ public final class HexEngine<G> {
         int pos = 0;
 
         for (int i = 0; i < distance; i++) { // \
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varCol += varRow & 1;
           varRow++;
         }
 
         for (int i = 0; i < distance; i++) { // /
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varRow++;
           varCol -= varRow & 1;
         }
 
         for (int i = 0; i < distance; i++) { // -
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varCol--;
         }
 
         for (int i = 0; i < distance; i++) { // \
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varRow--;
           varCol -= varRow & 1;
         }
 
         for (int i = 0; i < distance; i++) { // /
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varCol += varRow & 1;
           varRow--;
         }
 
         for (int i = 0; i < distance; i++) { // -
-          result[pos++] = new HexPosition(varCol, varRow);
+          consumer.accept(pos++, varCol, varRow);
           varCol++;
         }
       }
@@ -1360,7 +1870,5 @@ public final class HexEngine<G> {
       default:
         throw new Error("Unsupported orientation");
     }
-
-    return result;
   }
 }
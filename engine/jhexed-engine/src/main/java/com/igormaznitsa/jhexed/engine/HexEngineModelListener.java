@@ -0,0 +1,46 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+/**
+ * The Interface describes a listener to get notifications about changes of
+ * cells of an observable model.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see ObservableHexEngineModel
+ */
+public interface HexEngineModelListener {
+
+  /**
+   * Notification that cells inside of a rectangle of columns and rows have been
+   * changed, the rectangle is the bounding box of all changed cells.
+   *
+   * @param source the source model
+   * @param minCol the min changed column, inclusive
+   * @param minRow the min changed row, inclusive
+   * @param maxCol the max changed column, inclusive
+   * @param maxRow the max changed row, inclusive
+   */
+  void onCellsChanged(HexEngineModel<?> source, int minCol, int minRow, int maxCol, int maxRow);
+
+  /**
+   * Notification that the whole model has been changed, for instance filled or
+   * resized.
+   *
+   * @param source the source model
+   */
+  void onModelChanged(HexEngineModel<?> source);
+}
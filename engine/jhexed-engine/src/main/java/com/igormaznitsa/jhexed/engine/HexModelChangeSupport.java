@@ -0,0 +1,213 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Auxiliary class to keep listeners of an observable model and notify them.
+ * Changes made between {@link #beginUpdate()} and {@link #endUpdate()} are
+ * collected into one bounding box and reported once, so that a brush stroke
+ * touching many cells produces one notification. Methods can be called from
+ * any thread, collected changes are guarded by the object lock and listeners
+ * are notified out of the lock in the thread which reports the changes. An
+ * update started in one thread also collects changes of other threads.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see ObservableHexEngineModel
+ */
+public class HexModelChangeSupport {
+
+  private final HexEngineModel<?> source;
+  private final CopyOnWriteArrayList<HexEngineModelListener> listeners = new CopyOnWriteArrayList<HexEngineModelListener>();
+
+  private int updateDepth;
+  private boolean changed;
+  private boolean wholeChanged;
+  private int minCol;
+  private int minRow;
+  private int maxCol;
+  private int maxRow;
+
+  /**
+   * The Constructor.
+   *
+   * @param source the model to be reported as the source of events, must not
+   * be null
+   */
+  public HexModelChangeSupport(final HexEngineModel<?> source) {
+    if (source == null) {
+      throw new NullPointerException("Source must not be null");
+    }
+    this.source = source;
+  }
+
+  /**
+   * Add a listener, the same listener is added only once.
+   *
+   * @param listener the listener, null is ignored
+   */
+  public void addListener(final HexEngineModelListener listener) {
+    if (listener != null) {
+      this.listeners.addIfAbsent(listener);
+    }
+  }
+
+  /**
+   * Remove a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(final HexEngineModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Check that there are listeners.
+   *
+   * @return true if there is a listener
+   */
+  public boolean hasListeners() {
+    return !this.listeners.isEmpty();
+  }
+
+  /**
+   * Start collecting changes, calls can be nested.
+   */
+  public synchronized void beginUpdate() {
+    this.updateDepth++;
+  }
+
+  /**
+   * Stop collecting changes, the outermost call reports collected changes.
+   */
+  public void endUpdate() {
+    final int[] area;
+    synchronized (this) {
+      if (this.updateDepth == 0) {
+        throw new IllegalStateException("There is no started update");
+      }
+      if (--this.updateDepth > 0) {
+        return;
+      }
+      area = takeChanges();
+    }
+    fire(area);
+  }
+
+  /**
+   * Report a changed cell.
+   *
+   * @param col the column
+   * @param row the row
+   */
+  public void cellChanged(final int col, final int row) {
+    cellsChanged(col, row, col, row);
+  }
+
+  /**
+   * Report changed cells.
+   *
+   * @param minCol the min column, inclusive
+   * @param minRow the min row, inclusive
+   * @param maxCol the max column, inclusive
+   * @param maxRow the max row, inclusive
+   */
+  public void cellsChanged(final int minCol, final int minRow, final int maxCol, final int maxRow) {
+    if (this.listeners.isEmpty()) {
+      return;
+    }
+    final int[] area;
+    synchronized (this) {
+      if (this.wholeChanged) {
+        return;
+      }
+      if (this.changed) {
+        this.minCol = Math.min(this.minCol, minCol);
+        this.minRow = Math.min(this.minRow, minRow);
+        this.maxCol = Math.max(this.maxCol, maxCol);
+        this.maxRow = Math.max(this.maxRow, maxRow);
+      }
+      else {
+        this.changed = true;
+        this.minCol = minCol;
+        this.minRow = minRow;
+        this.maxCol = maxCol;
+        this.maxRow = maxRow;
+      }
+      if (this.updateDepth > 0) {
+        return;
+      }
+      area = takeChanges();
+    }
+    fire(area);
+  }
+
+  /**
+   * Report that the whole model has been changed.
+   */
+  public void modelChanged() {
+    if (this.listeners.isEmpty()) {
+      return;
+    }
+    final int[] area;
+    synchronized (this) {
+      this.wholeChanged = true;
+      if (this.updateDepth > 0) {
+        return;
+      }
+      area = takeChanges();
+    }
+    fire(area);
+  }
+
+  /**
+   * Take collected changes and reset them, must be called under the lock.
+   *
+   * @return null if nothing changed, empty array if the whole model changed,
+   * the changed area as min column, min row, max column and max row otherwise
+   */
+  private int[] takeChanges() {
+    final boolean whole = this.wholeChanged;
+    final boolean cells = this.changed;
+    this.wholeChanged = false;
+    this.changed = false;
+    if (whole) {
+      return new int[0];
+    }
+    else if (cells) {
+      return new int[]{this.minCol, this.minRow, this.maxCol, this.maxRow};
+    }
+    return null;
+  }
+
+  // listeners are notified out of the lock
+  private void fire(final int[] area) {
+    if (area == null) {
+      return;
+    }
+    if (area.length == 0) {
+      for (final HexEngineModelListener l : this.listeners) {
+        l.onModelChanged(this.source);
+      }
+    }
+    else {
+      for (final HexEngineModelListener l : this.listeners) {
+        l.onCellsChanged(this.source, area[0], area[1], area[2], area[3]);
+      }
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Model keeps integer values in a memory-mapped file, so that very big maps
+ * don't occupy heap. The File is mapped by several segments so that its size
+ * is not restricted by 2 GB. Cells can have width of one byte, two bytes or
+ * four bytes, byte and short cells keep unsigned values. Content of the file
+ * is kept between sessions, the file is extended if it is too short for the
+ * model.
+ * <p>
+ * The Model must be closed after use and it must not be used after close.
+ * </p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public class MappedFileHexModel implements IntHexEngineModel, Closeable {
+
+  /**
+   * Cell width is one byte, values 0..255
+   */
+  public static final int CELL_BYTE = 1;
+  /**
+   * Cell width is two bytes, values 0..65535
+   */
+  public static final int CELL_SHORT = 2;
+  /**
+   * Cell width is four bytes, any integer values
+   */
+  public static final int CELL_INT = 4;
+
+  /**
+   * Default size of a mapped segment, 1 GB
+   */
+  public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+  /**
+   * Number of columns
+   */
+  private final int columns;
+
+  /**
+   * Number of rows
+   */
+  private final int rows;
+
+  /**
+   * The Width of a cell in bytes.
+   */
+  private final int cellSize;
+
+  /**
+   * The Value returned if requested position is not a valid one.
+   */
+  private final int outboundValue;
+
+  /**
+   * AN Object representation of the outbound value cached for speed.
+   */
+  private final Integer outboundValueInt;
+
+  /**
+   * Shift to get segment index from a byte offset.
+   */
+  private final int segmentShift;
+
+  /**
+   * Mask to get position inside segment from a byte offset.
+   */
+  private final long segmentMask;
+
+  /**
+   * The Opened file.
+   */
+  private final RandomAccessFile file;
+
+  /**
+   * Mapped segments of the file.
+   */
+  private final MappedByteBuffer[] segments;
+
+  /**
+   * The Constructor, the file will be mapped by segments with default size.
+   *
+   * @param file the file to keep data, must not be null
+   * @param columns the column number in the model, must be greater than zero
+   * @param rows the row number in the model, must be greater than zero
+   * @param cellSize the size of a cell in bytes
+   * @param outboundValue the value to be used for illegal positions.
+   * @throws IOException it will be thrown for transport errors
+   * @see #CELL_BYTE
+   * @see #CELL_SHORT
+   * @see #CELL_INT
+   */
+  public MappedFileHexModel(final File file, final int columns, final int rows, final int cellSize, final int outboundValue) throws IOException {
+    this(file, columns, rows, cellSize, outboundValue, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * The Constructor.
+   *
+   * @param file the file to keep data, must not be null
+   * @param columns the column number in the model, must be greater than zero
+   * @param rows the row number in the model, must be greater than zero
+   * @param cellSize the size of a cell in bytes
+   * @param outboundValue the value to be used for illegal positions.
+   * @param segmentSize the size of a mapped segment in bytes, must be power of
+   * two, not less than the cell size and not greater than 1 GB
+   * @throws IOException it will be thrown for transport errors
+   * @see #CELL_BYTE
+   * @see #CELL_SHORT
+   * @see #CELL_INT
+   */
+  public MappedFileHexModel(final File file, final int columns, final int rows, final int cellSize, final int outboundValue, final long segmentSize) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("File must not be null");
+    }
+    if (columns <= 0) {
+      throw new IllegalArgumentException("Column number must be greater than zero [" + columns + ']');
+    }
+    if (rows <= 0) {
+      throw new IllegalArgumentException("Row number must be greater than zero [" + rows + ']');
+    }
+    if (cellSize != CELL_BYTE && cellSize != CELL_SHORT && cellSize != CELL_INT) {
+      throw new IllegalArgumentException("Unsupported cell size [" + cellSize + ']');
+    }
+    if (segmentSize < cellSize || segmentSize > DEFAULT_SEGMENT_SIZE || Long.bitCount(segmentSize) != 1) {
+      throw new IllegalArgumentException("Wrong segment size [" + segmentSize + ']');
+    }
+
+    this.columns = columns;
+    this.rows = rows;
+    this.cellSize = cellSize;
+    this.outboundValue = outboundValue;
+    this.outboundValueInt = outboundValue;
+    this.segmentShift = Long.numberOfTrailingZeros(segmentSize);
+    this.segmentMask = segmentSize - 1L;
+
+    final long totalSize = (long) columns * (long) rows * cellSize;
+    final int segmentNumber = (int) ((totalSize + this.segmentMask) >>> this.segmentShift);
+
+    this.file = new RandomAccessFile(file, "rw");
+    boolean ok = false;
+    try {
+      if (this.file.length() < totalSize) {
+        this.file.setLength(totalSize);
+      }
+
+      final FileChannel channel = this.file.getChannel();
+      this.segments = new MappedByteBuffer[segmentNumber];
+      for (int i = 0; i < segmentNumber; i++) {
+        final long offset = (long) i << this.segmentShift;
+        this.segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.min(segmentSize, totalSize - offset));
+      }
+      ok = true;
+    }
+    finally {
+      if (!ok) {
+        this.file.close();
+      }
+    }
+  }
+
+  /**
+   * Get the cell size in bytes.
+   *
+   * @return the cell size
+   */
+  public int getCellSize() {
+    return this.cellSize;
+  }
+
+  @Override
+  public int getColumnNumber() {
+    return this.columns;
+  }
+
+  @Override
+  public int getRowNumber() {
+    return this.rows;
+  }
+
+  @Override
+  public boolean isPositionValid(final int col, final int row) {
+    return col >= 0 && row >= 0 && col < this.columns && row < this.rows;
+  }
+
+  @Override
+  public boolean isPositionValid(final HexPosition pos) {
+    return this.isPositionValid(pos.getColumn(), pos.getRow());
+  }
+
+  @Override
+  public int getInt(final int col, final int row) {
+    if (!isPositionValid(col, row)) {
+      return this.outboundValue;
+    }
+
+    final long offset = ((long) row * this.columns + col) * this.cellSize;
+    final MappedByteBuffer segment = this.segments[(int) (offset >>> this.segmentShift)];
+    final int pos = (int) (offset & this.segmentMask);
+
+    switch (this.cellSize) {
+      case CELL_BYTE:
+        return segment.get(pos) & 0xFF;
+      case CELL_SHORT:
+        return segment.getShort(pos) & 0xFFFF;
+      default:
+        return segment.getInt(pos);
+    }
+  }
+
+  @Override
+  public void setInt(final int col, final int row, final int value) {
+    if (!isPositionValid(col, row)) {
+      return;
+    }
+
+    final long offset = ((long) row * this.columns + col) * this.cellSize;
+    final MappedByteBuffer segment = this.segments[(int) (offset >>> this.segmentShift)];
+    final int pos = (int) (offset & this.segmentMask);
+
+    switch (this.cellSize) {
+      case CELL_BYTE: {
+        if ((value & ~0xFF) != 0) {
+          throw new IllegalArgumentException("Value must be 0...255 [" + value + ']');
+        }
+        segment.put(pos, (byte) value);
+      }
+      break;
+      case CELL_SHORT: {
+        if ((value & ~0xFFFF) != 0) {
+          throw new IllegalArgumentException("Value must be 0...65535 [" + value + ']');
+        }
+        segment.putShort(pos, (short) value);
+      }
+      break;
+      default: {
+        segment.putInt(pos, value);
+      }
+      break;
+    }
+  }
+
+  @Override
+  public Integer getValueAt(final int col, final int row) {
+    if (isPositionValid(col, row)) {
+      return this.getInt(col, row);
+    }
+    else {
+      return this.outboundValueInt;
+    }
+  }
+
+  @Override
+  public Integer getValueAt(final HexPosition pos) {
+    return this.getValueAt(pos.getColumn(), pos.getRow());
+  }
+
+  @Override
+  public void setValueAt(final int col, final int row, final Integer value) {
+    if (value == null) {
+      throw new NullPointerException("Null value");
+    }
+    this.setInt(col, row, value);
+  }
+
+  @Override
+  public void setValueAt(final HexPosition pos, final Integer value) {
+    this.setValueAt(pos.getColumn(), pos.getRow(), value);
+  }
+
+  /**
+   * Write all changes of mapped segments to the file.
+   */
+  public void flush() {
+    for (final MappedByteBuffer s : this.segments) {
+      s.force();
+    }
+  }
+
+  /**
+   * Flush changes and close the file. Mapped memory is released by the JVM
+   * when segments are collected.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    }
+    finally {
+      this.file.close();
+    }
+  }
+
+  public void attachedToEngine(final HexEngine<?> engine) {
+  }
+
+  public void detachedFromEngine(final HexEngine<?> engine) {
+  }
+}
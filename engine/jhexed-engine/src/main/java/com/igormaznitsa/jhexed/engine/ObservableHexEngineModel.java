@@ -0,0 +1,41 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine;
+
+/**
+ * Interface describes a hexagonal model which notifies listeners about changes
+ * of its cells.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @param <E> object type saved in a cell
+ * @see HexModelChangeSupport
+ */
+public interface ObservableHexEngineModel<E> extends HexEngineModel<E> {
+
+  /**
+   * Add a listener.
+   *
+   * @param listener the listener to be added
+   */
+  void addHexEngineModelListener(HexEngineModelListener listener);
+
+  /**
+   * Remove a listener.
+   *
+   * @param listener the listener to be removed
+   */
+  void removeHexEngineModelListener(HexEngineModelListener listener);
+}
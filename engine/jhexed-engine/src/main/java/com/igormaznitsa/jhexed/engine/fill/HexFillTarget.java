@@ -0,0 +1,47 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.fill;
+
+/**
+ * The Interface describes a target of flood fill operation. The Fill engine
+ * asks the target whether a hexagon can be filled and notifies the target
+ * about every hexagon which must be filled. Every hexagon is visited only
+ * once, so that the target can change its state during filling.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexFloodFill
+ */
+public interface HexFillTarget {
+
+  /**
+   * Check that a hexagon can be filled.
+   *
+   * @param col the column of the hexagon, it is always inside of the filled
+   * area
+   * @param row the row of the hexagon, it is always inside of the filled area
+   * @return true if the hexagon can be filled, false if it is a border
+   */
+  boolean isFillable(int col, int row);
+
+  /**
+   * Fill a hexagon. It is called only for hexagons which have been reported as
+   * fillable.
+   *
+   * @param col the column of the hexagon
+   * @param row the row of the hexagon
+   */
+  void fill(int col, int row);
+}
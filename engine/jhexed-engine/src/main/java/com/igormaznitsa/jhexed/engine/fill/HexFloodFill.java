@@ -0,0 +1,186 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.fill;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import java.util.BitSet;
+
+/**
+ * Span based flood fill for hexagonal fields. Hexagons are processed as runs
+ * along the axis where neighbors lie on the same line (columns for the
+ * horizontal orientation and rows for the vertical one), so that the fill
+ * needs only a primitive stack of seeds and a bit set of visited hexagons.
+ * <p>
+ * An Instance keeps its buffers between calls and can be reused for many fill
+ * operations, but it is not thread safe.</p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexFillTarget
+ */
+public final class HexFloodFill {
+
+  /**
+   * Visited hexagons, index is lane * laneLength + position.
+   */
+  private final BitSet visited = new BitSet();
+  /**
+   * Stack of seeds, every seed is a pair of lane and position.
+   */
+  private int[] stack = new int[256];
+  private int stackSize;
+
+  /**
+   * Fill the area of an engine model connected to a hexagon.
+   *
+   * @param engine the engine which orientation and model will be used, must
+   * not be null
+   * @param col the start column
+   * @param row the start row
+   * @param target the fill target, must not be null
+   * @return number of filled hexagons
+   */
+  public int fill(final HexEngine<?> engine, final int col, final int row, final HexFillTarget target) {
+    final HexEngineModel<?> model = engine.getModel();
+    return this.fill(engine.getOrientation(), model.getColumnNumber(), model.getRowNumber(), col, row, target);
+  }
+
+  /**
+   * Fill the area connected to a hexagon. The Start hexagon is filled only if
+   * it is fillable.
+   *
+   * @param orientation the orientation of the field
+   * @param columns the number of columns in the field
+   * @param rows the number of rows in the field
+   * @param col the start column
+   * @param row the start row
+   * @param target the fill target, must not be null
+   * @return number of filled hexagons
+   * @see HexEngine#ORIENTATION_HORIZONTAL
+   * @see HexEngine#ORIENTATION_VERTICAL
+   */
+  public int fill(final int orientation, final int columns, final int rows, final int col, final int row, final HexFillTarget target) {
+    if (target == null) {
+      throw new NullPointerException("Target must not be null");
+    }
+
+    final boolean horizontal;
+    switch (orientation) {
+      case HexEngine.ORIENTATION_HORIZONTAL:
+        horizontal = true;
+        break;
+      case HexEngine.ORIENTATION_VERTICAL:
+        horizontal = false;
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported orientation [" + orientation + ']');
+    }
+
+    if ((long) columns * (long) rows > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too big field [" + columns + 'x' + rows + ']');
+    }
+
+    if (col < 0 || row < 0 || col >= columns || row >= rows) {
+      return 0;
+    }
+
+    final int lanes = horizontal ? columns : rows;
+    final int length = horizontal ? rows : columns;
+
+    this.visited.clear();
+    this.stackSize = 0;
+    if (horizontal) {
+      push(col, row);
+    }
+    else {
+      push(row, col);
+    }
+
+    int filled = 0;
+
+    while (this.stackSize > 0) {
+      final int pos = this.stack[--this.stackSize];
+      final int lane = this.stack[--this.stackSize];
+      final int base = lane * length;
+
+      if (this.visited.get(base + pos) || !isFillable(target, horizontal, lane, pos)) {
+        continue;
+      }
+
+      int start = pos;
+      while (start > 0 && !this.visited.get(base + start - 1) && isFillable(target, horizontal, lane, start - 1)) {
+        start--;
+      }
+      int end = pos;
+      while (end < length - 1 && !this.visited.get(base + end + 1) && isFillable(target, horizontal, lane, end + 1)) {
+        end++;
+      }
+
+      this.visited.set(base + start, base + end + 1);
+      for (int p = start; p <= end; p++) {
+        if (horizontal) {
+          target.fill(lane, p);
+        }
+        else {
+          target.fill(p, lane);
+        }
+      }
+      filled += end - start + 1;
+
+      // a hexagon at position P of lane L touches positions P-1+(L&1) and P+(L&1) of both adjacent lanes
+      final int shift = lane & 1;
+      if (lane > 0) {
+        scanLane(target, horizontal, lane - 1, length, start - 1 + shift, end + shift);
+      }
+      if (lane < lanes - 1) {
+        scanLane(target, horizontal, lane + 1, length, start - 1 + shift, end + shift);
+      }
+    }
+
+    return filled;
+  }
+
+  private void scanLane(final HexFillTarget target, final boolean horizontal, final int lane, final int length, final int from, final int to) {
+    final int base = lane * length;
+    final int last = Math.min(to, length - 1);
+    boolean inRun = false;
+    for (int p = Math.max(0, from); p <= last; p++) {
+      if (!this.visited.get(base + p) && isFillable(target, horizontal, lane, p)) {
+        if (!inRun) {
+          push(lane, p);
+          inRun = true;
+        }
+      }
+      else {
+        inRun = false;
+      }
+    }
+  }
+
+  private static boolean isFillable(final HexFillTarget target, final boolean horizontal, final int lane, final int pos) {
+    return horizontal ? target.isFillable(lane, pos) : target.isFillable(pos, lane);
+  }
+
+  private void push(final int lane, final int pos) {
+    if (this.stackSize + 2 > this.stack.length) {
+      final int[] newStack = new int[this.stack.length << 1];
+      System.arraycopy(this.stack, 0, newStack, 0, this.stackSize);
+      this.stack = newStack;
+    }
+    this.stack[this.stackSize++] = lane;
+    this.stack[this.stackSize++] = pos;
+  }
+}
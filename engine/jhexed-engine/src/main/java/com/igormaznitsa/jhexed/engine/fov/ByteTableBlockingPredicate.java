@@ -0,0 +1,74 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.fov;
+
+import com.igormaznitsa.jhexed.engine.ByteHexEngineModel;
+
+/**
+ * Blocking predicate which takes the flag from a table indexed by the unsigned
+ * byte value of the hexagon in a model. It is the usual case for terrain
+ * layers where every value is a terrain type.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public class ByteTableBlockingPredicate implements HexBlockingPredicate {
+
+  private final ByteHexEngineModel model;
+  private final boolean[] blocking;
+
+  /**
+   * The Constructor.
+   *
+   * @param model the model, must not be null
+   * @param blocking blocking flags for values, must not be null, a value which
+   * is out of the table is transparent
+   */
+  public ByteTableBlockingPredicate(final ByteHexEngineModel model, final boolean[] blocking) {
+    if (model == null) {
+      throw new NullPointerException("Model must not be null");
+    }
+    if (blocking == null) {
+      throw new NullPointerException("Blocking table must not be null");
+    }
+    this.model = model;
+    this.blocking = blocking;
+  }
+
+  /**
+   * Get the model.
+   *
+   * @return the model
+   */
+  public ByteHexEngineModel getModel() {
+    return this.model;
+  }
+
+  /**
+   * Get the blocking table. It is not a copy, so that changes of the table are
+   * visible to the predicate.
+   *
+   * @return the blocking table
+   */
+  public boolean[] getBlocking() {
+    return this.blocking;
+  }
+
+  @Override
+  public boolean isBlocking(final int col, final int row) {
+    final int value = this.model.getByte(col, row) & 0xFF;
+    return value < this.blocking.length && this.blocking[value];
+  }
+}
@@ -0,0 +1,35 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.fov;
+
+/**
+ * The Interface describes hexagons which block the line of sight. The Blocking
+ * hexagons are visible themselves but they hide hexagons behind them.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexFieldOfView
+ */
+public interface HexBlockingPredicate {
+
+  /**
+   * Check that a hexagon blocks the line of sight.
+   *
+   * @param col the column of the hexagon, it is always inside of the model
+   * @param row the row of the hexagon, it is always inside of the model
+   * @return true if the hexagon blocks sight, false if it is transparent
+   */
+  boolean isBlocking(int col, int row);
+}
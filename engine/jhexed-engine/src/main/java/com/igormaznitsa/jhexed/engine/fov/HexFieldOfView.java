@@ -0,0 +1,282 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.fov;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexAxial;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Field of view calculator based on symmetric shadowcasting over six sextants
+ * of a hexagon. Every sextant is scanned by rows of growing distance, a row of
+ * distance D contains D+1 hexagons and blocking hexagons cut the visible slope
+ * interval for the next rows. Slopes are kept as exact fractions, so that the
+ * result doesn't depend on float rounding and if a transparent hexagon A sees
+ * a transparent hexagon B then B sees A.
+ * <p>
+ * Results are written into bit sets where the index of a hexagon is row *
+ * columns + column. Inside buffers are pooled, so that calculation doesn't
+ * allocate memory after warm-up. Calculation of one viewer is not thread safe
+ * for the same bit set, but the batch mode processes different viewers in
+ * parallel.</p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexBlockingPredicate
+ */
+public final class HexFieldOfView {
+
+  private final HexEngine<?> engine;
+  private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<Context>();
+
+  /**
+   * Stack of rows to be scanned, every row is depth and start and end slopes
+   * as fractions.
+   */
+  private static final class Context {
+
+    private int[] rows = new int[5 * 64];
+    private int size;
+
+    private void push(final int depth, final int startNum, final int startDen, final int endNum, final int endDen) {
+      if (this.size + 5 > this.rows.length) {
+        final int[] newRows = new int[this.rows.length << 1];
+        System.arraycopy(this.rows, 0, newRows, 0, this.size);
+        this.rows = newRows;
+      }
+      this.rows[this.size++] = depth;
+      this.rows[this.size++] = startNum;
+      this.rows[this.size++] = startDen;
+      this.rows[this.size++] = endNum;
+      this.rows[this.size++] = endDen;
+    }
+  }
+
+  /**
+   * The Constructor.
+   *
+   * @param engine the engine which orientation and model will be used, must not
+   * be null
+   */
+  public HexFieldOfView(final HexEngine<?> engine) {
+    if (engine == null) {
+      throw new NullPointerException("Engine must not be null");
+    }
+    this.engine = engine;
+  }
+
+  /**
+   * Get the engine.
+   *
+   * @return the engine
+   */
+  public HexEngine<?> getEngine() {
+    return this.engine;
+  }
+
+  /**
+   * Calculate hexagons visible from a hexagon. The Viewer hexagon is always
+   * visible, blocking hexagons are visible but hide hexagons behind them,
+   * hexagons out of the model block sight.
+   *
+   * @param col the column of the viewer
+   * @param row the row of the viewer
+   * @param radius the max distance of sight in hexagons, must not be negative
+   * @param predicate the blocking predicate, must not be null
+   * @param result the bit set to be cleared and filled by visible hexagons,
+   * must not be null
+   * @return the number of visible hexagons, zero if the viewer is out of the
+   * model
+   */
+  public int calculate(final int col, final int row, final int radius, final HexBlockingPredicate predicate, final BitSet result) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative [" + radius + ']');
+    }
+    if (predicate == null) {
+      throw new NullPointerException("Predicate must not be null");
+    }
+    if (result == null) {
+      throw new NullPointerException("Result must not be null");
+    }
+
+    Context context = this.contexts.poll();
+    if (context == null) {
+      context = new Context();
+    }
+    try {
+      return scan(context, col, row, radius, predicate, result);
+    }
+    finally {
+      this.contexts.offer(context);
+    }
+  }
+
+  /**
+   * Calculate fields of view for many viewers in parallel.
+   *
+   * @param viewers viewer positions packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}, must not be null
+   * @param viewerNumber the number of viewers in the array
+   * @param radius the max distance of sight in hexagons, must not be negative
+   * @param predicate the blocking predicate, must not be null, it must be
+   * thread safe for reading
+   * @param results array of bit sets for viewers, must not be null, null
+   * elements will be replaced by new bit sets
+   * @param executor the executor to process viewers, must not be null
+   * @return the results array
+   * @throws InterruptedException if the thread has been interrupted
+   * @see #calculate(int, int, int,
+   * com.igormaznitsa.jhexed.engine.fov.HexBlockingPredicate, java.util.BitSet)
+   */
+  public BitSet[] calculate(final long[] viewers, final int viewerNumber, final int radius, final HexBlockingPredicate predicate, final BitSet[] results, final ExecutorService executor) throws InterruptedException {
+    if (viewerNumber < 0 || viewerNumber > viewers.length || viewerNumber > results.length) {
+      throw new IllegalArgumentException("Wrong number of viewers [" + viewerNumber + ']');
+    }
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative [" + radius + ']');
+    }
+    if (predicate == null) {
+      throw new NullPointerException("Predicate must not be null");
+    }
+    if (executor == null) {
+      throw new NullPointerException("Executor must not be null");
+    }
+
+    final List<Future<?>> futures = new ArrayList<Future<?>>(viewerNumber);
+    try {
+      for (int i = 0; i < viewerNumber; i++) {
+        if (results[i] == null) {
+          results[i] = new BitSet();
+        }
+        final BitSet result = results[i];
+        final long viewer = viewers[i];
+        futures.add(executor.submit(new Runnable() {
+
+          @Override
+          public void run() {
+            calculate(HexEngine.extractColumnLong(viewer), HexEngine.extractRowLong(viewer), radius, predicate, result);
+          }
+        }));
+      }
+      for (final Future<?> f : futures) {
+        try {
+          f.get();
+        }
+        catch (ExecutionException ex) {
+          final Throwable cause = ex.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new RuntimeException("Can't calculate field of view", cause);
+        }
+      }
+    }
+    finally {
+      for (final Future<?> f : futures) {
+        f.cancel(true);
+      }
+    }
+    return results;
+  }
+
+  private static long floorDiv(final long a, final long b) {
+    final long result = a / b;
+    return (a % b != 0 && ((a < 0) != (b < 0))) ? result - 1 : result;
+  }
+
+  private int scan(final Context context, final int col, final int row, final int radius, final HexBlockingPredicate predicate, final BitSet result) {
+    result.clear();
+
+    final HexEngineModel<?> model = this.engine.getModel();
+    final int columns = model.getColumnNumber();
+    final int rows = model.getRowNumber();
+    if (col < 0 || row < 0 || col >= columns || row >= rows) {
+      return 0;
+    }
+
+    final int orientation = this.engine.getOrientation();
+    final int centerQ = HexAxial.offsetToQ(orientation, col, row);
+    final int centerR = HexAxial.offsetToR(orientation, col, row);
+
+    result.set(row * columns + col);
+    int counter = 1;
+
+    for (int sextant = 0; sextant < 6; sextant++) {
+      final int cornerQ = HexAxial.getDirectionQ(orientation, sextant);
+      final int cornerR = HexAxial.getDirectionR(orientation, sextant);
+      final int stepQ = HexAxial.getDirectionQ(orientation, (sextant + 2) % 6);
+      final int stepR = HexAxial.getDirectionR(orientation, (sextant + 2) % 6);
+
+      context.size = 0;
+      context.push(1, 0, 1, 1, 1);
+
+      while (context.size > 0) {
+        context.size -= 5;
+        final int depth = context.rows[context.size];
+        int startNum = context.rows[context.size + 1];
+        int startDen = context.rows[context.size + 2];
+        final int endNum = context.rows[context.size + 3];
+        final int endDen = context.rows[context.size + 4];
+
+        if (depth > radius) {
+          continue;
+        }
+
+        // hexagons whose centers are inside of the slope interval, ties are rounded inward
+        final int first = (int) Math.max(0L, floorDiv(2L * depth * startNum + startDen, 2L * startDen));
+        final int last = (int) Math.min(depth, -floorDiv(-(2L * depth * endNum - endDen), 2L * endDen));
+
+        int previous = -1;
+        for (int i = first; i <= last; i++) {
+          final int q = centerQ + depth * cornerQ + i * stepQ;
+          final int r = centerR + depth * cornerR + i * stepR;
+          final int c = HexAxial.axialToColumn(orientation, q, r);
+          final int w = HexAxial.axialToRow(orientation, q, r);
+
+          final boolean inside = c >= 0 && w >= 0 && c < columns && w < rows;
+          final boolean blocking = !inside || predicate.isBlocking(c, w);
+
+          if (inside && (blocking || ((long) i * startDen >= (long) depth * startNum && (long) i * endDen <= (long) depth * endNum))) {
+            final int index = w * columns + c;
+            if (!result.get(index)) {
+              result.set(index);
+              counter++;
+            }
+          }
+
+          if (previous == 1 && !blocking) {
+            startNum = 2 * i - 1;
+            startDen = 2 * depth;
+          }
+          if (previous == 0 && blocking) {
+            context.push(depth + 1, startNum, startDen, 2 * i - 1, 2 * depth);
+          }
+          previous = blocking ? 1 : 0;
+        }
+        if (previous == 0) {
+          context.push(depth + 1, startNum, startDen, endNum, endDen);
+        }
+      }
+    }
+    return counter;
+  }
+}
@@ -0,0 +1,361 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.misc;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+
+/**
+ * Auxiliary methods to work with axial (and cube) hexagon coordinates. Offset
+ * coordinates of the engine are converted into axial ones in place, so that
+ * exact hexagon distances, lines and rotations can be calculated without
+ * object allocation. The Horizontal orientation uses "odd-q" offset layout
+ * (odd columns are shifted down) and the vertical one uses "odd-r" layout (odd
+ * rows are shifted right).
+ * <p>
+ * Axial pairs are packed into long values in the same manner as
+ * {@link HexEngine#packColumnRowLong(int, int)}, Q in the high part and R in
+ * the low one, the third cube coordinate S is -Q-R.</p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public final class HexAxial {
+
+  /**
+   * Axial offsets of six directions clockwise from the "north" one, for the
+   * vertical orientation the first one is "north-west".
+   */
+  private static final int[] DIRECTIONS = new int[]{0, -1, 1, -1, 1, 0, 0, 1, -1, 1, -1, 0};
+
+  private HexAxial() {
+  }
+
+  /**
+   * Pack axial coordinates into a long value.
+   *
+   * @param q the Q coordinate
+   * @param r the R coordinate
+   * @return the packed value
+   */
+  public static long pack(final int q, final int r) {
+    return HexEngine.packColumnRowLong(q, r);
+  }
+
+  /**
+   * Extract the Q coordinate from packed axial coordinates.
+   *
+   * @param packed packed axial coordinates
+   * @return the Q coordinate
+   */
+  public static int getQ(final long packed) {
+    return HexEngine.extractColumnLong(packed);
+  }
+
+  /**
+   * Extract the R coordinate from packed axial coordinates.
+   *
+   * @param packed packed axial coordinates
+   * @return the R coordinate
+   */
+  public static int getR(final long packed) {
+    return HexEngine.extractRowLong(packed);
+  }
+
+  /**
+   * Calculate the third cube coordinate S from packed axial coordinates.
+   *
+   * @param packed packed axial coordinates
+   * @return the S coordinate
+   */
+  public static int getS(final long packed) {
+    return -getQ(packed) - getR(packed);
+  }
+
+  /**
+   * Convert offset column to the axial Q coordinate.
+   *
+   * @param orientation the orientation of field
+   * @param col the column
+   * @param row the row
+   * @return the Q coordinate
+   */
+  public static int offsetToQ(final int orientation, final int col, final int row) {
+    switch (orientation) {
+      case HexEngine.ORIENTATION_HORIZONTAL:
+        return col;
+      case HexEngine.ORIENTATION_VERTICAL:
+        return col - ((row - (row & 1)) >> 1);
+      default:
+        throw new Error("Unsupported orientation");
+    }
+  }
+
+  /**
+   * Convert offset row to the axial R coordinate.
+   *
+   * @param orientation the orientation of field
+   * @param col the column
+   * @param row the row
+   * @return the R coordinate
+   */
+  public static int offsetToR(final int orientation, final int col, final int row) {
+    switch (orientation) {
+      case HexEngine.ORIENTATION_HORIZONTAL:
+        return row - ((col - (col & 1)) >> 1);
+      case HexEngine.ORIENTATION_VERTICAL:
+        return row;
+      default:
+        throw new Error("Unsupported orientation");
+    }
+  }
+
+  /**
+   * Convert axial coordinates to the offset column.
+   *
+   * @param orientation the orientation of field
+   * @param q the Q coordinate
+   * @param r the R coordinate
+   * @return the column
+   */
+  public static int axialToColumn(final int orientation, final int q, final int r) {
+    switch (orientation) {
+      case HexEngine.ORIENTATION_HORIZONTAL:
+        return q;
+      case HexEngine.ORIENTATION_VERTICAL:
+        return q + ((r - (r & 1)) >> 1);
+      default:
+        throw new Error("Unsupported orientation");
+    }
+  }
+
+  /**
+   * Convert axial coordinates to the offset row.
+   *
+   * @param orientation the orientation of field
+   * @param q the Q coordinate
+   * @param r the R coordinate
+   * @return the row
+   */
+  public static int axialToRow(final int orientation, final int q, final int r) {
+    switch (orientation) {
+      case HexEngine.ORIENTATION_HORIZONTAL:
+        return r + ((q - (q & 1)) >> 1);
+      case HexEngine.ORIENTATION_VERTICAL:
+        return r;
+      default:
+        throw new Error("Unsupported orientation");
+    }
+  }
+
+  /**
+   * Convert offset coordinates into packed axial ones.
+   *
+   * @param orientation the orientation of field
+   * @param col the column
+   * @param row the row
+   * @return packed axial coordinates
+   */
+  public static long offsetToAxial(final int orientation, final int col, final int row) {
+    return pack(offsetToQ(orientation, col, row), offsetToR(orientation, col, row));
+  }
+
+  /**
+   * Convert packed axial coordinates into offset ones.
+   *
+   * @param orientation the orientation of field
+   * @param axial packed axial coordinates
+   * @return column and row packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}
+   */
+  public static long axialToOffset(final int orientation, final long axial) {
+    final int q = getQ(axial);
+    final int r = getR(axial);
+    return HexEngine.packColumnRowLong(axialToColumn(orientation, q, r), axialToRow(orientation, q, r));
+  }
+
+  /**
+   * Calculate distance between two hexagons in axial coordinates.
+   *
+   * @param q1 the Q coordinate of the first hexagon
+   * @param r1 the R coordinate of the first hexagon
+   * @param q2 the Q coordinate of the second hexagon
+   * @param r2 the R coordinate of the second hexagon
+   * @return the number of steps between hexagons
+   */
+  public static int axialDistance(final int q1, final int r1, final int q2, final int r2) {
+    final int dq = q2 - q1;
+    final int dr = r2 - r1;
+    return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) >> 1;
+  }
+
+  /**
+   * Calculate distance between two hexagons in offset coordinates.
+   *
+   * @param orientation the orientation of field
+   * @param col1 the column of the first hexagon
+   * @param row1 the row of the first hexagon
+   * @param col2 the column of the second hexagon
+   * @param row2 the row of the second hexagon
+   * @return the number of steps between hexagons
+   */
+  public static int distance(final int orientation, final int col1, final int row1, final int col2, final int row2) {
+    return axialDistance(offsetToQ(orientation, col1, row1), offsetToR(orientation, col1, row1), offsetToQ(orientation, col2, row2), offsetToR(orientation, col2, row2));
+  }
+
+  /**
+   * Get the axial Q offset of a direction.
+   *
+   * @param orientation the orientation of field
+   * @param direction the direction 0..5, clockwise, the same as neighbor
+   * indexes of the engine
+   * @return the Q offset of the neighbor in the direction
+   * @see HexEngine#getNearestNeighbourPosition(int, int, int)
+   */
+  public static int getDirectionQ(final int orientation, final int direction) {
+    return DIRECTIONS[directionIndex(orientation, direction) << 1];
+  }
+
+  /**
+   * Get the axial R offset of a direction.
+   *
+   * @param orientation the orientation of field
+   * @param direction the direction 0..5, clockwise, the same as neighbor
+   * indexes of the engine
+   * @return the R offset of the neighbor in the direction
+   * @see HexEngine#getNearestNeighbourPosition(int, int, int)
+   */
+  public static int getDirectionR(final int orientation, final int direction) {
+    return DIRECTIONS[(directionIndex(orientation, direction) << 1) + 1];
+  }
+
+  private static int directionIndex(final int orientation, final int direction) {
+    if (direction < 0 || direction > 5) {
+      throw new IllegalArgumentException("Direction must be 0..5 [" + direction + ']');
+    }
+    switch (orientation) {
+      case HexEngine.ORIENTATION_HORIZONTAL:
+        return direction;
+      case HexEngine.ORIENTATION_VERTICAL:
+        return direction == 5 ? 0 : direction + 1;
+      default:
+        throw new Error("Unsupported orientation");
+    }
+  }
+
+  /**
+   * Rasterize a line between two hexagons in offset coordinates. The Line
+   * contains both end hexagons and every next hexagon is a neighbor of the
+   * previous one.
+   *
+   * @param orientation the orientation of field
+   * @param col1 the start column
+   * @param row1 the start row
+   * @param col2 the end column
+   * @param row2 the end row
+   * @param array the array to be used for result, if it is null or too short
+   * then a new one will be created
+   * @return array where the first distance+1 elements are column-row pairs
+   * packed by {@link HexEngine#packColumnRowLong(int, int)}
+   * @see #distance(int, int, int, int, int)
+   */
+  public static long[] line(final int orientation, final int col1, final int row1, final int col2, final int row2, final long[] array) {
+    final int q1 = offsetToQ(orientation, col1, row1);
+    final int r1 = offsetToR(orientation, col1, row1);
+    final int q2 = offsetToQ(orientation, col2, row2);
+    final int r2 = offsetToR(orientation, col2, row2);
+
+    final int steps = axialDistance(q1, r1, q2, r2);
+    final long[] result = array == null || array.length < steps + 1 ? new long[steps + 1] : array;
+
+    result[0] = HexEngine.packColumnRowLong(col1, row1);
+    if (steps == 0) {
+      return result;
+    }
+
+    // small shift of the start point to avoid rounding of points which lie exactly on edges in different directions
+    final double startQ = q1 + 1.0e-6d;
+    final double startR = r1 + 1.0e-6d;
+    final double startS = -q1 - r1 - 2.0e-6d;
+    final double deltaQ = q2 - q1;
+    final double deltaR = r2 - r1;
+    final double deltaS = (-q2 - r2) - (-q1 - r1);
+
+    for (int i = 1; i < steps; i++) {
+      final double t = (double) i / (double) steps;
+      final double fq = startQ + deltaQ * t;
+      final double fr = startR + deltaR * t;
+      final double fs = startS + deltaS * t;
+
+      int q = (int) Math.round(fq);
+      int r = (int) Math.round(fr);
+      final int s = (int) Math.round(fs);
+
+      final double diffQ = Math.abs(q - fq);
+      final double diffR = Math.abs(r - fr);
+      final double diffS = Math.abs(s - fs);
+
+      if (diffQ > diffR && diffQ > diffS) {
+        q = -r - s;
+      }
+      else if (diffR > diffS) {
+        r = -q - s;
+      }
+
+      result[i] = HexEngine.packColumnRowLong(axialToColumn(orientation, q, r), axialToRow(orientation, q, r));
+    }
+
+    result[steps] = HexEngine.packColumnRowLong(col2, row2);
+    return result;
+  }
+
+  /**
+   * Rotate a hexagon around a center hexagon by 60 degrees steps.
+   *
+   * @param orientation the orientation of field
+   * @param col the column of the rotated hexagon
+   * @param row the row of the rotated hexagon
+   * @param centerCol the column of the center
+   * @param centerRow the row of the center
+   * @param steps number of 60 degrees steps, positive values rotate clockwise
+   * and negative ones rotate counterclockwise
+   * @return column and row of the rotated hexagon packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}
+   */
+  public static long rotate(final int orientation, final int col, final int row, final int centerCol, final int centerRow, final int steps) {
+    final int centerQ = offsetToQ(orientation, centerCol, centerRow);
+    final int centerR = offsetToR(orientation, centerCol, centerRow);
+
+    int q = offsetToQ(orientation, col, row) - centerQ;
+    int r = offsetToR(orientation, col, row) - centerR;
+    int s = -q - r;
+
+    int normalized = steps % 6;
+    if (normalized < 0) {
+      normalized += 6;
+    }
+
+    for (int i = 0; i < normalized; i++) {
+      final int oldQ = q;
+      q = -r;
+      r = -s;
+      s = -oldQ;
+    }
+
+    q += centerQ;
+    r += centerR;
+
+    return HexEngine.packColumnRowLong(axialToColumn(orientation, q, r), axialToRow(orientation, q, r));
+  }
+}
@@ -0,0 +1,36 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.misc;
+
+/**
+ * Visitor of occupied hexagons of a spatial index.
+ *
+ * @param <T> the type of values
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexSpatialIndex
+ */
+public interface HexCellVisitor<T> {
+
+  /**
+   * Visit an occupied hexagon. The Index must not be changed during visiting.
+   *
+   * @param col the column of the hexagon
+   * @param row the row of the hexagon
+   * @param value the value placed on the hexagon, not null
+   * @return true to continue visiting, false to stop
+   */
+  boolean visitCell(int col, int row, T value);
+}
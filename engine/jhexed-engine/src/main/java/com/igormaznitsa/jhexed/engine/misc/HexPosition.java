@@ -86,9 +86,23 @@ public final class HexPosition {
   }
   
   /**
-   * Calculate distance to another position.
+   * Calculate exact distance in hexagons to another position.
+   * @param orientation the orientation of the field
+   * @param pos an another position
+   * @return number of steps to another position
+   * @see HexAxial#distance(int, int, int, int, int)
+   */
+  public int calcHexDistance(final int orientation, final HexPosition pos){
+    return HexAxial.distance(orientation, getColumn(), getRow(), pos.getColumn(), pos.getRow());
+  }
+  
+  /**
+   * Calculate distance to another position. It is the Euclidean distance
+   * between offset coordinates, so that it is only approximation of hexagon
+   * distance.
    * @param pos an another position
    * @return distance in cells to another position
+   * @see #calcHexDistance(int, com.igormaznitsa.jhexed.engine.misc.HexPosition) 
    */
   public int calcDistance(final HexPosition pos){
     return this.calcDistance(pos.getColumn(), pos.getRow());
@@ -0,0 +1,340 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.misc;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+
+/**
+ * Reusable cursor over hexagons of a ring, a spiral (rings from the center to
+ * the radius) or a filled range around a hexagon. The Cursor doesn't allocate
+ * memory during iteration and skips hexagons out of bounds, a filled range is
+ * clipped by whole lanes so that a big radius near the border doesn't cost
+ * iterations over invisible hexagons.
+ * <p>
+ * Ring hexagons go clockwise in the same order as
+ * {@link HexEngine#getNeighbourPositions(int, int, int)}, filled range
+ * hexagons go by columns for the horizontal orientation and by rows for the
+ * vertical one. An Instance is not thread safe.</p>
+ * <pre>
+ * final HexRangeCursor cursor = new HexRangeCursor(engine);
+ * cursor.range(col, row, radius);
+ * while (cursor.next()) {
+ *   model.setValueAt(cursor.getColumn(), cursor.getRow(), value);
+ * }
+ * </pre>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public final class HexRangeCursor {
+
+  private static final int MODE_NONE = 0;
+  private static final int MODE_RING = 1;
+  private static final int MODE_SPIRAL = 2;
+  private static final int MODE_RANGE = 3;
+
+  private final int[] dirQ = new int[6];
+  private final int[] dirR = new int[6];
+  private int orientation;
+
+  private int minCol;
+  private int minRow;
+  private int maxCol;
+  private int maxRow;
+
+  private int mode = MODE_NONE;
+  private int centerQ;
+  private int centerR;
+  private int radius;
+
+  private int ringRadius;
+  private int side;
+  private int step;
+
+  private int lane;
+  private int laneEnd;
+  private int position;
+  private int positionEnd;
+
+  private int column;
+  private int row;
+
+  /**
+   * Make a cursor for the orientation of an engine, clipped by the bounds of
+   * the current model of the engine.
+   *
+   * @param engine the engine, must not be null
+   */
+  public HexRangeCursor(final HexEngine<?> engine) {
+    this(engine.getOrientation());
+    setBounds(engine.getModel().getColumnNumber(), engine.getModel().getRowNumber());
+  }
+
+  /**
+   * Make a cursor without bounds.
+   *
+   * @param orientation the orientation of field
+   */
+  public HexRangeCursor(final int orientation) {
+    setOrientation(orientation);
+    clearBounds();
+  }
+
+  /**
+   * Get the orientation.
+   *
+   * @return the orientation of field
+   */
+  public int getOrientation() {
+    return this.orientation;
+  }
+
+  /**
+   * Set the orientation, it stops the current iteration.
+   *
+   * @param orientation the orientation of field
+   * @return the cursor
+   */
+  public HexRangeCursor setOrientation(final int orientation) {
+    for (int i = 0; i < 6; i++) {
+      this.dirQ[i] = HexAxial.getDirectionQ(orientation, i);
+      this.dirR[i] = HexAxial.getDirectionR(orientation, i);
+    }
+    this.orientation = orientation;
+    this.mode = MODE_NONE;
+    return this;
+  }
+
+  /**
+   * Clip iteration by a model, it stops the current iteration.
+   *
+   * @param columns the number of columns
+   * @param rows the number of rows
+   * @return the cursor
+   */
+  public HexRangeCursor setBounds(final int columns, final int rows) {
+    this.minCol = 0;
+    this.minRow = 0;
+    this.maxCol = columns - 1;
+    this.maxRow = rows - 1;
+    this.mode = MODE_NONE;
+    return this;
+  }
+
+  /**
+   * Remove clipping, it stops the current iteration.
+   *
+   * @return the cursor
+   */
+  public HexRangeCursor clearBounds() {
+    this.minCol = Integer.MIN_VALUE;
+    this.minRow = Integer.MIN_VALUE;
+    this.maxCol = Integer.MAX_VALUE;
+    this.maxRow = Integer.MAX_VALUE;
+    this.mode = MODE_NONE;
+    return this;
+  }
+
+  /**
+   * Start iteration over a ring of hexagons, a ring of zero radius is the
+   * center hexagon.
+   *
+   * @param col the column of the center
+   * @param row the row of the center
+   * @param radius the radius, must not be negative
+   * @return the cursor
+   */
+  public HexRangeCursor ring(final int col, final int row, final int radius) {
+    start(MODE_RING, col, row, radius);
+    this.ringRadius = radius;
+    return this;
+  }
+
+  /**
+   * Start iteration over rings from the center hexagon up to the radius.
+   *
+   * @param col the column of the center
+   * @param row the row of the center
+   * @param radius the max radius, must not be negative
+   * @return the cursor
+   */
+  public HexRangeCursor spiral(final int col, final int row, final int radius) {
+    start(MODE_SPIRAL, col, row, radius);
+    this.ringRadius = 0;
+    return this;
+  }
+
+  /**
+   * Start iteration over all hexagons which are not farther than the radius
+   * from the center. It visits the same hexagons as a spiral but in the order
+   * of model lanes.
+   *
+   * @param col the column of the center
+   * @param row the row of the center
+   * @param radius the radius, must not be negative
+   * @return the cursor
+   */
+  public HexRangeCursor range(final int col, final int row, final int radius) {
+    start(MODE_RANGE, col, row, radius);
+    if (this.orientation == HexEngine.ORIENTATION_HORIZONTAL) {
+      this.lane = Math.max(this.minCol, col - radius);
+      this.laneEnd = Math.min(this.maxCol, col + radius);
+    }
+    else {
+      this.lane = Math.max(this.minRow, row - radius);
+      this.laneEnd = Math.min(this.maxRow, row + radius);
+    }
+    this.position = 1;
+    this.positionEnd = 0;
+    this.lane--;
+    return this;
+  }
+
+  private void start(final int mode, final int col, final int row, final int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative [" + radius + ']');
+    }
+    this.mode = mode;
+    this.centerQ = HexAxial.offsetToQ(this.orientation, col, row);
+    this.centerR = HexAxial.offsetToR(this.orientation, col, row);
+    this.radius = radius;
+    this.side = 0;
+    this.step = 0;
+  }
+
+  /**
+   * Move to the next hexagon.
+   *
+   * @return true if the cursor is on a hexagon, false if iteration is over
+   */
+  public boolean next() {
+    switch (this.mode) {
+      case MODE_NONE:
+        return false;
+      case MODE_RANGE:
+        return nextInRange();
+      default:
+        return nextInRing();
+    }
+  }
+
+  private boolean nextInRange() {
+    while (this.position > this.positionEnd) {
+      this.lane++;
+      if (this.lane > this.laneEnd) {
+        this.mode = MODE_NONE;
+        return false;
+      }
+      final int n = this.radius;
+      if (this.orientation == HexEngine.ORIENTATION_HORIZONTAL) {
+        final int dq = this.lane - this.centerQ;
+        final int q = this.lane;
+        this.position = Math.max(this.minRow, HexAxial.axialToRow(this.orientation, q, this.centerR + Math.max(-n, -dq - n)));
+        this.positionEnd = Math.min(this.maxRow, HexAxial.axialToRow(this.orientation, q, this.centerR + Math.min(n, -dq + n)));
+      }
+      else {
+        final int dr = this.lane - this.centerR;
+        final int r = this.lane;
+        this.position = Math.max(this.minCol, HexAxial.axialToColumn(this.orientation, this.centerQ + Math.max(-n, -dr - n), r));
+        this.positionEnd = Math.min(this.maxCol, HexAxial.axialToColumn(this.orientation, this.centerQ + Math.min(n, -dr + n), r));
+      }
+    }
+    if (this.orientation == HexEngine.ORIENTATION_HORIZONTAL) {
+      this.column = this.lane;
+      this.row = this.position++;
+    }
+    else {
+      this.column = this.position++;
+      this.row = this.lane;
+    }
+    return true;
+  }
+
+  private boolean nextInRing() {
+    while (true) {
+      final int q;
+      final int r;
+      if (this.ringRadius == 0) {
+        if (this.side > 0) {
+          if (this.mode == MODE_SPIRAL && this.radius > 0) {
+            this.ringRadius = 1;
+            this.side = 0;
+            continue;
+          }
+          this.mode = MODE_NONE;
+          return false;
+        }
+        this.side = 6;
+        q = this.centerQ;
+        r = this.centerR;
+      }
+      else if (this.side < 6) {
+        final int s = this.side;
+        final int t = s < 4 ? s + 2 : s - 4;
+        q = this.centerQ + this.ringRadius * this.dirQ[s] + this.step * this.dirQ[t];
+        r = this.centerR + this.ringRadius * this.dirR[s] + this.step * this.dirR[t];
+        if (++this.step == this.ringRadius) {
+          this.step = 0;
+          this.side++;
+        }
+      }
+      else {
+        if (this.mode == MODE_SPIRAL && this.ringRadius < this.radius) {
+          this.ringRadius++;
+          this.side = 0;
+          continue;
+        }
+        this.mode = MODE_NONE;
+        return false;
+      }
+
+      final int c = HexAxial.axialToColumn(this.orientation, q, r);
+      final int w = HexAxial.axialToRow(this.orientation, q, r);
+      if (c >= this.minCol && w >= this.minRow && c <= this.maxCol && w <= this.maxRow) {
+        this.column = c;
+        this.row = w;
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Get the column of the current hexagon.
+   *
+   * @return the column
+   */
+  public int getColumn() {
+    return this.column;
+  }
+
+  /**
+   * Get the row of the current hexagon.
+   *
+   * @return the row
+   */
+  public int getRow() {
+    return this.row;
+  }
+
+  /**
+   * Get the current hexagon packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}.
+   *
+   * @return the packed column and row
+   */
+  public long getPacked() {
+    return HexEngine.packColumnRowLong(this.column, this.row);
+  }
+}
@@ -0,0 +1,345 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.misc;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+
+/**
+ * Index of sparse values placed on hexagons, for instance comments, units or
+ * markers. Values are kept in an open addressing hash table keyed by
+ * column-row pairs packed by {@link HexEngine#packColumnRowLong(int, int)}, so
+ * that neither lookup nor queries allocate objects. Area queries choose the
+ * cheapest way, they probe hexagons of the area if it is smaller than the
+ * number of values and scan values otherwise, so that a viewport over a huge
+ * map with few values costs the number of values and a dense index costs the
+ * size of the viewport.
+ * <p>
+ * Null values are not allowed. An Instance is not thread safe, but visiting
+ * methods don't change the index, so an index which is not modified can be
+ * visited by several threads at once.</p>
+ *
+ * @param <T> the type of values
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexCellVisitor
+ */
+public final class HexSpatialIndex<T> {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;
+  private int size;
+  private int mask;
+
+  /**
+   * The Constructor of an empty index.
+   */
+  public HexSpatialIndex() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * The Constructor of an empty index.
+   *
+   * @param expectedSize the expected number of values, must not be negative
+   */
+  public HexSpatialIndex(final int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must not be negative [" + expectedSize + ']');
+    }
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2 && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+  }
+
+  private static int hash(final long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    return (int) h;
+  }
+
+  private int find(final long key) {
+    int slot = hash(key) & this.mask;
+    while (this.values[slot] != null) {
+      if (this.keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+    return -slot - 1;
+  }
+
+  /**
+   * Get the number of values.
+   *
+   * @return the number of occupied hexagons
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Check that the index is empty.
+   *
+   * @return true if there is no values
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Get the value of a hexagon.
+   *
+   * @param col the column
+   * @param row the row
+   * @return the value or null if the hexagon is free
+   */
+  @SuppressWarnings("unchecked")
+  public T get(final int col, final int row) {
+    final int slot = find(HexEngine.packColumnRowLong(col, row));
+    return slot < 0 ? null : (T) this.values[slot];
+  }
+
+  /**
+   * Check that a hexagon is occupied.
+   *
+   * @param col the column
+   * @param row the row
+   * @return true if there is a value for the hexagon
+   */
+  public boolean contains(final int col, final int row) {
+    return find(HexEngine.packColumnRowLong(col, row)) >= 0;
+  }
+
+  /**
+   * Place a value on a hexagon.
+   *
+   * @param col the column
+   * @param row the row
+   * @param value the value, must not be null
+   * @return the previous value of the hexagon or null
+   */
+  @SuppressWarnings("unchecked")
+  public T put(final int col, final int row, final T value) {
+    if (value == null) {
+      throw new NullPointerException("Value must not be null");
+    }
+    final long key = HexEngine.packColumnRowLong(col, row);
+    final int slot = find(key);
+    if (slot >= 0) {
+      final T result = (T) this.values[slot];
+      this.values[slot] = value;
+      return result;
+    }
+    if ((this.size + 1) * 2 > this.keys.length) {
+      rehash(this.keys.length << 1);
+      return put(col, row, value);
+    }
+    final int free = -slot - 1;
+    this.keys[free] = key;
+    this.values[free] = value;
+    this.size++;
+    return null;
+  }
+
+  /**
+   * Remove the value of a hexagon.
+   *
+   * @param col the column
+   * @param row the row
+   * @return the removed value or null if the hexagon was free
+   */
+  @SuppressWarnings("unchecked")
+  public T remove(final int col, final int row) {
+    int slot = find(HexEngine.packColumnRowLong(col, row));
+    if (slot < 0) {
+      return null;
+    }
+    final T result = (T) this.values[slot];
+
+    // backward shift deletion keeps probe chains without tombstones
+    int next = (slot + 1) & this.mask;
+    while (this.values[next] != null) {
+      final int home = hash(this.keys[next]) & this.mask;
+      if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+        this.keys[slot] = this.keys[next];
+        this.values[slot] = this.values[next];
+        slot = next;
+      }
+      next = (next + 1) & this.mask;
+    }
+    this.values[slot] = null;
+    this.size--;
+    return result;
+  }
+
+  /**
+   * Remove all values.
+   */
+  public void clear() {
+    if (this.size > 0) {
+      for (int i = 0; i < this.values.length; i++) {
+        this.values[i] = null;
+      }
+      this.size = 0;
+    }
+  }
+
+  private void rehash(final int capacity) {
+    final long[] oldKeys = this.keys;
+    final Object[] oldValues = this.values;
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        final int slot = -find(oldKeys[i]) - 1;
+        this.keys[slot] = oldKeys[i];
+        this.values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Visit all values in undefined order.
+   *
+   * @param visitor the visitor, must not be null
+   * @return false if visiting has been stopped by the visitor
+   */
+  @SuppressWarnings("unchecked")
+  public boolean visitAll(final HexCellVisitor<? super T> visitor) {
+    final long[] k = this.keys;
+    final Object[] v = this.values;
+    for (int i = 0; i < v.length; i++) {
+      if (v[i] != null && !visitor.visitCell(HexEngine.extractColumnLong(k[i]), HexEngine.extractRowLong(k[i]), (T) v[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Visit values inside of a rectangle of columns and rows. Hexagons are
+   * visited by rows if the area is probed, and in undefined order otherwise.
+   *
+   * @param minCol the min column, inclusive
+   * @param minRow the min row, inclusive
+   * @param maxCol the max column, inclusive
+   * @param maxRow the max row, inclusive
+   * @param visitor the visitor, must not be null
+   * @return false if visiting has been stopped by the visitor
+   */
+  public boolean visitRect(final int minCol, final int minRow, final int maxCol, final int maxRow, final HexCellVisitor<? super T> visitor) {
+    return visitArea(minCol, minRow, maxCol, maxRow, null, null, false, visitor);
+  }
+
+  /**
+   * Visit values which are not farther than a radius from a hexagon.
+   *
+   * @param orientation the orientation of field
+   * @param col the column of the center
+   * @param row the row of the center
+   * @param radius the radius in hexagons, must not be negative
+   * @param visitor the visitor, must not be null
+   * @return false if visiting has been stopped by the visitor
+   * @see HexAxial#distance(int, int, int, int, int)
+   */
+  @SuppressWarnings("unchecked")
+  public boolean visitRange(final int orientation, final int col, final int row, final int radius, final HexCellVisitor<? super T> visitor) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative [" + radius + ']');
+    }
+    if ((long) 3 * radius * (radius + 1) + 1 < this.size) {
+      final HexRangeCursor cursor = new HexRangeCursor(orientation).range(col, row, radius);
+      while (cursor.next()) {
+        final int slot = find(HexEngine.packColumnRowLong(cursor.getColumn(), cursor.getRow()));
+        if (slot >= 0 && !visitor.visitCell(cursor.getColumn(), cursor.getRow(), (T) this.values[slot])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    final long[] k = this.keys;
+    final Object[] v = this.values;
+    for (int i = 0; i < v.length; i++) {
+      if (v[i] != null) {
+        final int c = HexEngine.extractColumnLong(k[i]);
+        final int r = HexEngine.extractRowLong(k[i]);
+        if (HexAxial.distance(orientation, col, row, c, r) <= radius && !visitor.visitCell(c, r, (T) v[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Visit values of hexagons visible in a rectangle of an engine. It uses the
+   * same visibility check as the engine uses for area drawing.
+   *
+   * @param engine the engine, must not be null
+   * @param rect the rectangle in engine coordinates, must not be null
+   * @param accurately true to check visibility accurately, false for rough
+   * fast check
+   * @param visitor the visitor, must not be null
+   * @return false if visiting has been stopped by the visitor
+   * @see HexEngine#isPositionVisible(int, int, HexRect2D, boolean)
+   */
+  public boolean visitVisible(final HexEngine<?> engine, final HexRect2D rect, final boolean accurately, final HexCellVisitor<? super T> visitor) {
+    final int minCol = engine.calculateColumn(rect.getLeft(), rect.getTop()) - 1;
+    final int minRow = engine.calculateRow(rect.getLeft(), rect.getTop()) - 1;
+    final int maxCol = engine.calculateColumn(rect.getRight(), rect.getBottom()) + 1;
+    final int maxRow = engine.calculateRow(rect.getRight(), rect.getBottom()) + 1;
+    return visitArea(minCol, minRow, maxCol, maxRow, engine, rect, accurately, visitor);
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean visitArea(final int minCol, final int minRow, final int maxCol, final int maxRow, final HexEngine<?> engine, final HexRect2D rect, final boolean accurately, final HexCellVisitor<? super T> visitor) {
+    if (minCol > maxCol || minRow > maxRow || this.size == 0) {
+      return true;
+    }
+    final long area = ((long) maxCol - minCol + 1L) * ((long) maxRow - minRow + 1L);
+    if (area < this.size) {
+      for (int r = minRow; r <= maxRow; r++) {
+        for (int c = minCol; c <= maxCol; c++) {
+          final int slot = find(HexEngine.packColumnRowLong(c, r));
+          if (slot >= 0 && (engine == null || engine.isPositionVisible(c, r, rect, accurately)) && !visitor.visitCell(c, r, (T) this.values[slot])) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    final long[] k = this.keys;
+    final Object[] v = this.values;
+    for (int i = 0; i < v.length; i++) {
+      if (v[i] != null) {
+        final int c = HexEngine.extractColumnLong(k[i]);
+        final int r = HexEngine.extractRowLong(k[i]);
+        if (c >= minCol && c <= maxCol && r >= minRow && r <= maxRow
+                && (engine == null || engine.isPositionVisible(c, r, rect, accurately))
+                && !visitor.visitCell(c, r, (T) v[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,74 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.ByteHexEngineModel;
+
+/**
+ * Cost function which takes the cost to enter a hexagon from a table indexed
+ * by the unsigned byte value of the hexagon in a model. It is the usual case
+ * for terrain layers where every value is a terrain type.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public class ByteTableCostFunction implements HexCostFunction {
+
+  private final ByteHexEngineModel model;
+  private final float[] costs;
+
+  /**
+   * The Constructor.
+   *
+   * @param model the model, must not be null
+   * @param costs costs of entering hexagons for values, must not be null, a
+   * value which is out of the table means an impassable hexagon
+   */
+  public ByteTableCostFunction(final ByteHexEngineModel model, final float[] costs) {
+    if (model == null) {
+      throw new NullPointerException("Model must not be null");
+    }
+    if (costs == null) {
+      throw new NullPointerException("Cost table must not be null");
+    }
+    this.model = model;
+    this.costs = costs;
+  }
+
+  /**
+   * Get the model.
+   *
+   * @return the model
+   */
+  public ByteHexEngineModel getModel() {
+    return this.model;
+  }
+
+  /**
+   * Get the cost table. It is not a copy, so that changes of the table are
+   * visible to the function.
+   *
+   * @return the cost table
+   */
+  public float[] getCosts() {
+    return this.costs;
+  }
+
+  @Override
+  public float getCost(final int fromCol, final int fromRow, final int toCol, final int toRow) {
+    final int value = this.model.getByte(toCol, toRow) & 0xFF;
+    return value < this.costs.length ? this.costs[value] : Float.POSITIVE_INFINITY;
+  }
+}
@@ -0,0 +1,40 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.path;
+
+/**
+ * The Interface describes cost of moving between two neighbor hexagons for path
+ * search.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexPathFinder
+ */
+public interface HexCostFunction {
+
+  /**
+   * Get the cost to move from a hexagon to its neighbor.
+   *
+   * @param fromCol the column of the current hexagon
+   * @param fromRow the row of the current hexagon
+   * @param toCol the column of the neighbor hexagon, it is always inside of
+   * the model
+   * @param toRow the row of the neighbor hexagon, it is always inside of the
+   * model
+   * @return the cost of the move, a negative value, NaN or infinity means that
+   * the move is impossible
+   */
+  float getCost(int fromCol, int fromRow, int toCol, int toRow);
+}
@@ -0,0 +1,512 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Generator of distance and direction fields to a set of goals (flow field).
+ * Every reachable hexagon gets the cost of the cheapest path to the nearest
+ * goal and the index of the neighbor to move to, so that any number of agents
+ * can follow the field without own path search. Direction indexes are the
+ * same as neighbor indexes of
+ * {@link HexEngine#getNearestNeighbourPosition(int, int, int)}.
+ * <p>
+ * Step costs of the cost function are rounded to integers and every passable
+ * step costs at least one. Buffers are kept between calls, so that a field can
+ * be rebuilt every frame without allocation of big arrays. An Instance is not
+ * thread safe.</p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexCostFunction
+ */
+public final class HexFlowField {
+
+  /**
+   * Distance of hexagons which can't reach any goal.
+   */
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Direction of goals and unreachable hexagons.
+   */
+  public static final byte NO_DIRECTION = -1;
+
+  private final HexEngine<?> engine;
+
+  private int columns;
+  private int rows;
+  private int[] distances = new int[0];
+  private byte[] directions = new byte[0];
+
+  private final IntBinaryHeap heap = new IntBinaryHeap(0);
+  private final long[] neighbours = new long[6];
+
+  private final ConcurrentLinkedQueue<TileContext> contexts = new ConcurrentLinkedQueue<TileContext>();
+  private boolean[] activeTiles = new boolean[0];
+  private boolean[] changedTiles = new boolean[0];
+
+  /**
+   * Buffers of a worker processing a tile.
+   */
+  private static final class TileContext {
+
+    private final IntBinaryHeap heap;
+    private final int[] localDistances;
+    private final long[] neighbours = new long[6];
+
+    private TileContext(final int tileSize) {
+      this.heap = new IntBinaryHeap(tileSize * tileSize);
+      this.localDistances = new int[tileSize * tileSize];
+    }
+  }
+
+  /**
+   * The Constructor.
+   *
+   * @param engine the engine which orientation and model will be used, must not
+   * be null
+   */
+  public HexFlowField(final HexEngine<?> engine) {
+    if (engine == null) {
+      throw new NullPointerException("Engine must not be null");
+    }
+    this.engine = engine;
+  }
+
+  /**
+   * Get the number of columns of the last built field.
+   *
+   * @return the number of columns
+   */
+  public int getColumnNumber() {
+    return this.columns;
+  }
+
+  /**
+   * Get the number of rows of the last built field.
+   *
+   * @return the number of rows
+   */
+  public int getRowNumber() {
+    return this.rows;
+  }
+
+  /**
+   * Get the distance field. It is the inside buffer which is rewritten by the
+   * next build.
+   *
+   * @return distances where index is row * columns + column
+   * @see #UNREACHABLE
+   */
+  public int[] getDistances() {
+    return this.distances;
+  }
+
+  /**
+   * Get the direction field. It is the inside buffer which is rewritten by the
+   * next build.
+   *
+   * @return neighbor indexes where index is row * columns + column
+   * @see #NO_DIRECTION
+   */
+  public byte[] getDirections() {
+    return this.directions;
+  }
+
+  /**
+   * Get the distance of a hexagon to the nearest goal.
+   *
+   * @param col the column
+   * @param row the row
+   * @return the distance or {@link #UNREACHABLE}
+   */
+  public int getDistance(final int col, final int row) {
+    return isInside(col, row) ? this.distances[row * this.columns + col] : UNREACHABLE;
+  }
+
+  /**
+   * Get the direction to move from a hexagon.
+   *
+   * @param col the column
+   * @param row the row
+   * @return the neighbor index 0..5 or {@link #NO_DIRECTION}
+   */
+  public int getDirection(final int col, final int row) {
+    return isInside(col, row) ? this.directions[row * this.columns + col] : NO_DIRECTION;
+  }
+
+  /**
+   * Build the field by one thread.
+   *
+   * @param goals goal positions packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}, positions out of the model
+   * are ignored
+   * @param goalNumber the number of goals in the array
+   * @param costFunction the cost function, must not be null
+   */
+  public void build(final long[] goals, final int goalNumber, final HexCostFunction costFunction) {
+    prepare(goals, goalNumber, costFunction);
+
+    final int[] dist = this.distances;
+    final IntBinaryHeap open = this.heap;
+    open.ensureKeyRange(dist.length);
+    open.clear();
+
+    for (int i = 0; i < goalNumber; i++) {
+      final int col = HexEngine.extractColumnLong(goals[i]);
+      final int row = HexEngine.extractRowLong(goals[i]);
+      if (isInside(col, row)) {
+        open.addOrUpdate(row * this.columns + col, 0.0f);
+      }
+    }
+
+    while (!open.isEmpty()) {
+      final int node = open.poll();
+      final int col = node % this.columns;
+      final int row = node / this.columns;
+      final int nodeDistance = dist[node];
+
+      this.engine.getPackedNeighbourPositionsLong(this.neighbours, col, row, 1);
+      for (int i = 0; i < 6; i++) {
+        final int prevCol = HexEngine.extractColumnLong(this.neighbours[i]);
+        final int prevRow = HexEngine.extractRowLong(this.neighbours[i]);
+        if (!isInside(prevCol, prevRow)) {
+          continue;
+        }
+        final int step = toStep(costFunction.getCost(prevCol, prevRow, col, row));
+        if (step < 0) {
+          continue;
+        }
+        final int prev = prevRow * this.columns + prevCol;
+        final int candidate = nodeDistance + step;
+        if (candidate < dist[prev]) {
+          dist[prev] = candidate;
+          open.addOrUpdate(prev, candidate);
+        }
+      }
+    }
+
+    makeDirections(0, this.rows, costFunction, this.neighbours);
+  }
+
+  /**
+   * Build the field in parallel. The Model is split into tiles which are
+   * relaxed by Dijkstra search inside tile bounds, tiles of the same color of
+   * 2x2 pattern are never adjacent and processed in parallel, and tiles are
+   * processed again while their borders are changed. The Result is the same as
+   * for the single thread build.
+   *
+   * @param goals goal positions packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}, positions out of the model
+   * are ignored
+   * @param goalNumber the number of goals in the array
+   * @param costFunction the cost function, must not be null, it must be thread
+   * safe for reading
+   * @param tileSize the size of tile side, must be greater than 1
+   * @param executor the executor to process tiles, must not be null
+   * @throws InterruptedException if the thread has been interrupted
+   */
+  public void build(final long[] goals, final int goalNumber, final HexCostFunction costFunction, final int tileSize, final ExecutorService executor) throws InterruptedException {
+    if (tileSize < 2) {
+      throw new IllegalArgumentException("Tile size must be greater than 1 [" + tileSize + ']');
+    }
+    if (executor == null) {
+      throw new NullPointerException("Executor must not be null");
+    }
+
+    prepare(goals, goalNumber, costFunction);
+
+    final int tileColumns = (this.columns + tileSize - 1) / tileSize;
+    final int tileRows = (this.rows + tileSize - 1) / tileSize;
+    final int tiles = tileColumns * tileRows;
+    if (this.activeTiles.length < tiles) {
+      this.activeTiles = new boolean[tiles];
+      this.changedTiles = new boolean[tiles];
+    }
+    Arrays.fill(this.activeTiles, 0, tiles, false);
+
+    boolean anyActive = false;
+    for (int i = 0; i < goalNumber; i++) {
+      final int col = HexEngine.extractColumnLong(goals[i]);
+      final int row = HexEngine.extractRowLong(goals[i]);
+      if (isInside(col, row)) {
+        this.activeTiles[(row / tileSize) * tileColumns + col / tileSize] = true;
+        anyActive = true;
+      }
+    }
+
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+    try {
+      while (anyActive) {
+        anyActive = false;
+        for (int color = 0; color < 4; color++) {
+          futures.clear();
+          for (int ty = color >> 1; ty < tileRows; ty += 2) {
+            for (int tx = color & 1; tx < tileColumns; tx += 2) {
+              final int tile = ty * tileColumns + tx;
+              if (this.activeTiles[tile]) {
+                this.activeTiles[tile] = false;
+                this.changedTiles[tile] = false;
+                final int x0 = tx * tileSize;
+                final int y0 = ty * tileSize;
+                futures.add(executor.submit(new Runnable() {
+
+                  @Override
+                  public void run() {
+                    changedTiles[tile] = relaxTile(x0, y0, tileSize, costFunction);
+                  }
+                }));
+              }
+            }
+          }
+          waitAll(futures);
+
+          for (int ty = color >> 1; ty < tileRows; ty += 2) {
+            for (int tx = color & 1; tx < tileColumns; tx += 2) {
+              if (this.changedTiles[ty * tileColumns + tx]) {
+                this.changedTiles[ty * tileColumns + tx] = false;
+                for (int ny = Math.max(0, ty - 1); ny <= Math.min(tileRows - 1, ty + 1); ny++) {
+                  for (int nx = Math.max(0, tx - 1); nx <= Math.min(tileColumns - 1, tx + 1); nx++) {
+                    if (nx != tx || ny != ty) {
+                      this.activeTiles[ny * tileColumns + nx] = true;
+                      anyActive = true;
+                    }
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+
+      futures.clear();
+      for (int y = 0; y < this.rows; y += tileSize) {
+        final int fromRow = y;
+        final int toRow = Math.min(this.rows, y + tileSize);
+        futures.add(executor.submit(new Runnable() {
+
+          @Override
+          public void run() {
+            makeDirections(fromRow, toRow, costFunction, new long[6]);
+          }
+        }));
+      }
+      waitAll(futures);
+    }
+    finally {
+      for (final Future<?> f : futures) {
+        f.cancel(true);
+      }
+    }
+  }
+
+  private static void waitAll(final List<Future<?>> futures) throws InterruptedException {
+    for (final Future<?> f : futures) {
+      try {
+        f.get();
+      }
+      catch (ExecutionException ex) {
+        final Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException("Can't build flow field tile", cause);
+      }
+    }
+  }
+
+  private boolean isInside(final int col, final int row) {
+    return col >= 0 && row >= 0 && col < this.columns && row < this.rows;
+  }
+
+  private static int toStep(final float cost) {
+    if (!(cost >= 0.0f) || cost == Float.POSITIVE_INFINITY) {
+      return -1;
+    }
+    return Math.max(1, Math.round(cost));
+  }
+
+  private void prepare(final long[] goals, final int goalNumber, final HexCostFunction costFunction) {
+    if (costFunction == null) {
+      throw new NullPointerException("Cost function must not be null");
+    }
+    if (goalNumber < 0 || goalNumber > goals.length) {
+      throw new IllegalArgumentException("Wrong number of goals [" + goalNumber + ']');
+    }
+
+    final HexEngineModel<?> model = this.engine.getModel();
+    this.columns = model.getColumnNumber();
+    this.rows = model.getRowNumber();
+    final long size = (long) this.columns * (long) this.rows;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too big model [" + this.columns + 'x' + this.rows + ']');
+    }
+    if (this.distances.length != size) {
+      this.distances = new int[(int) size];
+      this.directions = new byte[(int) size];
+    }
+    Arrays.fill(this.distances, UNREACHABLE);
+
+    for (int i = 0; i < goalNumber; i++) {
+      final int col = HexEngine.extractColumnLong(goals[i]);
+      final int row = HexEngine.extractRowLong(goals[i]);
+      if (isInside(col, row)) {
+        this.distances[row * this.columns + col] = 0;
+      }
+    }
+  }
+
+  /**
+   * Relax distances of a tile with the current distances of the tile and its
+   * neighbor hexagons.
+   *
+   * @return true if a border hexagon of the tile has been changed
+   */
+  private boolean relaxTile(final int x0, final int y0, final int tileSize, final HexCostFunction costFunction) {
+    TileContext context = this.contexts.poll();
+    if (context == null || context.localDistances.length != tileSize * tileSize) {
+      context = new TileContext(tileSize);
+    }
+    try {
+      final int[] dist = this.distances;
+      final int[] local = context.localDistances;
+      final long[] buffer = context.neighbours;
+      final IntBinaryHeap open = context.heap;
+      open.clear();
+
+      final int x1 = Math.min(x0 + tileSize, this.columns);
+      final int y1 = Math.min(y0 + tileSize, this.rows);
+
+      for (int row = y0; row < y1; row++) {
+        for (int col = x0; col < x1; col++) {
+          final int current = dist[row * this.columns + col];
+          int best = current;
+          if (col == x0 || row == y0 || col == x1 - 1 || row == y1 - 1) {
+            this.engine.getPackedNeighbourPositionsLong(buffer, col, row, 1);
+            for (int i = 0; i < 6; i++) {
+              final int nextCol = HexEngine.extractColumnLong(buffer[i]);
+              final int nextRow = HexEngine.extractRowLong(buffer[i]);
+              if (!isInside(nextCol, nextRow) || (nextCol >= x0 && nextRow >= y0 && nextCol < x1 && nextRow < y1)) {
+                continue;
+              }
+              final int nextDistance = dist[nextRow * this.columns + nextCol];
+              if (nextDistance == UNREACHABLE) {
+                continue;
+              }
+              final int step = toStep(costFunction.getCost(col, row, nextCol, nextRow));
+              if (step >= 0 && nextDistance + step < best) {
+                best = nextDistance + step;
+              }
+            }
+          }
+          final int index = (row - y0) * tileSize + (col - x0);
+          local[index] = best;
+          // inside values are consistent after the previous pass of the tile
+          // so that only goals and hexagons improved by neighbor tiles are seeds
+          if (best < current || best == 0) {
+            open.addOrUpdate(index, best);
+          }
+        }
+      }
+
+      while (!open.isEmpty()) {
+        final int node = open.poll();
+        final int col = x0 + node % tileSize;
+        final int row = y0 + node / tileSize;
+        final int nodeDistance = local[node];
+
+        this.engine.getPackedNeighbourPositionsLong(buffer, col, row, 1);
+        for (int i = 0; i < 6; i++) {
+          final int prevCol = HexEngine.extractColumnLong(buffer[i]);
+          final int prevRow = HexEngine.extractRowLong(buffer[i]);
+          if (prevCol < x0 || prevRow < y0 || prevCol >= x1 || prevRow >= y1) {
+            continue;
+          }
+          final int step = toStep(costFunction.getCost(prevCol, prevRow, col, row));
+          if (step < 0) {
+            continue;
+          }
+          final int prev = (prevRow - y0) * tileSize + (prevCol - x0);
+          final int candidate = nodeDistance + step;
+          if (candidate < local[prev]) {
+            local[prev] = candidate;
+            open.addOrUpdate(prev, candidate);
+          }
+        }
+      }
+
+      boolean borderChanged = false;
+      for (int row = y0; row < y1; row++) {
+        for (int col = x0; col < x1; col++) {
+          final int index = row * this.columns + col;
+          final int value = local[(row - y0) * tileSize + (col - x0)];
+          if (value < dist[index]) {
+            dist[index] = value;
+            if (col == x0 || row == y0 || col == x1 - 1 || row == y1 - 1) {
+              borderChanged = true;
+            }
+          }
+        }
+      }
+      return borderChanged;
+    }
+    finally {
+      this.contexts.offer(context);
+    }
+  }
+
+  private void makeDirections(final int fromRow, final int toRow, final HexCostFunction costFunction, final long[] buffer) {
+    final int[] dist = this.distances;
+    final byte[] dirs = this.directions;
+    for (int row = fromRow; row < toRow; row++) {
+      for (int col = 0; col < this.columns; col++) {
+        final int index = row * this.columns + col;
+        final int distance = dist[index];
+        byte direction = NO_DIRECTION;
+        if (distance != 0 && distance != UNREACHABLE) {
+          this.engine.getPackedNeighbourPositionsLong(buffer, col, row, 1);
+          int best = distance;
+          for (int i = 0; i < 6; i++) {
+            final int nextCol = HexEngine.extractColumnLong(buffer[i]);
+            final int nextRow = HexEngine.extractRowLong(buffer[i]);
+            if (!isInside(nextCol, nextRow)) {
+              continue;
+            }
+            final int nextDistance = dist[nextRow * this.columns + nextCol];
+            if (nextDistance >= best) {
+              continue;
+            }
+            final int step = toStep(costFunction.getCost(col, row, nextCol, nextRow));
+            if (step >= 0 && nextDistance + step == distance) {
+              best = nextDistance;
+              direction = (byte) i;
+            }
+          }
+        }
+        dirs[index] = direction;
+      }
+    }
+  }
+}
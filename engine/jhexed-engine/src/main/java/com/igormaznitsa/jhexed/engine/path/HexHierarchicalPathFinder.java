@@ -0,0 +1,1006 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.ByteHexEngineModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.HexEngineModelListener;
+import com.igormaznitsa.jhexed.engine.IntHexEngineModel;
+import com.igormaznitsa.jhexed.engine.ObservableHexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexAxial;
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import java.util.Arrays;
+
+/**
+ * Hierarchical path finder (HPA*). The Model of an engine is split into square
+ * clusters, for every pair of adjacent clusters the middle hexagon pair of
+ * every passable border run becomes an entrance, and costs between entrances of
+ * a cluster are precomputed. A Query searches over the graph of entrances and
+ * then refines only the abstract path, so that long routes touch a small part
+ * of the model. Found paths are near optimal.
+ * <p>
+ * Clusters are built lazily when a search reaches them, a change of a hexagon
+ * must be reported through {@link #cellChanged(int, int)} (or the model can be
+ * tracked by {@link #track(com.igormaznitsa.jhexed.engine.HexEngineModel)}) and
+ * it makes dirty only the cluster of the hexagon and its neighbors. A
+ * Transition between clusters is made only where both directions of the move
+ * are passable.</p>
+ * <p>
+ * An Instance is not thread safe, a tracked observable model must be changed
+ * in the thread of the finder.</p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexPathFinder
+ */
+public final class HexHierarchicalPathFinder {
+
+  /**
+   * Default size of cluster side in hexagons.
+   */
+  public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+  private static final int STATE_DIRTY = 0;
+  private static final int STATE_ENTRANCES = 1;
+  private static final int STATE_READY = 2;
+
+  private static final int[] EMPTY_INTS = new int[0];
+  private static final float[] EMPTY_FLOATS = new float[0];
+
+  /**
+   * Abstraction of a cluster.
+   */
+  private static final class Cluster {
+
+    private int state = STATE_DIRTY;
+
+    private int[] entrances = EMPTY_INTS;
+    private int entranceNumber;
+
+    private int[] transitionLocal = EMPTY_INTS;
+    private int[] transitionPartner = EMPTY_INTS;
+    private float[] transitionCost = EMPTY_FLOATS;
+    private int transitionNumber;
+
+    /**
+     * Costs between entrances, index is from * entranceNumber + to.
+     */
+    private float[] intra = EMPTY_FLOATS;
+
+    private int addEntrance(final int cell) {
+      final int index = indexOf(cell);
+      if (index >= 0) {
+        return index;
+      }
+      if (this.entranceNumber == this.entrances.length) {
+        final int[] newEntrances = new int[Math.max(8, this.entranceNumber << 1)];
+        System.arraycopy(this.entrances, 0, newEntrances, 0, this.entranceNumber);
+        this.entrances = newEntrances;
+      }
+      this.entrances[this.entranceNumber] = cell;
+      return this.entranceNumber++;
+    }
+
+    private int indexOf(final int cell) {
+      for (int i = 0; i < this.entranceNumber; i++) {
+        if (this.entrances[i] == cell) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private void addTransition(final int local, final int partner, final float cost) {
+      if (this.transitionNumber == this.transitionLocal.length) {
+        final int newLength = Math.max(8, this.transitionNumber << 1);
+        final int[] newLocal = new int[newLength];
+        final int[] newPartner = new int[newLength];
+        final float[] newCost = new float[newLength];
+        System.arraycopy(this.transitionLocal, 0, newLocal, 0, this.transitionNumber);
+        System.arraycopy(this.transitionPartner, 0, newPartner, 0, this.transitionNumber);
+        System.arraycopy(this.transitionCost, 0, newCost, 0, this.transitionNumber);
+        this.transitionLocal = newLocal;
+        this.transitionPartner = newPartner;
+        this.transitionCost = newCost;
+      }
+      this.transitionLocal[this.transitionNumber] = local;
+      this.transitionPartner[this.transitionNumber] = partner;
+      this.transitionCost[this.transitionNumber] = cost;
+      this.transitionNumber++;
+    }
+  }
+
+  /**
+   * Wrapper reporting changes of a non-observable model to a finder.
+   */
+  private static class TrackingModel<E> implements HexEngineModel<E> {
+
+    protected final HexHierarchicalPathFinder finder;
+    private final HexEngineModel<E> model;
+
+    private TrackingModel(final HexHierarchicalPathFinder finder, final HexEngineModel<E> model) {
+      this.finder = finder;
+      this.model = model;
+    }
+
+    @Override
+    public int getColumnNumber() {
+      return this.model.getColumnNumber();
+    }
+
+    @Override
+    public int getRowNumber() {
+      return this.model.getRowNumber();
+    }
+
+    @Override
+    public E getValueAt(final int col, final int row) {
+      return this.model.getValueAt(col, row);
+    }
+
+    @Override
+    public E getValueAt(final HexPosition pos) {
+      return this.model.getValueAt(pos);
+    }
+
+    @Override
+    public void setValueAt(final int col, final int row, final E value) {
+      this.model.setValueAt(col, row, value);
+      this.finder.cellChanged(col, row);
+    }
+
+    @Override
+    public void setValueAt(final HexPosition pos, final E value) {
+      this.model.setValueAt(pos, value);
+      this.finder.cellChanged(pos.getColumn(), pos.getRow());
+    }
+
+    @Override
+    public boolean isPositionValid(final int col, final int row) {
+      return this.model.isPositionValid(col, row);
+    }
+
+    @Override
+    public boolean isPositionValid(final HexPosition pos) {
+      return this.model.isPositionValid(pos);
+    }
+
+    @Override
+    public void attachedToEngine(final HexEngine<?> engine) {
+      this.model.attachedToEngine(engine);
+    }
+
+    @Override
+    public void detachedFromEngine(final HexEngine<?> engine) {
+      this.model.detachedFromEngine(engine);
+    }
+  }
+
+  private static final class TrackingByteModel extends TrackingModel<Byte> implements ByteHexEngineModel {
+
+    private final ByteHexEngineModel byteModel;
+
+    private TrackingByteModel(final HexHierarchicalPathFinder finder, final ByteHexEngineModel model) {
+      super(finder, model);
+      this.byteModel = model;
+    }
+
+    @Override
+    public byte getByte(final int col, final int row) {
+      return this.byteModel.getByte(col, row);
+    }
+
+    @Override
+    public void setByte(final int col, final int row, final byte value) {
+      this.byteModel.setByte(col, row, value);
+      this.finder.cellChanged(col, row);
+    }
+  }
+
+  private static final class TrackingIntModel extends TrackingModel<Integer> implements IntHexEngineModel {
+
+    private final IntHexEngineModel intModel;
+
+    private TrackingIntModel(final HexHierarchicalPathFinder finder, final IntHexEngineModel model) {
+      super(finder, model);
+      this.intModel = model;
+    }
+
+    @Override
+    public int getInt(final int col, final int row) {
+      return this.intModel.getInt(col, row);
+    }
+
+    @Override
+    public void setInt(final int col, final int row, final int value) {
+      this.intModel.setInt(col, row, value);
+      this.finder.cellChanged(col, row);
+    }
+  }
+
+  private final HexEngine<?> engine;
+  private final HexCostFunction costFunction;
+  private final int clusterSize;
+  private final int nodesPerCluster;
+
+  private int columns = -1;
+  private int rows = -1;
+  private int clusterColumns;
+  private int clusterRows;
+  private Cluster[] clusters = new Cluster[0];
+
+  private final long[] neighbours = new long[6];
+
+  private final IntBinaryHeap localOpen;
+  private final float[] localCost;
+  private final int[] localParent;
+  private final int[] localStamps;
+  private int localStamp;
+
+  private final int[] candidateA;
+  private final int[] candidateB;
+  private final int[] pairA;
+  private final int[] pairB;
+
+  private final IntBinaryHeap open = new IntBinaryHeap(0);
+  private float[] nodeCost = EMPTY_FLOATS;
+  private int[] nodeParent = EMPTY_INTS;
+  private int[] nodeStamps = EMPTY_INTS;
+  private int nodeStamp;
+
+  private final float[] startEdges;
+  private final float[] goalEdges;
+
+  private float heuristicFactor = 1.0f;
+
+  private final HexEngineModelListener modelListener = new HexEngineModelListener() {
+
+    @Override
+    public void onCellsChanged(final HexEngineModel<?> source, final int minCol, final int minRow, final int maxCol, final int maxRow) {
+      cellsChanged(minCol, minRow, maxCol, maxRow);
+    }
+
+    @Override
+    public void onModelChanged(final HexEngineModel<?> source) {
+      invalidateAll();
+    }
+  };
+
+  private int[] chain = new int[64];
+  private int[] path = new int[64];
+  private int pathLength;
+
+  /**
+   * The Constructor with the default cluster size.
+   *
+   * @param engine the engine which orientation and model will be used, must not
+   * be null
+   * @param costFunction the cost function, must not be null
+   */
+  public HexHierarchicalPathFinder(final HexEngine<?> engine, final HexCostFunction costFunction) {
+    this(engine, costFunction, DEFAULT_CLUSTER_SIZE);
+  }
+
+  /**
+   * The Constructor.
+   *
+   * @param engine the engine which orientation and model will be used, must not
+   * be null
+   * @param costFunction the cost function, must not be null
+   * @param clusterSize the size of cluster side in hexagons, must be 2..256
+   */
+  public HexHierarchicalPathFinder(final HexEngine<?> engine, final HexCostFunction costFunction, final int clusterSize) {
+    if (engine == null) {
+      throw new NullPointerException("Engine must not be null");
+    }
+    if (costFunction == null) {
+      throw new NullPointerException("Cost function must not be null");
+    }
+    if (clusterSize < 2 || clusterSize > 256) {
+      throw new IllegalArgumentException("Cluster size must be 2..256 [" + clusterSize + ']');
+    }
+    this.engine = engine;
+    this.costFunction = costFunction;
+    this.clusterSize = clusterSize;
+    this.nodesPerCluster = clusterSize * 4;
+
+    final int cells = clusterSize * clusterSize;
+    this.localOpen = new IntBinaryHeap(cells);
+    this.localCost = new float[cells];
+    this.localParent = new int[cells];
+    this.localStamps = new int[cells];
+
+    this.candidateA = new int[this.nodesPerCluster];
+    this.candidateB = new int[this.nodesPerCluster];
+    this.pairA = new int[this.nodesPerCluster];
+    this.pairB = new int[this.nodesPerCluster];
+
+    this.startEdges = new float[this.nodesPerCluster];
+    this.goalEdges = new float[this.nodesPerCluster];
+  }
+
+  /**
+   * Get the cluster size.
+   *
+   * @return the size of cluster side in hexagons
+   */
+  public int getClusterSize() {
+    return this.clusterSize;
+  }
+
+  /**
+   * Get the heuristic factor.
+   *
+   * @return the heuristic factor
+   * @see HexPathFinder#setHeuristicFactor(float)
+   */
+  public float getHeuristicFactor() {
+    return this.heuristicFactor;
+  }
+
+  /**
+   * Set the factor of the heuristic for the search over entrances.
+   *
+   * @param factor the heuristic factor, must not be negative
+   * @see HexPathFinder#setHeuristicFactor(float)
+   */
+  public void setHeuristicFactor(final float factor) {
+    if (!(factor >= 0.0f)) {
+      throw new IllegalArgumentException("Heuristic factor must not be negative [" + factor + ']');
+    }
+    this.heuristicFactor = factor;
+  }
+
+  /**
+   * Notify the finder that a hexagon has been changed. The Cluster of the
+   * hexagon and its neighbor clusters will be rebuilt when a search needs them.
+   *
+   * @param col the column of the changed hexagon
+   * @param row the row of the changed hexagon
+   */
+  public void cellChanged(final int col, final int row) {
+    if (col < 0 || row < 0 || col >= this.columns || row >= this.rows) {
+      return;
+    }
+    final int cx = col / this.clusterSize;
+    final int cy = row / this.clusterSize;
+    for (int y = cy - 1; y <= cy + 1; y++) {
+      for (int x = cx - 1; x <= cx + 1; x++) {
+        if (x >= 0 && y >= 0 && x < this.clusterColumns && y < this.clusterRows) {
+          final Cluster cluster = this.clusters[y * this.clusterColumns + x];
+          if (cluster != null) {
+            cluster.state = STATE_DIRTY;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Make all clusters dirty, for instance if the cost function has been
+   * changed.
+   */
+  public void invalidateAll() {
+    for (final Cluster c : this.clusters) {
+      if (c != null) {
+        c.state = STATE_DIRTY;
+      }
+    }
+  }
+
+  /**
+   * Build abstraction for all dirty clusters of the current model. It is not
+   * required but allows to avoid lazy building during queries.
+   */
+  public void prebuild() {
+    checkModel();
+    for (int i = 0; i < this.clusters.length; i++) {
+      ensureReady(i);
+    }
+  }
+
+  /**
+   * Get the number of entrances in all built clusters.
+   *
+   * @return the number of entrances
+   */
+  public int getEntranceNumber() {
+    int result = 0;
+    for (final Cluster c : this.clusters) {
+      if (c != null && c.state != STATE_DIRTY) {
+        result += c.entranceNumber;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Make the finder follow changes of a model. An Observable model gets the
+   * finder as a listener and is returned as is, any other model is wrapped so
+   * that every change through setValueAt, setByte or setInt is reported to the
+   * finder, the wrapper keeps {@link ByteHexEngineModel} and
+   * {@link IntHexEngineModel} of the wrapped model. Changes made by other means
+   * must be reported through {@link #cellChanged(int, int)}.
+   *
+   * @param <E> the type of model values
+   * @param model the model to be tracked, must not be null
+   * @return the model which should be set into the engine
+   * @see #untrack(com.igormaznitsa.jhexed.engine.HexEngineModel)
+   */
+  @SuppressWarnings("unchecked")
+  public <E> HexEngineModel<E> track(final HexEngineModel<E> model) {
+    if (model == null) {
+      throw new NullPointerException("Model must not be null");
+    }
+    if (model instanceof ObservableHexEngineModel) {
+      ((ObservableHexEngineModel<E>) model).addHexEngineModelListener(this.modelListener);
+      return model;
+    }
+    if (model instanceof ByteHexEngineModel) {
+      return (HexEngineModel<E>) new TrackingByteModel(this, (ByteHexEngineModel) model);
+    }
+    if (model instanceof IntHexEngineModel) {
+      return (HexEngineModel<E>) new TrackingIntModel(this, (IntHexEngineModel) model);
+    }
+    return new TrackingModel<E>(this, model);
+  }
+
+  /**
+   * Stop following changes of an observable model.
+   *
+   * @param model the model which was tracked, must not be null
+   * @see #track(com.igormaznitsa.jhexed.engine.HexEngineModel)
+   */
+  public void untrack(final HexEngineModel<?> model) {
+    if (model == null) {
+      throw new NullPointerException("Model must not be null");
+    }
+    if (model instanceof ObservableHexEngineModel) {
+      ((ObservableHexEngineModel<?>) model).removeHexEngineModelListener(this.modelListener);
+    }
+  }
+
+  /**
+   * Notify the finder that hexagons in a rectangle have been changed.
+   *
+   * @param minCol the minimal column of the changed area
+   * @param minRow the minimal row of the changed area
+   * @param maxCol the maximal column of the changed area
+   * @param maxRow the maximal row of the changed area
+   * @see #cellChanged(int, int)
+   */
+  public void cellsChanged(final int minCol, final int minRow, final int maxCol, final int maxRow) {
+    if (this.clusters.length == 0 || maxCol < 0 || maxRow < 0 || minCol >= this.columns || minRow >= this.rows) {
+      return;
+    }
+    final int cx0 = Math.max(0, Math.max(0, minCol) / this.clusterSize - 1);
+    final int cy0 = Math.max(0, Math.max(0, minRow) / this.clusterSize - 1);
+    final int cx1 = Math.min(this.clusterColumns - 1, Math.min(this.columns - 1, maxCol) / this.clusterSize + 1);
+    final int cy1 = Math.min(this.clusterRows - 1, Math.min(this.rows - 1, maxRow) / this.clusterSize + 1);
+    for (int y = cy0; y <= cy1; y++) {
+      for (int x = cx0; x <= cx1; x++) {
+        final Cluster cluster = this.clusters[y * this.clusterColumns + x];
+        if (cluster != null) {
+          cluster.state = STATE_DIRTY;
+        }
+      }
+    }
+  }
+
+  /**
+   * Find a path between two hexagons.
+   *
+   * @param startCol the start column
+   * @param startRow the start row
+   * @param goalCol the goal column
+   * @param goalRow the goal row
+   * @return the cost of the found path or {@link Float#POSITIVE_INFINITY} if
+   * there is no path
+   * @see #getPathLength()
+   * @see #getPath(long[])
+   */
+  public float findPath(final int startCol, final int startRow, final int goalCol, final int goalRow) {
+    checkModel();
+    this.pathLength = 0;
+
+    if (!isInside(startCol, startRow) || !isInside(goalCol, goalRow)) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    final int startCell = startRow * this.columns + startCol;
+    final int goalCell = goalRow * this.columns + goalCol;
+
+    if (startCell == goalCell) {
+      appendCell(startCell);
+      return 0.0f;
+    }
+
+    final int startCluster = clusterOf(startCell);
+    final int goalCluster = clusterOf(goalCell);
+
+    final Cluster start = ensureEntrances(startCluster);
+    localSearch(startCluster, startCell, false, -1);
+    for (int i = 0; i < start.entranceNumber; i++) {
+      this.startEdges[i] = getLocalCost(startCluster, start.entrances[i]);
+    }
+    final float direct = startCluster == goalCluster ? getLocalCost(startCluster, goalCell) : Float.POSITIVE_INFINITY;
+
+    final Cluster goal = ensureEntrances(goalCluster);
+    localSearch(goalCluster, goalCell, true, -1);
+    for (int i = 0; i < goal.entranceNumber; i++) {
+      this.goalEdges[i] = getLocalCost(goalCluster, goal.entrances[i]);
+    }
+
+    final int startNode = this.clusters.length * this.nodesPerCluster;
+    final int goalNode = startNode + 1;
+
+    this.nodeStamp++;
+    if (this.nodeStamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.nodeStamps, 0);
+      this.nodeStamp = 1;
+    }
+    this.open.clear();
+
+    final int orientation = this.engine.getOrientation();
+    final int goalQ = HexAxial.offsetToQ(orientation, goalCol, goalRow);
+    final int goalR = HexAxial.offsetToR(orientation, goalCol, goalRow);
+
+    relax(startNode, -1, 0.0f, startCell, goalQ, goalR);
+
+    boolean found = false;
+    while (!this.open.isEmpty()) {
+      final int node = this.open.poll();
+      final float cost = this.nodeCost[node];
+
+      if (node == goalNode) {
+        found = true;
+        break;
+      }
+
+      if (node == startNode) {
+        for (int i = 0; i < start.entranceNumber; i++) {
+          final float edge = this.startEdges[i];
+          if (edge != Float.POSITIVE_INFINITY) {
+            relax(startCluster * this.nodesPerCluster + i, node, edge, start.entrances[i], goalQ, goalR);
+          }
+        }
+        if (direct != Float.POSITIVE_INFINITY) {
+          relax(goalNode, node, direct, goalCell, goalQ, goalR);
+        }
+        continue;
+      }
+
+      final int clusterIndex = node / this.nodesPerCluster;
+      final int local = node % this.nodesPerCluster;
+      final Cluster cluster = ensureReady(clusterIndex);
+      final int entranceNumber = cluster.entranceNumber;
+
+      final int intraBase = local * entranceNumber;
+      for (int j = 0; j < entranceNumber; j++) {
+        final float edge = cluster.intra[intraBase + j];
+        if (j != local && edge != Float.POSITIVE_INFINITY) {
+          relax(clusterIndex * this.nodesPerCluster + j, node, cost + edge, cluster.entrances[j], goalQ, goalR);
+        }
+      }
+
+      for (int t = 0; t < cluster.transitionNumber; t++) {
+        if (cluster.transitionLocal[t] == local) {
+          final float edge = cluster.transitionCost[t];
+          if (edge == Float.POSITIVE_INFINITY) {
+            continue;
+          }
+          final int partnerCell = cluster.transitionPartner[t];
+          final int partnerClusterIndex = clusterOf(partnerCell);
+          final int partnerLocal = ensureEntrances(partnerClusterIndex).indexOf(partnerCell);
+          if (partnerLocal >= 0) {
+            relax(partnerClusterIndex * this.nodesPerCluster + partnerLocal, node, cost + edge, partnerCell, goalQ, goalR);
+          }
+        }
+      }
+
+      if (clusterIndex == goalCluster) {
+        final float edge = this.goalEdges[local];
+        if (edge != Float.POSITIVE_INFINITY) {
+          relax(goalNode, node, cost + edge, goalCell, goalQ, goalR);
+        }
+      }
+    }
+    this.open.clear();
+
+    if (!found) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    refine(startNode, goalNode, startCell, goalCell);
+    return this.nodeCost[goalNode];
+  }
+
+  /**
+   * Get the number of hexagons in the last found path.
+   *
+   * @return the number of hexagons in the path including start and goal, zero
+   * if there is no path
+   */
+  public int getPathLength() {
+    return this.pathLength;
+  }
+
+  /**
+   * Get the last found path.
+   *
+   * @param array the array to be used for result, if it is null or too short
+   * then a new one will be created
+   * @return array where the first {@link #getPathLength()} elements are
+   * column-row pairs from the start to the goal packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}
+   */
+  public long[] getPath(final long[] array) {
+    final long[] result = array == null || array.length < this.pathLength ? new long[this.pathLength] : array;
+    for (int i = 0; i < this.pathLength; i++) {
+      final int cell = this.path[i];
+      result[i] = HexEngine.packColumnRowLong(cell % this.columns, cell / this.columns);
+    }
+    return result;
+  }
+
+  private void checkModel() {
+    final HexEngineModel<?> model = this.engine.getModel();
+    final int modelColumns = model.getColumnNumber();
+    final int modelRows = model.getRowNumber();
+    if (modelColumns != this.columns || modelRows != this.rows) {
+      if ((long) modelColumns * (long) modelRows > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Too big model [" + modelColumns + 'x' + modelRows + ']');
+      }
+      this.columns = modelColumns;
+      this.rows = modelRows;
+      this.clusterColumns = (modelColumns + this.clusterSize - 1) / this.clusterSize;
+      this.clusterRows = (modelRows + this.clusterSize - 1) / this.clusterSize;
+
+      final long nodes = (long) this.clusterColumns * (long) this.clusterRows * (long) this.nodesPerCluster + 2L;
+      if (nodes > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many clusters, increase cluster size [" + this.clusterSize + ']');
+      }
+      this.clusters = new Cluster[this.clusterColumns * this.clusterRows];
+      this.nodeCost = new float[(int) nodes];
+      this.nodeParent = new int[(int) nodes];
+      this.nodeStamps = new int[(int) nodes];
+      this.nodeStamp = 0;
+      this.open.ensureKeyRange((int) nodes);
+    }
+  }
+
+  private boolean isInside(final int col, final int row) {
+    return col >= 0 && row >= 0 && col < this.columns && row < this.rows;
+  }
+
+  private int clusterOf(final int cell) {
+    return (cell / this.columns / this.clusterSize) * this.clusterColumns + (cell % this.columns) / this.clusterSize;
+  }
+
+  private static boolean isPassable(final float cost) {
+    return cost >= 0.0f && cost != Float.POSITIVE_INFINITY;
+  }
+
+  private void relax(final int node, final int parent, final float cost, final int cell, final int goalQ, final int goalR) {
+    if (this.nodeStamps[node] == this.nodeStamp && this.nodeCost[node] <= cost) {
+      return;
+    }
+    this.nodeStamps[node] = this.nodeStamp;
+    this.nodeCost[node] = cost;
+    this.nodeParent[node] = parent;
+
+    final int orientation = this.engine.getOrientation();
+    final int col = cell % this.columns;
+    final int row = cell / this.columns;
+    final int distance = HexAxial.axialDistance(HexAxial.offsetToQ(orientation, col, row), HexAxial.offsetToR(orientation, col, row), goalQ, goalR);
+    this.open.addOrUpdate(node, cost + this.heuristicFactor * distance);
+  }
+
+  private Cluster ensureEntrances(final int clusterIndex) {
+    Cluster cluster = this.clusters[clusterIndex];
+    if (cluster == null) {
+      cluster = new Cluster();
+      this.clusters[clusterIndex] = cluster;
+    }
+    if (cluster.state != STATE_DIRTY) {
+      return cluster;
+    }
+
+    cluster.entranceNumber = 0;
+    cluster.transitionNumber = 0;
+
+    final int cx = clusterIndex % this.clusterColumns;
+    final int cy = clusterIndex / this.clusterColumns;
+
+    for (int y = cy - 1; y <= cy + 1; y++) {
+      for (int x = cx - 1; x <= cx + 1; x++) {
+        if (x < 0 || y < 0 || x >= this.clusterColumns || y >= this.clusterRows || (x == cx && y == cy)) {
+          continue;
+        }
+        final int other = y * this.clusterColumns + x;
+        final boolean low = clusterIndex < other;
+        final int pairs = low ? findTransitions(clusterIndex, other) : findTransitions(other, clusterIndex);
+        for (int i = 0; i < pairs; i++) {
+          final int own = low ? this.pairA[i] : this.pairB[i];
+          final int partner = low ? this.pairB[i] : this.pairA[i];
+          final int local = cluster.addEntrance(own);
+          cluster.addTransition(local, partner, this.costFunction.getCost(own % this.columns, own / this.columns, partner % this.columns, partner / this.columns));
+        }
+      }
+    }
+
+    cluster.state = STATE_ENTRANCES;
+    return cluster;
+  }
+
+  private Cluster ensureReady(final int clusterIndex) {
+    final Cluster cluster = ensureEntrances(clusterIndex);
+    if (cluster.state == STATE_READY) {
+      return cluster;
+    }
+
+    final int number = cluster.entranceNumber;
+    if (cluster.intra.length < number * number) {
+      cluster.intra = new float[number * number];
+    }
+    for (int i = 0; i < number; i++) {
+      localSearch(clusterIndex, cluster.entrances[i], false, -1);
+      for (int j = 0; j < number; j++) {
+        cluster.intra[i * number + j] = getLocalCost(clusterIndex, cluster.entrances[j]);
+      }
+    }
+
+    cluster.state = STATE_READY;
+    return cluster;
+  }
+
+  /**
+   * Find transitions between two adjacent clusters, the result is placed into
+   * pairA and pairB arrays. The Result depends only on hexagons of both
+   * clusters, so that it is the same for both clusters.
+   *
+   * @param low the cluster with smaller index
+   * @param high the cluster with bigger index
+   * @return the number of transitions
+   */
+  private int findTransitions(final int low, final int high) {
+    final int x0 = (low % this.clusterColumns) * this.clusterSize;
+    final int y0 = (low / this.clusterColumns) * this.clusterSize;
+    final int x1 = Math.min(x0 + this.clusterSize, this.columns) - 1;
+    final int y1 = Math.min(y0 + this.clusterSize, this.rows) - 1;
+
+    int candidates = 0;
+    int result = 0;
+    int previousCol = -1;
+    int previousRow = -1;
+
+    final int orientation = this.engine.getOrientation();
+
+    for (int row = y0; row <= y1; row++) {
+      final boolean wholeRow = row == y0 || row == y1;
+      final int step = wholeRow ? 1 : Math.max(1, x1 - x0);
+      for (int col = x0; col <= x1; col += step) {
+        final int previousPartner = candidates > 0 ? this.candidateB[candidates - 1] : -1;
+        final int partner = findPartner(col, row, high, previousPartner);
+        if (partner < 0) {
+          continue;
+        }
+        // a run is continued only if both its sides keep connected
+        if (candidates > 0
+                && (HexAxial.distance(orientation, previousCol, previousRow, col, row) != 1
+                || (partner != previousPartner && distanceBetweenCells(partner, previousPartner) != 1))) {
+          result = selectTransition(candidates, result);
+          candidates = 0;
+        }
+        this.candidateA[candidates] = row * this.columns + col;
+        this.candidateB[candidates] = partner;
+        candidates++;
+        previousCol = col;
+        previousRow = row;
+      }
+    }
+    return selectTransition(candidates, result);
+  }
+
+  private int selectTransition(final int candidates, final int result) {
+    if (candidates == 0) {
+      return result;
+    }
+    final int middle = (candidates - 1) >> 1;
+    this.pairA[result] = this.candidateA[middle];
+    this.pairB[result] = this.candidateB[middle];
+    return result + 1;
+  }
+
+  private int distanceBetweenCells(final int cell1, final int cell2) {
+    return HexAxial.distance(this.engine.getOrientation(), cell1 % this.columns, cell1 / this.columns, cell2 % this.columns, cell2 / this.columns);
+  }
+
+  /**
+   * Find a neighbor of a hexagon in a cluster which can be used for transition.
+   * A Neighbor of the previous partner is preferred, then the previous partner
+   * itself and then the first suitable neighbor.
+   *
+   * @param col the column of the hexagon
+   * @param row the row of the hexagon
+   * @param cluster the neighbor cluster
+   * @param previousPartner the partner of the previous hexagon in the run, -1
+   * if there is no one
+   * @return the cell index of the partner or -1 if not found
+   */
+  private int findPartner(final int col, final int row, final int cluster, final int previousPartner) {
+    this.engine.getPackedNeighbourPositionsLong(this.neighbours, col, row, 1);
+    int first = -1;
+    boolean samePrevious = false;
+    for (int i = 0; i < 6; i++) {
+      final int nextCol = HexEngine.extractColumnLong(this.neighbours[i]);
+      final int nextRow = HexEngine.extractRowLong(this.neighbours[i]);
+      if (!isInside(nextCol, nextRow)) {
+        continue;
+      }
+      final int cell = nextRow * this.columns + nextCol;
+      if (clusterOf(cell) == cluster
+              && isPassable(this.costFunction.getCost(col, row, nextCol, nextRow))
+              && isPassable(this.costFunction.getCost(nextCol, nextRow, col, row))) {
+        if (previousPartner >= 0) {
+          if (cell == previousPartner) {
+            samePrevious = true;
+          }
+          else if (distanceBetweenCells(cell, previousPartner) == 1) {
+            return cell;
+          }
+        }
+        if (first < 0) {
+          first = cell;
+        }
+      }
+    }
+    return samePrevious ? previousPartner : first;
+  }
+
+  private float getLocalCost(final int clusterIndex, final int cell) {
+    final int x0 = (clusterIndex % this.clusterColumns) * this.clusterSize;
+    final int y0 = (clusterIndex / this.clusterColumns) * this.clusterSize;
+    final int local = (cell / this.columns - y0) * this.clusterSize + (cell % this.columns - x0);
+    return this.localStamps[local] == this.localStamp ? this.localCost[local] : Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Dijkstra search inside of a cluster.
+   *
+   * @param clusterIndex the cluster
+   * @param startCell the start cell
+   * @param reverse true if costs of moves to the start must be calculated
+   * @param targetCell the cell to stop the search, -1 to search whole cluster
+   */
+  private void localSearch(final int clusterIndex, final int startCell, final boolean reverse, final int targetCell) {
+    final int size = this.clusterSize;
+    final int x0 = (clusterIndex % this.clusterColumns) * size;
+    final int y0 = (clusterIndex / this.clusterColumns) * size;
+    final int x1 = Math.min(x0 + size, this.columns);
+    final int y1 = Math.min(y0 + size, this.rows);
+
+    this.localStamp++;
+    if (this.localStamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.localStamps, 0);
+      this.localStamp = 1;
+    }
+    this.localOpen.clear();
+
+    final int start = (startCell / this.columns - y0) * size + (startCell % this.columns - x0);
+    final int target = targetCell < 0 ? -1 : (targetCell / this.columns - y0) * size + (targetCell % this.columns - x0);
+
+    this.localStamps[start] = this.localStamp;
+    this.localCost[start] = 0.0f;
+    this.localParent[start] = -1;
+    this.localOpen.addOrUpdate(start, 0.0f);
+
+    while (!this.localOpen.isEmpty()) {
+      final int node = this.localOpen.poll();
+      if (node == target) {
+        break;
+      }
+      final int col = x0 + node % size;
+      final int row = y0 + node / size;
+      final float nodeCost = this.localCost[node];
+
+      this.engine.getPackedNeighbourPositionsLong(this.neighbours, col, row, 1);
+      for (int i = 0; i < 6; i++) {
+        final int nextCol = HexEngine.extractColumnLong(this.neighbours[i]);
+        final int nextRow = HexEngine.extractRowLong(this.neighbours[i]);
+        if (nextCol < x0 || nextRow < y0 || nextCol >= x1 || nextRow >= y1) {
+          continue;
+        }
+        final float step = reverse ? this.costFunction.getCost(nextCol, nextRow, col, row) : this.costFunction.getCost(col, row, nextCol, nextRow);
+        if (!isPassable(step)) {
+          continue;
+        }
+        final int next = (nextRow - y0) * size + (nextCol - x0);
+        final float nextCost = nodeCost + step;
+        if (this.localStamps[next] != this.localStamp || nextCost < this.localCost[next]) {
+          this.localStamps[next] = this.localStamp;
+          this.localCost[next] = nextCost;
+          this.localParent[next] = node;
+          this.localOpen.addOrUpdate(next, nextCost);
+        }
+      }
+    }
+    this.localOpen.clear();
+  }
+
+  private int cellOfNode(final int node, final int startNode, final int startCell, final int goalCell) {
+    if (node == startNode) {
+      return startCell;
+    }
+    if (node == startNode + 1) {
+      return goalCell;
+    }
+    return this.clusters[node / this.nodesPerCluster].entrances[node % this.nodesPerCluster];
+  }
+
+  private void refine(final int startNode, final int goalNode, final int startCell, final int goalCell) {
+    int length = 0;
+    for (int node = goalNode; node >= 0; node = this.nodeParent[node]) {
+      if (length == this.chain.length) {
+        final int[] newChain = new int[length << 1];
+        System.arraycopy(this.chain, 0, newChain, 0, length);
+        this.chain = newChain;
+      }
+      this.chain[length++] = node;
+    }
+
+    appendCell(startCell);
+    for (int i = length - 1; i > 0; i--) {
+      final int from = cellOfNode(this.chain[i], startNode, startCell, goalCell);
+      final int to = cellOfNode(this.chain[i - 1], startNode, startCell, goalCell);
+      if (from == to) {
+        continue;
+      }
+      final int fromCluster = clusterOf(from);
+      if (fromCluster != clusterOf(to)) {
+        appendCell(to);
+      }
+      else {
+        localSearch(fromCluster, from, false, to);
+        final int size = this.clusterSize;
+        final int x0 = (fromCluster % this.clusterColumns) * size;
+        final int y0 = (fromCluster / this.clusterColumns) * size;
+        final int first = this.pathLength;
+        for (int local = (to / this.columns - y0) * size + (to % this.columns - x0); this.localParent[local] >= 0; local = this.localParent[local]) {
+          appendCell((y0 + local / size) * this.columns + x0 + local % size);
+        }
+        reverse(this.path, first, this.pathLength - 1);
+      }
+    }
+  }
+
+  private static void reverse(final int[] array, final int from, final int to) {
+    for (int i = from, j = to; i < j; i++, j--) {
+      final int temp = array[i];
+      array[i] = array[j];
+      array[j] = temp;
+    }
+  }
+
+  private void appendCell(final int cell) {
+    if (this.pathLength == this.path.length) {
+      final int[] newPath = new int[this.pathLength << 1];
+      System.arraycopy(this.path, 0, newPath, 0, this.pathLength);
+      this.path = newPath;
+    }
+    this.path[this.pathLength++] = cell;
+  }
+}
@@ -0,0 +1,394 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexAxial;
+import java.util.Arrays;
+
+/**
+ * Reusable context of A* and Dijkstra searches over the model of an engine.
+ * All search buffers are kept between calls and reset by a generation stamp,
+ * so that a search doesn't allocate anything after the first call for a model
+ * size. Neighbors are provided by
+ * {@link HexEngine#getPackedNeighbourPositionsLong(long[], int, int, int)}
+ * and the heuristic is the exact hexagon distance multiplied by the heuristic
+ * factor.
+ * <p>
+ * An Instance is not thread safe, use an instance per thread for parallel
+ * searches.</p>
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @see HexCostFunction
+ */
+public final class HexPathFinder {
+
+  private final HexEngine<?> engine;
+  private final IntBinaryHeap open = new IntBinaryHeap(0);
+  private final long[] neighbours = new long[6];
+
+  private float heuristicFactor = 1.0f;
+
+  private int columns;
+  private int rows;
+
+  private float[] costs = new float[0];
+  private int[] parents = new int[0];
+  private int[] stamps = new int[0];
+  private int stamp;
+
+  private int[] reached = new int[64];
+  private int reachedNumber;
+
+  private int[] path = new int[64];
+  private int pathLength;
+
+  /**
+   * The Constructor.
+   *
+   * @param engine the engine which orientation and model will be used, must not
+   * be null
+   */
+  public HexPathFinder(final HexEngine<?> engine) {
+    if (engine == null) {
+      throw new NullPointerException("Engine must not be null");
+    }
+    this.engine = engine;
+  }
+
+  /**
+   * Get the engine.
+   *
+   * @return the engine
+   */
+  public HexEngine<?> getEngine() {
+    return this.engine;
+  }
+
+  /**
+   * Get the heuristic factor.
+   *
+   * @return the heuristic factor
+   */
+  public float getHeuristicFactor() {
+    return this.heuristicFactor;
+  }
+
+  /**
+   * Set the factor of the heuristic. The Hexagon distance to the goal is
+   * multiplied by the factor, found paths are the cheapest ones if the factor
+   * is not greater than the minimal cost of a move. Zero makes the search
+   * Dijkstra one and bigger values speed up the search with worse paths.
+   *
+   * @param factor the heuristic factor, must not be negative
+   */
+  public void setHeuristicFactor(final float factor) {
+    if (!(factor >= 0.0f)) {
+      throw new IllegalArgumentException("Heuristic factor must not be negative [" + factor + ']');
+    }
+    this.heuristicFactor = factor;
+  }
+
+  /**
+   * Find the path between two hexagons.
+   *
+   * @param startCol the start column
+   * @param startRow the start row
+   * @param goalCol the goal column
+   * @param goalRow the goal row
+   * @param costFunction the cost function, must not be null
+   * @return the cost of the found path or {@link Float#POSITIVE_INFINITY} if
+   * there is no path
+   * @see #getPathLength()
+   * @see #getPath(long[])
+   */
+  public float findPath(final int startCol, final int startRow, final int goalCol, final int goalRow, final HexCostFunction costFunction) {
+    final int start = prepare(startCol, startRow, costFunction);
+    this.pathLength = 0;
+    if (start < 0 || !isInside(goalCol, goalRow)) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    final int goal = goalRow * this.columns + goalCol;
+    final int orientation = this.engine.getOrientation();
+    final int goalQ = HexAxial.offsetToQ(orientation, goalCol, goalRow);
+    final int goalR = HexAxial.offsetToR(orientation, goalCol, goalRow);
+    final float factor = this.heuristicFactor;
+
+    final int columnNumber = this.columns;
+    final float[] costArray = this.costs;
+    final int[] stampArray = this.stamps;
+    final int current = this.stamp;
+    final long[] buffer = this.neighbours;
+
+    this.open.addOrUpdate(start, factor * HexAxial.axialDistance(HexAxial.offsetToQ(orientation, startCol, startRow), HexAxial.offsetToR(orientation, startCol, startRow), goalQ, goalR));
+
+    while (!this.open.isEmpty()) {
+      final int node = this.open.poll();
+      if (node == goal) {
+        this.open.clear();
+        makePath(goal);
+        return costArray[goal];
+      }
+
+      final int col = node % columnNumber;
+      final int row = node / columnNumber;
+      final float nodeCost = costArray[node];
+
+      this.engine.getPackedNeighbourPositionsLong(buffer, col, row, 1);
+      for (int i = 0; i < 6; i++) {
+        final int nextCol = HexEngine.extractColumnLong(buffer[i]);
+        final int nextRow = HexEngine.extractRowLong(buffer[i]);
+        if (!isInside(nextCol, nextRow)) {
+          continue;
+        }
+        final float stepCost = costFunction.getCost(col, row, nextCol, nextRow);
+        if (!(stepCost >= 0.0f) || stepCost == Float.POSITIVE_INFINITY) {
+          continue;
+        }
+        final int next = nextRow * columnNumber + nextCol;
+        final float nextCost = nodeCost + stepCost;
+        if (stampArray[next] != current) {
+          visit(next, node, nextCost);
+        }
+        else if (nextCost < costArray[next]) {
+          costArray[next] = nextCost;
+          this.parents[next] = node;
+        }
+        else {
+          continue;
+        }
+        final int q = HexAxial.offsetToQ(orientation, nextCol, nextRow);
+        final int r = HexAxial.offsetToR(orientation, nextCol, nextRow);
+        this.open.addOrUpdate(next, nextCost + factor * HexAxial.axialDistance(q, r, goalQ, goalR));
+      }
+    }
+
+    return Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Find all hexagons which can be reached from a hexagon with limited cost
+   * (Dijkstra search). Costs of reached hexagons can be read through
+   * {@link #getCost(int, int)} till the next search.
+   *
+   * @param startCol the start column
+   * @param startRow the start row
+   * @param maxCost the max allowed cost of a path
+   * @param costFunction the cost function, must not be null
+   * @return the number of reached hexagons including the start one
+   * @see #getReached(long[])
+   */
+  public int findReachable(final int startCol, final int startRow, final float maxCost, final HexCostFunction costFunction) {
+    final int start = prepare(startCol, startRow, costFunction);
+    this.pathLength = 0;
+    if (start < 0) {
+      return 0;
+    }
+
+    final int columnNumber = this.columns;
+    final float[] costArray = this.costs;
+    final int[] stampArray = this.stamps;
+    final int current = this.stamp;
+    final long[] buffer = this.neighbours;
+
+    this.open.addOrUpdate(start, 0.0f);
+
+    while (!this.open.isEmpty()) {
+      final int node = this.open.poll();
+      final int col = node % columnNumber;
+      final int row = node / columnNumber;
+      final float nodeCost = costArray[node];
+
+      this.engine.getPackedNeighbourPositionsLong(buffer, col, row, 1);
+      for (int i = 0; i < 6; i++) {
+        final int nextCol = HexEngine.extractColumnLong(buffer[i]);
+        final int nextRow = HexEngine.extractRowLong(buffer[i]);
+        if (!isInside(nextCol, nextRow)) {
+          continue;
+        }
+        final float stepCost = costFunction.getCost(col, row, nextCol, nextRow);
+        if (!(stepCost >= 0.0f) || stepCost == Float.POSITIVE_INFINITY) {
+          continue;
+        }
+        final float nextCost = nodeCost + stepCost;
+        if (nextCost > maxCost) {
+          continue;
+        }
+        final int next = nextRow * columnNumber + nextCol;
+        if (stampArray[next] != current) {
+          visit(next, node, nextCost);
+        }
+        else if (nextCost < costArray[next]) {
+          costArray[next] = nextCost;
+          this.parents[next] = node;
+        }
+        else {
+          continue;
+        }
+        this.open.addOrUpdate(next, nextCost);
+      }
+    }
+
+    return this.reachedNumber;
+  }
+
+  /**
+   * Get the accumulated cost of a hexagon reached by the last search.
+   *
+   * @param col the column
+   * @param row the row
+   * @return the cost of the cheapest found path from the start to the hexagon,
+   * {@link Float#POSITIVE_INFINITY} if the hexagon has not been reached
+   */
+  public float getCost(final int col, final int row) {
+    if (!isInside(col, row)) {
+      return Float.POSITIVE_INFINITY;
+    }
+    final int index = row * this.columns + col;
+    return index < this.stamps.length && this.stamps[index] == this.stamp ? this.costs[index] : Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Get the number of hexagons touched by the last search.
+   *
+   * @return the number of touched hexagons
+   */
+  public int getReachedNumber() {
+    return this.reachedNumber;
+  }
+
+  /**
+   * Get hexagons touched by the last search. For
+   * {@link #findReachable(int, int, float, com.igormaznitsa.jhexed.engine.path.HexCostFunction)}
+   * it is the set of reachable hexagons.
+   *
+   * @param array the array to be used for result, if it is null or too short
+   * then a new one will be created
+   * @return array where the first {@link #getReachedNumber()} elements are
+   * column-row pairs packed by {@link HexEngine#packColumnRowLong(int, int)}
+   */
+  public long[] getReached(final long[] array) {
+    final long[] result = array == null || array.length < this.reachedNumber ? new long[this.reachedNumber] : array;
+    for (int i = 0; i < this.reachedNumber; i++) {
+      final int node = this.reached[i];
+      result[i] = HexEngine.packColumnRowLong(node % this.columns, node / this.columns);
+    }
+    return result;
+  }
+
+  /**
+   * Get the number of hexagons in the path found by the last
+   * {@link #findPath(int, int, int, int, com.igormaznitsa.jhexed.engine.path.HexCostFunction)}
+   * call.
+   *
+   * @return the number of hexagons in the path including start and goal, zero
+   * if there is no path
+   */
+  public int getPathLength() {
+    return this.pathLength;
+  }
+
+  /**
+   * Get the path found by the last
+   * {@link #findPath(int, int, int, int, com.igormaznitsa.jhexed.engine.path.HexCostFunction)}
+   * call.
+   *
+   * @param array the array to be used for result, if it is null or too short
+   * then a new one will be created
+   * @return array where the first {@link #getPathLength()} elements are
+   * column-row pairs from the start to the goal packed by
+   * {@link HexEngine#packColumnRowLong(int, int)}
+   */
+  public long[] getPath(final long[] array) {
+    final long[] result = array == null || array.length < this.pathLength ? new long[this.pathLength] : array;
+    for (int i = 0; i < this.pathLength; i++) {
+      final int node = this.path[i];
+      result[i] = HexEngine.packColumnRowLong(node % this.columns, node / this.columns);
+    }
+    return result;
+  }
+
+  private boolean isInside(final int col, final int row) {
+    return col >= 0 && row >= 0 && col < this.columns && row < this.rows;
+  }
+
+  private int prepare(final int startCol, final int startRow, final HexCostFunction costFunction) {
+    if (costFunction == null) {
+      throw new NullPointerException("Cost function must not be null");
+    }
+
+    final HexEngineModel<?> model = this.engine.getModel();
+    this.columns = model.getColumnNumber();
+    this.rows = model.getRowNumber();
+
+    final long size = (long) this.columns * (long) this.rows;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too big model [" + this.columns + 'x' + this.rows + ']');
+    }
+
+    if (this.stamps.length < size) {
+      this.costs = new float[(int) size];
+      this.parents = new int[(int) size];
+      this.stamps = new int[(int) size];
+      this.stamp = 0;
+    }
+    this.open.ensureKeyRange((int) size);
+    this.open.clear();
+
+    this.stamp++;
+    if (this.stamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.stamps, 0);
+      this.stamp = 1;
+    }
+    this.reachedNumber = 0;
+
+    if (!isInside(startCol, startRow)) {
+      return -1;
+    }
+    final int start = startRow * this.columns + startCol;
+    visit(start, -1, 0.0f);
+    return start;
+  }
+
+  private void visit(final int node, final int parent, final float cost) {
+    this.stamps[node] = this.stamp;
+    this.costs[node] = cost;
+    this.parents[node] = parent;
+    if (this.reachedNumber == this.reached.length) {
+      final int[] newReached = new int[this.reached.length << 1];
+      System.arraycopy(this.reached, 0, newReached, 0, this.reachedNumber);
+      this.reached = newReached;
+    }
+    this.reached[this.reachedNumber++] = node;
+  }
+
+  private void makePath(final int goal) {
+    int length = 0;
+    for (int node = goal; node >= 0; node = this.parents[node]) {
+      length++;
+    }
+    if (this.path.length < length) {
+      this.path = new int[Math.max(length, this.path.length << 1)];
+    }
+    int index = length;
+    for (int node = goal; node >= 0; node = this.parents[node]) {
+      this.path[--index] = node;
+    }
+    this.pathLength = length;
+  }
+}
@@ -0,0 +1,226 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.path;
+
+/**
+ * Binary min-heap of integer keys with float priorities. Keys must be in the
+ * range 0..keyRange-1, every key can be presented in the heap only once and
+ * its priority can be changed in place. The Heap doesn't allocate anything
+ * after its key range has been set.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public final class IntBinaryHeap {
+
+  private int[] heap;
+  private float[] priorities;
+  /**
+   * Position of a key in the heap plus one, zero if the key is not in the heap.
+   */
+  private int[] positions;
+  private int size;
+
+  /**
+   * The Constructor.
+   *
+   * @param keyRange the number of allowed keys
+   */
+  public IntBinaryHeap(final int keyRange) {
+    if (keyRange < 0) {
+      throw new IllegalArgumentException("Key range must not be negative [" + keyRange + ']');
+    }
+    this.heap = new int[keyRange];
+    this.priorities = new float[keyRange];
+    this.positions = new int[keyRange];
+  }
+
+  /**
+   * Make the key range not less than a value. The Heap is cleared if it has
+   * been extended.
+   *
+   * @param keyRange the number of allowed keys
+   */
+  public void ensureKeyRange(final int keyRange) {
+    if (keyRange > this.positions.length) {
+      this.heap = new int[keyRange];
+      this.priorities = new float[keyRange];
+      this.positions = new int[keyRange];
+      this.size = 0;
+    }
+  }
+
+  /**
+   * Get the current key range.
+   *
+   * @return the number of allowed keys
+   */
+  public int getKeyRange() {
+    return this.positions.length;
+  }
+
+  /**
+   * Get number of keys in the heap.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Check that the heap is empty.
+   *
+   * @return true if there is not any key in the heap, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Check that a key is in the heap.
+   *
+   * @param key the key
+   * @return true if the key is in the heap, false otherwise
+   */
+  public boolean contains(final int key) {
+    return this.positions[key] != 0;
+  }
+
+  /**
+   * Get the priority of a key in the heap.
+   *
+   * @param key the key, must be in the heap
+   * @return the priority of the key
+   */
+  public float getPriority(final int key) {
+    return this.priorities[key];
+  }
+
+  /**
+   * Add a key or change its priority if it is already in the heap.
+   *
+   * @param key the key
+   * @param priority the priority, the smaller value the earlier the key will be
+   * polled
+   */
+  public void addOrUpdate(final int key, final float priority) {
+    final int position = this.positions[key];
+    if (position == 0) {
+      this.priorities[key] = priority;
+      this.heap[this.size] = key;
+      this.positions[key] = this.size + 1;
+      siftUp(this.size++);
+    }
+    else {
+      final float old = this.priorities[key];
+      this.priorities[key] = priority;
+      if (priority < old) {
+        siftUp(position - 1);
+      }
+      else if (priority > old) {
+        siftDown(position - 1);
+      }
+    }
+  }
+
+  /**
+   * Get the key with the smallest priority without removing.
+   *
+   * @return the key with the smallest priority
+   * @throws IllegalStateException if the heap is empty
+   */
+  public int peek() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Heap is empty");
+    }
+    return this.heap[0];
+  }
+
+  /**
+   * Remove and return the key with the smallest priority.
+   *
+   * @return the key with the smallest priority
+   * @throws IllegalStateException if the heap is empty
+   */
+  public int poll() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Heap is empty");
+    }
+    final int result = this.heap[0];
+    this.positions[result] = 0;
+    this.size--;
+    if (this.size > 0) {
+      final int last = this.heap[this.size];
+      this.heap[0] = last;
+      this.positions[last] = 1;
+      siftDown(0);
+    }
+    return result;
+  }
+
+  /**
+   * Remove all keys from the heap, it takes time proportional to the number of
+   * keys in the heap.
+   */
+  public void clear() {
+    for (int i = 0; i < this.size; i++) {
+      this.positions[this.heap[i]] = 0;
+    }
+    this.size = 0;
+  }
+
+  private void siftUp(final int index) {
+    final int key = this.heap[index];
+    final float priority = this.priorities[key];
+    int i = index;
+    while (i > 0) {
+      final int parentIndex = (i - 1) >> 1;
+      final int parent = this.heap[parentIndex];
+      if (this.priorities[parent] <= priority) {
+        break;
+      }
+      this.heap[i] = parent;
+      this.positions[parent] = i + 1;
+      i = parentIndex;
+    }
+    this.heap[i] = key;
+    this.positions[key] = i + 1;
+  }
+
+  private void siftDown(final int index) {
+    final int key = this.heap[index];
+    final float priority = this.priorities[key];
+    final int half = this.size >> 1;
+    int i = index;
+    while (i < half) {
+      int childIndex = (i << 1) + 1;
+      int child = this.heap[childIndex];
+      final int rightIndex = childIndex + 1;
+      if (rightIndex < this.size && this.priorities[this.heap[rightIndex]] < this.priorities[child]) {
+        childIndex = rightIndex;
+        child = this.heap[rightIndex];
+      }
+      if (priority <= this.priorities[child]) {
+        break;
+      }
+      this.heap[i] = child;
+      this.positions[child] = i + 1;
+      i = childIndex;
+    }
+    this.heap[i] = key;
+    this.positions[key] = i + 1;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.engine.renders;
+
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+
+/**
+ * The Interface describes a factory of tiles for tiled parallel rendering. The
+ * Engine makes a tile for every part of a rendered area, draws hexagons into
+ * the tile graphics on a worker thread and then composites the tile into the
+ * destination graphics on the calling thread. A Tile covers its area with a
+ * margin around, hexagons crossing sides of the area are drawn whole into the
+ * margin and only the area of the tile is composited.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ * @param <G> the type of graphics context to be used for rendering.
+ * @param <T> the type of tile object.
+ * @see com.igormaznitsa.jhexed.engine.HexEngine#drawArea(java.lang.Object, com.igormaznitsa.jhexed.engine.misc.HexRect2D, boolean, int, java.util.concurrent.ExecutorService, com.igormaznitsa.jhexed.engine.renders.HexTileGraphicsFactory)
+ */
+public interface HexTileGraphicsFactory<G, T> {
+
+  /**
+   * Make a tile for bounds. It can be called from a worker thread.
+   *
+   * @param bounds the area of the tile with its margin in the coordinate space
+   * of the engine.
+   * @return a new tile, must not be null
+   */
+  T makeTile(HexRect2D bounds);
+
+  /**
+   * Get graphics context to draw on a tile. The Context must be prepared so
+   * that engine coordinates of the tile bounds are mapped to the tile. It can
+   * be called from a worker thread.
+   *
+   * @param tile the tile
+   * @param bounds the area of the tile with its margin in the coordinate space
+   * of the engine.
+   * @return the graphics context for the tile, must not be null
+   */
+  G getTileGraphics(T tile, HexRect2D bounds);
+
+  /**
+   * Release a graphics context of a tile after rendering. It can be called from
+   * a worker thread.
+   *
+   * @param tile the tile
+   * @param gfx the graphics context provided by
+   * {@link #getTileGraphics(java.lang.Object, com.igormaznitsa.jhexed.engine.misc.HexRect2D)}
+   */
+  void releaseTileGraphics(T tile, G gfx);
+
+  /**
+   * Draw the area of a rendered tile on the destination graphics, the margin
+   * must not be drawn. It is called only from the thread which has started
+   * rendering.
+   *
+   * @param destination the destination graphics context
+   * @param tile the rendered tile
+   * @param bounds the area of the tile with its margin in the coordinate space
+   * of the engine.
+   * @param area the area of the tile to be drawn in the coordinate space of
+   * the engine.
+   */
+  void compositeTile(G destination, T tile, HexRect2D bounds, HexRect2D area);
+}
@@ -0,0 +1,95 @@
+package com.igormaznitsa.jhexed.engine;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ChunkedByteHexModelTest {
+
+  private static byte[] makeRandomArray(final Random rnd, final int length) {
+    final byte[] result = new byte[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = rnd.nextInt(100) < 90 ? 0 : (byte) rnd.nextInt(256);
+    }
+    return result;
+  }
+
+  @Test
+  public void testLazyAllocationAndRelease() {
+    final ChunkedByteHexModel model = new ChunkedByteHexModel(100, 50, (byte) 0, (byte) -1, 16);
+    assertEquals(0, model.getOccupiedChunkNumber());
+    assertEquals(-1, model.getByte(100, 0));
+
+    model.setByte(99, 49, (byte) 3);
+    model.setByte(17, 1, (byte) 5);
+    assertEquals(2, model.getOccupiedChunkNumber());
+    assertTrue(model.isChunkOccupied(6, 3));
+    assertTrue(model.isChunkOccupied(1, 0));
+
+    model.setByte(99, 49, (byte) 0);
+    assertEquals(1, model.getOccupiedChunkNumber());
+    assertEquals(Byte.valueOf((byte) 5), model.getValueAt(17, 1));
+  }
+
+  @Test
+  public void testArrayRoundTripAndCopy() {
+    final Random rnd = new Random(1234L);
+    final byte[] array = makeRandomArray(rnd, 123 * 77);
+    final ChunkedByteHexModel model = new ChunkedByteHexModel(123, 77, (byte) 0, (byte) 0, 8);
+    model.loadArray(array);
+    assertArrayEquals(array, model.toArray());
+    for (int i = 0; i < array.length; i++) {
+      assertEquals(array[i], model.getByte(i % 123, i / 123));
+    }
+
+    final ChunkedByteHexModel copy = model.cloneModel();
+    assertEquals(model.getOccupiedChunkNumber(), copy.getOccupiedChunkNumber());
+    copy.setByte(5, 5, (byte) 77);
+    assertArrayEquals(array, model.toArray());
+    assertEquals(77, copy.getByte(5, 5));
+  }
+
+  @Test
+  public void testFill() {
+    final ChunkedByteHexModel model = new ChunkedByteHexModel(20, 10, (byte) 1, (byte) 0, 8);
+    model.fill((byte) 9);
+    assertEquals(6, model.getOccupiedChunkNumber());
+    for (final byte b : model.toArray()) {
+      assertEquals(9, b);
+    }
+    model.setByte(19, 9, (byte) 1);
+    assertEquals(1, model.getByte(19, 9));
+
+    model.fill((byte) 1);
+    assertEquals(0, model.getOccupiedChunkNumber());
+    assertEquals(1, model.getByte(19, 9));
+  }
+
+  @Test
+  public void testRemapValues() {
+    final Random rnd = new Random(4321L);
+    final byte[] array = makeRandomArray(rnd, 50 * 40);
+    final ChunkedByteHexModel model = new ChunkedByteHexModel(50, 40, (byte) 0, (byte) 0, 16);
+    model.loadArray(array);
+
+    final byte[] table = new byte[256];
+    for (int i = 0; i < 256; i++) {
+      table[i] = i < 128 ? (byte) (i + 1) : 0;
+    }
+    table[0] = 0;
+    model.remapValues(table);
+    for (int i = 0; i < array.length; i++) {
+      assertEquals(table[array[i] & 0xFF], model.getByte(i % 50, i / 50));
+    }
+
+    table[0] = 3;
+    model.remapValues(table);
+    assertEquals(model.getChunkColumnNumber() * model.getChunkRowNumber(), model.getOccupiedChunkNumber());
+
+    for (int i = 0; i < 256; i++) {
+      table[i] = 0;
+    }
+    model.remapValues(table);
+    assertEquals(0, model.getOccupiedChunkNumber());
+  }
+}
@@ -0,0 +1,107 @@
+package com.igormaznitsa.jhexed.engine;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ChunkedIntHexModelTest {
+
+  @Test
+  public void testLazyAllocationAndRelease() {
+    final ChunkedIntHexModel model = new ChunkedIntHexModel(100, 50, 0, -1, 16);
+    assertEquals(7, model.getChunkColumnNumber());
+    assertEquals(4, model.getChunkRowNumber());
+    assertEquals(0, model.getOccupiedChunkNumber());
+
+    model.setInt(5, 5, 0);
+    assertEquals(0, model.getOccupiedChunkNumber());
+
+    model.setInt(99, 49, 3);
+    model.setInt(98, 48, 4);
+    model.setInt(17, 1, 5);
+    assertEquals(2, model.getOccupiedChunkNumber());
+    assertTrue(model.isChunkOccupied(6, 3));
+    assertTrue(model.isChunkOccupied(1, 0));
+    assertFalse(model.isChunkOccupied(0, 0));
+
+    final long[] chunks = model.getOccupiedChunks(null);
+    assertEquals(2, chunks.length);
+    assertEquals(1, HexEngine.extractColumnLong(chunks[0]));
+    assertEquals(0, HexEngine.extractRowLong(chunks[0]));
+    assertEquals(6, HexEngine.extractColumnLong(chunks[1]));
+    assertEquals(3, HexEngine.extractRowLong(chunks[1]));
+
+    model.setInt(99, 49, 0);
+    assertEquals(2, model.getOccupiedChunkNumber());
+    model.setInt(98, 48, 0);
+    assertEquals(1, model.getOccupiedChunkNumber());
+    assertFalse(model.isChunkOccupied(6, 3));
+    assertEquals(5, model.getInt(17, 1));
+  }
+
+  @Test
+  public void testNonZeroDefaultAndOutbound() {
+    final ChunkedIntHexModel model = new ChunkedIntHexModel(10, 10, 7, -1, 4);
+    assertEquals(7, model.getInt(3, 3));
+    assertEquals(Integer.valueOf(7), model.getValueAt(9, 9));
+    assertEquals(-1, model.getInt(10, 0));
+
+    model.setInt(3, 3, 0);
+    assertEquals(0, model.getInt(3, 3));
+    assertEquals(7, model.getInt(2, 3));
+    assertEquals(1, model.getOccupiedChunkNumber());
+
+    model.setInt(3, 3, 7);
+    assertEquals(0, model.getOccupiedChunkNumber());
+  }
+
+  @Test
+  public void testSameAsDenseModel() {
+    final ChunkedIntHexModel sparse = new ChunkedIntHexModel(123, 77, 0, -1, 8);
+    final DefaultIntegerHexModel dense = new DefaultIntegerHexModel(123, 77, -1);
+    final Random rnd = new Random(777L);
+    for (int i = 0; i < 20000; i++) {
+      final int c = rnd.nextInt(130) - 3;
+      final int r = rnd.nextInt(80) - 2;
+      final int v = rnd.nextInt(4);
+      sparse.setInt(c, r, v);
+      dense.setInt(c, r, v);
+    }
+    for (int r = -1; r <= 77; r++) {
+      for (int c = -1; c <= 123; c++) {
+        assertEquals(dense.getInt(c, r), sparse.getInt(c, r));
+      }
+    }
+
+    sparse.clear();
+    assertEquals(0, sparse.getOccupiedChunkNumber());
+    assertEquals(0, sparse.getInt(50, 50));
+  }
+
+  @Test
+  public void testOccupiedChunksOfWideModel() {
+    final ChunkedIntHexModel model = new ChunkedIntHexModel(100000, 2, 0, -1, 1);
+    model.setInt(70000, 1, 5);
+    final long[] chunks = model.getOccupiedChunks(null);
+    assertEquals(1, chunks.length);
+    assertEquals(70000, HexEngine.extractColumnLong(chunks[0]));
+    assertEquals(1, HexEngine.extractRowLong(chunks[0]));
+  }
+
+  @Test
+  public void testArrayRoundTripAndCopy() {
+    final Random rnd = new Random(5678L);
+    final int[] array = new int[45 * 33];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = rnd.nextInt(10) < 8 ? 3 : rnd.nextInt();
+    }
+    final ChunkedIntHexModel model = new ChunkedIntHexModel(45, 33, 3, -1, 8);
+    model.loadArray(array);
+    assertArrayEquals(array, model.toArray());
+
+    final ChunkedIntHexModel copy = model.cloneModel();
+    copy.fill(3);
+    assertEquals(0, copy.getOccupiedChunkNumber());
+    assertArrayEquals(array, model.toArray());
+  }
+}
@@ -0,0 +1,38 @@
+package com.igormaznitsa.jhexed.engine;
+
+import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DefaultIntegerHexModelTest {
+
+  @Test
+  public void testPrimitiveAndObjectAccessAreConsistent() {
+    final DefaultIntegerHexModel model = new DefaultIntegerHexModel(7, 5, -3);
+
+    model.setInt(2, 3, 123);
+    model.setValueAt(new HexPosition(6, 4), 456);
+
+    assertEquals(123, model.getInt(2, 3));
+    assertEquals(Integer.valueOf(123), model.getValueAt(2, 3));
+    assertEquals(456, model.getInt(6, 4));
+    assertEquals(0, model.getInt(0, 0));
+  }
+
+  @Test
+  public void testOutboundValue() {
+    final DefaultIntegerHexModel model = new DefaultIntegerHexModel(7, 5, -3);
+
+    model.setInt(7, 0, 99);
+    model.setInt(-1, 0, 99);
+
+    assertEquals(-3, model.getInt(7, 0));
+    assertEquals(-3, model.getInt(0, -1));
+    assertEquals(Integer.valueOf(-3), model.getValueAt(0, 5));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullValueNotAllowed() {
+    new DefaultIntegerHexModel(2, 2, 0).setValueAt(0, 0, null);
+  }
+}
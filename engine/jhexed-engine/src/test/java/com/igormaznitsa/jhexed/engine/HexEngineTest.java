@@ -1,7 +1,15 @@
 package com.igormaznitsa.jhexed.engine;
 
 import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
 import com.igormaznitsa.jhexed.engine.misc.WidthHeightPair;
+import com.igormaznitsa.jhexed.engine.renders.HexEngineRender;
+import com.igormaznitsa.jhexed.engine.renders.HexTileGraphicsFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -90,6 +98,233 @@ public class HexEngineTest {
 
   }
   
+  private void assertPointsToHexes(final HexEngine<?> eng) {
+    final java.util.Random rnd = new java.util.Random(12345L);
+    final int count = 20000;
+    final float[] xs = new float[count];
+    final float[] ys = new float[count];
+    for (int i = 0; i < count; i++) {
+      xs[i] = rnd.nextFloat() * 1100.0f - 50.0f;
+      ys[i] = rnd.nextFloat() * 1100.0f - 50.0f;
+    }
+    final int[] packed = new int[count];
+    eng.pointsToHexes(xs, ys, packed, count);
+
+    for (int i = 0; i < count; i++) {
+      final int col = eng.calculateColumn(xs[i], ys[i]);
+      final int row = eng.calculateRow(xs[i], ys[i]);
+      assertEquals("Column for " + xs[i] + ',' + ys[i], col < 0 ? -1 : col, HexEngine.extractColumn(packed[i]));
+      assertEquals("Row for " + xs[i] + ',' + ys[i], row < 0 ? -1 : row, HexEngine.extractRow(packed[i]));
+      assertEquals(new HexPosition(col, row), eng.pointToHex(xs[i], ys[i]));
+    }
+  }
+
+  @Test
+  public void testPointsToHexes_Horizontal() {
+    final HexEngine<Object> eng = new HexEngine<Object>(32, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    assertPointsToHexes(eng);
+    eng.setScale(1.7f, 0.8f);
+    assertPointsToHexes(eng);
+  }
+
+  @Test
+  public void testPointsToHexes_Vertical() {
+    final HexEngine<Object> eng = new HexEngine<Object>(32, 16, HexEngine.ORIENTATION_VERTICAL);
+    assertPointsToHexes(eng);
+    eng.setScale(0.6f, 2.3f);
+    assertPointsToHexes(eng);
+  }
+
+  @Test
+  public void testPointsToHexes_OnlyCountProcessed() {
+    final HexEngine<Object> eng = new HexEngine<Object>(32, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    final int[] packed = new int[]{7, 7, 7};
+    eng.pointsToHexes(new float[]{16, 48, 16}, new float[]{8, 16, 24}, packed, 2);
+    assertPositions(packed, 0, 0, 1, 0, 0, 7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPointsToHexes_WrongCount() {
+    final HexEngine<Object> eng = new HexEngine<Object>(32, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    eng.pointsToHexes(new float[2], new float[2], new int[1], 2);
+  }
+
+  @Test
+  public void testReconfigurationKeepsScaleAndNotifiesListeners() {
+    final HexEngine<Object> eng = new HexEngine<Object>(32, 16, HexEngine.ORIENTATION_HORIZONTAL);
+    final int[] counters = new int[2];
+    eng.addHexLayerListener(new HexEngineListener() {
+      public void onScaleFactorChanged(final HexEngine<?> source, final float scaleX, final float scaleY) {
+        counters[0]++;
+      }
+
+      public void onRenderChanged(final HexEngine<?> source, final HexEngineRender<?> oldRender, final HexEngineRender<?> newRender) {
+      }
+
+      public void onModelChanged(final HexEngine<?> source, final HexEngineModel<?> oldModel, final HexEngineModel<?> newModel) {
+      }
+
+      public void onEngineReconfigured(final HexEngine<?> source) {
+        counters[1]++;
+        source.removeHexLayerListener(this);
+      }
+    });
+
+    eng.setScale(2.0f, 3.0f);
+    assertEquals(64.0f, eng.getScaledCellWidth(), 0.0f);
+    assertEquals(48.0f, eng.getScaledCellHeight(), 0.0f);
+
+    eng.changeEngineBaseParameters(20, 10, HexEngine.ORIENTATION_VERTICAL);
+    assertEquals(HexEngine.ORIENTATION_VERTICAL, eng.getOrientation());
+    assertEquals(2.0f, eng.getScaleX(), 0.0f);
+    assertEquals(3.0f, eng.getScaleY(), 0.0f);
+    assertEquals(40.0f, eng.getScaledCellWidth(), 0.0f);
+    assertEquals(30.0f, eng.getScaledCellHeight(), 0.0f);
+
+    eng.changeEngineBaseParameters(20, 10, HexEngine.ORIENTATION_HORIZONTAL);
+
+    assertEquals(1, counters[0]);
+    assertEquals(1, counters[1]);
+  }
+
+  private static final class RecordingRender implements HexEngineRender<Set<HexPosition>> {
+
+    public void renderHexCell(final HexEngine<Set<HexPosition>> engine, final Set<HexPosition> gfx, final float x, final float y, final int col, final int row) {
+      gfx.add(new HexPosition(col, row));
+    }
+
+    public void attachedToEngine(final HexEngine<?> engine) {
+    }
+
+    public void detachedFromEngine(final HexEngine<?> engine) {
+    }
+  }
+
+  private static final class RecordingTileFactory implements HexTileGraphicsFactory<Set<HexPosition>, Set<HexPosition>> {
+
+    private final AtomicInteger tiles = new AtomicInteger();
+
+    public Set<HexPosition> makeTile(final HexRect2D area) {
+      this.tiles.incrementAndGet();
+      return new HashSet<HexPosition>();
+    }
+
+    public Set<HexPosition> getTileGraphics(final Set<HexPosition> tile, final HexRect2D area) {
+      return tile;
+    }
+
+    public void releaseTileGraphics(final Set<HexPosition> tile, final Set<HexPosition> gfx) {
+    }
+
+    public void compositeTile(final Set<HexPosition> destination, final Set<HexPosition> tile, final HexRect2D bounds, final HexRect2D area) {
+      destination.addAll(tile);
+    }
+  }
+
+  private void assertTiledDrawArea(final int orientation, final boolean accurately) throws Exception {
+    final HexEngine<Set<HexPosition>> eng = new HexEngine<Set<HexPosition>>(32, 24, orientation);
+    eng.setModel(new DefaultIntegerHexModel(100, 100, 0));
+    eng.setRenderer(new RecordingRender());
+    eng.setScale(1.3f, 0.9f);
+
+    final HexRect2D rect = new HexRect2D(17.5f, 33.25f, 900.7f, 611.1f);
+
+    final Set<HexPosition> sequential = new HashSet<HexPosition>();
+    eng.drawArea(sequential, rect, accurately);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final RecordingTileFactory factory = new RecordingTileFactory();
+      final Set<HexPosition> tiled = new HashSet<HexPosition>();
+      eng.drawArea(tiled, rect, accurately, 128, executor, factory);
+      assertEquals(8 * 5, factory.tiles.get());
+      assertEquals(sequential, tiled);
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTiledDrawArea_Horizontal() throws Exception {
+    assertTiledDrawArea(HexEngine.ORIENTATION_HORIZONTAL, false);
+    assertTiledDrawArea(HexEngine.ORIENTATION_HORIZONTAL, true);
+  }
+
+  @Test
+  public void testTiledDrawArea_Vertical() throws Exception {
+    assertTiledDrawArea(HexEngine.ORIENTATION_VERTICAL, false);
+    assertTiledDrawArea(HexEngine.ORIENTATION_VERTICAL, true);
+  }
+
+  private void assertPositions(final long[] pos, final int... coords) {
+    final int pairs = coords.length / 2;
+
+    assertEquals(pos.length, pairs);
+
+    for (int i = 0; i < pairs; i++) {
+      final int col = coords[i * 2];
+      final int row = coords[i * 2 + 1];
+      assertEquals("Column [" + i + ']', col, HexEngine.extractColumnLong(pos[i]));
+      assertEquals("Row [" + i + ']', row, HexEngine.extractRowLong(pos[i]));
+    }
+  }
+
+  private void assertLongPackedSameAsPositions(final int orientation, final int col, final int row) {
+    final HexEngine<Object> eng = new HexEngine<Object>(20, 20, orientation);
+    for (int distance = 0; distance < 6; distance++) {
+      final HexPosition[] expected = eng.getNeighbourPositions(col, row, distance);
+      final long[] packed = eng.getPackedNeighbourPositionsLong(null, col, row, distance);
+      assertEquals(expected.length, packed.length);
+      for (int i = 0; i < expected.length; i++) {
+        assertEquals(expected[i].getColumn(), HexEngine.extractColumnLong(packed[i]));
+        assertEquals(expected[i].getRow(), HexEngine.extractRowLong(packed[i]));
+      }
+    }
+  }
+
+  @Test
+  public void testPackColumnRowLong() {
+    final int[] values = new int[]{0, 1, -1, 0xFFFF, 0x10000, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    for (final int c : values) {
+      for (final int r : values) {
+        final long packed = HexEngine.packColumnRowLong(c, r);
+        assertEquals(c, HexEngine.extractColumnLong(packed));
+        assertEquals(r, HexEngine.extractRowLong(packed));
+      }
+    }
+  }
+
+  @Test
+  public void testGetPackedLongClockwisePositionsAroundHex_Horizontal_4() {
+    final HexEngine<Object> eng = new HexEngine<Object>(20, 20, HexEngine.ORIENTATION_HORIZONTAL);
+    assertPositions(eng.getPackedNeighbourPositionsLong(null, 5, 6, 4), 5, 2, 6, 3, 7, 3, 8, 4, 9, 4, 9, 5, 9, 6, 9, 7, 9, 8, 8, 9, 7, 9, 6, 10, 5, 10, 4, 10, 3, 9, 2, 9, 1, 8, 1, 7, 1, 6, 1, 5, 1, 4, 2, 4, 3, 3, 4, 3);
+  }
+
+  @Test
+  public void testGetPackedLongPositions_BigAndNegativeCoordinates() {
+    assertLongPackedSameAsPositions(HexEngine.ORIENTATION_HORIZONTAL, 100001, 70000);
+    assertLongPackedSameAsPositions(HexEngine.ORIENTATION_HORIZONTAL, 0, 1);
+    assertLongPackedSameAsPositions(HexEngine.ORIENTATION_VERTICAL, 70000, 100001);
+    assertLongPackedSameAsPositions(HexEngine.ORIENTATION_VERTICAL, 1, 0);
+  }
+
+  @Test
+  public void testPointsToHexesLong() {
+    final HexEngine<Object> eng = new HexEngine<Object>(32, 16, HexEngine.ORIENTATION_VERTICAL);
+    eng.setModel(new DefaultIntegerHexModel(200000, 10, -1));
+    final float[] xs = new float[]{-5f, 3f, 32f * 70000.5f, 32f * 150000.25f};
+    final float[] ys = new float[]{4f, -2f, 7f, 30f};
+    final long[] packed = new long[xs.length];
+    eng.pointsToHexesLong(xs, ys, packed, xs.length);
+    for (int i = 0; i < xs.length; i++) {
+      assertEquals(eng.calculateColumn(xs[i], ys[i]), HexEngine.extractColumnLong(packed[i]));
+      assertEquals(eng.calculateRow(xs[i], ys[i]), HexEngine.extractRowLong(packed[i]));
+      assertEquals(packed[i], eng.pointToHexLong(xs[i], ys[i]));
+    }
+    assertTrue(HexEngine.extractColumnLong(packed[3]) > 0xFFFF);
+  }
+
   @Test
   public void testGetClockwisePositionsAroundHex_Horizontal_0() {
     final HexEngine<Object> eng = new HexEngine<Object>(20, 20, HexEngine.ORIENTATION_HORIZONTAL);
@@ -0,0 +1,113 @@
+package com.igormaznitsa.jhexed.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexModelChangeSupportTest {
+
+  private static final class Recorder implements HexEngineModelListener {
+
+    private final List<String> events = new ArrayList<String>();
+
+    @Override
+    public synchronized void onCellsChanged(final HexEngineModel<?> source, final int minCol, final int minRow, final int maxCol, final int maxRow) {
+      this.events.add(minCol + "," + minRow + "-" + maxCol + "," + maxRow);
+    }
+
+    @Override
+    public synchronized void onModelChanged(final HexEngineModel<?> source) {
+      this.events.add("all");
+    }
+  }
+
+  @Test
+  public void testSingleCellReportedImmediately() {
+    final HexModelChangeSupport support = new HexModelChangeSupport(new DefaultIntegerHexModel(10, 10, 0));
+    final Recorder recorder = new Recorder();
+    support.cellChanged(1, 1);
+    support.addListener(recorder);
+    support.addListener(recorder);
+    support.cellChanged(3, 4);
+    support.modelChanged();
+    assertEquals("[3,4-3,4, all]", recorder.events.toString());
+
+    support.removeListener(recorder);
+    assertFalse(support.hasListeners());
+    support.cellChanged(5, 5);
+    assertEquals(2, recorder.events.size());
+  }
+
+  @Test
+  public void testBatchReportsBoundingBoxOnce() {
+    final HexModelChangeSupport support = new HexModelChangeSupport(new DefaultIntegerHexModel(10, 10, 0));
+    final Recorder recorder = new Recorder();
+    support.addListener(recorder);
+
+    support.beginUpdate();
+    support.cellChanged(5, 6);
+    support.beginUpdate();
+    support.cellChanged(2, 8);
+    support.cellsChanged(4, 1, 7, 2);
+    support.endUpdate();
+    assertTrue(recorder.events.isEmpty());
+    support.endUpdate();
+    assertEquals("[2,1-7,8]", recorder.events.toString());
+
+    recorder.events.clear();
+    support.beginUpdate();
+    support.cellChanged(1, 1);
+    support.modelChanged();
+    support.cellChanged(2, 2);
+    support.endUpdate();
+    assertEquals("[all]", recorder.events.toString());
+
+    recorder.events.clear();
+    support.beginUpdate();
+    support.endUpdate();
+    assertTrue(recorder.events.isEmpty());
+  }
+
+  private static void runThreads(final HexModelChangeSupport support, final int threads, final int cells) throws InterruptedException {
+    final Thread[] started = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final int index = i;
+      started[i] = new Thread(new Runnable() {
+
+        @Override
+        public void run() {
+          for (int j = 0; j < cells; j++) {
+            support.cellChanged(index * cells + j, j % 7 + index);
+          }
+        }
+      });
+      started[i].start();
+    }
+    for (final Thread t : started) {
+      t.join();
+    }
+  }
+
+  @Test
+  public void testChangesFromSeveralThreads() throws Exception {
+    final HexModelChangeSupport support = new HexModelChangeSupport(new DefaultIntegerHexModel(10, 10, 0));
+    final Recorder recorder = new Recorder();
+    support.addListener(recorder);
+
+    support.beginUpdate();
+    runThreads(support, 4, 1000);
+    assertTrue(recorder.events.isEmpty());
+    support.endUpdate();
+    assertEquals("[0,0-3999,9]", recorder.events.toString());
+
+    recorder.events.clear();
+    runThreads(support, 4, 1000);
+    assertEquals(4000, recorder.events.size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEndWithoutBegin() {
+    new HexModelChangeSupport(new DefaultIntegerHexModel(1, 1, 0)).endUpdate();
+  }
+}
@@ -0,0 +1,111 @@
+package com.igormaznitsa.jhexed.engine;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MappedFileHexModelTest {
+
+  private File file;
+
+  @Before
+  public void before() throws IOException {
+    this.file = File.createTempFile("jhexed", ".map");
+    this.file.deleteOnExit();
+  }
+
+  @After
+  public void after() {
+    this.file.delete();
+  }
+
+  private void assertReadWrite(final int cellSize, final int maxValue) throws IOException {
+    final MappedFileHexModel model = new MappedFileHexModel(this.file, 33, 17, cellSize, -1, 64L);
+    try {
+      for (int r = 0; r < 17; r++) {
+        for (int c = 0; c < 33; c++) {
+          model.setInt(c, r, (c * 31 + r * 7) % maxValue);
+        }
+      }
+      for (int r = 0; r < 17; r++) {
+        for (int c = 0; c < 33; c++) {
+          assertEquals((c * 31 + r * 7) % maxValue, model.getInt(c, r));
+        }
+      }
+      model.setInt(32, 16, maxValue - 1);
+      assertEquals(maxValue - 1, model.getInt(32, 16));
+      assertEquals(Integer.valueOf(maxValue - 1), model.getValueAt(32, 16));
+    }
+    finally {
+      model.close();
+    }
+  }
+
+  @Test
+  public void testByteCells() throws IOException {
+    assertReadWrite(MappedFileHexModel.CELL_BYTE, 256);
+  }
+
+  @Test
+  public void testShortCells() throws IOException {
+    assertReadWrite(MappedFileHexModel.CELL_SHORT, 65536);
+  }
+
+  @Test
+  public void testIntCells() throws IOException {
+    final MappedFileHexModel model = new MappedFileHexModel(this.file, 10, 10, MappedFileHexModel.CELL_INT, -1, 16L);
+    try {
+      model.setInt(9, 9, Integer.MIN_VALUE);
+      model.setInt(0, 0, Integer.MAX_VALUE);
+      model.setInt(3, 4, -12345);
+      assertEquals(Integer.MIN_VALUE, model.getInt(9, 9));
+      assertEquals(Integer.MAX_VALUE, model.getInt(0, 0));
+      assertEquals(-12345, model.getInt(3, 4));
+    }
+    finally {
+      model.close();
+    }
+  }
+
+  @Test
+  public void testOutboundAndPersistence() throws IOException {
+    MappedFileHexModel model = new MappedFileHexModel(this.file, 5, 5, MappedFileHexModel.CELL_SHORT, -7);
+    try {
+      model.setInt(5, 0, 1);
+      model.setInt(2, 3, 1234);
+      assertEquals(-7, model.getInt(5, 0));
+      assertEquals(-7, model.getInt(0, -1));
+    }
+    finally {
+      model.close();
+    }
+    assertEquals(50L, this.file.length());
+
+    model = new MappedFileHexModel(this.file, 5, 5, MappedFileHexModel.CELL_SHORT, -7);
+    try {
+      assertEquals(1234, model.getInt(2, 3));
+    }
+    finally {
+      model.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooBigValueForByteCell() throws IOException {
+    final MappedFileHexModel model = new MappedFileHexModel(this.file, 5, 5, MappedFileHexModel.CELL_BYTE, 0);
+    try {
+      model.setInt(0, 0, 256);
+    }
+    finally {
+      model.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongSegmentSize() throws IOException {
+    new MappedFileHexModel(this.file, 5, 5, MappedFileHexModel.CELL_INT, 0, 100L);
+  }
+}
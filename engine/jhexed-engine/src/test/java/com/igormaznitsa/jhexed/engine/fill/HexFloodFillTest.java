@@ -0,0 +1,139 @@
+package com.igormaznitsa.jhexed.engine.fill;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexFloodFillTest {
+
+  private static final int BORDER = 1;
+  private static final int FILLED = 2;
+
+  private static class ModelTarget implements HexFillTarget {
+
+    private final DefaultIntegerHexModel model;
+    private int fillCalls;
+
+    public ModelTarget(final DefaultIntegerHexModel model) {
+      this.model = model;
+    }
+
+    @Override
+    public boolean isFillable(final int col, final int row) {
+      assertTrue(this.model.isPositionValid(col, row));
+      return this.model.getInt(col, row) == 0;
+    }
+
+    @Override
+    public void fill(final int col, final int row) {
+      assertEquals("Hexagon must be filled once", 0, this.model.getInt(col, row));
+      this.model.setInt(col, row, FILLED);
+      this.fillCalls++;
+    }
+  }
+
+  private static DefaultIntegerHexModel makeRandomModel(final long seed, final int columns, final int rows) {
+    final Random rnd = new Random(seed);
+    final DefaultIntegerHexModel result = new DefaultIntegerHexModel(columns, rows, -1);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        result.setInt(c, r, rnd.nextInt(100) < 35 ? BORDER : 0);
+      }
+    }
+    return result;
+  }
+
+  private static void naiveFill(final HexEngine<?> engine, final DefaultIntegerHexModel model, final int col, final int row) {
+    if (model.getInt(col, row) != 0) {
+      return;
+    }
+    final List<Integer> stack = new ArrayList<Integer>();
+    stack.add(HexEngine.packColumnRow(col, row));
+    model.setInt(col, row, FILLED);
+    while (!stack.isEmpty()) {
+      final int packed = stack.remove(stack.size() - 1);
+      for (final int n : engine.getPackedNeighbourPositions(null, HexEngine.extractColumn(packed), HexEngine.extractRow(packed), 1)) {
+        final int c = HexEngine.extractColumn(n);
+        final int r = HexEngine.extractRow(n);
+        if (model.isPositionValid(c, r) && model.getInt(c, r) == 0) {
+          model.setInt(c, r, FILLED);
+          stack.add(n);
+        }
+      }
+    }
+  }
+
+  private static int countFilled(final DefaultIntegerHexModel model) {
+    int result = 0;
+    for (int r = 0; r < model.getRowNumber(); r++) {
+      for (int c = 0; c < model.getColumnNumber(); c++) {
+        if (model.getInt(c, r) == FILLED) {
+          result++;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameAsNaiveFill(final int orientation) {
+    final HexFloodFill floodFill = new HexFloodFill();
+    final Random rnd = new Random(7654321L);
+
+    for (int i = 0; i < 200; i++) {
+      final int columns = 1 + rnd.nextInt(40);
+      final int rows = 1 + rnd.nextInt(40);
+      final long seed = rnd.nextLong();
+      final int col = rnd.nextInt(columns);
+      final int row = rnd.nextInt(rows);
+
+      final DefaultIntegerHexModel expected = makeRandomModel(seed, columns, rows);
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      engine.setModel(expected);
+      naiveFill(engine, expected, col, row);
+
+      final DefaultIntegerHexModel model = makeRandomModel(seed, columns, rows);
+      engine.setModel(model);
+      final ModelTarget target = new ModelTarget(model);
+      final int filled = floodFill.fill(engine, col, row, target);
+
+      assertEquals(countFilled(expected), filled);
+      assertEquals(filled, target.fillCalls);
+      for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < columns; c++) {
+          assertEquals("Cell " + c + ',' + r, expected.getInt(c, r), model.getInt(c, r));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFill_Horizontal() {
+    assertSameAsNaiveFill(HexEngine.ORIENTATION_HORIZONTAL);
+  }
+
+  @Test
+  public void testFill_Vertical() {
+    assertSameAsNaiveFill(HexEngine.ORIENTATION_VERTICAL);
+  }
+
+  @Test
+  public void testFill_OutOfFieldStart() {
+    final DefaultIntegerHexModel model = new DefaultIntegerHexModel(8, 8, -1);
+    assertEquals(0, new HexFloodFill().fill(HexEngine.ORIENTATION_HORIZONTAL, 8, 8, -1, 3, new ModelTarget(model)));
+    assertEquals(0, new HexFloodFill().fill(HexEngine.ORIENTATION_VERTICAL, 8, 8, 3, 8, new ModelTarget(model)));
+    assertEquals(0, countFilled(model));
+  }
+
+  @Test
+  public void testFill_WholeField() {
+    final DefaultIntegerHexModel model = new DefaultIntegerHexModel(300, 200, -1);
+    assertEquals(300 * 200, new HexFloodFill().fill(HexEngine.ORIENTATION_VERTICAL, 300, 200, 150, 100, new ModelTarget(model)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFill_WrongOrientation() {
+    new HexFloodFill().fill(5, 8, 8, 0, 0, new ModelTarget(new DefaultIntegerHexModel(8, 8, -1)));
+  }
+}
@@ -0,0 +1,158 @@
+package com.igormaznitsa.jhexed.engine.fov;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexFieldOfViewTest {
+
+  private static final int[] ORIENTATIONS = new int[]{HexEngine.ORIENTATION_HORIZONTAL, HexEngine.ORIENTATION_VERTICAL};
+
+  private static HexBlockingPredicate makePredicate(final DefaultIntegerHexModel model) {
+    return new HexBlockingPredicate() {
+
+      @Override
+      public boolean isBlocking(final int col, final int row) {
+        assertTrue(model.isPositionValid(col, row));
+        return model.getInt(col, row) != 0;
+      }
+    };
+  }
+
+  private static DefaultIntegerHexModel makeMap(final Random rnd, final int columns, final int rows, final int wallPercent) {
+    final DefaultIntegerHexModel result = new DefaultIntegerHexModel(columns, rows, 0);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        result.setInt(c, r, rnd.nextInt(100) < wallPercent ? 1 : 0);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testOpenFieldIsHexagonOfRadius() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      final DefaultIntegerHexModel model = makeMap(new Random(1L), 40, 40, 0);
+      engine.setModel(model);
+      final HexFieldOfView fov = new HexFieldOfView(engine);
+      final BitSet visible = new BitSet();
+
+      for (int radius = 0; radius < 10; radius++) {
+        assertEquals(3 * radius * (radius + 1) + 1, fov.calculate(19, 20, radius, makePredicate(model), visible));
+        assertEquals(3 * radius * (radius + 1) + 1, visible.cardinality());
+        for (final long packed : engine.getPackedRangePositionsLong(null, 19, 20, radius)) {
+          assertTrue(visible.get(HexEngine.extractRowLong(packed) * 40 + HexEngine.extractColumnLong(packed)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWallHidesHexagonBehind() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      for (int direction = 0; direction < 6; direction++) {
+        final DefaultIntegerHexModel model = makeMap(new Random(1L), 20, 20, 0);
+        engine.setModel(model);
+        final long wall = engine.getNearestNeighbourPositionLong(10, 10, direction);
+        final long behind = engine.getNearestNeighbourPositionLong(HexEngine.extractColumnLong(wall), HexEngine.extractRowLong(wall), direction);
+        model.setInt(HexEngine.extractColumnLong(wall), HexEngine.extractRowLong(wall), 1);
+
+        final BitSet visible = new BitSet();
+        new HexFieldOfView(engine).calculate(10, 10, 5, makePredicate(model), visible);
+        assertTrue(visible.get(10 * 20 + 10));
+        assertTrue(visible.get(HexEngine.extractRowLong(wall) * 20 + HexEngine.extractColumnLong(wall)));
+        assertFalse(visible.get(HexEngine.extractRowLong(behind) * 20 + HexEngine.extractColumnLong(behind)));
+      }
+    }
+  }
+
+  @Test
+  public void testViewerEnclosedByWalls() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_HORIZONTAL);
+    final DefaultIntegerHexModel model = makeMap(new Random(1L), 20, 20, 0);
+    engine.setModel(model);
+    for (final long packed : engine.getPackedNeighbourPositionsLong(null, 8, 9, 1)) {
+      model.setInt(HexEngine.extractColumnLong(packed), HexEngine.extractRowLong(packed), 1);
+    }
+    final BitSet visible = new BitSet();
+    assertEquals(7, new HexFieldOfView(engine).calculate(8, 9, 10, makePredicate(model), visible));
+  }
+
+  @Test
+  public void testSymmetry() {
+    final Random rnd = new Random(4321L);
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      final HexFieldOfView fov = new HexFieldOfView(engine);
+      for (int i = 0; i < 5; i++) {
+        final int columns = 10 + rnd.nextInt(15);
+        final int rows = 10 + rnd.nextInt(15);
+        final DefaultIntegerHexModel model = makeMap(rnd, columns, rows, 25);
+        engine.setModel(model);
+        final HexBlockingPredicate predicate = makePredicate(model);
+
+        final BitSet[] fields = new BitSet[columns * rows];
+        for (int r = 0; r < rows; r++) {
+          for (int c = 0; c < columns; c++) {
+            if (model.getInt(c, r) == 0) {
+              fields[r * columns + c] = new BitSet();
+              fov.calculate(c, r, 8, predicate, fields[r * columns + c]);
+            }
+          }
+        }
+        for (int a = 0; a < fields.length; a++) {
+          for (int b = 0; b < fields.length; b++) {
+            if (fields[a] != null && fields[b] != null) {
+              assertEquals("Symmetry " + a + " <-> " + b, fields[a].get(b), fields[b].get(a));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBatchEqualsSequential() throws Exception {
+    final Random rnd = new Random(99L);
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_VERTICAL);
+      final DefaultIntegerHexModel model = makeMap(rnd, 50, 40, 20);
+      engine.setModel(model);
+      final HexFieldOfView fov = new HexFieldOfView(engine);
+      final HexBlockingPredicate predicate = makePredicate(model);
+
+      final long[] viewers = new long[40];
+      for (int i = 0; i < viewers.length; i++) {
+        viewers[i] = HexEngine.packColumnRowLong(rnd.nextInt(60) - 5, rnd.nextInt(40));
+      }
+      final BitSet[] results = fov.calculate(viewers, viewers.length, 12, predicate, new BitSet[viewers.length], executor);
+
+      final BitSet expected = new BitSet();
+      for (int i = 0; i < viewers.length; i++) {
+        fov.calculate(HexEngine.extractColumnLong(viewers[i]), HexEngine.extractRowLong(viewers[i]), 12, predicate, expected);
+        assertEquals(expected, results[i]);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testViewerOutOfModel() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_HORIZONTAL);
+    engine.setModel(makeMap(new Random(1L), 10, 10, 0));
+    final BitSet visible = new BitSet();
+    visible.set(3);
+    assertEquals(0, new HexFieldOfView(engine).calculate(-1, 3, 5, makePredicate((DefaultIntegerHexModel) engine.getModel()), visible));
+    assertTrue(visible.isEmpty());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jhexed.engine.misc;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexAxialTest {
+
+  private static final int[] ORIENTATIONS = new int[]{HexEngine.ORIENTATION_HORIZONTAL, HexEngine.ORIENTATION_VERTICAL};
+
+  @Test
+  public void testOffsetAxialRoundTrip() {
+    for (final int orientation : ORIENTATIONS) {
+      for (int col = -7; col < 8; col++) {
+        for (int row = -7; row < 8; row++) {
+          final long offset = HexAxial.axialToOffset(orientation, HexAxial.offsetToAxial(orientation, col, row));
+          assertEquals(col, HexEngine.extractColumnLong(offset));
+          assertEquals(row, HexEngine.extractRowLong(offset));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNeighbourDirectionsSameAsEngine() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      for (int col = -2; col < 3; col++) {
+        for (int row = -2; row < 3; row++) {
+          for (int i = 0; i < 6; i++) {
+            final HexPosition expected = engine.getNearestNeighbourPosition(col, row, i);
+            final long packed = engine.getNearestNeighbourPositionLong(col, row, i);
+            assertEquals(expected.getColumn(), HexEngine.extractColumnLong(packed));
+            assertEquals(expected.getRow(), HexEngine.extractRowLong(packed));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDistanceOfRings() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      for (int distance = 1; distance < 8; distance++) {
+        for (final HexPosition p : engine.getNeighbourPositions(11, 12, distance)) {
+          assertEquals(distance, engine.calculateDistance(11, 12, p.getColumn(), p.getRow()));
+          assertEquals(distance, HexAxial.distance(orientation, p.getColumn(), p.getRow(), 11, 12));
+          assertEquals(distance, new HexPosition(11, 12).calcHexDistance(orientation, p));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRangeIsUnionOfRings() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      for (int distance = 0; distance < 6; distance++) {
+        final Set<HexPosition> expected = new HashSet<HexPosition>();
+        for (int d = 0; d <= distance; d++) {
+          for (final HexPosition p : engine.getNeighbourPositions(5, 7, d)) {
+            expected.add(p);
+          }
+        }
+
+        final long[] range = engine.getPackedRangePositionsLong(null, 5, 7, distance);
+        assertEquals(3 * distance * (distance + 1) + 1, range.length);
+        final Set<HexPosition> found = new HashSet<HexPosition>();
+        for (final long p : range) {
+          assertTrue(found.add(new HexPosition(HexEngine.extractColumnLong(p), HexEngine.extractRowLong(p))));
+        }
+        assertEquals(expected, found);
+      }
+    }
+  }
+
+  @Test
+  public void testLine() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      final long[] buffer = new long[64];
+      for (int col = -3; col < 12; col++) {
+        for (int row = -3; row < 12; row++) {
+          final int distance = engine.calculateDistance(4, 5, col, row);
+          final long[] line = engine.getPackedLinePositionsLong(buffer, 4, 5, col, row);
+          assertSame(buffer, line);
+
+          assertEquals(HexEngine.packColumnRowLong(4, 5), line[0]);
+          assertEquals(HexEngine.packColumnRowLong(col, row), line[distance]);
+          for (int i = 1; i <= distance; i++) {
+            assertEquals(1, engine.calculateDistance(HexEngine.extractColumnLong(line[i - 1]), HexEngine.extractRowLong(line[i - 1]), HexEngine.extractColumnLong(line[i]), HexEngine.extractRowLong(line[i])));
+            assertEquals(i, engine.calculateDistance(4, 5, HexEngine.extractColumnLong(line[i]), HexEngine.extractRowLong(line[i])));
+          }
+        }
+      }
+      assertEquals(1, HexAxial.line(orientation, 3, 3, 3, 3, null).length);
+    }
+  }
+
+  @Test
+  public void testRotateClockwise() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      for (int i = 0; i < 6; i++) {
+        final HexPosition neighbour = engine.getNearestNeighbourPosition(6, 3, i);
+        final HexPosition next = engine.getNearestNeighbourPosition(6, 3, (i + 1) % 6);
+        final long rotated = HexAxial.rotate(orientation, neighbour.getColumn(), neighbour.getRow(), 6, 3, 1);
+        assertEquals(next.getColumn(), HexEngine.extractColumnLong(rotated));
+        assertEquals(next.getRow(), HexEngine.extractRowLong(rotated));
+
+        final long back = HexAxial.rotate(orientation, next.getColumn(), next.getRow(), 6, 3, -1);
+        assertEquals(neighbour.getColumn(), HexEngine.extractColumnLong(back));
+        assertEquals(neighbour.getRow(), HexEngine.extractRowLong(back));
+      }
+
+      final long same = HexAxial.rotate(orientation, 9, 1, 6, 3, 6);
+      assertEquals(HexEngine.packColumnRowLong(9, 1), same);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jhexed.engine.misc;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexRangeCursorTest {
+
+  private static final int[] ORIENTATIONS = new int[]{HexEngine.ORIENTATION_HORIZONTAL, HexEngine.ORIENTATION_VERTICAL};
+
+  private static List<Long> collect(final HexRangeCursor cursor) {
+    final List<Long> result = new ArrayList<Long>();
+    while (cursor.next()) {
+      result.add(cursor.getPacked());
+      assertEquals(HexEngine.packColumnRowLong(cursor.getColumn(), cursor.getRow()), cursor.getPacked());
+    }
+    assertFalse(cursor.next());
+    return result;
+  }
+
+  private static List<Long> expectedRing(final HexEngine<?> engine, final int col, final int row, final int radius, final boolean clip) {
+    final List<Long> result = new ArrayList<Long>();
+    final long[] ring = radius == 0 ? new long[]{HexEngine.packColumnRowLong(col, row)} : engine.getPackedNeighbourPositionsLong(null, col, row, radius);
+    for (final long p : ring) {
+      if (!clip || engine.getModel().isPositionValid(HexEngine.extractColumnLong(p), HexEngine.extractRowLong(p))) {
+        result.add(p);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testRingAndSpiralOrder() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      engine.setModel(new DefaultIntegerHexModel(12, 9, 0));
+      final HexRangeCursor clipped = new HexRangeCursor(engine);
+      final HexRangeCursor free = new HexRangeCursor(orientation);
+
+      for (int col = -2; col < 14; col++) {
+        for (int row = -2; row < 11; row++) {
+          final List<Long> spiral = new ArrayList<Long>();
+          for (int radius = 0; radius < 6; radius++) {
+            assertEquals(expectedRing(engine, col, row, radius, true), collect(clipped.ring(col, row, radius)));
+            assertEquals(expectedRing(engine, col, row, radius, false), collect(free.ring(col, row, radius)));
+            spiral.addAll(expectedRing(engine, col, row, radius, true));
+            assertEquals(spiral, collect(clipped.spiral(col, row, radius)));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRangeIsClippedSpiral() {
+    for (final int orientation : ORIENTATIONS) {
+      final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+      engine.setModel(new DefaultIntegerHexModel(11, 8, 0));
+      final HexRangeCursor clipped = new HexRangeCursor(engine);
+      final HexRangeCursor free = new HexRangeCursor(orientation);
+
+      for (int col = -3; col < 14; col++) {
+        for (int row = -3; row < 11; row++) {
+          for (int radius = 0; radius < 7; radius++) {
+            final List<Long> range = collect(clipped.range(col, row, radius));
+            final Set<Long> rangeSet = new HashSet<Long>(range);
+            assertEquals(range.size(), rangeSet.size());
+            assertEquals(new HashSet<Long>(collect(clipped.spiral(col, row, radius))), rangeSet);
+
+            final List<Long> freeRange = collect(free.range(col, row, radius));
+            assertEquals(3 * radius * (radius + 1) + 1, freeRange.size());
+            for (final long p : freeRange) {
+              assertTrue(HexAxial.distance(orientation, col, row, HexEngine.extractColumnLong(p), HexEngine.extractRowLong(p)) <= radius);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStoppedByReconfiguration() {
+    final HexRangeCursor cursor = new HexRangeCursor(HexEngine.ORIENTATION_HORIZONTAL);
+    assertFalse(cursor.next());
+    cursor.spiral(5, 5, 3);
+    assertTrue(cursor.next());
+    cursor.setBounds(10, 10);
+    assertFalse(cursor.next());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeRadius() {
+    new HexRangeCursor(HexEngine.ORIENTATION_VERTICAL).ring(0, 0, -1);
+  }
+}
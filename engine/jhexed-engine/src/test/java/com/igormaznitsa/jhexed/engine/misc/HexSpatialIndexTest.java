@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jhexed.engine.misc;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexSpatialIndexTest {
+
+  private static final class Collector implements HexCellVisitor<Integer> {
+
+    private final Map<Long, Integer> visited = new HashMap<Long, Integer>();
+
+    @Override
+    public boolean visitCell(final int col, final int row, final Integer value) {
+      assertNull(this.visited.put(HexEngine.packColumnRowLong(col, row), value));
+      return true;
+    }
+  }
+
+  private static Map<Long, Integer> fill(final Random rnd, final HexSpatialIndex<Integer> index, final int number, final int side) {
+    final Map<Long, Integer> result = new HashMap<Long, Integer>();
+    index.clear();
+    for (int i = 0; i < number; i++) {
+      final int col = rnd.nextInt(side) - 5;
+      final int row = rnd.nextInt(side) - 5;
+      index.put(col, row, i);
+      result.put(HexEngine.packColumnRowLong(col, row), i);
+    }
+    return result;
+  }
+
+  @Test
+  public void testPutGetRemoveAgainstMap() {
+    final Random rnd = new Random(111L);
+    final HexSpatialIndex<Integer> index = new HexSpatialIndex<Integer>();
+    final Map<Long, Integer> etalon = new HashMap<Long, Integer>();
+
+    for (int i = 0; i < 200000; i++) {
+      final int col = rnd.nextInt(200) - 100;
+      final int row = rnd.nextInt(200) - 100;
+      final Long key = HexEngine.packColumnRowLong(col, row);
+      switch (rnd.nextInt(3)) {
+        case 0:
+          assertEquals(etalon.put(key, i), index.put(col, row, i));
+          break;
+        case 1:
+          assertEquals(etalon.remove(key), index.remove(col, row));
+          break;
+        default:
+          assertEquals(etalon.get(key), index.get(col, row));
+          assertEquals(etalon.containsKey(key), index.contains(col, row));
+          break;
+      }
+      assertEquals(etalon.size(), index.size());
+    }
+
+    final Collector all = new Collector();
+    assertTrue(index.visitAll(all));
+    assertEquals(etalon, all.visited);
+
+    index.clear();
+    assertTrue(index.isEmpty());
+    assertNull(index.get(0, 0));
+  }
+
+  @Test
+  public void testRectAndRangeQueries() {
+    final Random rnd = new Random(222L);
+    final HexSpatialIndex<Integer> index = new HexSpatialIndex<Integer>();
+
+    for (final int number : new int[]{3, 50, 3000}) {
+      final Map<Long, Integer> etalon = fill(rnd, index, number, 60);
+      for (int i = 0; i < 200; i++) {
+        final int minCol = rnd.nextInt(70) - 10;
+        final int minRow = rnd.nextInt(70) - 10;
+        final int maxCol = minCol + rnd.nextInt(30);
+        final int maxRow = minRow + rnd.nextInt(30);
+
+        final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        for (final Map.Entry<Long, Integer> e : etalon.entrySet()) {
+          final int c = HexEngine.extractColumnLong(e.getKey());
+          final int r = HexEngine.extractRowLong(e.getKey());
+          if (c >= minCol && c <= maxCol && r >= minRow && r <= maxRow) {
+            expected.put(e.getKey(), e.getValue());
+          }
+        }
+        final Collector rect = new Collector();
+        assertTrue(index.visitRect(minCol, minRow, maxCol, maxRow, rect));
+        assertEquals(expected, rect.visited);
+
+        for (final int orientation : new int[]{HexEngine.ORIENTATION_HORIZONTAL, HexEngine.ORIENTATION_VERTICAL}) {
+          final int radius = rnd.nextInt(25);
+          expected.clear();
+          for (final Map.Entry<Long, Integer> e : etalon.entrySet()) {
+            if (HexAxial.distance(orientation, minCol, minRow, HexEngine.extractColumnLong(e.getKey()), HexEngine.extractRowLong(e.getKey())) <= radius) {
+              expected.put(e.getKey(), e.getValue());
+            }
+          }
+          final Collector range = new Collector();
+          assertTrue(index.visitRange(orientation, minCol, minRow, radius, range));
+          assertEquals(expected, range.visited);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testVisibleQueryMatchesCoveredHexes() {
+    final Random rnd = new Random(333L);
+    final HexEngine<Object> engine = new HexEngine<Object>(20, 20, HexEngine.ORIENTATION_VERTICAL);
+    engine.setModel(new DefaultIntegerHexModel(100, 100, 0));
+    final HexSpatialIndex<Integer> index = new HexSpatialIndex<Integer>();
+
+    for (final int number : new int[]{10, 9000}) {
+      final Map<Long, Integer> etalon = fill(rnd, index, number, 100);
+      for (int i = 0; i < 50; i++) {
+        final HexRect2D rect = new HexRect2D(rnd.nextInt(1500), rnd.nextInt(1500), 50 + rnd.nextInt(300), 50 + rnd.nextInt(300));
+        final Set<Long> expected = new HashSet<Long>();
+        for (final HexPosition p : engine.getCoveredHexes(rect, true)) {
+          final Long key = HexEngine.packColumnRowLong(p.getColumn(), p.getRow());
+          if (etalon.containsKey(key)) {
+            expected.add(key);
+          }
+        }
+        final Collector visible = new Collector();
+        assertTrue(index.visitVisible(engine, rect, true, visible));
+        final Set<Long> found = new HashSet<Long>();
+        for (final Long key : visible.visited.keySet()) {
+          if (engine.getModel().isPositionValid(HexEngine.extractColumnLong(key), HexEngine.extractRowLong(key))) {
+            found.add(key);
+          }
+        }
+        assertEquals(expected, found);
+      }
+    }
+  }
+
+  @Test
+  public void testStopVisiting() {
+    final HexSpatialIndex<String> index = new HexSpatialIndex<String>(4);
+    for (int i = 0; i < 10; i++) {
+      index.put(i, i, "v" + i);
+    }
+    final int[] counter = new int[1];
+    assertFalse(index.visitAll(new HexCellVisitor<String>() {
+
+      @Override
+      public boolean visitCell(final int col, final int row, final String value) {
+        return ++counter[0] < 3;
+      }
+    }));
+    assertEquals(3, counter[0]);
+  }
+
+  @Test
+  public void testNestedRangeQueries() {
+    final HexSpatialIndex<Integer> index = new HexSpatialIndex<Integer>();
+    fill(new Random(333L), index, 2000, 50);
+
+    final Collector expected = new Collector();
+    assertTrue(index.visitRange(HexEngine.ORIENTATION_VERTICAL, 20, 20, 3, expected));
+
+    final Collector outer = new Collector();
+    assertTrue(index.visitRange(HexEngine.ORIENTATION_VERTICAL, 20, 20, 3, new HexCellVisitor<Integer>() {
+
+      @Override
+      public boolean visitCell(final int col, final int row, final Integer value) {
+        index.visitRange(HexEngine.ORIENTATION_HORIZONTAL, col, row, 2, new Collector());
+        return outer.visitCell(col, row, value);
+      }
+    }));
+    assertEquals(expected.visited, outer.visited);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullValue() {
+    new HexSpatialIndex<String>().put(1, 1, null);
+  }
+}
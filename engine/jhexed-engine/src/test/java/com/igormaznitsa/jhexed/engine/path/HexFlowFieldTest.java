@@ -0,0 +1,175 @@
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexFlowFieldTest {
+
+  private static HexCostFunction makeCost(final DefaultIntegerHexModel model) {
+    return new HexCostFunction() {
+
+      @Override
+      public float getCost(final int fromCol, final int fromRow, final int toCol, final int toRow) {
+        assertTrue(model.isPositionValid(toCol, toRow));
+        final int value = model.getInt(toCol, toRow);
+        return value == 0 ? Float.POSITIVE_INFINITY : value;
+      }
+    };
+  }
+
+  private static DefaultIntegerHexModel makeTerrain(final Random rnd, final int columns, final int rows) {
+    final DefaultIntegerHexModel result = new DefaultIntegerHexModel(columns, rows, 0);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        result.setInt(c, r, rnd.nextInt(100) < 20 ? 0 : 1 + rnd.nextInt(4));
+      }
+    }
+    return result;
+  }
+
+  private static long[] makeGoals(final Random rnd, final int columns, final int rows) {
+    final long[] result = new long[1 + rnd.nextInt(3)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = HexEngine.packColumnRowLong(rnd.nextInt(columns), rnd.nextInt(rows));
+    }
+    return result;
+  }
+
+  private static void assertFieldFollowable(final HexEngine<?> engine, final HexFlowField field, final HexCostFunction cost) {
+    final int columns = field.getColumnNumber();
+    final int rows = field.getRowNumber();
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        final int distance = field.getDistance(c, r);
+        if (distance == HexFlowField.UNREACHABLE || distance == 0) {
+          assertEquals(HexFlowField.NO_DIRECTION, field.getDirection(c, r));
+          continue;
+        }
+        int col = c;
+        int row = r;
+        int sum = 0;
+        while (field.getDistance(col, row) != 0) {
+          final int direction = field.getDirection(col, row);
+          assertTrue(direction >= 0 && direction < 6);
+          final long next = engine.getNearestNeighbourPositionLong(col, row, direction);
+          final int nextCol = HexEngine.extractColumnLong(next);
+          final int nextRow = HexEngine.extractRowLong(next);
+          sum += Math.round(cost.getCost(col, row, nextCol, nextRow));
+          col = nextCol;
+          row = nextRow;
+        }
+        assertEquals(distance, sum);
+      }
+    }
+  }
+
+  private static void assertDistancesOptimal(final int orientation) {
+    final Random rnd = new Random(3456L);
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+    final HexFlowField field = new HexFlowField(engine);
+    final HexPathFinder finder = new HexPathFinder(engine);
+
+    for (int i = 0; i < 30; i++) {
+      final int columns = 3 + rnd.nextInt(15);
+      final int rows = 3 + rnd.nextInt(15);
+      final DefaultIntegerHexModel model = makeTerrain(rnd, columns, rows);
+      engine.setModel(model);
+      final HexCostFunction cost = makeCost(model);
+      final long[] goals = makeGoals(rnd, columns, rows);
+
+      field.build(goals, goals.length, cost);
+
+      for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < columns; c++) {
+          finder.findReachable(c, r, Float.MAX_VALUE, cost);
+          float expected = Float.POSITIVE_INFINITY;
+          for (final long g : goals) {
+            expected = Math.min(expected, finder.getCost(HexEngine.extractColumnLong(g), HexEngine.extractRowLong(g)));
+          }
+          final int found = field.getDistance(c, r);
+          if (expected == Float.POSITIVE_INFINITY) {
+            assertEquals(HexFlowField.UNREACHABLE, found);
+          }
+          else {
+            assertEquals((int) expected, found);
+          }
+        }
+      }
+      assertFieldFollowable(engine, field, cost);
+    }
+  }
+
+  @Test
+  public void testDistances_Horizontal() {
+    assertDistancesOptimal(HexEngine.ORIENTATION_HORIZONTAL);
+  }
+
+  @Test
+  public void testDistances_Vertical() {
+    assertDistancesOptimal(HexEngine.ORIENTATION_VERTICAL);
+  }
+
+  @Test
+  public void testParallelBuildEqualsSequential() throws Exception {
+    final Random rnd = new Random(777L);
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (final int orientation : new int[]{HexEngine.ORIENTATION_HORIZONTAL, HexEngine.ORIENTATION_VERTICAL}) {
+        final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+        final HexFlowField sequential = new HexFlowField(engine);
+        final HexFlowField parallel = new HexFlowField(engine);
+        for (int i = 0; i < 20; i++) {
+          final int columns = 5 + rnd.nextInt(60);
+          final int rows = 5 + rnd.nextInt(60);
+          final DefaultIntegerHexModel model = makeTerrain(rnd, columns, rows);
+          engine.setModel(model);
+          final HexCostFunction cost = makeCost(model);
+          final long[] goals = makeGoals(rnd, columns, rows);
+
+          sequential.build(goals, goals.length, cost);
+          parallel.build(goals, goals.length, cost, 2 + rnd.nextInt(12), executor);
+
+          assertArrayEquals(sequential.getDistances(), parallel.getDistances());
+          assertArrayEquals(sequential.getDirections(), parallel.getDirections());
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBuffersReusedAndNoGoals() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_HORIZONTAL);
+    final DefaultIntegerHexModel model = new DefaultIntegerHexModel(8, 6, 0);
+    for (int r = 0; r < 6; r++) {
+      for (int c = 0; c < 8; c++) {
+        model.setInt(c, r, 1);
+      }
+    }
+    engine.setModel(model);
+    final HexFlowField field = new HexFlowField(engine);
+    final HexCostFunction cost = makeCost(model);
+
+    field.build(new long[]{HexEngine.packColumnRowLong(3, 3), HexEngine.packColumnRowLong(100, 3)}, 2, cost);
+    final int[] distances = field.getDistances();
+    assertEquals(0, field.getDistance(3, 3));
+    assertEquals(1, field.getDistance(3, 2));
+    assertEquals(HexFlowField.UNREACHABLE, field.getDistance(-1, 2));
+
+    field.build(new long[0], 0, cost);
+    assertSame(distances, field.getDistances());
+    for (final int d : field.getDistances()) {
+      assertEquals(HexFlowField.UNREACHABLE, d);
+    }
+    for (final byte d : field.getDirections()) {
+      assertEquals(HexFlowField.NO_DIRECTION, d);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.HexEngineModelListener;
+import com.igormaznitsa.jhexed.engine.HexModelChangeSupport;
+import com.igormaznitsa.jhexed.engine.IntHexEngineModel;
+import com.igormaznitsa.jhexed.engine.ObservableHexEngineModel;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexHierarchicalPathFinderTest {
+
+  private static final class ObservableModel extends DefaultIntegerHexModel implements ObservableHexEngineModel<Integer> {
+
+    private final HexModelChangeSupport changeSupport = new HexModelChangeSupport(this);
+
+    private ObservableModel(final int columns, final int rows) {
+      super(columns, rows, 0);
+    }
+
+    @Override
+    public void setInt(final int col, final int row, final int value) {
+      super.setInt(col, row, value);
+      this.changeSupport.cellChanged(col, row);
+    }
+
+    @Override
+    public void addHexEngineModelListener(final HexEngineModelListener listener) {
+      this.changeSupport.addListener(listener);
+    }
+
+    @Override
+    public void removeHexEngineModelListener(final HexEngineModelListener listener) {
+      this.changeSupport.removeListener(listener);
+    }
+  }
+
+  private static HexCostFunction makeCost(final HexEngine<?> engine) {
+    return new HexCostFunction() {
+
+      @Override
+      public float getCost(final int fromCol, final int fromRow, final int toCol, final int toRow) {
+        final int value = (Integer) engine.getModel().getValueAt(toCol, toRow);
+        return value == 0 ? Float.POSITIVE_INFINITY : value;
+      }
+    };
+  }
+
+  private static void fillTerrain(final Random rnd, final HexEngineModel<Integer> model, final int wallPercent) {
+    for (int r = 0; r < model.getRowNumber(); r++) {
+      for (int c = 0; c < model.getColumnNumber(); c++) {
+        model.setValueAt(c, r, rnd.nextInt(100) < wallPercent ? 0 : 1 + rnd.nextInt(3));
+      }
+    }
+  }
+
+  private static void assertPath(final HexEngine<?> engine, final HexCostFunction cost, final HexHierarchicalPathFinder finder, final float pathCost, final int startCol, final int startRow, final int goalCol, final int goalRow) {
+    final long[] path = finder.getPath(null);
+    assertEquals(finder.getPathLength(), path.length);
+    assertEquals(HexEngine.packColumnRowLong(startCol, startRow), path[0]);
+    assertEquals(HexEngine.packColumnRowLong(goalCol, goalRow), path[path.length - 1]);
+    float sum = 0.0f;
+    for (int i = 1; i < path.length; i++) {
+      final int pc = HexEngine.extractColumnLong(path[i - 1]);
+      final int pr = HexEngine.extractRowLong(path[i - 1]);
+      final int c = HexEngine.extractColumnLong(path[i]);
+      final int r = HexEngine.extractRowLong(path[i]);
+      assertEquals(1, engine.calculateDistance(pc, pr, c, r));
+      sum += cost.getCost(pc, pr, c, r);
+    }
+    assertEquals(pathCost, sum, 0.0f);
+  }
+
+  private static void assertSameReachabilityAsDijkstra(final int orientation) {
+    final Random rnd = new Random(13579L);
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+    final HexCostFunction cost = makeCost(engine);
+    final HexPathFinder exact = new HexPathFinder(engine);
+
+    for (int i = 0; i < 60; i++) {
+      final DefaultIntegerHexModel model = new DefaultIntegerHexModel(10 + rnd.nextInt(60), 10 + rnd.nextInt(60), 0);
+      fillTerrain(rnd, model, rnd.nextInt(35));
+      engine.setModel(model);
+      final HexHierarchicalPathFinder finder = new HexHierarchicalPathFinder(engine, cost, 3 + rnd.nextInt(10));
+
+      for (int q = 0; q < 20; q++) {
+        final int startCol = rnd.nextInt(model.getColumnNumber());
+        final int startRow = rnd.nextInt(model.getRowNumber());
+        final int goalCol = rnd.nextInt(model.getColumnNumber());
+        final int goalRow = rnd.nextInt(model.getRowNumber());
+
+        final float expected = exact.findPath(startCol, startRow, goalCol, goalRow, cost);
+        final float found = finder.findPath(startCol, startRow, goalCol, goalRow);
+
+        if (expected == Float.POSITIVE_INFINITY) {
+          assertEquals(Float.POSITIVE_INFINITY, found, 0.0f);
+          assertEquals(0, finder.getPathLength());
+        }
+        else {
+          assertTrue("Path must be found", found != Float.POSITIVE_INFINITY);
+          assertTrue(found >= expected);
+          assertPath(engine, cost, finder, found, startCol, startRow, goalCol, goalRow);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSameReachabilityAsDijkstra_Horizontal() {
+    assertSameReachabilityAsDijkstra(HexEngine.ORIENTATION_HORIZONTAL);
+  }
+
+  @Test
+  public void testSameReachabilityAsDijkstra_Vertical() {
+    assertSameReachabilityAsDijkstra(HexEngine.ORIENTATION_VERTICAL);
+  }
+
+  @Test
+  public void testIncrementalUpdateThroughTrackedModel() {
+    final Random rnd = new Random(2468L);
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_HORIZONTAL);
+    final HexCostFunction cost = makeCost(engine);
+    final DefaultIntegerHexModel base = new DefaultIntegerHexModel(64, 48, 0);
+    fillTerrain(rnd, base, 20);
+
+    final HexHierarchicalPathFinder finder = new HexHierarchicalPathFinder(engine, cost, 8);
+    final HexEngineModel<Integer> tracked = finder.track(base);
+    engine.setModel(tracked);
+    finder.prebuild();
+    final int entrances = finder.getEntranceNumber();
+    assertTrue(entrances > 0);
+
+    for (int i = 0; i < 200; i++) {
+      tracked.setValueAt(rnd.nextInt(64), rnd.nextInt(48), rnd.nextInt(4));
+
+      final int startCol = rnd.nextInt(64);
+      final int startRow = rnd.nextInt(48);
+      final int goalCol = rnd.nextInt(64);
+      final int goalRow = rnd.nextInt(48);
+
+      final HexHierarchicalPathFinder fresh = new HexHierarchicalPathFinder(engine, cost, 8);
+      final float expected = fresh.findPath(startCol, startRow, goalCol, goalRow);
+      assertEquals(expected, finder.findPath(startCol, startRow, goalCol, goalRow), 0.0f);
+    }
+  }
+
+  @Test
+  public void testObservableModelIsTrackedThroughListener() {
+    final Random rnd = new Random(97531L);
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_VERTICAL);
+    final HexCostFunction cost = makeCost(engine);
+    final ObservableModel model = new ObservableModel(64, 48);
+    fillTerrain(rnd, model, 20);
+
+    final HexHierarchicalPathFinder finder = new HexHierarchicalPathFinder(engine, cost, 8);
+    assertSame(model, finder.track(model));
+    engine.setModel(model);
+    finder.prebuild();
+
+    for (int i = 0; i < 200; i++) {
+      if ((i & 7) == 0) {
+        model.changeSupport.beginUpdate();
+        for (int j = 0; j < 20; j++) {
+          model.setInt(rnd.nextInt(64), rnd.nextInt(48), rnd.nextInt(4));
+        }
+        model.changeSupport.endUpdate();
+      }
+      else {
+        model.setInt(rnd.nextInt(64), rnd.nextInt(48), rnd.nextInt(4));
+      }
+
+      final int startCol = rnd.nextInt(64);
+      final int startRow = rnd.nextInt(48);
+      final int goalCol = rnd.nextInt(64);
+      final int goalRow = rnd.nextInt(48);
+
+      final HexHierarchicalPathFinder fresh = new HexHierarchicalPathFinder(engine, cost, 8);
+      final float expected = fresh.findPath(startCol, startRow, goalCol, goalRow);
+      assertEquals(expected, finder.findPath(startCol, startRow, goalCol, goalRow), 0.0f);
+    }
+
+    finder.untrack(model);
+    assertFalse(model.changeSupport.hasListeners());
+  }
+
+  @Test
+  public void testTrackedModelKeepsPrimitiveAccess() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_VERTICAL);
+    final DefaultIntegerHexModel base = new DefaultIntegerHexModel(40, 10, 0);
+    for (int c = 0; c < 40; c++) {
+      base.setInt(c, 5, 1);
+    }
+    final HexHierarchicalPathFinder finder = new HexHierarchicalPathFinder(engine, makeCost(engine), 8);
+    final HexEngineModel<Integer> tracked = finder.track(base);
+    assertTrue(tracked instanceof IntHexEngineModel);
+    engine.setModel(tracked);
+
+    assertEquals(39.0f, finder.findPath(0, 5, 39, 5), 0.0f);
+    ((IntHexEngineModel) tracked).setInt(20, 5, 0);
+    assertEquals(0, ((IntHexEngineModel) tracked).getInt(20, 5));
+    assertEquals(Float.POSITIVE_INFINITY, finder.findPath(0, 5, 39, 5), 0.0f);
+  }
+
+  @Test
+  public void testStraightRoadIsOptimal() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_VERTICAL);
+    final DefaultIntegerHexModel model = new DefaultIntegerHexModel(200, 10, 0);
+    for (int c = 0; c < 200; c++) {
+      model.setInt(c, 5, 1);
+    }
+    engine.setModel(model);
+    final HexHierarchicalPathFinder finder = new HexHierarchicalPathFinder(engine, makeCost(engine), 16);
+    assertEquals(199.0f, finder.findPath(0, 5, 199, 5), 0.0f);
+    assertEquals(200, finder.getPathLength());
+    assertEquals(0.0f, finder.findPath(7, 5, 7, 5), 0.0f);
+    assertEquals(1, finder.getPathLength());
+    assertEquals(Float.POSITIVE_INFINITY, finder.findPath(0, 5, 0, 4), 0.0f);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongClusterSize() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_VERTICAL);
+    new HexHierarchicalPathFinder(engine, makeCost(engine), 1);
+  }
+}
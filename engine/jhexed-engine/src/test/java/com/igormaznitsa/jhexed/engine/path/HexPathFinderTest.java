@@ -0,0 +1,134 @@
+package com.igormaznitsa.jhexed.engine.path;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexPathFinderTest {
+
+  private static HexCostFunction makeCost(final DefaultIntegerHexModel model) {
+    return new HexCostFunction() {
+
+      @Override
+      public float getCost(final int fromCol, final int fromRow, final int toCol, final int toRow) {
+        assertTrue(model.isPositionValid(toCol, toRow));
+        final int value = model.getInt(toCol, toRow);
+        return value == 0 ? Float.POSITIVE_INFINITY : value;
+      }
+    };
+  }
+
+  private static DefaultIntegerHexModel makeTerrain(final Random rnd, final int columns, final int rows) {
+    final DefaultIntegerHexModel result = new DefaultIntegerHexModel(columns, rows, 0);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        result.setInt(c, r, rnd.nextInt(100) < 20 ? 0 : 1 + rnd.nextInt(4));
+      }
+    }
+    return result;
+  }
+
+  private static void assertPathsOptimal(final int orientation) {
+    final Random rnd = new Random(9876L);
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, orientation);
+    final HexPathFinder astar = new HexPathFinder(engine);
+    final HexPathFinder dijkstra = new HexPathFinder(engine);
+    long[] path = null;
+
+    for (int i = 0; i < 100; i++) {
+      final int columns = 5 + rnd.nextInt(40);
+      final int rows = 5 + rnd.nextInt(40);
+      final DefaultIntegerHexModel model = makeTerrain(rnd, columns, rows);
+      engine.setModel(model);
+      final HexCostFunction cost = makeCost(model);
+
+      final int startCol = rnd.nextInt(columns);
+      final int startRow = rnd.nextInt(rows);
+      final int goalCol = rnd.nextInt(columns);
+      final int goalRow = rnd.nextInt(rows);
+
+      dijkstra.findReachable(startCol, startRow, Float.MAX_VALUE, cost);
+      final float expected = dijkstra.getCost(goalCol, goalRow);
+      final float found = astar.findPath(startCol, startRow, goalCol, goalRow, cost);
+
+      assertEquals(expected, found, 0.0f);
+      if (found == Float.POSITIVE_INFINITY) {
+        assertEquals(0, astar.getPathLength());
+      }
+      else {
+        path = astar.getPath(path);
+        assertEquals(HexEngine.packColumnRowLong(startCol, startRow), path[0]);
+        assertEquals(HexEngine.packColumnRowLong(goalCol, goalRow), path[astar.getPathLength() - 1]);
+        float sum = 0.0f;
+        for (int p = 1; p < astar.getPathLength(); p++) {
+          final int pc = HexEngine.extractColumnLong(path[p - 1]);
+          final int pr = HexEngine.extractRowLong(path[p - 1]);
+          final int c = HexEngine.extractColumnLong(path[p]);
+          final int r = HexEngine.extractRowLong(path[p]);
+          assertEquals(1, engine.calculateDistance(pc, pr, c, r));
+          sum += cost.getCost(pc, pr, c, r);
+        }
+        assertEquals(found, sum, 0.0f);
+      }
+    }
+  }
+
+  @Test
+  public void testAStarSameAsDijkstra_Horizontal() {
+    assertPathsOptimal(HexEngine.ORIENTATION_HORIZONTAL);
+  }
+
+  @Test
+  public void testAStarSameAsDijkstra_Vertical() {
+    assertPathsOptimal(HexEngine.ORIENTATION_VERTICAL);
+  }
+
+  @Test
+  public void testOpenFieldPathIsStraight() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_VERTICAL);
+    engine.setModel(new DefaultIntegerHexModel(50, 50, -1));
+    final HexPathFinder finder = new HexPathFinder(engine);
+    final HexCostFunction one = new HexCostFunction() {
+
+      @Override
+      public float getCost(final int fromCol, final int fromRow, final int toCol, final int toRow) {
+        return 1.0f;
+      }
+    };
+
+    assertEquals(engine.calculateDistance(3, 4, 40, 31), finder.findPath(3, 4, 40, 31, one), 0.0f);
+    assertEquals(engine.calculateDistance(3, 4, 40, 31) + 1, finder.getPathLength());
+
+    assertEquals(0.0f, finder.findPath(7, 7, 7, 7, one), 0.0f);
+    assertEquals(1, finder.getPathLength());
+
+    assertEquals(Float.POSITIVE_INFINITY, finder.findPath(7, 7, 50, 7, one), 0.0f);
+    assertEquals(0, finder.getPathLength());
+  }
+
+  @Test
+  public void testReachableWithLimitedCost() {
+    final HexEngine<Object> engine = new HexEngine<Object>(10, 10, HexEngine.ORIENTATION_HORIZONTAL);
+    engine.setModel(new DefaultIntegerHexModel(30, 30, -1));
+    final HexPathFinder finder = new HexPathFinder(engine);
+    final HexCostFunction two = new HexCostFunction() {
+
+      @Override
+      public float getCost(final int fromCol, final int fromRow, final int toCol, final int toRow) {
+        return 2.0f;
+      }
+    };
+
+    assertEquals(3 * 3 * 4 + 1, finder.findReachable(15, 15, 7.0f, two));
+    final long[] reached = finder.getReached(null);
+    for (int i = 0; i < finder.getReachedNumber(); i++) {
+      final int c = HexEngine.extractColumnLong(reached[i]);
+      final int r = HexEngine.extractRowLong(reached[i]);
+      assertTrue(engine.calculateDistance(15, 15, c, r) <= 3);
+      assertEquals(2.0f * engine.calculateDistance(15, 15, c, r), finder.getCost(c, r), 0.0f);
+    }
+    assertEquals(Float.POSITIVE_INFINITY, finder.getCost(15, 19), 0.0f);
+  }
+}
@@ -0,0 +1,58 @@
+package com.igormaznitsa.jhexed.engine.path;
+
+import java.util.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntBinaryHeapTest {
+
+  @Test
+  public void testPollOrderWithUpdates() {
+    final Random rnd = new Random(123L);
+    final IntBinaryHeap heap = new IntBinaryHeap(500);
+    final Map<Integer, Float> expected = new HashMap<Integer, Float>();
+
+    for (int i = 0; i < 5000; i++) {
+      final int key = rnd.nextInt(500);
+      final float priority = rnd.nextFloat() * 100.0f;
+      heap.addOrUpdate(key, priority);
+      expected.put(key, priority);
+      assertTrue(heap.contains(key));
+      assertEquals(priority, heap.getPriority(key), 0.0f);
+      assertEquals(expected.size(), heap.size());
+    }
+
+    float last = -1.0f;
+    while (!heap.isEmpty()) {
+      final int key = heap.poll();
+      final float priority = expected.remove(key);
+      assertTrue(priority >= last);
+      assertFalse(heap.contains(key));
+      last = priority;
+    }
+    assertTrue(expected.isEmpty());
+  }
+
+  @Test
+  public void testClearAndReuse() {
+    final IntBinaryHeap heap = new IntBinaryHeap(10);
+    heap.addOrUpdate(3, 1.0f);
+    heap.addOrUpdate(7, 0.5f);
+    heap.clear();
+    assertTrue(heap.isEmpty());
+    assertFalse(heap.contains(3));
+    assertFalse(heap.contains(7));
+
+    heap.addOrUpdate(7, 2.0f);
+    heap.addOrUpdate(3, 3.0f);
+    heap.addOrUpdate(3, 1.0f);
+    assertEquals(3, heap.peek());
+    assertEquals(3, heap.poll());
+    assertEquals(7, heap.poll());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPollEmpty() {
+    new IntBinaryHeap(1).poll();
+  }
+}
@@ -15,7 +15,9 @@
  */
 package com.igormaznitsa.jhexed.swing.editor.model;
 
+import com.igormaznitsa.jhexed.engine.misc.HexCellVisitor;
 import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.engine.misc.HexSpatialIndex;
 import java.io.*;
 import java.util.*;
 import java.util.Map.Entry;
@@ -26,7 +28,7 @@ import java.util.Map.Entry;
  */
 public class DocumentCellComments {
 
-  private final Map<HexPosition, String> storage = new HashMap<HexPosition, String>();
+  private final HexSpatialIndex<String> storage = new HexSpatialIndex<String>();
 
   public DocumentCellComments() {
 
@@ -38,7 +40,24 @@ public class DocumentCellComments {
   }
 
   public Iterator<Entry<HexPosition, String>> iterator() {
-    return this.storage.entrySet().iterator();
+    final List<Entry<HexPosition, String>> result = new ArrayList<Entry<HexPosition, String>>(this.storage.size());
+    this.storage.visitAll(new HexCellVisitor<String>() {
+
+      @Override
+      public boolean visitCell(final int col, final int row, final String value) {
+        result.add(new AbstractMap.SimpleImmutableEntry<HexPosition, String>(new HexPosition(col, row), value));
+        return true;
+      }
+    });
+    return result.iterator();
+  }
+
+  public boolean visit(final HexCellVisitor<String> visitor) {
+    return this.storage.visitAll(visitor);
+  }
+
+  public boolean visitRect(final int minCol, final int minRow, final int maxCol, final int maxRow, final HexCellVisitor<String> visitor) {
+    return this.storage.visitRect(minCol, minRow, maxCol, maxRow, visitor);
   }
 
   public void clear() {
@@ -48,18 +67,22 @@ public class DocumentCellComments {
   public String getForHex(final HexPosition position) {
     String result = null;
     if (position != null) {
-      result = this.storage.get(position);
+      result = this.storage.get(position.getColumn(), position.getRow());
     }
     return result;
   }
 
+  public String getForHex(final int col, final int row) {
+    return this.storage.get(col, row);
+  }
+
   public void setForHex(final HexPosition position, final String comment) {
     if (position != null) {
       if (comment == null || comment.isEmpty()) {
-        this.storage.remove(position);
+        this.storage.remove(position.getColumn(), position.getRow());
       }
       else {
-        this.storage.put(position, comment);
+        this.storage.put(position.getColumn(), position.getRow(), comment);
       }
     }
   }
@@ -71,7 +94,7 @@ public class DocumentCellComments {
     for(int i=0;i<number;i++){
       final long packed = inStream.readLong();
       final String text = inStream.readUTF();
-      this.storage.put(new HexPosition((int)packed, (int)(packed>>>32)), text);
+      this.storage.put((int)packed, (int)(packed>>>32), text);
     }
   }
 
@@ -80,10 +103,25 @@ public class DocumentCellComments {
     final DataOutputStream out = new DataOutputStream(buffer);
     
     out.writeInt(this.storage.size());
-    for(final Entry<HexPosition,String> item : this.storage.entrySet()){
-      final long packed = ((long)item.getKey().getRow()<<32)|((long)item.getKey().getColumn() & 0xFFFFFFFFL);
-      out.writeLong(packed);
-      out.writeUTF(item.getValue());
+    final IOException[] error = new IOException[1];
+    this.storage.visitAll(new HexCellVisitor<String>() {
+
+      @Override
+      public boolean visitCell(final int col, final int row, final String value) {
+        try {
+          final long packed = ((long) row << 32) | ((long) col & 0xFFFFFFFFL);
+          out.writeLong(packed);
+          out.writeUTF(value);
+          return true;
+        }
+        catch (IOException ex) {
+          error[0] = ex;
+          return false;
+        }
+      }
+    });
+    if (error[0] != null) {
+      throw error[0];
     }
     
     out.flush();
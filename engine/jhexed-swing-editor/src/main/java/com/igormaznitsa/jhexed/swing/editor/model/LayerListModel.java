@@ -28,7 +28,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.swing.ListModel;
 import javax.swing.event.*;
 
-public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineModel<LayerListModel>, LayerableHexValueSource {
+public class LayerListModel implements ListModel<LayerRecordPanel>, ObservableHexEngineModel<LayerListModel>, HexEngineModelListener, LayerableHexValueSource {
 
   private final List<LayerRecordPanel> layers = new ArrayList<LayerRecordPanel>();
   private final List<ListDataListener> listeners = new ArrayList<ListDataListener>();
@@ -43,6 +43,17 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
 
   private final ReentrantLock locker = new ReentrantLock();
 
+  private int undoDepth = HexFieldLayer.DEFAULT_UNDO_DEPTH;
+
+  private final HexModelChangeSupport changeSupport = new HexModelChangeSupport(this);
+
+  private final ThreadLocal<HexIterator> stackIterator = new ThreadLocal<HexIterator>() {
+    @Override
+    protected HexIterator initialValue() {
+      return new HexIterator(LayerListModel.this, 0, 0);
+    }
+  };
+
   public LayerListModel(final int cols, final int rows) {
     this.initCols = cols;
     this.initRows = rows;
@@ -71,10 +82,35 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
     }
   }
 
+  public int getUndoDepth() {
+    return this.undoDepth;
+  }
+
+  /**
+   * Set undo depth for all layers of the document.
+   *
+   * @param depth the undo depth, must be greater than zero
+   */
+  public void setUndoDepth(final int depth) {
+    if (depth <= 0) {
+      throw new IllegalArgumentException("Undo depth must be greater than zero [" + depth + ']');
+    }
+    locker.lock();
+    try {
+      this.undoDepth = depth;
+      for (final LayerRecordPanel p : this.layers) {
+        p.getHexField().setUndoDepth(depth);
+      }
+    }
+    finally {
+      locker.unlock();
+    }
+  }
+
   public HexFieldLayer makeNewLayerField(final String name, final String comments) {
     locker.lock();
     try {
-      return new HexFieldLayer(name, comments, this.cols, this.rows);
+      return new HexFieldLayer(name, comments, this.cols, this.rows, this.undoDepth);
     }
     finally {
       locker.unlock();
@@ -87,8 +123,10 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
     LayerRecordPanel result = null;
     locker.lock();
     try {
+      f.setUndoDepth(this.undoDepth);
       result = new LayerRecordPanel(this, f);
       this.layers.add(0, result);
+      f.addHexEngineModelListener(this);
       from = this.layers.size() - 1;
       to = this.layers.size() - 1;
     }
@@ -96,6 +134,7 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
       locker.unlock();
     }
     fireListenerEvent(ListDataEvent.INTERVAL_ADDED, from, to);
+    this.changeSupport.modelChanged();
     return result;
   }
 
@@ -110,7 +149,7 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
         }
       }
       if (index >= 0) {
-        this.layers.remove(index);
+        this.layers.remove(index).getHexField().removeHexEngineModelListener(this);
       }
     }
     finally {
@@ -118,9 +157,36 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
     }
     if (index >= 0) {
       fireListenerEvent(ListDataEvent.INTERVAL_REMOVED, index, index);
+      this.changeSupport.modelChanged();
     }
   }
 
+  private void detachLayers() {
+    for (final LayerRecordPanel p : this.layers) {
+      p.getHexField().removeHexEngineModelListener(this);
+    }
+  }
+
+  @Override
+  public void addHexEngineModelListener(final HexEngineModelListener listener) {
+    this.changeSupport.addListener(listener);
+  }
+
+  @Override
+  public void removeHexEngineModelListener(final HexEngineModelListener listener) {
+    this.changeSupport.removeListener(listener);
+  }
+
+  @Override
+  public void onCellsChanged(final HexEngineModel<?> source, final int minCol, final int minRow, final int maxCol, final int maxRow) {
+    this.changeSupport.cellsChanged(minCol, minRow, maxCol, maxRow);
+  }
+
+  @Override
+  public void onModelChanged(final HexEngineModel<?> source) {
+    this.changeSupport.modelChanged();
+  }
+
   private void fireListenerEvent(final int type, final int index0, final int index1) {
     final ListDataEvent evt = new ListDataEvent(this, type, index0, index1);
     for (final ListDataListener l : this.listeners) {
@@ -146,6 +212,7 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
     }
     if (result) {
       fireListenerEvent(ListDataEvent.CONTENTS_CHANGED, index - 1, index);
+      this.changeSupport.modelChanged();
     }
     return result;
   }
@@ -168,6 +235,7 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
     }
     if (result) {
       fireListenerEvent(ListDataEvent.CONTENTS_CHANGED, index, index + 1);
+      this.changeSupport.modelChanged();
     }
     return result;
   }
@@ -297,15 +365,17 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
       final int numberOfLayers = din.readUnsignedShort();
 
       for (int i = 0; i < numberOfLayers; i++) {
-        newLayers.add(new HexFieldLayer(din));
+        newLayers.add(new HexFieldLayer(din, this.undoDepth));
       }
 
       final int num = this.layers.size();
+      detachLayers();
       this.layers.clear();
       fireListenerEvent(ListDataEvent.INTERVAL_REMOVED, 0, num);
 
       for (final HexFieldLayer f : newLayers) {
         this.layers.add(new LayerRecordPanel(this, f));
+        f.addHexEngineModelListener(this);
       }
     }
     finally {
@@ -321,6 +391,7 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
       this.cols = this.initCols;
       this.rows = this.initRows;
       max = this.layers.size();
+      detachLayers();
       this.layers.clear();
     }
     finally {
@@ -331,7 +402,10 @@ public class LayerListModel implements ListModel<LayerRecordPanel>, HexEngineMod
 
   @Override
   public Iterable<HexFieldValue> getHexStackAtPosition(final int col, final int row) {
-    return new HexIterator(this, col, row);
+    // the iterator is called for every painted cell so that it is reused
+    final HexIterator result = this.stackIterator.get();
+    result.reinitIterator(col, row);
+    return result;
   }
 
 }
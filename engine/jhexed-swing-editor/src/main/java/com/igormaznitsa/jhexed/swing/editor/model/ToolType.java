@@ -17,14 +17,15 @@ package com.igormaznitsa.jhexed.swing.editor.model;
 
 import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
 import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.fill.HexFillTarget;
+import com.igormaznitsa.jhexed.engine.fill.HexFloodFill;
 import com.igormaznitsa.jhexed.engine.misc.HexPosition;
+import com.igormaznitsa.jhexed.engine.misc.HexRangeCursor;
 import com.igormaznitsa.jhexed.swing.editor.Log;
 import com.igormaznitsa.jhexed.values.HexFieldValue;
 import com.igormaznitsa.jhexed.swing.editor.ui.Utils;
 import com.igormaznitsa.jhexed.swing.editor.ui.tooloptions.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
 import javax.swing.*;
 
 public enum ToolType {
@@ -65,71 +66,44 @@ public enum ToolType {
     return this.icon;
   }
 
-  private static void fill(final HexEngine<?> engine, final HexFieldLayer field, final int col, final int row, final int fillIndex, final int borderIndex) {
-    final List<Integer> stack = new ArrayList<Integer>(16384);
-
-    stack.add(HexEngine.packColumnRow(col, row));
-
-    while (!stack.isEmpty()) {
-      final int stackTop = stack.remove(stack.size() - 1);
-      final int curColumn = HexEngine.extractColumn(stackTop);
-      final int curRow = HexEngine.extractRow(stackTop);
-
-      field.setValueAtPos(curColumn, curRow, fillIndex);
-
-      if (curColumn < 0 || curColumn >= field.getColumnNumber() || curRow < 0 || curRow >= field.getRowNumber()) {
-        continue;
-      }
-
-      final int[] packed = engine.getPackedNeighbourPositions(null, curColumn, curRow, 1);
+  private static HexRangeCursor brush(final HexEngine<?> engine, final HexFieldLayer field, final HexPosition position, final int width) {
+    return new HexRangeCursor(engine.getOrientation()).setBounds(field.getColumnNumber(), field.getRowNumber()).range(position.getColumn(), position.getRow(), width - 1);
+  }
 
-      for (int i = 0; i < packed.length; i++) {
-        final int ic = HexEngine.extractColumn(packed[i]);
-        final int ir = HexEngine.extractRow(packed[i]);
+  private static void fill(final HexFloodFill floodFill, final HexEngine<?> engine, final HexFieldLayer field, final int col, final int row, final int fillIndex, final int borderIndex) {
+    final byte fillValue = (byte) fillIndex;
+    floodFill.fill(engine.getOrientation(), field.getColumnNumber(), field.getRowNumber(), col, row, new HexFillTarget() {
 
-        final int iv = field.getValueAtPos(ic, ir);
-        if (borderIndex < 0) {
-          if (iv == fillIndex || iv > 0) {
-            continue;
-          }
+      @Override
+      public boolean isFillable(final int c, final int r) {
+        if (c == col && r == row) {
+          return true;
         }
-        else {
-          if (iv == fillIndex || iv == borderIndex) {
-            continue;
-          }
+        final int value = field.getByte(c, r) & 0xFF;
+        if (value == fillIndex) {
+          return false;
         }
+        return borderIndex < 0 ? value == 0 : value != borderIndex;
+      }
 
-        field.setValueAtPos(ic, ir, fillIndex);
-        stack.add(HexEngine.packColumnRow(ic, ir));
+      @Override
+      public void fill(final int c, final int r) {
+        field.setByte(c, r, fillValue);
       }
-    }
+    });
   }
 
-  public void processTool(final HexEngine<?> engine, final HexFieldLayer field, final HexPosition position) {
+  public void processTool(final HexEngine<?> engine, final HexFieldLayer field, final HexPosition position, final HexFloodFill floodFill) {
     switch (this) {
       case ERASER: {
         final EraserOptions opt = (EraserOptions) this.getOptions();
         final HexFieldValue value = opt.getHexValue();
         if (value != null) {
           final int index = value.getIndex();
-          final int width = opt.getPencilWidth();
-          if (field.getValueAtPos(position.getColumn(), position.getRow()) == index) {
-            field.setValueAtPos(position.getColumn(), position.getRow(), 0);
-          }
-          if (width > 1) {
-            final int[] buffer = new int[width * 6];
-
-            for (int i = 1; i < width; i++) {
-              final int size = i * 6;
-              engine.getPackedNeighbourPositions(buffer, position.getColumn(), position.getRow(), i);
-              for (int s = 0; s < size; s++) {
-                final int packed = buffer[s];
-                final int col = HexEngine.extractColumn(packed);
-                final int row = HexEngine.extractRow(packed);
-                if (col >= 0 && row >= 0 && field.getValueAtPos(col, row) == index) {
-                  field.setValueAtPos(col, row, 0);
-                }
-              }
+          final HexRangeCursor cursor = brush(engine, field, position, opt.getPencilWidth());
+          while (cursor.next()) {
+            if (field.getValueAtPos(cursor.getColumn(), cursor.getRow()) == index) {
+              field.setValueAtPos(cursor.getColumn(), cursor.getRow(), 0);
             }
           }
         }
@@ -145,30 +119,17 @@ public enum ToolType {
           return;
         }
 
-        fill(engine, field, position.getColumn(), position.getRow(), fillValue.getIndex(), borderValue == null ? -1 : borderValue.getIndex());
+        fill(floodFill, engine, field, position.getColumn(), position.getRow(), fillValue.getIndex(), borderValue == null ? -1 : borderValue.getIndex());
       }
       break;
       case PENCIL: {
         final PencilOptions opt = (PencilOptions) this.getOptions();
         final HexFieldValue value = opt.getHexValue();
         if (value != null) {
-          final int width = opt.getPencilWidth();
-          field.setValueAt(position, (byte) value.getIndex());
-          if (width > 1) {
-            final int[] buffer = new int[width * 6];
-
-            for (int i = 1; i < width; i++) {
-              final int size = i * 6;
-              engine.getPackedNeighbourPositions(buffer, position.getColumn(), position.getRow(), i);
-              for (int s = 0; s < size; s++) {
-                final int packed = buffer[s];
-                final int col = HexEngine.extractColumn(packed);
-                final int row = HexEngine.extractRow(packed);
-                if (col >= 0 && row >= 0) {
-                  field.setValueAt(col, row, (byte) value.getIndex());
-                }
-              }
-            }
+          final byte fillValue = (byte) value.getIndex();
+          final HexRangeCursor cursor = brush(engine, field, position, opt.getPencilWidth());
+          while (cursor.next()) {
+            field.setByte(cursor.getColumn(), cursor.getRow(), fillValue);
           }
         }
       }
@@ -16,6 +16,7 @@
 package com.igormaznitsa.jhexed.swing.editor.ui;
 
 import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.fill.HexFloodFill;
 import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
 import com.igormaznitsa.jhexed.hexmap.HexMapPanelListener;
 import com.igormaznitsa.jhexed.hexmap.HexMapPanel;
@@ -75,6 +76,8 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
 
   private final LayerListModel layers;
 
+  private final HexFloodFill floodFill = new HexFloodFill();
+
   private ToolType selectedToolType;
   private HexFieldLayer selectedLayer;
 
@@ -372,7 +375,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
   public void addedUndoStep (final HexFieldLayer[] layers) {
     boolean tooMany = false;
     for (final HexFieldLayer l : layers) {
-      tooMany = tooMany || l.addUndo();
+      tooMany |= l.addUndo();
     }
     this.undoLayers.add(layers);
     if (tooMany) {
@@ -440,6 +443,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
 
     this.menuViewBackImage.setSelected(REGISTRY.getBoolean("showBackImage", true));
     this.menuShowHexBorders.setSelected(REGISTRY.getBoolean("showHexBorders", true));
+    this.layers.setUndoDepth(Math.max(1, REGISTRY.getInt("undoDepth", HexFieldLayer.DEFAULT_UNDO_DEPTH)));
   }
 
   private void writePosition (final String prefix, final Rectangle rect) {
@@ -461,6 +465,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
 
     REGISTRY.putBoolean("showBackImage", this.menuViewBackImage.isSelected());
     REGISTRY.putBoolean("showHexBorders", this.menuShowHexBorders.isSelected());
+    REGISTRY.putInt("undoDepth", this.layers.getUndoDepth());
 
     REGISTRY.put("lookandfeel", javax.swing.UIManager.getLookAndFeel().getClass().getName());
   }
@@ -1027,6 +1032,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
     this.layers.resize(value.getColumns(), value.getRows());
     this.hexMapPanel.getHexRenderer().setLineWidth(value.getLineWidth());
     this.hexMapPanel.getHexRenderer().setCommonBorderColor(value.getColor());
+    this.hexMapPanel.invalidateCaches();
     this.documentComments = value.getCommentary();
 
     this.hexMapPanel.setImage(value.getImage());
@@ -1045,6 +1051,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
 
   private void menuShowHexBordersStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_menuShowHexBordersStateChanged
     this.hexMapPanel.getHexRenderer().setShowBorders(this.menuShowHexBorders.isSelected());
+    this.hexMapPanel.invalidateCaches();
     this.hexMapPanel.repaint();
   }//GEN-LAST:event_menuShowHexBordersStateChanged
 
@@ -1264,8 +1271,14 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
   private void useCurrentToolAtPosition (final HexPosition position) {
     if (this.selectedToolType != null && this.selectedLayer != null && this.hexMapPanel.isValidPosition(position)) {
       updateActivehexCoord(position);
-      this.selectedToolType.processTool(this.hexMapPanel.getHexEngine(), this.selectedLayer, position);
-      this.hexMapPanel.repaint();
+      // the layer reports touched cells once and the map repaints only them
+      this.selectedLayer.beginUpdate();
+      try {
+        this.selectedToolType.processTool(this.hexMapPanel.getHexEngine(), this.selectedLayer, position, this.floodFill);
+      }
+      finally {
+        this.selectedLayer.endUpdate();
+      }
     }
   }
 
@@ -1556,6 +1569,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
   @Override
   public void refreshUi () {
     if (SwingUtilities.isEventDispatchThread()) {
+      this.hexMapPanel.invalidateCaches();
       hexMapPanel.revalidate();
       this.hexMapPanel.repaint();
     }
@@ -1563,6 +1577,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
       SwingUtilities.invokeLater(new Runnable() {
         @Override
         public void run () {
+          hexMapPanel.invalidateCaches();
           hexMapPanel.revalidate();
           hexMapPanel.repaint();
         }
@@ -1603,6 +1618,7 @@ public class MainForm extends javax.swing.JFrame implements MouseListener, Mouse
         renderer.setCommonBorderColor(options.borderColor);
         renderer.setShowBorders(true);
       }
+      this.hexMapPanel.invalidateCaches();
     }
     repaint();
   }
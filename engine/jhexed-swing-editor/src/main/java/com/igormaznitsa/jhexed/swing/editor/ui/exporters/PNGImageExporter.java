@@ -19,6 +19,8 @@ import com.igormaznitsa.jhexed.engine.*;
 import com.igormaznitsa.jhexed.engine.misc.*;
 import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
 import com.igormaznitsa.jhexed.renders.swing.ColorHexRender;
+import com.igormaznitsa.jhexed.renders.swing.StreamingPNGWriter;
+import com.igormaznitsa.jhexed.renders.svg.SVGImage;
 import com.igormaznitsa.jhexed.swing.editor.model.DocumentCellComments;
 import com.igormaznitsa.jhexed.swing.editor.ui.dialogs.*;
 import com.igormaznitsa.jhexed.values.HexFieldValue;
@@ -26,157 +28,406 @@ import java.awt.*;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.*;
 import java.util.*;
 import java.util.List;
 import java.util.Map.Entry;
-import javax.imageio.ImageIO;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.io.FileUtils;
 
 public class PNGImageExporter implements Exporter {
 
+  private static final int DEFAULT_CELL_WIDTH = 48;
+  private static final int DEFAULT_CELL_HEIGHT = 48;
+
+  /**
+   * Max number of pixels in a horizontal strip for streaming export.
+   */
+  public static final int STRIP_PIXELS = 4 * 1024 * 1024;
+
+  /**
+   * Number of strips per thread in parallel mode, to balance strips of
+   * different complexity.
+   */
+  private static final int STRIPS_PER_THREAD = 4;
+
+  /**
+   * Min strip height in parallel mode, lower strips spend most of time to
+   * draw cells over their borders.
+   */
+  private static final int MIN_PARALLEL_STRIP_HEIGHT = 64;
+
+  private static final AtomicInteger threadCounter = new AtomicInteger();
+
   private final DocumentOptions docOptions;
   private final SelectLayersExportData exportData;
   private final DocumentCellComments cellComments;
-  
+  private volatile int threads = 1;
+
   public PNGImageExporter(final DocumentOptions docOptions, final SelectLayersExportData exportData, final DocumentCellComments cellComments) {
     this.docOptions = docOptions;
     this.exportData = exportData;
     this.cellComments = cellComments;
   }
 
-  public BufferedImage generateImage() throws IOException {
-    final int DEFAULT_CELL_WIDTH = 48;
-    final int DEFAULT_CELL_HEIGHT = 48;
+  /**
+   * Set number of threads to render the image. Strips of the image are
+   * rendered in parallel if the number is more than one, parallel strips are
+   * lower so that antialiased pixels on their borders can slightly differ
+   * from the sequential export.
+   *
+   * @param threads number of threads, must be positive
+   * @see #getThreads()
+   */
+  public void setThreads(final int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Thread number must be positive [" + threads + ']');
+    }
+    this.threads = threads;
+  }
 
-    final int imgWidth = this.docOptions.getImage() == null ? DEFAULT_CELL_WIDTH * this.docOptions.getColumns() : Math.round(this.docOptions.getImage().getSVGWidth());
-    final int imgHeight = this.docOptions.getImage() == null ? DEFAULT_CELL_HEIGHT * this.docOptions.getRows() : Math.round(this.docOptions.getImage().getSVGHeight());
+  /**
+   * Get number of threads to render the image, by default it is one.
+   *
+   * @return number of threads
+   */
+  public int getThreads() {
+    return this.threads;
+  }
 
-    final BufferedImage result;
-    if (exportData.isBackgroundImageExport() && this.docOptions.getImage() != null) {
-      result = this.docOptions.getImage().rasterize(imgWidth, imgHeight, BufferedImage.TYPE_INT_ARGB);
+  /**
+   * Model of the export engine, it returns values of the exported layers for
+   * a cell. Every model has its own value array so that models must not be
+   * shared between threads.
+   */
+  private static final class LayerStackModel implements HexEngineModel<HexFieldValue[]> {
+
+    private final List<HexFieldLayer> stack;
+    private final HexFieldValue[] stackOfValues;
+    private final int columns;
+    private final int rows;
+
+    private LayerStackModel(final List<HexFieldLayer> stack, final int columns, final int rows) {
+      this.stack = stack;
+      this.stackOfValues = new HexFieldValue[stack.size()];
+      this.columns = columns;
+      this.rows = rows;
     }
-    else {
-      result = new BufferedImage(imgWidth, imgHeight, BufferedImage.TYPE_INT_ARGB);
+
+    @Override
+    public int getColumnNumber() {
+      return this.columns;
     }
 
-    final Graphics2D gfx = result.createGraphics();
-    gfx.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-    gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    gfx.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    @Override
+    public int getRowNumber() {
+      return this.rows;
+    }
 
-    final HexEngine<Graphics2D> engine = new HexEngine<Graphics2D>(DEFAULT_CELL_WIDTH, DEFAULT_CELL_HEIGHT, this.docOptions.getHexOrientation());
+    @Override
+    public HexFieldValue[] getValueAt(final int col, final int row) {
+      Arrays.fill(this.stackOfValues, null);
 
-    final List<HexFieldLayer> reversedNormalizedStack = new ArrayList<HexFieldLayer>();
-    for (int i = this.exportData.getLayers().size() - 1; i >= 0; i--) {
-      final LayerExportRecord rec = this.exportData.getLayers().get(i);
-      if (rec.isAllowed()) {
-        reversedNormalizedStack.add(rec.getLayer());
+      for (int index = 0; index < this.stack.size(); index++) {
+        this.stackOfValues[index] = this.stack.get(index).getHexValueAtPos(col, row);
       }
+      return this.stackOfValues;
     }
 
-    if (Thread.currentThread().isInterrupted()) return null;
-    
-    final HexFieldValue[] stackOfValues = new HexFieldValue[reversedNormalizedStack.size()];
+    @Override
+    public HexFieldValue[] getValueAt(final HexPosition pos) {
+      return this.getValueAt(pos.getColumn(), pos.getRow());
+    }
 
-    engine.setModel(new HexEngineModel<HexFieldValue[]>() {
+    @Override
+    public void setValueAt(int col, int row, HexFieldValue[] value) {
+    }
 
-      @Override
-      public int getColumnNumber() {
-        return docOptions.getColumns();
-      }
+    @Override
+    public void setValueAt(HexPosition pos, HexFieldValue[] value) {
+    }
 
-      @Override
-      public int getRowNumber() {
-        return docOptions.getRows();
-      }
+    @Override
+    public boolean isPositionValid(final int col, final int row) {
+      return col >= 0 && col < this.columns && row >= 0 && row < this.rows;
+    }
 
-      @Override
-      public HexFieldValue[] getValueAt(final int col, final int row) {
-        Arrays.fill(stackOfValues, null);
+    @Override
+    public boolean isPositionValid(final HexPosition pos) {
+      return this.isPositionValid(pos.getColumn(), pos.getRow());
+    }
+
+    @Override
+    public void attachedToEngine(final HexEngine<?> engine) {
+    }
+
+    @Override
+    public void detachedFromEngine(final HexEngine<?> engine) {
+    }
+  }
+
+  /**
+   * Render of the export engine, it draws prepared icons of values. Icons are
+   * only read so that they can be shared between renders.
+   */
+  private static final class LayerStackRender extends ColorHexRender {
+
+    private final Image[][] cachedIcons;
+    private final Stroke stroke;
+    private final Color borderColor;
 
-        for (int index = 0; index < reversedNormalizedStack.size(); index++) {
-          stackOfValues[index] = reversedNormalizedStack.get(index).getHexValueAtPos(col, row);
+    private LayerStackRender(final Image[][] cachedIcons, final float lineWidth, final Color borderColor) {
+      this.cachedIcons = cachedIcons;
+      this.stroke = new BasicStroke(lineWidth);
+      this.borderColor = borderColor;
+    }
+
+    @Override
+    public Stroke getStroke() {
+      return this.stroke;
+    }
+
+    @Override
+    public Color getFillColor(HexEngineModel<?> model, int col, int row) {
+      return null;
+    }
+
+    @Override
+    public Color getBorderColor(HexEngineModel<?> model, int col, int row) {
+      return this.borderColor;
+    }
+
+    @Override
+    public void drawExtra(HexEngine<Graphics2D> engine, Graphics2D g, int col, int row, Color borderColor, Color fillColor) {
+    }
+
+    @Override
+    public void drawUnderBorder(final HexEngine<Graphics2D> engine, final Graphics2D g, final int col, final int row, final Color borderColor, final Color fillColor) {
+      final HexFieldValue[] stackValues = (HexFieldValue[]) engine.getModel().getValueAt(col, row);
+      for (int i = 0; i < stackValues.length; i++) {
+        final HexFieldValue valueToDraw = stackValues[i];
+        if (valueToDraw == null) {
+          continue;
         }
-        return stackOfValues;
+        g.drawImage(this.cachedIcons[i][valueToDraw.getIndex()], 0, 0, null);
       }
+    }
+  }
 
-      @Override
-      public HexFieldValue[] getValueAt(final HexPosition pos) {
-        return this.getValueAt(pos.getColumn(), pos.getRow());
-      }
+  /**
+   * Prepared engine to paint the exported image or its parts.
+   */
+  private final class ExportPainter {
+
+    private static final int COMMENT_MARGIN = 32;
+
+    private final HexEngine<Graphics2D> engine;
+    private final List<HexFieldLayer> stack;
+    private final Image[][] cachedIcons;
+    private final DocumentCellComments comments;
+    private final SVGImage background;
+    private final ThreadLocal<SVGImage> backgroundCopies;
+    private final int width;
+    private final int height;
+
+    private ExportPainter(final List<HexFieldLayer> stack, final Image[][] cachedIcons, final DocumentCellComments comments, final SVGImage background, final ThreadLocal<SVGImage> backgroundCopies, final int width, final int height) {
+      this.engine = makeEngine(stack, cachedIcons, width, height);
+      this.stack = stack;
+      this.cachedIcons = cachedIcons;
+      this.comments = comments;
+      this.background = background;
+      this.backgroundCopies = backgroundCopies;
+      this.width = width;
+      this.height = height;
+    }
 
-      @Override
-      public void setValueAt(int col, int row, HexFieldValue[] value) {
+    /**
+     * Make a painter with its own engine, model and render. Layers, icons and
+     * comments are shared as read only data. The background image is parsed
+     * once for every thread, because painting of an SVG image is synchronized.
+     *
+     * @return a new painter which can be used in the current thread
+     * @throws IOException it will be thrown if the background can't be copied
+     */
+    private ExportPainter fork() throws IOException {
+      SVGImage backgroundCopy = null;
+      if (this.background != null) {
+        backgroundCopy = this.backgroundCopies.get();
+        if (backgroundCopy == null) {
+          backgroundCopy = this.background.copy();
+          this.backgroundCopies.set(backgroundCopy);
+        }
       }
+      return new ExportPainter(this.stack, this.cachedIcons, this.comments, backgroundCopy, this.backgroundCopies, this.width, this.height);
+    }
 
-      @Override
-      public void setValueAt(HexPosition pos, HexFieldValue[] value) {
+    /**
+     * Paint a horizontal strip of the image.
+     *
+     * @param gfx graphics in image coordinates
+     * @param areaY the first row of the strip
+     * @param areaHeight the strip height
+     * @param whole true if the whole image is painted
+     */
+    private void paint(final Graphics2D gfx, final int areaY, final int areaHeight, final boolean whole) throws IOException {
+      final SVGImage background = this.background;
+      if (background != null) {
+        final Graphics2D g = (Graphics2D) gfx.create();
+        try {
+          g.clipRect(0, areaY, this.width, areaHeight);
+          g.scale((float) this.width / background.getSVGWidth(), (float) this.height / background.getSVGHeight());
+          background.render(g);
+        }
+        finally {
+          g.dispose();
+        }
       }
 
-      @Override
-      public boolean isPositionValid(final int col, final int row) {
-        return col >= 0 && col < docOptions.getColumns() && row >= 0 && row < docOptions.getRows();
+      if (whole) {
+        this.engine.drawWithThreadInterruptionCheck(gfx);
       }
-
-      @Override
-      public boolean isPositionValid(final HexPosition pos) {
-        return this.isPositionValid(pos.getColumn(), pos.getRow());
+      else {
+        // cells over strip borders are drawn clipped in both strips
+        final float margin = this.engine.getScaledCellHeight();
+        this.engine.drawArea(gfx, new HexRect2D(0, areaY - margin, this.width, areaHeight + margin * 2), false);
       }
-
-      @Override
-      public void attachedToEngine(final HexEngine<?> engine) {
+      if (Thread.currentThread().isInterrupted()) return;
+
+      if (this.comments != null){
+        gfx.setFont(new Font("Arial",Font.BOLD,12));
+        // only commentaries of rows near the strip are visited
+        final float top = areaY - COMMENT_MARGIN;
+        final float bottom = areaY + areaHeight + COMMENT_MARGIN;
+        final int minRow = Math.min(this.engine.calculateRow(0, top), this.engine.calculateRow(this.width, top)) - 1;
+        final int maxRow = Math.max(this.engine.calculateRow(0, bottom), this.engine.calculateRow(this.width, bottom)) + 1;
+        this.comments.visitRect(0, minRow, docOptions.getColumns() - 1, maxRow, new HexCellVisitor<String>() {
+
+          @Override
+          public boolean visitCell(final int col, final int row, final String text) {
+            if (Thread.currentThread().isInterrupted()) {
+              return false;
+            }
+            drawComment(gfx, col, row, text, areaY, areaHeight);
+            return true;
+          }
+        });
       }
+    }
 
-      @Override
-      public void detachedFromEngine(final HexEngine<?> engine) {
+    private void drawComment(final Graphics2D gfx, final int col, final int row, final String text, final int areaY, final int areaHeight) {
+      final float x = this.engine.calculateX(col, row);
+      final float y = this.engine.calculateY(col, row);
+      if (y + COMMENT_MARGIN < areaY || y - COMMENT_MARGIN > areaY + areaHeight) {
+        return;
       }
-    });
 
-    final HexRect2D visibleSize = engine.getVisibleSize();
-    final float xcoeff = (float) result.getWidth() / visibleSize.getWidth();
-    final float ycoeff = (float) result.getHeight() / visibleSize.getHeight();
-    engine.setScale(xcoeff, ycoeff);
+      final Rectangle2D textBounds = gfx.getFontMetrics().getStringBounds(text, gfx);
 
-    final Image[][] cachedIcons = new Image[this.exportData.getLayers().size()][];
-    engine.setRenderer(new ColorHexRender() {
+      final float dx = x-((float) textBounds.getWidth()-this.engine.getCellWidth())/2;
 
-      private final Stroke stroke = new BasicStroke(docOptions.getLineWidth());
+      gfx.setColor(Color.BLACK);
+      gfx.drawString(text, dx, y);
+      gfx.setColor(Color.WHITE);
+      gfx.drawString(text, dx-2, y-2);
+    }
 
-      @Override
-      public Stroke getStroke() {
-        return this.stroke;
+    /**
+     * Paint a horizontal strip into an image which top is the first row of the
+     * strip.
+     *
+     * @param target the image to paint the strip
+     * @param y the first row of the strip
+     * @param rows the strip height
+     * @param clear true if the image must be cleared before painting
+     */
+    private void paintStrip(final BufferedImage target, final int y, final int rows, final boolean clear) throws IOException {
+      if (clear) {
+        Arrays.fill(((DataBufferInt) target.getRaster().getDataBuffer()).getData(), 0);
       }
-
-      @Override
-      public Color getFillColor(HexEngineModel<?> model, int col, int row) {
-        return null;
+      final Graphics2D gfx = target.createGraphics();
+      try {
+        prepareGraphics(gfx);
+        gfx.clipRect(0, 0, this.width, rows);
+        gfx.translate(0, -y);
+        this.paint(gfx, y, rows, false);
       }
-
-      @Override
-      public Color getBorderColor(HexEngineModel<?> model, int col, int row) {
-        return exportData.isExportHexBorders() ? docOptions.getColor() : null;
+      finally {
+        gfx.dispose();
       }
+    }
+  }
 
-      @Override
-      public void drawExtra(HexEngine<Graphics2D> engine, Graphics2D g, int col, int row, Color borderColor, Color fillColor) {
+  /**
+   * Task to paint a strip in a worker thread with its own painter.
+   */
+  private static final class StripTask implements Callable<BufferedImage> {
+
+    private final ExportPainter painter;
+    private final BufferedImage target;
+    private final int y;
+    private final int rows;
+    private final boolean clear;
+
+    private StripTask(final ExportPainter painter, final BufferedImage target, final int y, final int rows, final boolean clear) {
+      this.painter = painter;
+      this.target = target;
+      this.y = y;
+      this.rows = rows;
+      this.clear = clear;
+    }
+
+    @Override
+    public BufferedImage call() throws Exception {
+      this.painter.fork().paintStrip(this.target, this.y, this.rows, this.clear);
+      return Thread.currentThread().isInterrupted() ? null : this.target;
+    }
+  }
+
+  private HexEngine<Graphics2D> makeEngine(final List<HexFieldLayer> stack, final Image[][] cachedIcons, final int imgWidth, final int imgHeight) {
+    final HexEngine<Graphics2D> engine = new HexEngine<Graphics2D>(DEFAULT_CELL_WIDTH, DEFAULT_CELL_HEIGHT, this.docOptions.getHexOrientation());
+    engine.setModel(new LayerStackModel(stack, this.docOptions.getColumns(), this.docOptions.getRows()));
+
+    final HexRect2D visibleSize = engine.getVisibleSize();
+    final float xcoeff = (float) imgWidth / visibleSize.getWidth();
+    final float ycoeff = (float) imgHeight / visibleSize.getHeight();
+    engine.setScale(xcoeff, ycoeff);
+
+    engine.setRenderer(new LayerStackRender(cachedIcons, this.docOptions.getLineWidth(), this.exportData.isExportHexBorders() ? this.docOptions.getColor() : null));
+    return engine;
+  }
+
+  private ExportPainter makePainter() throws IOException {
+    final int imgWidth = this.docOptions.getImage() == null ? DEFAULT_CELL_WIDTH * this.docOptions.getColumns() : Math.round(this.docOptions.getImage().getSVGWidth());
+    final int imgHeight = this.docOptions.getImage() == null ? DEFAULT_CELL_HEIGHT * this.docOptions.getRows() : Math.round(this.docOptions.getImage().getSVGHeight());
+
+    final List<HexFieldLayer> reversedNormalizedStack = new ArrayList<HexFieldLayer>();
+    for (int i = this.exportData.getLayers().size() - 1; i >= 0; i--) {
+      final LayerExportRecord rec = this.exportData.getLayers().get(i);
+      if (rec.isAllowed()) {
+        reversedNormalizedStack.add(rec.getLayer());
       }
+    }
 
-      @Override
-      public void drawUnderBorder(final HexEngine<Graphics2D> engine, final Graphics2D g, final int col, final int row, final Color borderColor, final Color fillColor) {
-        final HexFieldValue[] stackValues = (HexFieldValue[]) engine.getModel().getValueAt(col, row);
-        for (int i = 0; i < stackValues.length; i++) {
-          final HexFieldValue valueToDraw = stackValues[i];
-          if (valueToDraw == null) {
-            continue;
-          }
-          g.drawImage(cachedIcons[i][valueToDraw.getIndex()], 0, 0, null);
-        }
+    if (Thread.currentThread().isInterrupted()) return null;
+
+    // commentaries are copied to be read by export threads without locks
+    DocumentCellComments comments = null;
+    if (this.exportData.isCellCommentariesExport()) {
+      comments = new DocumentCellComments();
+      final Iterator<Entry<HexPosition, String>> iterator = this.cellComments.iterator();
+      while (iterator.hasNext()) {
+        final Entry<HexPosition, String> item = iterator.next();
+        comments.setForHex(item.getKey(), item.getValue());
       }
+    }
 
-    });
+    final Image[][] cachedIcons = new Image[reversedNormalizedStack.size()][];
+    final SVGImage background = this.exportData.isBackgroundImageExport() ? this.docOptions.getImage() : null;
+    final ExportPainter result = new ExportPainter(Collections.unmodifiableList(reversedNormalizedStack), cachedIcons, comments, background, new ThreadLocal<SVGImage>(), imgWidth, imgHeight);
 
-    final Path2D hexShape = ((ColorHexRender) engine.getRenderer()).getHexPath();
+    final Path2D hexShape = ((ColorHexRender) result.engine.getRenderer()).getHexPath();
     final int cellWidth = hexShape.getBounds().width;
     final int cellHeight = hexShape.getBounds().height;
 
@@ -189,45 +440,212 @@ public class PNGImageExporter implements Exporter {
       cachedIcons[layerIndex] = cacheLineForLayer;
     }
 
-    engine.drawWithThreadInterruptionCheck(gfx);
     if (Thread.currentThread().isInterrupted()) return null;
 
-    if (this.exportData.isCellCommentariesExport()){
-      final Iterator<Entry<HexPosition,String>> iterator = this.cellComments.iterator();
-      gfx.setFont(new Font("Arial",Font.BOLD,12));
-      while(iterator.hasNext() && !Thread.currentThread().isInterrupted()){
-        final Entry<HexPosition,String> item = iterator.next();
-        final HexPosition pos = item.getKey();
-        final String text = item.getValue();
-        final float x = engine.calculateX(pos.getColumn(), pos.getRow());
-        final float y = engine.calculateY(pos.getColumn(), pos.getRow());
-      
-        final Rectangle2D textBounds = gfx.getFontMetrics().getStringBounds(text, gfx);
-        
-        final float dx = x-((float) textBounds.getWidth()-engine.getCellWidth())/2;
-        
-        gfx.setColor(Color.BLACK);
-        gfx.drawString(text, dx, y);
-        gfx.setColor(Color.WHITE);
-        gfx.drawString(text, dx-2, y-2);
-      }
-    }
-    
-    gfx.dispose();
+    return result;
+  }
+
+  private static void prepareGraphics(final Graphics2D gfx) {
+    gfx.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+    gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    gfx.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+  }
 
+  private static int calcStripHeight(final ExportPainter painter, final int threads) {
+    int result = Math.max(1, Math.min(painter.height, STRIP_PIXELS / painter.width));
+    if (threads > 1) {
+      // strips in work keep about the same number of pixels as a single strip
+      final int strips = threads * STRIPS_PER_THREAD;
+      final int limit = Math.min(STRIP_PIXELS / (threads * 2) / painter.width, (painter.height + strips - 1) / strips);
+      result = Math.min(result, Math.max(MIN_PARALLEL_STRIP_HEIGHT, limit));
+    }
     return result;
   }
 
+  private static ExecutorService makeExecutor(final int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread result = new Thread(r, "jhexed-png-export-" + threadCounter.incrementAndGet());
+        result.setDaemon(true);
+        return result;
+      }
+    });
+  }
+
+  /**
+   * Wait for a strip task.
+   *
+   * @param future the task
+   * @return the painted strip or null if the thread was interrupted
+   * @throws IOException it will be thrown if the task was failed
+   */
+  private static BufferedImage waitStrip(final Future<BufferedImage> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (CancellationException ex) {
+      return null;
+    }
+    catch (ExecutionException ex) {
+      final Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Can't paint strip", cause);
+    }
+  }
+
+  public BufferedImage generateImage() throws IOException {
+    final ExportPainter painter = makePainter();
+    if (painter == null) return null;
+
+    final BufferedImage result = new BufferedImage(painter.width, painter.height, BufferedImage.TYPE_INT_ARGB);
+    final int threadNumber = this.threads;
+    if (threadNumber <= 1) {
+      final Graphics2D gfx = result.createGraphics();
+      try {
+        prepareGraphics(gfx);
+        painter.paint(gfx, 0, painter.height, true);
+      }
+      finally {
+        gfx.dispose();
+      }
+    }
+    else {
+      // strips are painted directly into parts of the result sharing its raster
+      final int stripHeight = calcStripHeight(painter, threadNumber);
+      final ExecutorService executor = makeExecutor(threadNumber);
+      try {
+        final List<Future<BufferedImage>> tasks = new ArrayList<Future<BufferedImage>>();
+        for (int y = 0; y < painter.height; y += stripHeight) {
+          final int rows = Math.min(stripHeight, painter.height - y);
+          tasks.add(executor.submit(new StripTask(painter, result.getSubimage(0, y, painter.width, rows), y, rows, false)));
+        }
+        for (final Future<BufferedImage> task : tasks) {
+          if (waitStrip(task) == null) return null;
+        }
+      }
+      finally {
+        executor.shutdownNow();
+      }
+    }
+    return Thread.currentThread().isInterrupted() ? null : result;
+  }
+
+  /**
+   * Write the image as PNG by horizontal strips, so that only a strip is kept
+   * in memory. If the thread number is more than one then strips are painted
+   * in parallel, each one with its own engine, model and render. Strips are
+   * lower in the mode, so that two strips per thread keep about the same
+   * memory as one strip in sequential mode.
+   *
+   * @param out the destination stream, it is not closed
+   * @return false if the thread was interrupted and the image is not complete
+   * @throws IOException it will be thrown for transport errors
+   * @see #setThreads(int)
+   */
+  public boolean writeImageByStrips(final OutputStream out) throws IOException {
+    final ExportPainter painter = makePainter();
+    if (painter == null) return false;
+
+    final int threadNumber = this.threads;
+    final int stripHeight = calcStripHeight(painter, threadNumber);
+
+    final StreamingPNGWriter writer = new StreamingPNGWriter(out, painter.width, painter.height);
+    try {
+      if (threadNumber <= 1) {
+        final BufferedImage strip = new BufferedImage(painter.width, stripHeight, BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = ((DataBufferInt) strip.getRaster().getDataBuffer()).getData();
+
+        for (int y = 0; y < painter.height; y += stripHeight) {
+          if (Thread.currentThread().isInterrupted()) return false;
+          final int rows = Math.min(stripHeight, painter.height - y);
+
+          painter.paintStrip(strip, y, rows, true);
+          if (Thread.currentThread().isInterrupted()) return false;
+
+          writer.writeRows(pixels, 0, painter.width, rows);
+        }
+      }
+      else {
+        final ExecutorService executor = makeExecutor(threadNumber);
+        try {
+          // strips are written in order, so that painted strips wait in the queue
+          final int maxStripsInWork = threadNumber * 2;
+          final Queue<Future<BufferedImage>> inWork = new LinkedList<Future<BufferedImage>>();
+          final List<BufferedImage> freeStrips = new ArrayList<BufferedImage>();
+
+          int paintY = 0;
+          int writeY = 0;
+          while (writeY < painter.height) {
+            while (paintY < painter.height && inWork.size() < maxStripsInWork) {
+              final int rows = Math.min(stripHeight, painter.height - paintY);
+              final BufferedImage strip = freeStrips.isEmpty() ? new BufferedImage(painter.width, stripHeight, BufferedImage.TYPE_INT_ARGB) : freeStrips.remove(freeStrips.size() - 1);
+              inWork.add(executor.submit(new StripTask(painter, strip, paintY, rows, true)));
+              paintY += rows;
+            }
+
+            final BufferedImage strip = waitStrip(inWork.remove());
+            if (strip == null || Thread.currentThread().isInterrupted()) return false;
+
+            final int rows = Math.min(stripHeight, painter.height - writeY);
+            writer.writeRows(((DataBufferInt) strip.getRaster().getDataBuffer()).getData(), 0, painter.width, rows);
+            writeY += rows;
+            freeStrips.add(strip);
+          }
+        }
+        finally {
+          executor.shutdownNow();
+        }
+      }
+      writer.finish();
+      return true;
+    }
+    finally {
+      writer.close();
+    }
+  }
+
   @Override
   public void export(final File file) throws IOException {
-    final BufferedImage img = generateImage();
-    if (img == null) return;
-    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1000000);
-    ImageIO.write(img, "png", buffer);
-    buffer.flush();
-    
-    if (Thread.currentThread().isInterrupted()) return;
-    
-    FileUtils.writeByteArrayToFile(file, buffer.toByteArray());
+    // the image is streamed into a temporary file to not leave a broken file
+    final File parent = file.getAbsoluteFile().getParentFile();
+    final File temp = File.createTempFile("jhexed", ".png.part", parent);
+    boolean completed = false;
+    try {
+      final OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 256 * 1024);
+      try {
+        completed = writeImageByStrips(out);
+      }
+      finally {
+        out.close();
+      }
+
+      if (completed) {
+        if (file.exists() && !file.delete()) {
+          throw new IOException("Can't replace file [" + file + ']');
+        }
+        if (!temp.renameTo(file)) {
+          FileUtils.copyFile(temp, file);
+        }
+      }
+    }
+    finally {
+      if (temp.exists() && !temp.delete()) {
+        temp.deleteOnExit();
+      }
+    }
   }
 }
@@ -17,6 +17,7 @@ package com.igormaznitsa.jhexed.swing.editor.ui.exporters;
 
 import com.igormaznitsa.jhexed.engine.HexEngine;
 import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexCellVisitor;
 import com.igormaznitsa.jhexed.engine.misc.HexPoint2D;
 import com.igormaznitsa.jhexed.engine.misc.HexPosition;
 import com.igormaznitsa.jhexed.engine.renders.HexEngineRender;
@@ -31,6 +32,7 @@ import java.awt.Color;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.text.DecimalFormat;
+import java.util.*;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -97,7 +99,7 @@ public class SVGImageExporter implements Exporter, HexEngineModel<SVGImageExport
       }
       break;
       case COMMENTS: {
-        final String text = this.cellComments.getForHex(new HexPosition(col, row));
+        final String text = this.cellComments.getForHex(col, row);
         if (text != null) {
           final float thex = x+(cellWidth/2.0f);
           buffer.append("<text x=\"").append(num2str(thex)).append("\" y=\"").append(num2str(y-5.0f)).append("\" style=\"text-anchor:middle;font-size:12;font-weight:bold;font-family:Arial;fill:white;stroke:black;stroke-width:0.5\">")
@@ -274,7 +276,20 @@ public class SVGImageExporter implements Exporter, HexEngineModel<SVGImageExport
     if (exportData.isCellCommentariesExport()) {
       currentMode = Mode.COMMENTS;
       buffer.append("<g id=\"COMMENTS\">\n");
-      engine.draw(this);
+      // commentaries are written by rows and columns to make the same file for the same document
+      final List<Long> positions = new ArrayList<Long>();
+      this.cellComments.visitRect(0, 0, getColumnNumber() - 1, getRowNumber() - 1, new HexCellVisitor<String>() {
+
+        @Override
+        public boolean visitCell(final int col, final int row, final String value) {
+          positions.add(((long) row << 32) | (col & 0xFFFFFFFFL));
+          return true;
+        }
+      });
+      Collections.sort(positions);
+      for (final Long position : positions) {
+        engine.drawHex(this, (int) position.longValue(), (int) (position >>> 32));
+      }
       buffer.append("</g>\n");
     }
 
@@ -1,5 +1,9 @@
 package com.igormaznitsa.jhexed.swing.editor.ui.extensions;
 
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.fill.HexFillTarget;
+import com.igormaznitsa.jhexed.engine.fill.HexFloodFill;
+import com.igormaznitsa.jhexed.engine.misc.HexRangeCursor;
 import com.igormaznitsa.jhexed.hexmap.HexFieldLayer;
 import com.igormaznitsa.jhexed.swing.editor.Log;
 import com.igormaznitsa.jhexed.swing.editor.model.LayerListModel;
@@ -14,6 +18,9 @@ public class GroovyPluginBase {
 
   private final LayerListModel layerListModel;
   private final MainForm frame;
+  private final HexFloodFill floodFill = new HexFloodFill();
+  // cursors returned to scripts can be nested so that only brushHex reuses its cursor
+  private final HexRangeCursor brushCursor = new HexRangeCursor(HexEngine.ORIENTATION_HORIZONTAL);
   
   public GroovyPluginBase(final MainForm frame,final LayerListModel listModel) {
     this.frame = frame;
@@ -92,21 +99,85 @@ public class GroovyPluginBase {
   }
 
   public void resetHex(final HexFieldLayer layer, final int x, final int y){
-    layer.setValueAt(x, y, (byte)0);
+    layer.setByte(x, y, (byte) 0);
   }
   
   public void setHex(final HexFieldLayer layer, final int x, final int y, final HexFieldValue value) {
     final int index = value.getIndex();
     if (index < layer.getHexValuesNumber()) {
-      layer.setValueAt(x, y, (byte) index);
+      layer.setByte(x, y, (byte) index);
     }
     else {
       error("Attempt to set value " + index + " but max value is " + (layer.getHexValuesNumber() - 1));
     }
   }
 
+  public int fillHex(final HexFieldLayer layer, final int x, final int y, final HexFieldValue value) {
+    final int index = value.getIndex();
+    if (index >= layer.getHexValuesNumber()) {
+      error("Attempt to fill by value " + index + " but max value is " + (layer.getHexValuesNumber() - 1));
+      return 0;
+    }
+    if (!layer.isPositionValid(x, y)) {
+      return 0;
+    }
+    final byte replaced = layer.getByte(x, y);
+    final byte fillValue = (byte) index;
+    if (replaced == fillValue) {
+      return 0;
+    }
+    return this.floodFill.fill(this.frame.getHexEngine().getOrientation(), layer.getColumnNumber(), layer.getRowNumber(), x, y, new HexFillTarget() {
+
+      @Override
+      public boolean isFillable(final int col, final int row) {
+        return layer.getByte(col, row) == replaced;
+      }
+
+      @Override
+      public void fill(final int col, final int row) {
+        layer.setByte(col, row, fillValue);
+      }
+    });
+  }
+
+  private HexRangeCursor cursor(final HexRangeCursor cursor, final HexFieldLayer layer) {
+    return cursor.setOrientation(this.frame.getHexEngine().getOrientation()).setBounds(layer.getColumnNumber(), layer.getRowNumber());
+  }
+
+  private HexRangeCursor cursor(final HexFieldLayer layer) {
+    return cursor(new HexRangeCursor(HexEngine.ORIENTATION_HORIZONTAL), layer);
+  }
+
+  public HexRangeCursor rangeCursor(final HexFieldLayer layer, final int x, final int y, final int radius) {
+    return cursor(layer).range(x, y, radius);
+  }
+
+  public HexRangeCursor ringCursor(final HexFieldLayer layer, final int x, final int y, final int radius) {
+    return cursor(layer).ring(x, y, radius);
+  }
+
+  public HexRangeCursor spiralCursor(final HexFieldLayer layer, final int x, final int y, final int radius) {
+    return cursor(layer).spiral(x, y, radius);
+  }
+
+  public int brushHex(final HexFieldLayer layer, final int x, final int y, final int radius, final HexFieldValue value) {
+    final int index = value.getIndex();
+    if (index >= layer.getHexValuesNumber()) {
+      error("Attempt to brush by value " + index + " but max value is " + (layer.getHexValuesNumber() - 1));
+      return 0;
+    }
+    final byte brushValue = (byte) index;
+    final HexRangeCursor cursor = cursor(this.brushCursor, layer).range(x, y, radius);
+    int counter = 0;
+    while (cursor.next()) {
+      layer.setByte(cursor.getColumn(), cursor.getRow(), brushValue);
+      counter++;
+    }
+    return counter;
+  }
+
   public HexFieldValue getHex(final HexFieldLayer layer, final int x, final int y) {
-    final int index = layer.getValueAt(x, y);
+    final int index = layer.getByte(x, y);
     return index < 0 ? null : layer.getHexValueForIndex(index & 0xFF);
   }
 
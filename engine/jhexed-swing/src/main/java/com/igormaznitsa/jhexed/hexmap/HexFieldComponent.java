@@ -31,6 +31,7 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
   private HexEngine<Graphics2D> engine;
   private final HexMapPanel parent;
   private final LayerableHexValueSourceRender renderer = new LayerableHexValueSourceRender();
+  private final HexTileCache tileCache = new HexTileCache();
 
   private float insideZoomX = 1.0f;
   private float insideZoomY = 1.0f;
@@ -41,6 +42,20 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
   private int adaptWidth = DEFAULT_ADAPT_WIDTH;
   private int adaptHeigh = DEFAULT_ADAPT_HEIGHT;
 
+  private final HexEngineModelListener modelListener = new HexEngineModelListener() {
+
+    @Override
+    public void onCellsChanged(final HexEngineModel<?> source, final int minCol, final int minRow, final int maxCol, final int maxRow) {
+      repaintCells(minCol, minRow, maxCol, maxRow);
+    }
+
+    @Override
+    public void onModelChanged(final HexEngineModel<?> source) {
+      invalidateCaches();
+      repaint();
+    }
+  };
+
   public HexFieldComponent(final HexMapPanel parent, final HexEngineModel<?> model) {
     super();
     this.parent = parent;
@@ -50,9 +65,59 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
     this.engine = new HexEngine<Graphics2D>(48, 48, HexEngine.ORIENTATION_HORIZONTAL);
     this.engine.setModel(model);
     this.engine.setRenderer(renderer);
+    if (model instanceof ObservableHexEngineModel) {
+      ((ObservableHexEngineModel<?>) model).addHexEngineModelListener(this.modelListener);
+    }
     processSize();
   }
 
+  /**
+   * Repaint only the area covered by a rectangle of cells.
+   *
+   * @param minCol the min column, inclusive
+   * @param minRow the min row, inclusive
+   * @param maxCol the max column, inclusive
+   * @param maxRow the max row, inclusive
+   */
+  public void repaintCells(final int minCol, final int minRow, final int maxCol, final int maxRow) {
+    float left = Float.MAX_VALUE;
+    float top = Float.MAX_VALUE;
+    float right = -Float.MAX_VALUE;
+    float bottom = -Float.MAX_VALUE;
+    float cellWidth;
+    float cellHeight;
+
+    this.engineLock.lock();
+    try {
+      final HexEngine<Graphics2D> e = this.engine;
+      cellWidth = e.getScaledCellWidth();
+      cellHeight = e.getScaledCellHeight();
+      // odd columns or rows are shifted, so both parities of borders are checked
+      final int[] cols = new int[]{minCol, Math.min(minCol + 1, maxCol), Math.max(maxCol - 1, minCol), maxCol};
+      final int[] rows = new int[]{minRow, Math.min(minRow + 1, maxRow), Math.max(maxRow - 1, minRow), maxRow};
+      for (final int c : cols) {
+        for (final int r : rows) {
+          final float x = e.calculateX(c, r);
+          final float y = e.calculateY(c, r);
+          left = Math.min(left, x);
+          top = Math.min(top, y);
+          right = Math.max(right, x);
+          bottom = Math.max(bottom, y);
+        }
+      }
+    }
+    finally {
+      this.engineLock.unlock();
+    }
+
+    final int margin = 2 + (int) Math.ceil(this.renderer.getLineWidth());
+    final int x = (int) Math.floor(left) - margin;
+    final int y = (int) Math.floor(top) - margin;
+    final Rectangle area = new Rectangle(x, y, (int) Math.ceil(right + cellWidth) + margin - x, (int) Math.ceil(bottom + cellHeight) + margin - y);
+    this.tileCache.invalidate(area);
+    repaint(area);
+  }
+
   public void reconfigureEngine(final float cellWidth, final float cellheight, final int orientation) {
     this.engineLock.lock();
     try {
@@ -63,6 +128,7 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
     finally {
       this.engineLock.unlock();
     }
+    invalidateCaches();
     repaint();
   }
 
@@ -106,17 +172,41 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
     this.engineLock.lock();
     try {
       final Rectangle clipRect = g.getClipBounds();
-      final HexRect2D r = new HexRect2D(clipRect.x, clipRect.y, clipRect.width, clipRect.height);
       if (this.engine != null) {
-        engine.drawArea((Graphics2D) g, r, false);
+        if (this.tileCache.isEnabled()) {
+          this.tileCache.paint((Graphics2D) g, clipRect, this.engine, getGraphicsConfiguration());
+        }
+        else {
+          engine.drawArea((Graphics2D) g, new HexRect2D(clipRect.x, clipRect.y, clipRect.width, clipRect.height), false);
+        }
       }
       afterPaint(engine, g);
     }
     finally {
-      this.engineLock.lock();
+      this.engineLock.unlock();
     }
   }
 
+  /**
+   * Drop all cached tiles and composited stacks. It must be called if the
+   * model, the engine or options of the render have been changed, the
+   * component should be repainted after that.
+   */
+  public void invalidateCaches() {
+    this.tileCache.invalidateAll();
+    this.renderer.invalidateStackCache();
+  }
+
+  /**
+   * Set the memory budget for cached tiles of the rendered field.
+   *
+   * @param bytes max number of bytes for cached tiles, zero disables the cache
+   */
+  public void setTileCacheBudget(final long bytes) {
+    this.tileCache.setBudget(bytes);
+    repaint();
+  }
+
   public void afterPaint(final HexEngine<?> engine, final Graphics g){
     
   }
@@ -127,11 +217,12 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
       if (this.engine != null && this.engine.getOrientation() != orientation) {
         this.engine.changeEngineBaseParameters(this.engine.getCellWidth(), this.engine.getCellHeight(), orientation);
         adaptToSize(this.adaptWidth, this.adaptHeigh);
+        invalidateCaches();
         return true;
       }
     }
     finally {
-      this.engineLock.lock();
+      this.engineLock.unlock();
     }
     return false;
   }
@@ -151,6 +242,7 @@ class HexFieldComponent extends JComponent implements HexMapPanelInsideComponent
   public void setAntialiased(final boolean flag) {
     if (this.renderer != null) {
       this.renderer.setAntialias(flag);
+      invalidateCaches();
       this.repaint();
     }
   }
@@ -24,10 +24,12 @@ import java.io.*;
 import java.util.*;
 import org.apache.commons.io.IOUtils;
 
-public class HexFieldLayer implements HexEngineModel<Byte> {
+public class HexFieldLayer implements ByteHexEngineModel, ObservableHexEngineModel<Byte> {
+
+  public static final int DEFAULT_UNDO_DEPTH = 256;
+
+  private int undoDepth = DEFAULT_UNDO_DEPTH;
 
-  public static final int MAX_UNDO_DEPTH = 10;
-  
   private int columns;
   private int rows;
 
@@ -35,54 +37,231 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   private String name;
   private String comments;
 
-  private byte[] array;
+  private ChunkedByteHexModel data;
   private final Byte defaultValue = (byte) 0;
 
   private final List<HexFieldValue> values = new ArrayList<HexFieldValue>();
 
-  private final List<CopyOfLayerState> listUndo = new ArrayList<CopyOfLayerState>();
-  private final List<CopyOfLayerState> listRedo = new ArrayList<CopyOfLayerState>();
+  private final List<UndoStep> listUndo = new ArrayList<UndoStep>();
+  private final List<UndoStep> listRedo = new ArrayList<UndoStep>();
+
+  /**
+   * The Step which collects changes since the last addUndo call, null if
+   * changes are not recorded.
+   */
+  private UndoStep recordingStep;
+
+  private final HexModelChangeSupport changeSupport = new HexModelChangeSupport(this);
+  private final Runnable iconsUpdated = new Runnable() {
+
+    @Override
+    public void run() {
+      changeSupport.modelChanged();
+    }
+  };
+
+  /**
+   * Journal record of one undo step. It keeps the layer header and either only
+   * the first old values of changed cells or, if the structure of the layer has
+   * been changed or too many cells have been changed, a copy of whole data. The
+   * Value table is recorded only if it has been changed, values are shared with
+   * the layer because they are never changed in place but replaced.
+   */
+  private static final class UndoStep {
 
-  private static class CopyOfLayerState {
     private final String name;
     private final String comment;
     private final boolean visible;
     private final int columns;
     private final int rows;
-    private final byte [] array;
-    private final HexFieldValue [] values;
-    
-    public CopyOfLayerState(final HexFieldLayer fld){
+    private HexFieldValue[] values;
+
+    private ChunkedByteHexModel fullData;
+
+    private int[] cells;
+    private byte[] cellValues;
+    private int size;
+
+    /**
+     * Open addressing set of recorded cell indexes, contains (index + 1) and
+     * zero for empty slots, it is null after recording.
+     */
+    private int[] recorded;
+    private int recordedNumber;
+
+    private UndoStep(final HexFieldLayer fld) {
       this.name = fld.name;
       this.comment = fld.comments;
-      this.array = fld.array.clone();
       this.columns = fld.columns;
       this.rows = fld.rows;
       this.visible = fld.visible;
-      
-      this.values = new HexFieldValue[fld.values.size()];
-      for(int i=0; i<fld.values.size();i++){
-        this.values [i] = fld.values.get(i).cloneValue();
+    }
+
+    private static UndoStep startRecording(final HexFieldLayer fld) {
+      final UndoStep result = new UndoStep(fld);
+      result.cells = new int[16];
+      result.cellValues = new byte[16];
+      result.recorded = new int[32];
+      return result;
+    }
+
+    /**
+     * Estimate size of a copy of data in bytes.
+     *
+     * @param data the data to be copied
+     * @return the size of allocated chunks and of their table
+     */
+    private static long copySize(final ChunkedByteHexModel data) {
+      final long chunkSize = data.getChunkSize();
+      return data.getOccupiedChunkNumber() * chunkSize * chunkSize + data.getChunkColumnNumber() * data.getChunkRowNumber() * 8L;
+    }
+
+    private void recordCell(final ChunkedByteHexModel data, final int col, final int row) {
+      if (this.fullData != null) {
+        return;
+      }
+
+      final int index = col + row * data.getColumnNumber();
+
+      final int mask = this.recorded.length - 1;
+      int slot = (index * 0x9E3779B9) >>> 1 & mask;
+      while (true) {
+        final int value = this.recorded[slot];
+        if (value == 0) {
+          break;
+        }
+        if (value == index + 1) {
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      this.recorded[slot] = index + 1;
+      this.recordedNumber++;
+
+      if (this.size == this.cells.length) {
+        this.cells = Arrays.copyOf(this.cells, this.size << 1);
+        this.cellValues = Arrays.copyOf(this.cellValues, this.size << 1);
+      }
+      this.cells[this.size] = index;
+      this.cellValues[this.size] = data.getByte(col, row);
+      this.size++;
+
+      // a journal record takes five bytes so that a copy of data can be cheaper
+      if (this.size * 5L > copySize(data)) {
+        recordWholeData(data);
+        return;
+      }
+
+      if (this.recordedNumber * 2 > this.recorded.length) {
+        this.recorded = new int[this.recorded.length << 1];
+        final int newMask = this.recorded.length - 1;
+        for (int i = 0; i < this.size; i++) {
+          int s = (this.cells[i] * 0x9E3779B9) >>> 1 & newMask;
+          while (this.recorded[s] != 0) {
+            s = (s + 1) & newMask;
+          }
+          this.recorded[s] = this.cells[i] + 1;
+        }
+      }
+    }
+
+    private void recordValues(final List<HexFieldValue> values) {
+      if (this.values == null) {
+        this.values = values.toArray(new HexFieldValue[values.size()]);
       }
     }
-    
-    public void restoreLayer(final HexFieldLayer fld){
+
+    private void recordWholeData(final ChunkedByteHexModel data) {
+      if (this.fullData != null) {
+        return;
+      }
+      this.fullData = data.cloneModel();
+      final int dataColumns = data.getColumnNumber();
+      for (int i = 0; i < this.size; i++) {
+        this.fullData.setByte(this.cells[i] % dataColumns, this.cells[i] / dataColumns, this.cellValues[i]);
+      }
+      this.cells = null;
+      this.cellValues = null;
+      this.size = 0;
+      this.recorded = null;
+    }
+
+    private void stopRecording() {
+      this.recorded = null;
+      if (this.cells != null && this.cells.length != this.size) {
+        this.cells = Arrays.copyOf(this.cells, this.size);
+        this.cellValues = Arrays.copyOf(this.cellValues, this.size);
+      }
+    }
+
+    /**
+     * Restore layer state from the step, the step can't be used after the call.
+     *
+     * @param fld the layer to be restored
+     * @return the step to restore the layer state which was before the call
+     */
+    private UndoStep restoreLayer(final HexFieldLayer fld) {
+      final UndoStep reverse = new UndoStep(fld);
+
+      if (this.fullData == null) {
+        final ChunkedByteHexModel data = fld.data;
+        for (int i = 0; i < this.size; i++) {
+          final int col = this.cells[i] % this.columns;
+          final int row = this.cells[i] / this.columns;
+          final byte current = data.getByte(col, row);
+          data.setByte(col, row, this.cellValues[i]);
+          this.cellValues[i] = current;
+        }
+        reverse.cells = this.cells;
+        reverse.cellValues = this.cellValues;
+        reverse.size = this.size;
+      }
+      else {
+        reverse.fullData = fld.data;
+        fld.data = this.fullData;
+      }
+
       fld.name = this.name;
       fld.comments = this.comment;
       fld.visible = this.visible;
       fld.columns = this.columns;
       fld.rows = this.rows;
-      fld.array = this.array.clone();
-      
-      fld.values.clear();
-      for(final HexFieldValue v : this.values){
-        fld.values.add(v.cloneValue());
+
+      if (this.values != null) {
+        reverse.recordValues(fld.values);
+        fld.values.clear();
+        fld.values.addAll(Arrays.asList(this.values));
       }
+
+      return reverse;
     }
   }
-  
-  
+
+  public int getUndoDepth() {
+    return this.undoDepth;
+  }
+
+  /**
+   * Set max number of undo steps kept by the layer, the oldest extra steps are
+   * removed.
+   *
+   * @param depth the undo depth, must be greater than zero
+   */
+  public void setUndoDepth(final int depth) {
+    if (depth <= 0) {
+      throw new IllegalArgumentException("Undo depth must be greater than zero [" + depth + ']');
+    }
+    this.undoDepth = depth;
+    while (this.listUndo.size() > depth) {
+      this.listUndo.remove(0);
+    }
+  }
+
   public HexFieldLayer(final String name, final String comments, final int width, final int height) {
+    this(name, comments, width, height, DEFAULT_UNDO_DEPTH);
+  }
+
+  public HexFieldLayer(final String name, final String comments, final int width, final int height, final int undoDepth) {
     if (name == null) {
       throw new NullPointerException("Name is null");
     }
@@ -90,12 +269,18 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
     this.comments = comments == null ? "" : comments;
     this.columns = width;
     this.rows = height;
-    this.array = new byte[this.columns * this.rows];
+    this.data = new ChunkedByteHexModel(this.columns, this.rows, this.defaultValue, this.defaultValue);
     this.name = name;
     this.values.add(HexFieldValue.NULL);
+    this.setUndoDepth(undoDepth);
   }
 
   public HexFieldLayer(final InputStream in) throws IOException {
+    this(in, DEFAULT_UNDO_DEPTH);
+  }
+
+  public HexFieldLayer(final InputStream in, final int undoDepth) throws IOException {
+    this.setUndoDepth(undoDepth);
     final DataInputStream din = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
     this.name = din.readUTF();
     this.comments = din.readUTF();
@@ -113,9 +298,11 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   
     final byte [] packedLayerData = new byte [din.readInt()];
     IOUtils.readFully(din, packedLayerData);
-    this.array = Utils.unpackArray(packedLayerData);
+    final byte[] array = Utils.unpackArray(packedLayerData);
 
-    if (this.array.length!=(this.columns*this.rows)) throw new IOException("Wrong field size");
+    if (array.length!=(this.columns*this.rows)) throw new IOException("Wrong field size");
+    this.data = new ChunkedByteHexModel(this.columns, this.rows, this.defaultValue, this.defaultValue);
+    this.data.loadArray(array);
   }
 
   private HexFieldLayer(final HexFieldLayer layer) {
@@ -124,7 +311,8 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
     this.rows = layer.rows;
     this.name = layer.name;
     this.comments = layer.comments;
-    this.array = layer.array.clone();
+    this.data = layer.data.cloneModel();
+    this.undoDepth = layer.undoDepth;
 
     for (final HexFieldValue h : layer.values) {
       this.values.add(h.cloneValue());
@@ -135,20 +323,30 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
     return new HexFieldLayer(this);
   }
 
+  /**
+   * Get values of all cells.
+   *
+   * @return a new row-major array of cell values
+   */
   public byte[] getArray() {
-    return this.array;
+    return this.data.toArray();
   }  
   
   public void loadFromAnotherInstance(final HexFieldLayer layer) {
+    if (this.recordingStep != null) {
+      this.recordingStep.recordWholeData(this.data);
+      this.recordingStep.recordValues(this.values);
+    }
     this.visible = layer.visible;
     this.columns = layer.columns;
     this.rows = layer.rows;
     this.name = layer.name;
     this.comments = layer.comments;
-    this.array = layer.array.clone();
+    this.data = layer.data.cloneModel();
 
     this.values.clear();
     this.values.addAll(layer.values);
+    this.changeSupport.modelChanged();
   }
 
   public void write(final OutputStream out) throws IOException {
@@ -165,7 +363,7 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
     dout.writeInt(this.rows);
     dout.writeBoolean(this.visible);
   
-    final byte [] packed = Utils.packByteArray(this.array);
+    final byte [] packed = Utils.packByteArray(this.data.toArray());
     dout.writeInt(packed.length);
     dout.write(packed);
     dout.flush();
@@ -192,7 +390,7 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   @Override
   public Byte getValueAt(final int col, final int row) {
     if (this.isPositionValid(col, row)) {
-      return array[col + row * this.columns];
+      return this.data.getByte(col, row);
     }
     else {
       return defaultValue;
@@ -204,10 +402,31 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
     return this.getValueAt(pos.getColumn(), pos.getRow());
   }
 
+  @Override
+  public byte getByte(final int col, final int row) {
+    if (this.isPositionValid(col, row)) {
+      return this.data.getByte(col, row);
+    }
+    else {
+      return this.defaultValue;
+    }
+  }
+
   @Override
   public void setValueAt(final int col, final int row, final Byte value) {
+    this.setByte(col, row, value.byteValue());
+  }
+
+  @Override
+  public void setByte(final int col, final int row, final byte value) {
     if (this.isPositionValid(col, row)) {
-      this.array[col + row * this.columns] = value.byteValue();
+      if (this.recordingStep != null) {
+        this.recordingStep.recordCell(this.data, col, row);
+      }
+      if (this.data.getByte(col, row) != value) {
+        this.data.setByte(col, row, value);
+        this.changeSupport.cellChanged(col, row);
+      }
     }
   }
 
@@ -224,16 +443,18 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
     if (value > 255) {
       throw new IllegalArgumentException("Too big value, must be 0...255");
     }
-    Arrays.fill(this.array, (byte)value);
+    if (this.recordingStep != null) {
+      this.recordingStep.recordWholeData(this.data);
+    }
+    this.data.fill((byte) value);
+    this.changeSupport.modelChanged();
   }
   
   public void setValueAtPos(final int col, final int row, final int i) {
     if (i > 255) {
       throw new IllegalArgumentException("Too big value, must be 0...255");
     }
-    if (isPositionValid(col, row)) {
-      this.array[col + row * this.columns] = (byte) i;
-    }
+    this.setByte(col, row, (byte) i);
   }
 
   @Override
@@ -259,7 +480,7 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
       return 0;
     }
     else {
-      return this.array[column + (row * this.columns)] & 0xFF;
+      return this.data.getByte(column, row) & 0xFF;
     }
   }
 
@@ -284,26 +505,35 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   }
 
   public void setVisible(final boolean flag) {
-    this.visible = flag;
+    if (this.visible != flag) {
+      this.visible = flag;
+      this.changeSupport.modelChanged();
+    }
   }
 
   public void resize(final int newColumns, final int newRows) {
-    final byte[] newArray = new byte[newColumns * newRows];
-
-    Arrays.fill(newArray, defaultValue);
-
-    final int columnsToCopy = Math.min(this.columns, newColumns);
-    final int rowsToCopy = Math.min(this.rows, newRows);
-
-    for (int i = 0; i < rowsToCopy; i++) {
-      final int newLineStart = i * newColumns;
-      final int oldLineStart = i * this.columns;
-      System.arraycopy(this.array, oldLineStart, newArray, newLineStart, columnsToCopy);
+    if (this.recordingStep != null) {
+      this.recordingStep.recordWholeData(this.data);
+    }
+    final ChunkedByteHexModel newData = new ChunkedByteHexModel(newColumns, newRows, this.defaultValue, this.defaultValue);
+
+    final int chunkSize = this.data.getChunkSize();
+    for (final long chunk : this.data.getOccupiedChunks(null)) {
+      final int col0 = HexEngine.extractColumnLong(chunk) * chunkSize;
+      final int row0 = HexEngine.extractRowLong(chunk) * chunkSize;
+      final int col1 = Math.min(col0 + chunkSize, newColumns);
+      final int row1 = Math.min(row0 + chunkSize, newRows);
+      for (int row = row0; row < row1; row++) {
+        for (int col = col0; col < col1; col++) {
+          newData.setByte(col, row, this.data.getByte(col, row));
+        }
+      }
     }
 
-    this.array = newArray;
+    this.data = newData;
     this.columns = newColumns;
     this.rows = newRows;
+    this.changeSupport.modelChanged();
   }
 
   public HexFieldValue getHexValueForIndex(final int index) {
@@ -318,19 +548,27 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   }
 
   public void addValue(final HexFieldValue value){
+    if (this.recordingStep != null) {
+      this.recordingStep.recordValues(this.values);
+    }
     value.setIndex(this.getHexValuesNumber());
     this.values.add(value);
   }
   
   public void replaceValues(final List<HexFieldValue> values) {
+    if (this.recordingStep != null) {
+      this.recordingStep.recordValues(this.values);
+    }
     this.values.clear();
     this.values.addAll(values);
+    this.changeSupport.modelChanged();
   }
 
   public void updatePrerasterizedIcons(final Path2D hexShape) {
     for (final HexFieldValue h : this.values) {
-      h.prerasterizeIcon(hexShape);
+      h.prerasterizeIconAsync(hexShape, this.iconsUpdated);
     }
+    this.changeSupport.modelChanged();
   }
   
   public boolean hasUndo(){
@@ -342,14 +580,19 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   }
   
   /**
-   * Add undo copy into inside list.
+   * Start new undo step, all following changes of the layer will be recorded
+   * into the step till the next call or till undo/redo.
    * @return true if the inside list too big and the first item has been removed, false otherwise
    */
   public boolean addUndo(){
     this.listRedo.clear();
-    this.listUndo.add(new CopyOfLayerState(this));
+    if (this.recordingStep != null) {
+      this.recordingStep.stopRecording();
+    }
+    this.recordingStep = UndoStep.startRecording(this);
+    this.listUndo.add(this.recordingStep);
     boolean result = false;
-    while(this.listUndo.size()>MAX_UNDO_DEPTH){
+    while(this.listUndo.size()>this.undoDepth){
       this.listUndo.remove(0);
       result = true;
     }
@@ -357,15 +600,17 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   }
   
   public void resetRedoUndo(){
+    this.recordingStep = null;
     this.listRedo.clear();
     this.listUndo.clear();
   } 
   
   public boolean undo(){
     if (!this.listUndo.isEmpty()){
-      this.listRedo.add(new CopyOfLayerState(this));
-      final CopyOfLayerState undoState = this.listUndo.remove(this.listUndo.size()-1);
-      undoState.restoreLayer(this);
+      stopUndoRecording();
+      final UndoStep undoState = this.listUndo.remove(this.listUndo.size()-1);
+      this.listRedo.add(undoState.restoreLayer(this));
+      this.changeSupport.modelChanged();
       return true;
     }
     return false;
@@ -373,51 +618,84 @@ public class HexFieldLayer implements HexEngineModel<Byte> {
   
   public boolean redo(){
     if (!this.listRedo.isEmpty()){
-      this.listUndo.add(new CopyOfLayerState(this));
-      final CopyOfLayerState redoState = this.listRedo.remove(this.listRedo.size() - 1);
-      redoState.restoreLayer(this);
+      stopUndoRecording();
+      final UndoStep redoState = this.listRedo.remove(this.listRedo.size() - 1);
+      this.listUndo.add(redoState.restoreLayer(this));
+      this.changeSupport.modelChanged();
       return true;
     }
     return false;
   }
+
+  private void stopUndoRecording() {
+    if (this.recordingStep != null) {
+      this.recordingStep.stopRecording();
+      this.recordingStep = null;
+    }
+  }
   
   public void updateIndexes(final List<Integer> removedIndexes, final List<Integer> insertedIndexes, final int numberOfActualElements) {
+    if (this.recordingStep != null) {
+      this.recordingStep.recordWholeData(this.data);
+    }
 
-    for (final Integer i : removedIndexes) {
-      if (insertedIndexes.contains(i)) {
-        continue;
-      }
-      for (int arrayIndex = 0; arrayIndex < this.array.length; arrayIndex++) {
-        final int current = this.array[arrayIndex] & 0xFF;
+    final byte[] table = new byte[256];
+    for (int value = 0; value < table.length; value++) {
+      int current = value;
+
+      for (final Integer i : removedIndexes) {
+        if (insertedIndexes.contains(i)) {
+          continue;
+        }
         if (current == i) {
-          this.array[arrayIndex] = 0;
+          current = 0;
         }
         else if (current > i) {
-          this.array[arrayIndex] = (byte) (current - 1);
+          current--;
         }
       }
-    }
 
-    for (final Integer i : insertedIndexes) {
-      if (removedIndexes.contains(i)) {
-        continue;
-      }
-      for (int arrayIndex = 0; arrayIndex < this.array.length; arrayIndex++) {
-        final int current = this.array[arrayIndex] & 0xFF;
+      for (final Integer i : insertedIndexes) {
+        if (removedIndexes.contains(i)) {
+          continue;
+        }
         if (current == i) {
-          this.array[arrayIndex] = 0;
+          current = 0;
         }
         else if (current >= i) {
-          this.array[arrayIndex] = (byte) (current + 1);
+          current = (current + 1) & 0xFF;
         }
       }
-    }
 
-    for (int arrayIndex = 0; arrayIndex < this.array.length; arrayIndex++) {
-      final int current = this.array[arrayIndex] & 0xFF;
-      if (current >= numberOfActualElements) {
-        this.array[arrayIndex] = 0;
-      }
+      table[value] = current >= numberOfActualElements ? 0 : (byte) current;
     }
+
+    this.data.remapValues(table);
+    this.changeSupport.modelChanged();
+  }
+
+  @Override
+  public void addHexEngineModelListener(final HexEngineModelListener listener) {
+    this.changeSupport.addListener(listener);
+  }
+
+  @Override
+  public void removeHexEngineModelListener(final HexEngineModelListener listener) {
+    this.changeSupport.removeListener(listener);
+  }
+
+  /**
+   * Start a batch of changes, changed cells are reported once by the outermost
+   * {@link #endUpdate()} call.
+   */
+  public void beginUpdate() {
+    this.changeSupport.beginUpdate();
+  }
+
+  /**
+   * Finish a batch of changes and report them to listeners.
+   */
+  public void endUpdate() {
+    this.changeSupport.endUpdate();
   }
 }
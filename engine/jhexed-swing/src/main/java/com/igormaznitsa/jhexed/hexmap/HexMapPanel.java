@@ -183,6 +183,34 @@ public class HexMapPanel extends JPanel {
     return this.hexField.getHexEngine();
   }
 
+  /**
+   * Drop cached tiles and composited stacks of the hex field, it must be
+   * called if options of the hex render have been changed.
+   */
+  public void invalidateCaches() {
+    this.hexField.invalidateCaches();
+  }
+
+  /**
+   * Set the memory budget for cached tiles of the hex field, zero disables the
+   * cache.
+   *
+   * @param bytes max number of bytes for cached tiles
+   */
+  public void setTileCacheBudget(final long bytes) {
+    this.hexField.setTileCacheBudget(bytes);
+  }
+
+  /**
+   * Set the memory budget for rasterized tiles of the background image, zero
+   * disables tiles.
+   *
+   * @param bytes max number of bytes for tiles
+   */
+  public void setBackgroundCacheBudget(final long bytes) {
+    this.mapImage.setCacheBudget(bytes);
+  }
+
   public void setShowBackImage(final boolean show) {
     this.mapImage.setShowImage(show);
   }
@@ -0,0 +1,183 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.hexmap;
+
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of rendered square tiles of a hex field. Tiles are kept for the
+ * current scale of the engine in LRU order and evicted when their total size
+ * exceeds the memory budget, a changed scale drops all tiles. Invalid tiles are
+ * rendered again into the same image when they are painted next time.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+final class HexTileCache {
+
+  public static final int TILE_SIZE = 256;
+  public static final long DEFAULT_BUDGET = 64L * 1024L * 1024L;
+
+  private static final class Tile {
+
+    private final BufferedImage image;
+    private boolean valid;
+
+    private Tile(final BufferedImage image) {
+      this.image = image;
+    }
+  }
+
+  private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<Long, Tile>(64, 0.75f, true);
+  private long budget = DEFAULT_BUDGET;
+  private long usedBytes;
+  private float scaleX = Float.NaN;
+  private float scaleY = Float.NaN;
+
+  private static long key(final int tx, final int ty) {
+    return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+  }
+
+  private static int tileIndex(final int coord) {
+    return coord < 0 ? -((TILE_SIZE - 1 - coord) / TILE_SIZE) : coord / TILE_SIZE;
+  }
+
+  public synchronized long getBudget() {
+    return this.budget;
+  }
+
+  public synchronized void setBudget(final long bytes) {
+    if (bytes < 0L) {
+      throw new IllegalArgumentException("Budget must not be negative [" + bytes + ']');
+    }
+    this.budget = bytes;
+    evict(0);
+  }
+
+  public synchronized boolean isEnabled() {
+    return this.budget > 0L;
+  }
+
+  public synchronized int size() {
+    return this.tiles.size();
+  }
+
+  public synchronized void invalidateAll() {
+    this.tiles.clear();
+    this.usedBytes = 0L;
+  }
+
+  /**
+   * Mark tiles intersecting a rectangle in component coordinates as invalid.
+   *
+   * @param area the area in component coordinates
+   */
+  public synchronized void invalidate(final Rectangle area) {
+    if (this.tiles.isEmpty() || area.isEmpty()) {
+      return;
+    }
+    final int tx0 = tileIndex(area.x);
+    final int ty0 = tileIndex(area.y);
+    final int tx1 = tileIndex(area.x + area.width - 1);
+    final int ty1 = tileIndex(area.y + area.height - 1);
+    for (int ty = ty0; ty <= ty1; ty++) {
+      for (int tx = tx0; tx <= tx1; tx++) {
+        final Tile tile = this.tiles.get(key(tx, ty));
+        if (tile != null) {
+          tile.valid = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Paint an area by tiles, missing and invalid tiles are rendered by the
+   * engine. The Engine must be locked by the caller.
+   *
+   * @param gfx the destination graphics
+   * @param clip the area to be painted in component coordinates
+   * @param engine the engine to render tiles
+   * @param config the graphics configuration to make compatible images, can be
+   * null
+   */
+  public synchronized void paint(final Graphics2D gfx, final Rectangle clip, final HexEngine<Graphics2D> engine, final GraphicsConfiguration config) {
+    if (engine.getScaleX() != this.scaleX || engine.getScaleY() != this.scaleY) {
+      invalidateAll();
+      this.scaleX = engine.getScaleX();
+      this.scaleY = engine.getScaleY();
+    }
+
+    final int tx0 = tileIndex(clip.x);
+    final int ty0 = tileIndex(clip.y);
+    final int tx1 = tileIndex(clip.x + clip.width - 1);
+    final int ty1 = tileIndex(clip.y + clip.height - 1);
+    final int visibleTiles = (tx1 - tx0 + 1) * (ty1 - ty0 + 1);
+
+    for (int ty = ty0; ty <= ty1; ty++) {
+      for (int tx = tx0; tx <= tx1; tx++) {
+        final Long key = key(tx, ty);
+        Tile tile = this.tiles.get(key);
+        if (tile == null) {
+          evict(visibleTiles);
+          final BufferedImage image = config == null
+                  ? new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE)
+                  : config.createCompatibleImage(TILE_SIZE, TILE_SIZE, Transparency.TRANSLUCENT);
+          tile = new Tile(image);
+          this.tiles.put(key, tile);
+          this.usedBytes += (long) TILE_SIZE * TILE_SIZE * 4L;
+        }
+        if (!tile.valid) {
+          render(tile, tx * TILE_SIZE, ty * TILE_SIZE, engine);
+        }
+        gfx.drawImage(tile.image, tx * TILE_SIZE, ty * TILE_SIZE, null);
+      }
+    }
+  }
+
+  private void render(final Tile tile, final int x, final int y, final HexEngine<Graphics2D> engine) {
+    final Graphics2D tileGfx = tile.image.createGraphics();
+    try {
+      tileGfx.setComposite(AlphaComposite.Clear);
+      tileGfx.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+      tileGfx.setComposite(AlphaComposite.SrcOver);
+      tileGfx.translate(-x, -y);
+      tileGfx.clipRect(x, y, TILE_SIZE, TILE_SIZE);
+      engine.drawArea(tileGfx, new HexRect2D(x, y, TILE_SIZE, TILE_SIZE), false);
+    }
+    finally {
+      tileGfx.dispose();
+    }
+    tile.valid = true;
+  }
+
+  /**
+   * Remove least recently used tiles while the budget is exceeded, but keep
+   * tiles which can be needed for the current paint.
+   */
+  private void evict(final int keep) {
+    final long tileBytes = (long) TILE_SIZE * TILE_SIZE * 4L;
+    final Iterator<Tile> iterator = this.tiles.values().iterator();
+    while (iterator.hasNext() && this.tiles.size() > keep && this.usedBytes + tileBytes > this.budget) {
+      iterator.next();
+      iterator.remove();
+      this.usedBytes -= tileBytes;
+    }
+  }
+}
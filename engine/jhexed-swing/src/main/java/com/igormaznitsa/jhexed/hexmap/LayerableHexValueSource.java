@@ -22,5 +22,14 @@ import com.igormaznitsa.jhexed.values.HexFieldValue;
  * @author Igor Maznitsa (http://www.igormaznitsa.com)
  */
 public interface LayerableHexValueSource {
+  /**
+   * Get values of a cell on visible layers, from the bottom layer to the top
+   * one. The Result can be reused by the next call in the same thread, so that
+   * it must not be kept.
+   *
+   * @param col the cell column
+   * @param row the cell row
+   * @return values of the cell stack
+   */
   Iterable<HexFieldValue> getHexStackAtPosition(int col, int row);
 }
@@ -19,6 +19,9 @@ import com.igormaznitsa.jhexed.engine.*;
 import com.igormaznitsa.jhexed.renders.swing.ColorHexRender;
 import com.igormaznitsa.jhexed.values.HexFieldValue;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class LayerableHexValueSourceRender extends ColorHexRender {
 
@@ -27,10 +30,164 @@ public class LayerableHexValueSourceRender extends ColorHexRender {
   private Color borderColor = Color.black;
   private boolean showBorders = true;
 
+  /**
+   * Max number of composited stacks kept in the cache, the least recently
+   * used stack is removed when the number is exceeded.
+   */
+  public static final int MAX_CACHED_STACKS = 4096;
+
+  private final StackCache stackCache = new StackCache();
+  private final ThreadLocal<StackKey> probeKey = new ThreadLocal<StackKey>() {
+    @Override
+    protected StackKey initialValue() {
+      return new StackKey();
+    }
+  };
+  private volatile boolean stackCacheEnabled = true;
+
+  /**
+   * Sequence of values of a cell stack, every value is described by its
+   * position in the stack and its index in the value table of its layer, so
+   * that equal indexes on different layers make different keys. The Key doesn't
+   * depend on value objects, so the cache must be invalidated if value tables
+   * or icons of layers are changed. Values are kept only by the probe key to
+   * be composited, they are not copied into keys of the cache.
+   */
+  private static final class StackKey {
+
+    private long[] codes;
+    private HexFieldValue[] values;
+    private int size;
+    private int hash;
+
+    private StackKey() {
+      this.codes = new long[8];
+      this.values = new HexFieldValue[8];
+    }
+
+    private StackKey(final StackKey key) {
+      this.codes = new long[key.size];
+      System.arraycopy(key.codes, 0, this.codes, 0, key.size);
+      this.size = key.size;
+      this.hash = key.hash;
+    }
+
+    private void reset() {
+      for (int i = 0; i < this.size; i++) {
+        this.values[i] = null;
+      }
+      this.size = 0;
+      this.hash = 1;
+    }
+
+    private void add(final int position, final HexFieldValue value) {
+      if (this.size == this.codes.length) {
+        final long[] newCodes = new long[this.size << 1];
+        System.arraycopy(this.codes, 0, newCodes, 0, this.size);
+        this.codes = newCodes;
+        final HexFieldValue[] newValues = new HexFieldValue[this.size << 1];
+        System.arraycopy(this.values, 0, newValues, 0, this.size);
+        this.values = newValues;
+      }
+      final long code = ((long) position << 32) | (value.getIndex() & 0xFFFFFFFFL);
+      this.codes[this.size] = code;
+      this.values[this.size++] = value;
+      this.hash = this.hash * 31 + (int) (code ^ (code >>> 32));
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof StackKey)) {
+        return false;
+      }
+      final StackKey that = (StackKey) obj;
+      if (this.size != that.size || this.hash != that.hash) {
+        return false;
+      }
+      for (int i = 0; i < this.size; i++) {
+        if (this.codes[i] != that.codes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * LRU map of composited stacks, access must be synchronized on the map.
+   */
+  private static final class StackCache extends LinkedHashMap<StackKey, Image> {
+
+    private static final long serialVersionUID = -3263741729861034781L;
+
+    private StackCache() {
+      super(256, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<StackKey, Image> eldest) {
+      return this.size() > MAX_CACHED_STACKS;
+    }
+  }
+
   public LayerableHexValueSourceRender() {
     super();
   }
 
+  /**
+   * Drop all composited stack images, must be called if value tables of
+   * layers, prerasterized images of values or the order and visibility of
+   * layers are changed.
+   */
+  public void invalidateStackCache() {
+    synchronized (this.stackCache) {
+      this.stackCache.clear();
+    }
+  }
+
+  /**
+   * Enable or disable caching of composited images of cell stacks.
+   *
+   * @param flag true to cache composited stacks, false to draw every value of
+   * a stack
+   */
+  public void setStackCacheEnabled(final boolean flag) {
+    this.stackCacheEnabled = flag;
+    if (!flag) {
+      invalidateStackCache();
+    }
+  }
+
+  @Override
+  public void onModelChanged(final HexEngine<?> source, final HexEngineModel<?> oldModel, final HexEngineModel<?> newModel) {
+    super.onModelChanged(source, oldModel, newModel);
+    // keys are valid only for layers of the same model
+    invalidateStackCache();
+  }
+
+  public boolean isStackCacheEnabled() {
+    return this.stackCacheEnabled;
+  }
+
+  /**
+   * Get the number of composited stacks in the cache.
+   *
+   * @return the number of cached stack images
+   */
+  public int getStackCacheSize() {
+    synchronized (this.stackCache) {
+      return this.stackCache.size();
+    }
+  }
+
   public Color getCommonBorderColor() {
     return this.borderColor;
   }
@@ -83,11 +240,74 @@ public class LayerableHexValueSourceRender extends ColorHexRender {
   @Override
   public void drawUnderBorder(final HexEngine<Graphics2D> engine, final Graphics2D g, final int col, final int row, final Color borderColor, final Color fillColor) {
     final LayerableHexValueSource stackSource = (LayerableHexValueSource) engine.getModel();
+    final StackKey key = this.probeKey.get();
+    key.reset();
+    int position = 0;
     for(final HexFieldValue v : stackSource.getHexStackAtPosition(col, row)){
-      if (v != null) {
-        g.drawImage(v.getPrerasterized(), 0, 0, null);
+      if (v != null && v.getPrerasterized() != null) {
+        key.add(position, v);
+      }
+      position++;
+    }
+
+    if (key.size == 0) {
+      return;
+    }
+
+    Image image = null;
+    if (key.size > 1 && this.stackCacheEnabled) {
+      synchronized (this.stackCache) {
+        image = this.stackCache.get(key);
       }
+      if (image == null) {
+        image = makeComposite(key);
+        if (image != null) {
+          synchronized (this.stackCache) {
+            this.stackCache.put(new StackKey(key), image);
+          }
+        }
+      }
+    }
+
+    if (image == null) {
+      for (int i = 0; i < key.size; i++) {
+        g.drawImage(key.values[i].getPrerasterized(), 0, 0, null);
+      }
+    }
+    else {
+      g.drawImage(image, 0, 0, null);
+    }
+  }
+
+  private static Image makeComposite(final StackKey key) {
+    int width = 0;
+    int height = 0;
+    for (int i = 0; i < key.size; i++) {
+      final Image img = key.values[i].getPrerasterized();
+      final int w = img.getWidth(null);
+      final int h = img.getHeight(null);
+      if (w < 0 || h < 0) {
+        // not loaded yet image
+        return null;
+      }
+      width = Math.max(width, w);
+      height = Math.max(height, h);
+    }
+    if (width == 0 || height == 0) {
+      return null;
+    }
+
+    final BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    final Graphics2D gfx = result.createGraphics();
+    try {
+      for (int i = 0; i < key.size; i++) {
+        gfx.drawImage(key.values[i].getPrerasterized(), 0, 0, null);
+      }
+    }
+    finally {
+      gfx.dispose();
     }
+    return result;
   }
 
 }
@@ -26,6 +26,8 @@ final class SVGImageFieldComponent extends JComponent implements HexMapPanelInsi
   private static final long serialVersionUID = 7548716206830303193L;
 
   private SVGImage svgImage;
+  private SVGImageMipmap mipmap;
+  private long mipmapBudget = SVGImageMipmap.DEFAULT_BUDGET;
   private final HexMapPanel parent;
 
   private boolean showImage = true;
@@ -40,6 +42,13 @@ final class SVGImageFieldComponent extends JComponent implements HexMapPanelInsi
 
   public void setSVGImage(final SVGImage img) {
     this.svgImage = img;
+    if (this.mipmap != null) {
+      this.mipmap.clear();
+    }
+    this.mipmap = img == null ? null : new SVGImageMipmap(img, this);
+    if (this.mipmap != null) {
+      this.mipmap.setBudget(this.mipmapBudget);
+    }
     updateSizeForImage();
     revalidate();
     repaint();
@@ -86,23 +95,28 @@ final class SVGImageFieldComponent extends JComponent implements HexMapPanelInsi
 
   @Override
   protected void paintComponent(final Graphics g) {
-    if (this.showImage) {
+    if (this.showImage && this.svgImage != null) {
       try {
-        final Container c = getParent();
         final Graphics2D g2d = (Graphics2D) g;
-        final AffineTransform t = g2d.getTransform();
+        final float zoom = this.parent.getZoom();
 
-        final AffineTransform z = new AffineTransform(t);
+        final SVGImageMipmap theMipmap = this.mipmap;
+        if (theMipmap != null && this.mipmapBudget > 0L) {
+          theMipmap.paint(g2d, g2d.getClipBounds(), zoom);
+        }
+        else {
+          final AffineTransform t = g2d.getTransform();
 
-        final float zoom = this.parent.getZoom();
+          final AffineTransform z = new AffineTransform(t);
 
-        z.scale(zoom, zoom);
+          z.scale(zoom, zoom);
 
-        g2d.setTransform(z);
+          g2d.setTransform(z);
 
-        svgImage.render(g2d);
+          svgImage.render(g2d);
 
-        g2d.setTransform(t);
+          g2d.setTransform(t);
+        }
 
         g2d.setColor(Color.red);
         g2d.drawRect(0, 0, getBounds().width, getBounds().height);
@@ -123,6 +137,23 @@ final class SVGImageFieldComponent extends JComponent implements HexMapPanelInsi
     }
   }
 
+  /**
+   * Set the memory budget for rasterized tiles of the image.
+   *
+   * @param bytes max number of bytes for tiles, zero disables tiles and the
+   * image is rendered directly
+   */
+  public void setCacheBudget(final long bytes) {
+    if (bytes < 0L) {
+      throw new IllegalArgumentException("Budget must not be negative [" + bytes + ']');
+    }
+    this.mipmapBudget = bytes;
+    if (this.mipmap != null) {
+      this.mipmap.setBudget(bytes);
+    }
+    repaint();
+  }
+
   public boolean isShowImage() {
     return this.showImage;
   }
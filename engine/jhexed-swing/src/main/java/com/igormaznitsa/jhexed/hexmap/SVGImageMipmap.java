@@ -0,0 +1,284 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.hexmap;
+
+import com.igormaznitsa.jhexed.renders.svg.SVGImage;
+import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JComponent;
+
+/**
+ * Mipmap pyramid of rasterized tiles of an SVG image at power-of-two scales.
+ * Tiles are rasterized lazily by a background thread, while a tile is not
+ * ready a part of a tile of a coarser level is drawn instead, or the image is
+ * rendered directly if there is no such tile. Tiles are kept in LRU order
+ * within a memory budget.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+final class SVGImageMipmap {
+
+  public static final int TILE_SIZE = 512;
+  public static final int MIN_LEVEL = -4;
+  public static final int MAX_LEVEL = 4;
+  public static final long DEFAULT_BUDGET = 64L * 1024L * 1024L;
+
+  private static final Logger LOGGER = Logger.getLogger(SVGImageMipmap.class.getName());
+
+  private static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * 4L;
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+    @Override
+    public Thread newThread(final Runnable r) {
+      final Thread result = new Thread(r, "jhexed-svg-mipmap");
+      result.setDaemon(true);
+      result.setPriority(Thread.NORM_PRIORITY - 1);
+      return result;
+    }
+  });
+
+  private final SVGImage image;
+  private final JComponent component;
+  private final LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(64, 0.75f, true);
+  private final Set<Long> pending = new HashSet<Long>();
+  private long budget = DEFAULT_BUDGET;
+  private long usedBytes;
+  private boolean quality;
+  private int generation;
+  private volatile int currentLevel = Integer.MIN_VALUE;
+
+  public SVGImageMipmap(final SVGImage image, final JComponent component) {
+    if (image == null) {
+      throw new NullPointerException("Image must not be null");
+    }
+    this.image = image;
+    this.component = component;
+    this.quality = image.isQuality();
+  }
+
+  private static long key(final int level, final int tx, final int ty) {
+    return ((long) (level - MIN_LEVEL) << 48) | ((tx & 0xFFFFFFL) << 24) | (ty & 0xFFFFFFL);
+  }
+
+  private static float scaleOf(final int level) {
+    return level < 0 ? 1.0f / (1 << -level) : (float) (1 << level);
+  }
+
+  /**
+   * Get the level which scale is the closest one to a zoom.
+   *
+   * @param zoom the zoom factor
+   * @return the level, scale of the level is 2^level
+   */
+  public static int findLevel(final float zoom) {
+    final int level = Math.round((float) (Math.log(zoom) / Math.log(2.0d)));
+    return Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level));
+  }
+
+  public SVGImage getImage() {
+    return this.image;
+  }
+
+  public synchronized void setBudget(final long bytes) {
+    this.budget = bytes;
+    evict();
+  }
+
+  public synchronized void clear() {
+    this.tiles.clear();
+    this.pending.clear();
+    this.usedBytes = 0L;
+    this.generation++;
+  }
+
+  private void evict() {
+    final Iterator<BufferedImage> iterator = this.tiles.values().iterator();
+    while (this.usedBytes > this.budget && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      this.usedBytes -= TILE_BYTES;
+    }
+  }
+
+  private synchronized BufferedImage findTile(final int level, final int tx, final int ty) {
+    return this.tiles.get(key(level, tx, ty));
+  }
+
+  /**
+   * Paint the image.
+   *
+   * @param g the graphics in component coordinates
+   * @param clip the area to be painted
+   * @param zoom the zoom of the image
+   */
+  public void paint(final Graphics2D g, final Rectangle clip, final float zoom) {
+    final int level = findLevel(zoom);
+    final float scale = scaleOf(level);
+    final float factor = zoom / scale;
+    final float tileStep = TILE_SIZE * factor;
+
+    synchronized (this) {
+      if (this.quality != this.image.isQuality()) {
+        this.quality = this.image.isQuality();
+        clear();
+      }
+    }
+    this.currentLevel = level;
+
+    final int levelWidth = (int) Math.ceil(this.image.getSVGWidth() * scale);
+    final int levelHeight = (int) Math.ceil(this.image.getSVGHeight() * scale);
+    final int maxTx = (levelWidth - 1) / TILE_SIZE;
+    final int maxTy = (levelHeight - 1) / TILE_SIZE;
+
+    final int tx0 = Math.max(0, (int) Math.floor(clip.x / tileStep));
+    final int ty0 = Math.max(0, (int) Math.floor(clip.y / tileStep));
+    final int tx1 = Math.min(maxTx, (int) Math.floor((clip.x + clip.width - 1) / tileStep));
+    final int ty1 = Math.min(maxTy, (int) Math.floor((clip.y + clip.height - 1) / tileStep));
+
+    final Object interpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    // tiles without any raster are painted by one direct rendering
+    Area missing = null;
+    try {
+      for (int ty = ty0; ty <= ty1; ty++) {
+        for (int tx = tx0; tx <= tx1; tx++) {
+          // neighbour tiles share borders to avoid seams
+          final int x0 = (int) Math.floor(tx * tileStep);
+          final int y0 = (int) Math.floor(ty * tileStep);
+          final int x1 = (int) Math.floor((tx + 1) * tileStep);
+          final int y1 = (int) Math.floor((ty + 1) * tileStep);
+
+          final BufferedImage tile = findTile(level, tx, ty);
+          if (tile == null) {
+            requestTile(level, tx, ty, new Rectangle(x0, y0, x1 - x0, y1 - y0));
+            if (!paintFromCoarserLevel(g, level, tx, ty, x0, y0, x1, y1)) {
+              if (missing == null) {
+                missing = new Area();
+              }
+              missing.add(new Area(new Rectangle(x0, y0, x1 - x0, y1 - y0)));
+            }
+          }
+          else {
+            g.drawImage(tile, x0, y0, x1, y1, 0, 0, TILE_SIZE, TILE_SIZE, null);
+          }
+        }
+      }
+      if (missing != null) {
+        paintDirectly(g, zoom, missing);
+      }
+    }
+    finally {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation == null ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR : interpolation);
+    }
+  }
+
+  private boolean paintFromCoarserLevel(final Graphics2D g, final int level, final int tx, final int ty, final int x0, final int y0, final int x1, final int y1) {
+    for (int l = level - 1; l >= MIN_LEVEL; l--) {
+      final int shift = level - l;
+      final BufferedImage tile = findTile(l, tx >> shift, ty >> shift);
+      if (tile != null) {
+        final int size = TILE_SIZE >> shift;
+        if (size == 0) {
+          return false;
+        }
+        final int sx = (tx & ((1 << shift) - 1)) * size;
+        final int sy = (ty & ((1 << shift) - 1)) * size;
+        g.drawImage(tile, x0, y0, x1, y1, sx, sy, sx + size, sy + size, null);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void paintDirectly(final Graphics2D g, final float zoom, final Shape area) {
+    final Graphics2D gfx = (Graphics2D) g.create();
+    try {
+      gfx.clip(area);
+      gfx.scale(zoom, zoom);
+      this.image.render(gfx);
+    }
+    catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "Can't render SVG image directly", ex);
+    }
+    finally {
+      gfx.dispose();
+    }
+  }
+
+  private void requestTile(final int level, final int tx, final int ty, final Rectangle area) {
+    final Long key = key(level, tx, ty);
+    final int gen;
+    synchronized (this) {
+      if (!this.pending.add(key)) {
+        return;
+      }
+      gen = this.generation;
+    }
+
+    executor.execute(new Runnable() {
+
+      @Override
+      public void run() {
+        BufferedImage tile = null;
+        // tiles of levels which are not painted anymore are skipped
+        if (currentLevel == level) {
+          tile = rasterize(level, tx, ty);
+        }
+        synchronized (SVGImageMipmap.this) {
+          if (gen != generation) {
+            return;
+          }
+          pending.remove(key);
+          if (tile != null && TILE_BYTES <= budget) {
+            tiles.put(key, tile);
+            usedBytes += TILE_BYTES;
+            evict();
+          }
+        }
+        if (tile != null && component != null) {
+          component.repaint(area.x, area.y, area.width, area.height);
+        }
+      }
+    });
+  }
+
+  private BufferedImage rasterize(final int level, final int tx, final int ty) {
+    final float scale = scaleOf(level);
+    final BufferedImage result = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = result.createGraphics();
+    try {
+      g.setClip(0, 0, TILE_SIZE, TILE_SIZE);
+      g.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+      g.scale(scale, scale);
+      this.image.render(g);
+      return result;
+    }
+    catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "Can't rasterize mipmap tile [" + level + ':' + tx + ',' + ty + ']', ex);
+      return null;
+    }
+    finally {
+      g.dispose();
+    }
+  }
+}
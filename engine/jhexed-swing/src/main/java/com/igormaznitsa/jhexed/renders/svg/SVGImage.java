@@ -20,6 +20,7 @@ import java.awt.*;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.Arrays;
 import org.apache.batik.bridge.*;
 import org.apache.batik.dom.svg.SAXSVGDocumentFactory;
 import org.apache.batik.gvt.GraphicsNode;
@@ -33,6 +34,8 @@ public class SVGImage {
   private boolean quality = true;
   private final byte[] originalNonParsedImageData;
   private final Dimension2D documentSize = new Dimension();
+  private volatile int contentHash;
+  private volatile boolean contentHashReady;
 
   private static byte[] readFullInputStream (final InputStream in) throws IOException {
     final byte[] buffer = new byte[16384];
@@ -105,6 +108,24 @@ public class SVGImage {
     this.svgGraphicsNode = loadDiagramFromStream(new ByteArrayInputStream(this.originalNonParsedImageData), this.documentSize);
   }
 
+  private SVGImage (final byte[] data, final boolean quality) throws IOException {
+    this.originalNonParsedImageData = data;
+    this.quality = quality;
+    this.svgGraphicsNode = loadDiagramFromStream(new ByteArrayInputStream(data), this.documentSize);
+  }
+
+  /**
+   * Make a copy of the image with its own parsed graphics tree. Painting of
+   * the graphics tree is synchronized, so that threads painting the same image
+   * in parallel should use own copies.
+   *
+   * @return a new image with the same data and quality
+   * @throws IOException it will be thrown if the image can't be parsed
+   */
+  public SVGImage copy () throws IOException {
+    return new SVGImage(this.originalNonParsedImageData, this.quality);
+  }
+
   public void write (final OutputStream out, final boolean zipped) throws IOException {
     final DataOutputStream dout = out instanceof DataOutputStream ? (DataOutputStream) out : new DataOutputStream(out);
     if (zipped) {
@@ -139,13 +160,23 @@ public class SVGImage {
     return this.originalNonParsedImageData;
   }
 
+  public int getContentHash () {
+    if (!this.contentHashReady) {
+      this.contentHash = Arrays.hashCode(this.originalNonParsedImageData);
+      this.contentHashReady = true;
+    }
+    return this.contentHash;
+  }
+
   public void render (final Graphics2D g) throws IOException {
     final Object antialiasText = g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
     final Object antialiasDraw = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
     final Object antialiasAlpha = g.getRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION);
     try {
       processAntialias(this.quality, g);
-      this.svgGraphicsNode.primitivePaint(g);
+      synchronized (this.svgGraphicsNode) {
+        this.svgGraphicsNode.primitivePaint(g);
+      }
     }
     finally {
       g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasText == null ? RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT : antialiasText);
@@ -162,7 +193,9 @@ public class SVGImage {
     final Graphics2D g = result.createGraphics();
 
     processAntialias(this.quality, g);
-    this.svgGraphicsNode.primitivePaint(g);
+    synchronized (this.svgGraphicsNode) {
+      this.svgGraphicsNode.primitivePaint(g);
+    }
 
     g.dispose();
     return result;
@@ -184,7 +217,10 @@ public class SVGImage {
 
     processAntialias(this.quality, g);
     g.setTransform(AffineTransform.getScaleInstance(xfactor, yfactor));
-    this.svgGraphicsNode.primitivePaint(g);
+    // the graphics tree can be painted by background rasterization threads
+    synchronized (this.svgGraphicsNode) {
+      this.svgGraphicsNode.primitivePaint(g);
+    }
 
     g.dispose();
     return result;
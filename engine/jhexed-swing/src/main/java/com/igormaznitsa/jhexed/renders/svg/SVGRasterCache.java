@@ -0,0 +1,251 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.renders.svg;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Global LRU cache of rasterized SVG images shared by all values. Rasters are
+ * keyed by the SVG content, the quality flag and the requested size quantized
+ * to buckets (eight buckets per doubling of size), so that zooming back and
+ * forth finds the same rasters and doesn't call Batik. Returned images must
+ * not be changed.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public final class SVGRasterCache {
+
+  public static final long DEFAULT_BUDGET = 32L * 1024L * 1024L;
+
+  private static final int BUCKETS_PER_OCTAVE = 8;
+  private static final int MIN_QUANTIZED_SIZE = 16;
+
+  private static final class Key {
+
+    private final byte[] data;
+    private final int contentHash;
+    private final int width;
+    private final int height;
+    private final boolean quality;
+
+    private Key(final SVGImage image, final int width, final int height) {
+      this.data = image.getImageData();
+      this.contentHash = image.getContentHash();
+      this.width = width;
+      this.height = height;
+      this.quality = image.isQuality();
+    }
+
+    @Override
+    public int hashCode() {
+      return ((this.contentHash * 31 + this.width) * 31 + this.height) * 2 + (this.quality ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return this.contentHash == that.contentHash
+              && this.width == that.width
+              && this.height == that.height
+              && this.quality == that.quality
+              && (this.data == that.data || Arrays.equals(this.data, that.data));
+    }
+  }
+
+  private static final LinkedHashMap<Key, BufferedImage> cache = new LinkedHashMap<Key, BufferedImage>(64, 0.75f, true);
+  private static long budget = DEFAULT_BUDGET;
+  private static long usedBytes;
+  private static long hits;
+  private static long misses;
+
+  private SVGRasterCache() {
+  }
+
+  /**
+   * Quantize a size of raster up to the nearest bucket, small sizes are not
+   * quantized.
+   *
+   * @param size the size in pixels
+   * @return the bucket size which is not less than the size
+   */
+  public static int quantize(final int size) {
+    if (size <= MIN_QUANTIZED_SIZE) {
+      return size;
+    }
+    final double level = Math.ceil(Math.log(size) / Math.log(2.0d) * BUCKETS_PER_OCTAVE - 1.0e-6d);
+    return Math.max(size, (int) Math.ceil(Math.pow(2.0d, level / BUCKETS_PER_OCTAVE) - 1.0e-6d));
+  }
+
+  /**
+   * Get a raster of an SVG image for a size. The Size of the returned raster
+   * is the quantized size so that it can be a bit bigger than the requested
+   * one.
+   *
+   * @param image the SVG image, must not be null
+   * @param width the needed width in pixels
+   * @param height the needed height in pixels
+   * @return the raster in the TYPE_INT_ARGB format, must not be changed
+   * @throws IOException it will be thrown for rasterization errors
+   */
+  public static BufferedImage getRaster(final SVGImage image, final int width, final int height) throws IOException {
+    if (image == null) {
+      throw new NullPointerException("Image must not be null");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Wrong raster size [" + width + 'x' + height + ']');
+    }
+
+    final Key key = new Key(image, quantize(width), quantize(height));
+    synchronized (cache) {
+      final BufferedImage result = cache.get(key);
+      if (result != null) {
+        hits++;
+        return result;
+      }
+      misses++;
+    }
+
+    final BufferedImage result = image.rasterize(key.width, key.height, BufferedImage.TYPE_INT_ARGB);
+    final long bytes = (long) key.width * key.height * 4L;
+
+    synchronized (cache) {
+      if (bytes <= budget && !cache.containsKey(key)) {
+        cache.put(key, result);
+        usedBytes += bytes;
+        evict();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get a raster from the cache without rasterization.
+   *
+   * @param image the SVG image, must not be null
+   * @param width the needed width in pixels
+   * @param height the needed height in pixels
+   * @return the cached raster of the quantized size or null if it is not
+   * cached
+   */
+  public static BufferedImage getCachedRaster(final SVGImage image, final int width, final int height) {
+    final Key key = new Key(image, quantize(width), quantize(height));
+    synchronized (cache) {
+      final BufferedImage result = cache.get(key);
+      if (result != null) {
+        hits++;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Find a cached raster of an image which size is the nearest one to a
+   * needed size, it can be used as a placeholder while the raster of the
+   * needed size is being built.
+   *
+   * @param image the SVG image, must not be null
+   * @param width the needed width in pixels
+   * @param height the needed height in pixels
+   * @return the nearest cached raster or null if there is no any raster of the
+   * image
+   */
+  public static BufferedImage findNearestRaster(final SVGImage image, final int width, final int height) {
+    final Key probe = new Key(image, width, height);
+    BufferedImage result = null;
+    long bestDistance = Long.MAX_VALUE;
+    synchronized (cache) {
+      for (final Map.Entry<Key, BufferedImage> e : cache.entrySet()) {
+        final Key key = e.getKey();
+        if (key.contentHash == probe.contentHash
+                && key.quality == probe.quality
+                && (key.data == probe.data || Arrays.equals(key.data, probe.data))) {
+          // downscaled bigger rasters look better than upscaled smaller ones
+          final long dw = key.width - width;
+          final long dh = key.height - height;
+          final long distance = (dw < 0L ? -dw * 2L : dw) + (dh < 0L ? -dh * 2L : dh);
+          if (distance < bestDistance) {
+            bestDistance = distance;
+            result = e.getValue();
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void evict() {
+    final Iterator<Map.Entry<Key, BufferedImage>> iterator = cache.entrySet().iterator();
+    while (usedBytes > budget && iterator.hasNext()) {
+      final BufferedImage img = iterator.next().getValue();
+      iterator.remove();
+      usedBytes -= (long) img.getWidth() * img.getHeight() * 4L;
+    }
+  }
+
+  /**
+   * Set the max number of bytes for cached rasters.
+   *
+   * @param bytes the budget in bytes, zero disables caching
+   */
+  public static void setBudget(final long bytes) {
+    if (bytes < 0L) {
+      throw new IllegalArgumentException("Budget must not be negative [" + bytes + ']');
+    }
+    synchronized (cache) {
+      budget = bytes;
+      evict();
+    }
+  }
+
+  public static long getBudget() {
+    synchronized (cache) {
+      return budget;
+    }
+  }
+
+  public static long getUsedBytes() {
+    synchronized (cache) {
+      return usedBytes;
+    }
+  }
+
+  public static long getHitCount() {
+    synchronized (cache) {
+      return hits;
+    }
+  }
+
+  public static long getMissCount() {
+    synchronized (cache) {
+      return misses;
+    }
+  }
+
+  public static void clear() {
+    synchronized (cache) {
+      cache.clear();
+      usedBytes = 0L;
+    }
+  }
+}
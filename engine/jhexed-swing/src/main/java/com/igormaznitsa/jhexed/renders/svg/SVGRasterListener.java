@@ -0,0 +1,38 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.renders.svg;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Listener of rasters built in background by the SVG raster service.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public interface SVGRasterListener {
+
+  /**
+   * Called on the event dispatch thread when a requested raster is ready and
+   * the request was not superseded or canceled.
+   *
+   * @param image the rasterized image
+   * @param width the requested width
+   * @param height the requested height
+   * @param raster the raster, its size is quantized by the cache so that it
+   * can be a bit bigger than the requested one, must not be changed
+   */
+  void onRasterReady(SVGImage image, int width, int height, BufferedImage raster);
+}
@@ -0,0 +1,189 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.renders.svg;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+/**
+ * Service to rasterize SVG images in background by a small pool of daemon
+ * threads. Requests are coalesced by their owners, a new request of an owner
+ * supersedes its previous one so that a stale job is skipped or its result is
+ * dropped. Rasters are taken from and placed into the SVG raster cache.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public final class SVGRasterService {
+
+  private static final Logger LOGGER = Logger.getLogger(SVGRasterService.class.getName());
+
+  /**
+   * Number of worker threads.
+   */
+  public static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+  private static final Map<Object, Job> jobs = new IdentityHashMap<Object, Job>();
+  private static ExecutorService executor;
+
+  private static final class Job implements Runnable {
+
+    private final Object owner;
+    private final SVGImage image;
+    private final int width;
+    private final int height;
+    private final SVGRasterListener listener;
+    private volatile boolean canceled;
+
+    private Job(final Object owner, final SVGImage image, final int width, final int height, final SVGRasterListener listener) {
+      this.owner = owner;
+      this.image = image;
+      this.width = width;
+      this.height = height;
+      this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+      if (this.canceled) {
+        return;
+      }
+      BufferedImage raster = null;
+      try {
+        raster = SVGRasterCache.getRaster(this.image, this.width, this.height);
+      }
+      catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "Can't rasterize SVG image [" + this.width + 'x' + this.height + ']', ex);
+      }
+
+      if (raster == null || this.canceled) {
+        release(this);
+        return;
+      }
+
+      final BufferedImage result = raster;
+      SwingUtilities.invokeLater(new Runnable() {
+
+        @Override
+        public void run() {
+          if (release(Job.this) && !canceled) {
+            listener.onRasterReady(image, width, height, result);
+          }
+        }
+      });
+    }
+  }
+
+  private SVGRasterService() {
+  }
+
+  private static boolean release(final Job job) {
+    synchronized (jobs) {
+      if (jobs.get(job.owner) == job) {
+        jobs.remove(job.owner);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      final AtomicInteger counter = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread result = new Thread(r, "jhexed-svg-raster-" + counter.incrementAndGet());
+          result.setDaemon(true);
+          result.setPriority(Thread.NORM_PRIORITY - 1);
+          return result;
+        }
+      });
+    }
+    return executor;
+  }
+
+  /**
+   * Request a raster of an image in background, the previous request of the
+   * same owner is canceled.
+   *
+   * @param owner the owner of the request, compared by identity, must not be
+   * null
+   * @param image the image to be rasterized, must not be null
+   * @param width the needed width in pixels
+   * @param height the needed height in pixels
+   * @param listener the listener to get the raster on the event dispatch
+   * thread, must not be null
+   */
+  public static void request(final Object owner, final SVGImage image, final int width, final int height, final SVGRasterListener listener) {
+    if (owner == null) {
+      throw new NullPointerException("Owner must not be null");
+    }
+    if (image == null) {
+      throw new NullPointerException("Image must not be null");
+    }
+    if (listener == null) {
+      throw new NullPointerException("Listener must not be null");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Wrong raster size [" + width + 'x' + height + ']');
+    }
+
+    final Job job = new Job(owner, image, width, height, listener);
+    synchronized (jobs) {
+      final Job old = jobs.put(owner, job);
+      if (old != null) {
+        old.canceled = true;
+      }
+    }
+    getExecutor().execute(job);
+  }
+
+  /**
+   * Cancel the current request of an owner.
+   *
+   * @param owner the owner of the request
+   * @return true if there was a request to be canceled, false otherwise
+   */
+  public static boolean cancel(final Object owner) {
+    synchronized (jobs) {
+      final Job job = jobs.remove(owner);
+      if (job != null) {
+        job.canceled = true;
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Get the number of requests which results are not delivered yet.
+   *
+   * @return the number of pending requests
+   */
+  public static int getPendingRequestNumber() {
+    synchronized (jobs) {
+      return jobs.size();
+    }
+  }
+}
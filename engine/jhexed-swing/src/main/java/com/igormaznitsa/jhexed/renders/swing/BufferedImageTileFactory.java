@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.renders.swing;
+
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import com.igormaznitsa.jhexed.engine.renders.HexTileGraphicsFactory;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Tile factory for parallel rendering of Graphics2D based renderers, every tile
+ * is a premultiplied ARGB image of the tile bounds and only its area is drawn
+ * into the destination graphics, so that a tile drawn over a transparent
+ * premultiplied image gives the same pixels as direct drawing.
+ */
+public class BufferedImageTileFactory implements HexTileGraphicsFactory<Graphics2D, BufferedImage> {
+
+  private final RenderingHints hints;
+
+  public BufferedImageTileFactory() {
+    this(null);
+  }
+
+  public BufferedImageTileFactory(final RenderingHints hints) {
+    this.hints = hints == null ? null : (RenderingHints) hints.clone();
+  }
+
+  @Override
+  public BufferedImage makeTile(final HexRect2D bounds) {
+    final int x = (int) Math.floor(bounds.getLeft());
+    final int y = (int) Math.floor(bounds.getTop());
+    final int width = Math.max(1, (int) Math.ceil(bounds.getRight()) - x);
+    final int height = Math.max(1, (int) Math.ceil(bounds.getBottom()) - y);
+    return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+  }
+
+  @Override
+  public Graphics2D getTileGraphics(final BufferedImage tile, final HexRect2D bounds) {
+    final Graphics2D result = tile.createGraphics();
+    if (this.hints != null) {
+      result.setRenderingHints(this.hints);
+    }
+    result.translate(-Math.floor(bounds.getLeft()), -Math.floor(bounds.getTop()));
+    return result;
+  }
+
+  @Override
+  public void releaseTileGraphics(final BufferedImage tile, final Graphics2D gfx) {
+    gfx.dispose();
+  }
+
+  @Override
+  public void compositeTile(final Graphics2D destination, final BufferedImage tile, final HexRect2D bounds, final HexRect2D area) {
+    final int x = (int) Math.floor(area.getLeft());
+    final int y = (int) Math.floor(area.getTop());
+    final int tileX = x - (int) Math.floor(bounds.getLeft());
+    final int tileY = y - (int) Math.floor(bounds.getTop());
+    final int width = Math.min((int) Math.ceil(area.getRight()) - x, tile.getWidth() - tileX);
+    final int height = Math.min((int) Math.ceil(area.getBottom()) - y, tile.getHeight() - tileY);
+    if (width > 0 && height > 0) {
+      destination.drawImage(tile.getSubimage(tileX, tileY, width, height), x, y, null);
+    }
+  }
+}
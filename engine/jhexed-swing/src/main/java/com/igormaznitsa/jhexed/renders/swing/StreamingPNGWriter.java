@@ -0,0 +1,337 @@
+/* 
+ * Copyright 2014 Igor Maznitsa (http://www.igormaznitsa.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.jhexed.renders.swing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writer of a PNG image (8 bit RGBA, non-interlaced) row by row, so that
+ * whole image doesn't need to be kept in memory. Rows are filtered by the
+ * filter which gives the minimal sum of absolute differences and compressed
+ * into IDAT chunks. The Underlying stream is not closed by the writer.
+ *
+ * @author Igor Maznitsa (http://www.igormaznitsa.com)
+ */
+public final class StreamingPNGWriter implements Closeable {
+
+  private static final byte[] SIGNATURE = new byte[]{(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final int BPP = 4;
+
+  private final OutputStream out;
+  private final int width;
+  private final int height;
+  private final Deflater deflater;
+  private final DeflaterOutputStream idat;
+  private final CRC32 crc = new CRC32();
+
+  private byte[] prevRow;
+  private byte[] curRow;
+  private final byte[][] filtered = new byte[5][];
+  private int[] rowBuffer;
+  private int writtenRows;
+  private boolean finished;
+
+  /**
+   * Chunked stream which writes its data as IDAT chunks.
+   */
+  private final class IdatOutputStream extends OutputStream {
+
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int size;
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (this.size == this.buffer.length) {
+        flushChunk();
+      }
+      this.buffer[this.size++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      int offset = off;
+      int length = len;
+      while (length > 0) {
+        if (this.size == this.buffer.length) {
+          flushChunk();
+        }
+        final int toCopy = Math.min(length, this.buffer.length - this.size);
+        System.arraycopy(b, offset, this.buffer, this.size, toCopy);
+        this.size += toCopy;
+        offset += toCopy;
+        length -= toCopy;
+      }
+    }
+
+    private void flushChunk() throws IOException {
+      if (this.size > 0) {
+        writeChunk("IDAT", this.buffer, this.size);
+        this.size = 0;
+      }
+    }
+  }
+
+  private final IdatOutputStream chunks = new IdatOutputStream();
+
+  public StreamingPNGWriter(final OutputStream out, final int width, final int height) throws IOException {
+    this(out, width, height, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Constructor, it writes the PNG header.
+   *
+   * @param out the destination stream, must not be null
+   * @param width the image width
+   * @param height the image height
+   * @param compressionLevel the deflater compression level
+   * @throws IOException it will be thrown for transport errors
+   */
+  public StreamingPNGWriter(final OutputStream out, final int width, final int height, final int compressionLevel) throws IOException {
+    if (out == null) {
+      throw new NullPointerException("Stream must not be null");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Wrong image size [" + width + 'x' + height + ']');
+    }
+    this.out = out;
+    this.width = width;
+    this.height = height;
+
+    this.prevRow = new byte[width * BPP];
+    this.curRow = new byte[width * BPP];
+    for (int i = 0; i < this.filtered.length; i++) {
+      this.filtered[i] = new byte[width * BPP + 1];
+      this.filtered[i][0] = (byte) i;
+    }
+
+    this.deflater = new Deflater(compressionLevel);
+    this.idat = new DeflaterOutputStream(this.chunks, this.deflater, 64 * 1024);
+
+    this.out.write(SIGNATURE);
+    final byte[] header = new byte[13];
+    putInt(header, 0, width);
+    putInt(header, 4, height);
+    header[8] = 8; // bit depth
+    header[9] = 6; // RGBA
+    header[10] = 0; // deflate
+    header[11] = 0; // adaptive filtering
+    header[12] = 0; // non-interlaced
+    writeChunk("IHDR", header, header.length);
+  }
+
+  private static void putInt(final byte[] array, final int offset, final int value) {
+    array[offset] = (byte) (value >>> 24);
+    array[offset + 1] = (byte) (value >>> 16);
+    array[offset + 2] = (byte) (value >>> 8);
+    array[offset + 3] = (byte) value;
+  }
+
+  private void writeChunk(final String type, final byte[] data, final int length) throws IOException {
+    final byte[] header = new byte[8];
+    putInt(header, 0, length);
+    for (int i = 0; i < 4; i++) {
+      header[4 + i] = (byte) type.charAt(i);
+    }
+    this.crc.reset();
+    this.crc.update(header, 4, 4);
+    this.crc.update(data, 0, length);
+    this.out.write(header);
+    this.out.write(data, 0, length);
+    final byte[] tail = new byte[4];
+    putInt(tail, 0, (int) this.crc.getValue());
+    this.out.write(tail);
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  public int getWrittenRows() {
+    return this.writtenRows;
+  }
+
+  /**
+   * Write rows of non-premultiplied ARGB pixels.
+   *
+   * @param argb array of pixels
+   * @param offset offset of the first pixel of the first row
+   * @param scanline distance between rows in the array
+   * @param rows number of rows to be written
+   * @throws IOException it will be thrown for transport errors
+   */
+  public void writeRows(final int[] argb, final int offset, final int scanline, final int rows) throws IOException {
+    if (this.finished) {
+      throw new IllegalStateException("Writer is finished");
+    }
+    if (rows < 0 || this.writtenRows + rows > this.height) {
+      throw new IllegalArgumentException("Wrong number of rows [" + rows + ']');
+    }
+    for (int r = 0; r < rows; r++) {
+      writeRow(argb, offset + r * scanline);
+    }
+  }
+
+  /**
+   * Write rows of an image, the image width must be the same as the writer
+   * width.
+   *
+   * @param image the image, must not be null
+   * @param y the first row of the image to be written
+   * @param rows number of rows to be written
+   * @throws IOException it will be thrown for transport errors
+   */
+  public void writeRows(final BufferedImage image, final int y, final int rows) throws IOException {
+    if (image.getWidth() != this.width) {
+      throw new IllegalArgumentException("Wrong image width [" + image.getWidth() + ']');
+    }
+    if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+      final DataBufferInt buffer = (DataBufferInt) image.getRaster().getDataBuffer();
+      if (buffer.getNumBanks() == 1 && image.getRaster().getSampleModelTranslateX() == 0 && image.getRaster().getSampleModelTranslateY() == 0) {
+        writeRows(buffer.getData(), buffer.getOffset() + y * this.width, this.width, rows);
+        return;
+      }
+    }
+
+    if (this.rowBuffer == null) {
+      this.rowBuffer = new int[this.width];
+    }
+    for (int r = 0; r < rows; r++) {
+      image.getRGB(0, y + r, this.width, 1, this.rowBuffer, 0, this.width);
+      writeRows(this.rowBuffer, 0, this.width, 1);
+    }
+  }
+
+  private void writeRow(final int[] argb, final int offset) throws IOException {
+    final byte[] cur = this.curRow;
+    final byte[] prev = this.prevRow;
+    for (int x = 0, i = 0; x < this.width; x++) {
+      final int pixel = argb[offset + x];
+      cur[i++] = (byte) (pixel >>> 16);
+      cur[i++] = (byte) (pixel >>> 8);
+      cur[i++] = (byte) pixel;
+      cur[i++] = (byte) (pixel >>> 24);
+    }
+
+    final byte[] none = this.filtered[0];
+    final byte[] sub = this.filtered[1];
+    final byte[] up = this.filtered[2];
+    final byte[] avg = this.filtered[3];
+    final byte[] paeth = this.filtered[4];
+    long sumNone = 0L;
+    long sumSub = 0L;
+    long sumUp = 0L;
+    long sumAvg = 0L;
+    long sumPaeth = 0L;
+
+    for (int i = 0; i < cur.length; i++) {
+      final int x = cur[i] & 0xFF;
+      final int a = i < BPP ? 0 : cur[i - BPP] & 0xFF;
+      final int b = prev[i] & 0xFF;
+      final int c = i < BPP ? 0 : prev[i - BPP] & 0xFF;
+
+      final int p = a + b - c;
+      final int pa = Math.abs(p - a);
+      final int pb = Math.abs(p - b);
+      final int pc = Math.abs(p - c);
+      final int predictor = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+
+      final byte vNone = (byte) x;
+      final byte vSub = (byte) (x - a);
+      final byte vUp = (byte) (x - b);
+      final byte vAvg = (byte) (x - ((a + b) >>> 1));
+      final byte vPaeth = (byte) (x - predictor);
+
+      none[i + 1] = vNone;
+      sub[i + 1] = vSub;
+      up[i + 1] = vUp;
+      avg[i + 1] = vAvg;
+      paeth[i + 1] = vPaeth;
+
+      // sum of bytes as signed values
+      sumNone += Math.abs((int) vNone);
+      sumSub += Math.abs((int) vSub);
+      sumUp += Math.abs((int) vUp);
+      sumAvg += Math.abs((int) vAvg);
+      sumPaeth += Math.abs((int) vPaeth);
+    }
+
+    int best = 0;
+    long bestSum = sumNone;
+    if (sumSub < bestSum) {
+      best = 1;
+      bestSum = sumSub;
+    }
+    if (sumUp < bestSum) {
+      best = 2;
+      bestSum = sumUp;
+    }
+    if (sumAvg < bestSum) {
+      best = 3;
+      bestSum = sumAvg;
+    }
+    if (sumPaeth < bestSum) {
+      best = 4;
+    }
+
+    this.idat.write(this.filtered[best], 0, cur.length + 1);
+
+    this.prevRow = cur;
+    this.curRow = prev;
+    this.writtenRows++;
+  }
+
+  /**
+   * Complete the image, all rows must be written before the call.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  public void finish() throws IOException {
+    if (this.finished) {
+      return;
+    }
+    if (this.writtenRows != this.height) {
+      throw new IllegalStateException("Not all rows written [" + this.writtenRows + '/' + this.height + ']');
+    }
+    this.idat.finish();
+    this.chunks.flushChunk();
+    writeChunk("IEND", new byte[0], 0);
+    this.out.flush();
+    this.finished = true;
+    this.deflater.end();
+  }
+
+  /**
+   * Release resources of the writer, the underlying stream is not closed. The
+   * Image is not completed if the writer is not finished.
+   */
+  @Override
+  public void close() {
+    if (!this.finished) {
+      this.finished = true;
+      this.deflater.end();
+    }
+  }
+}
@@ -81,6 +81,19 @@ public abstract class HexFieldValue {
   }
   
   public abstract void prerasterizeIcon(final Shape shape);
+
+  /**
+   * Prerasterize the icon in background if the value supports that, a
+   * temporary icon can be used until the background work is completed. The
+   * default implementation prerasterizes the icon immediately.
+   *
+   * @param shape the hex shape
+   * @param onReady it will be called on the event dispatch thread when the
+   * final icon is set after background work, can be null
+   */
+  public void prerasterizeIconAsync(final Shape shape, final Runnable onReady) {
+    prerasterizeIcon(shape);
+  }
   
   public abstract BufferedImage makeIcon(final int width, final int height, final Path2D shape, boolean allowAlpha);
  
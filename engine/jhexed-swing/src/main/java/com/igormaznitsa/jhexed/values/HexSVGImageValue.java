@@ -16,6 +16,9 @@
 package com.igormaznitsa.jhexed.values;
 
 import com.igormaznitsa.jhexed.renders.svg.SVGImage;
+import com.igormaznitsa.jhexed.renders.svg.SVGRasterCache;
+import com.igormaznitsa.jhexed.renders.svg.SVGRasterListener;
+import com.igormaznitsa.jhexed.renders.svg.SVGRasterService;
 import java.awt.*;
 import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
@@ -25,12 +28,14 @@ import org.apache.commons.io.IOUtils;
 public class HexSVGImageValue extends HexFieldValue {
 
   private SVGImage image;
-  private Image prerasterized;
+  private volatile Image prerasterized;
+  private Shape prerasterizedShape;
 
   private HexSVGImageValue(final HexSVGImageValue val) {
     super(val);
     this.image = val.image;
     this.prerasterized = val.prerasterized;
+    this.prerasterizedShape = val.prerasterizedShape;
   }
 
   public HexSVGImageValue(final String name, final String comment, final SVGImage image, final int index) {
@@ -57,14 +62,22 @@ public class HexSVGImageValue extends HexFieldValue {
 
   public void setImage(final SVGImage value) {
     this.image = value;
+    updatePrerasterized();
   }
 
   @Override
   public void load(final HexFieldValue val) {
     super.load(val);
     this.image = ((HexSVGImageValue) val).getImage();
+    updatePrerasterized();
   }    
 
+  private void updatePrerasterized() {
+    if (this.prerasterizedShape != null) {
+      prerasterizeIcon(this.prerasterizedShape);
+    }
+  }
+
   @Override
   public void write(final OutputStream out) throws IOException {
     out.write(TYPE_SVGIMAGE);
@@ -104,23 +117,79 @@ public class HexSVGImageValue extends HexFieldValue {
     }
   }
 
+  private static Image makeClipped(final Image raster, final Shape shape, final Rectangle bounds) {
+    final BufferedImage result = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = result.createGraphics();
+    g.setClip(shape);
+    if (raster.getWidth(null) == bounds.width && raster.getHeight(null) == bounds.height) {
+      g.drawImage(raster, 0, 0, null);
+    }
+    else {
+      // rasters from the cache have quantized size
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(raster, 0, 0, bounds.width, bounds.height, null);
+    }
+    g.dispose();
+    return result;
+  }
+
   @Override
   public void prerasterizeIcon(final Shape shape) {
+    SVGRasterService.cancel(this);
+    this.prerasterizedShape = shape;
     try {
       final Rectangle r = shape.getBounds();
-      final BufferedImage img = this.image.rasterize(r.width, r.height, BufferedImage.TYPE_INT_ARGB);
-      final BufferedImage result = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB);
-      final Graphics2D g = result.createGraphics();
-      g.setClip(shape);
-      g.drawImage(img, 0, 0, null);
-      g.dispose();
-      this.prerasterized = result;
+      if (this.image == null || r.width <= 0 || r.height <= 0) {
+        this.prerasterized = null;
+        return;
+      }
+      this.prerasterized = makeClipped(SVGRasterCache.getRaster(this.image, r.width, r.height), shape, r);
     }
     catch (Exception ex) {
       ex.printStackTrace();
     }
   }
 
+  @Override
+  public void prerasterizeIconAsync(final Shape shape, final Runnable onReady) {
+    final Rectangle r = shape.getBounds();
+    final SVGImage theImage = this.image;
+    if (theImage == null || r.width <= 0 || r.height <= 0) {
+      prerasterizeIcon(shape);
+      return;
+    }
+
+    final BufferedImage cached = SVGRasterCache.getCachedRaster(theImage, r.width, r.height);
+    if (cached != null) {
+      SVGRasterService.cancel(this);
+      this.prerasterizedShape = shape;
+      this.prerasterized = makeClipped(cached, shape, r);
+      return;
+    }
+
+    final Image placeholder = SVGRasterCache.findNearestRaster(theImage, r.width, r.height);
+    if (placeholder == null && this.prerasterized == null) {
+      // nothing to show while rasterizing
+      prerasterizeIcon(shape);
+      return;
+    }
+
+    this.prerasterizedShape = shape;
+    this.prerasterized = makeClipped(placeholder == null ? this.prerasterized : placeholder, shape, r);
+    SVGRasterService.request(this, theImage, r.width, r.height, new SVGRasterListener() {
+
+      @Override
+      public void onRasterReady(final SVGImage img, final int width, final int height, final BufferedImage raster) {
+        if (prerasterizedShape == shape && image == img) {
+          prerasterized = makeClipped(raster, shape, r);
+          if (onReady != null) {
+            onReady.run();
+          }
+        }
+      }
+    });
+  }
+
   @Override
   public Image getPrerasterized() {
     return this.prerasterized;
@@ -25,8 +25,8 @@ public class Test {
 
       @Override
       public Color getFillColor(HexEngineModel<?> model, int col, int row) {
-        final DefaultIntegerHexModel intmodel = (DefaultIntegerHexModel) model;
-        return ALLOWEDCOLORS[intmodel.getValueAt(col, row) % ALLOWEDCOLORS.length];
+        final IntHexEngineModel intmodel = (IntHexEngineModel) model;
+        return ALLOWEDCOLORS[intmodel.getInt(col, row) % ALLOWEDCOLORS.length];
       }
       
     });
@@ -52,14 +52,14 @@ public class Test {
       public void mouseClicked(MouseEvent e) {
         final HexPosition position = engine.pointToHex(e.getX(), e.getY());
         if (engine.getModel().isPositionValid(position)){
-          final DefaultIntegerHexModel model = (DefaultIntegerHexModel) engine.getModel();
-          Integer value = model.getValueAt(position);
+          final IntHexEngineModel model = (IntHexEngineModel) engine.getModel();
+          int value = model.getInt(position.getColumn(), position.getRow());
           if (value > 7){
             value = 0;
           }else{
             value ++;
           }
-          model.setValueAt(position, value);
+          model.setInt(position.getColumn(), position.getRow(), value);
         }
         content.repaint();
       }
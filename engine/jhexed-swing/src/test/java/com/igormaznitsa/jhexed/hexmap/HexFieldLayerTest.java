@@ -0,0 +1,209 @@
+package com.igormaznitsa.jhexed.hexmap;
+
+import com.igormaznitsa.jhexed.values.HexColorValue;
+import com.igormaznitsa.jhexed.values.HexFieldValue;
+import java.awt.Color;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HexFieldLayerTest {
+
+  private static HexFieldLayer makeLayer(final int columns, final int rows) {
+    final HexFieldLayer result = new HexFieldLayer("test", "", columns, rows);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        result.setValueAtPos(col, row, (col + row * columns) % 7);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testUndoRedoChangedCells() {
+    final HexFieldLayer layer = makeLayer(20, 20);
+    final byte[] original = layer.getArray();
+
+    layer.addUndo();
+    layer.setValueAtPos(1, 1, 100);
+    layer.setValueAtPos(5, 7, 101);
+    final byte[] changed = layer.getArray();
+
+    assertTrue(layer.undo());
+    assertArrayEquals(original, layer.getArray());
+    assertFalse(layer.hasUndo());
+    assertTrue(layer.hasRedo());
+
+    assertTrue(layer.redo());
+    assertArrayEquals(changed, layer.getArray());
+    assertTrue(layer.hasUndo());
+    assertFalse(layer.hasRedo());
+  }
+
+  @Test
+  public void testRepeatedChangesOfCellRestoreFirstValue() {
+    final HexFieldLayer layer = makeLayer(20, 20);
+    final int originalValue = layer.getValueAtPos(3, 4);
+
+    layer.addUndo();
+    layer.setValueAtPos(3, 4, 10);
+    layer.setValueAtPos(3, 4, 20);
+    layer.setValueAtPos(3, 4, 30);
+
+    assertTrue(layer.undo());
+    assertEquals(originalValue, layer.getValueAtPos(3, 4));
+    assertTrue(layer.redo());
+    assertEquals(30, layer.getValueAtPos(3, 4));
+  }
+
+  private static void assertBigChangeIsUndone(final HexFieldLayer layer) {
+    final byte[] original = layer.getArray();
+
+    layer.addUndo();
+    for (int i = 0; i < 5000; i++) {
+      layer.setValueAtPos(i % 100, i / 100, 50 + i % 100);
+    }
+    layer.setValueAtPos(0, 0, 99);
+    final byte[] changed = layer.getArray();
+
+    assertTrue(layer.undo());
+    assertArrayEquals(original, layer.getArray());
+
+    assertTrue(layer.redo());
+    assertArrayEquals(changed, layer.getArray());
+
+    assertTrue(layer.undo());
+    assertArrayEquals(original, layer.getArray());
+  }
+
+  @Test
+  public void testWholeDataIsRecordedForBigChange() {
+    assertBigChangeIsUndone(makeLayer(128, 128));
+  }
+
+  @Test
+  public void testWholeDataIsRecordedForEmptyLayer() {
+    assertBigChangeIsUndone(new HexFieldLayer("test", "", 300, 200));
+  }
+
+  @Test
+  public void testStructureChangesAreUndone() {
+    final HexFieldLayer layer = makeLayer(100, 70);
+    final byte[] original = layer.getArray();
+
+    layer.addUndo();
+    layer.resize(30, 150);
+    assertEquals(30 * 150, layer.getArray().length);
+    assertEquals((5 + 60 * 100) % 7, layer.getValueAtPos(5, 60));
+    assertEquals(0, layer.getValueAtPos(5, 100));
+    layer.setValueAtPos(5, 100, 3);
+    layer.fillByValue(2);
+    assertEquals(2, layer.getValueAtPos(29, 149));
+
+    assertTrue(layer.undo());
+    assertEquals(100, layer.getColumnNumber());
+    assertEquals(70, layer.getRowNumber());
+    assertArrayEquals(original, layer.getArray());
+  }
+
+  @Test
+  public void testUpdateIndexes() {
+    final HexFieldLayer layer = makeLayer(20, 20);
+    final byte[] expected = layer.getArray();
+    for (int i = 0; i < expected.length; i++) {
+      // remove 2, insert new 4, keep only 6 values
+      int value = expected[i];
+      value = value == 2 ? 0 : value > 2 ? value - 1 : value;
+      value = value == 4 ? 0 : value >= 4 ? value + 1 : value;
+      expected[i] = (byte) (value >= 6 ? 0 : value);
+    }
+    layer.updateIndexes(Arrays.asList(2), Arrays.asList(4), 6);
+    assertArrayEquals(expected, layer.getArray());
+  }
+
+  @Test
+  public void testRedoSwapsStepsSeveralTimes() {
+    final HexFieldLayer layer = makeLayer(20, 20);
+    final byte[] state0 = layer.getArray();
+
+    layer.addUndo();
+    layer.setValueAtPos(2, 2, 11);
+    layer.setValueAtPos(3, 3, 12);
+    final byte[] state1 = layer.getArray();
+
+    layer.addUndo();
+    layer.setValueAtPos(2, 2, 21);
+    layer.setValueAtPos(4, 4, 22);
+    final byte[] state2 = layer.getArray();
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(layer.undo());
+      assertArrayEquals(state1, layer.getArray());
+      assertTrue(layer.undo());
+      assertArrayEquals(state0, layer.getArray());
+      assertFalse(layer.undo());
+
+      assertTrue(layer.redo());
+      assertArrayEquals(state1, layer.getArray());
+      assertTrue(layer.redo());
+      assertArrayEquals(state2, layer.getArray());
+      assertFalse(layer.redo());
+    }
+
+    assertTrue(layer.undo());
+    layer.addUndo();
+    assertFalse(layer.hasRedo());
+    layer.setValueAtPos(9, 9, 33);
+    assertTrue(layer.undo());
+    assertArrayEquals(state1, layer.getArray());
+  }
+
+  @Test
+  public void testValuesAreSharedTillTableChange() {
+    final HexFieldLayer layer = makeLayer(5, 5);
+    final HexFieldValue first = new HexColorValue("red", "", Color.RED, 0);
+    layer.addValue(first);
+
+    layer.addUndo();
+    layer.setValueAtPos(0, 0, 1);
+    assertTrue(layer.undo());
+    assertEquals(2, layer.getHexValuesNumber());
+    assertSame(first, layer.getHexValueForIndex(1));
+
+    layer.addUndo();
+    layer.replaceValues(Arrays.asList(HexFieldValue.NULL, first, new HexColorValue("blue", "", Color.BLUE, 2)));
+    assertEquals(3, layer.getHexValuesNumber());
+
+    assertTrue(layer.undo());
+    assertEquals(2, layer.getHexValuesNumber());
+    assertSame(first, layer.getHexValueForIndex(1));
+
+    assertTrue(layer.redo());
+    assertEquals(3, layer.getHexValuesNumber());
+    assertEquals("blue", layer.getHexValueForIndex(2).getName());
+  }
+
+  @Test
+  public void testUndoDepthOfEveryLayer() {
+    final HexFieldLayer small = new HexFieldLayer("small", "", 10, 10, 2);
+    final HexFieldLayer big = new HexFieldLayer("big", "", 10, 10);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i >= 2, small.addUndo());
+      assertFalse(big.addUndo());
+      small.setValueAtPos(i, 0, i + 1);
+      big.setValueAtPos(i, 0, i + 1);
+    }
+    assertEquals(2, small.getUndoDepth());
+    assertEquals(HexFieldLayer.DEFAULT_UNDO_DEPTH, big.getUndoDepth());
+    assertEquals(2, small.cloneLayer().getUndoDepth());
+
+    assertTrue(small.undo());
+    assertTrue(small.undo());
+    assertFalse(small.undo());
+    assertEquals(3, small.getValueAtPos(2, 0));
+
+    big.setUndoDepth(1);
+    assertTrue(big.undo());
+    assertFalse(big.undo());
+  }
+}
@@ -0,0 +1,115 @@
+package com.igormaznitsa.jhexed.hexmap;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.values.HexColorValue;
+import com.igormaznitsa.jhexed.values.HexFieldValue;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LayerableHexValueSourceRenderTest {
+
+  private static final int SIZE = 70;
+
+  private static class StackModel extends DefaultIntegerHexModel implements LayerableHexValueSource {
+
+    private final HexFieldValue[] bottom = new HexFieldValue[SIZE];
+    private final HexFieldValue[] top = new HexFieldValue[SIZE];
+
+    private StackModel() {
+      super(SIZE, SIZE, 0);
+      for (int i = 0; i < SIZE; i++) {
+        this.bottom[i] = new HexColorValue("b" + i, "", new Color(i, 0, 0), i + 1);
+        this.top[i] = new HexColorValue("t" + i, "", new Color(0, i, 0, 128), i + 1);
+        this.bottom[i].prerasterizeIcon(new Rectangle(0, 0, 8, 8));
+        this.top[i].prerasterizeIcon(new Rectangle(0, 0, 8, 8));
+      }
+    }
+
+    @Override
+    public Iterable<HexFieldValue> getHexStackAtPosition(final int col, final int row) {
+      return Arrays.asList(this.bottom[col], this.top[row]);
+    }
+  }
+
+  @Test
+  public void testStackCacheKeepsRecentStacksWhenFull() {
+    final HexEngine<Graphics2D> engine = new HexEngine<Graphics2D>(8, 8, HexEngine.ORIENTATION_HORIZONTAL);
+    final LayerableHexValueSourceRender render = new LayerableHexValueSourceRender();
+    engine.setModel(new StackModel());
+    engine.setRenderer(render);
+
+    final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = image.createGraphics();
+    try {
+      for (int row = 0; row < 10; row++) {
+        for (int col = 0; col < SIZE; col++) {
+          render.drawUnderBorder(engine, g, col, row, null, null);
+          render.drawUnderBorder(engine, g, col, row, null, null);
+        }
+      }
+      assertEquals(10 * SIZE, render.getStackCacheSize());
+
+      for (int row = 10; row < SIZE; row++) {
+        for (int col = 0; col < SIZE; col++) {
+          render.drawUnderBorder(engine, g, col, row, null, null);
+          assertTrue(render.getStackCacheSize() <= LayerableHexValueSourceRender.MAX_CACHED_STACKS);
+        }
+      }
+      // the cache is not dropped as a whole when it is full
+      assertEquals(LayerableHexValueSourceRender.MAX_CACHED_STACKS, render.getStackCacheSize());
+
+      render.invalidateStackCache();
+      assertEquals(0, render.getStackCacheSize());
+
+      render.setStackCacheEnabled(false);
+      render.drawUnderBorder(engine, g, 1, 1, null, null);
+      assertEquals(0, render.getStackCacheSize());
+    }
+    finally {
+      g.dispose();
+    }
+  }
+
+  @Test
+  public void testStackKeyIsMadeOfLayerValueIndexes() {
+    final HexFieldValue[] values = new HexFieldValue[4];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = new HexColorValue("v" + i, "", new Color(i * 60, 0, 0), i < 2 ? 1 : 2);
+      values[i].prerasterizeIcon(new Rectangle(0, 0, 8, 8));
+    }
+
+    final HexEngine<Graphics2D> engine = new HexEngine<Graphics2D>(8, 8, HexEngine.ORIENTATION_HORIZONTAL);
+    final LayerableHexValueSourceRender render = new LayerableHexValueSourceRender();
+    engine.setModel(new StackModel() {
+      @Override
+      public Iterable<HexFieldValue> getHexStackAtPosition(final int col, final int row) {
+        // different objects with the same indexes, and the same indexes on swapped layers
+        return col < 2 ? Arrays.asList(values[col], values[2 + row]) : Arrays.asList(values[2 + row], values[col - 2]);
+      }
+    });
+    engine.setRenderer(render);
+
+    final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = image.createGraphics();
+    try {
+      for (int col = 0; col < 4; col++) {
+        for (int row = 0; row < 2; row++) {
+          render.drawUnderBorder(engine, g, col, row, null, null);
+        }
+      }
+      assertEquals(2, render.getStackCacheSize());
+
+      engine.setModel(new StackModel());
+      assertEquals(0, render.getStackCacheSize());
+    }
+    finally {
+      g.dispose();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.igormaznitsa.jhexed.hexmap;
+
+import com.igormaznitsa.jhexed.renders.svg.SVGImage;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SVGImageMipmapTest {
+
+  private static final class CountingImage extends SVGImage {
+
+    private final Thread thread = Thread.currentThread();
+    private int renders;
+
+    private CountingImage(final File file) throws IOException {
+      super(file);
+    }
+
+    @Override
+    public void render(final Graphics2D g) throws IOException {
+      // rasterization of tiles in background is not counted
+      if (Thread.currentThread() == this.thread) {
+        this.renders++;
+      }
+      super.render(g);
+    }
+  }
+
+  private static CountingImage makeImage() throws IOException {
+    final File file = File.createTempFile("mipmap", ".svg");
+    file.deleteOnExit();
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"2000\" height=\"1200\">"
+              + "<rect width=\"2000\" height=\"1200\" fill=\"#336699\"/>"
+              + "<circle cx=\"1000\" cy=\"600\" r=\"500\" fill=\"#ffcc00\"/></svg>").getBytes("UTF-8"));
+    }
+    finally {
+      out.close();
+    }
+    return new CountingImage(file);
+  }
+
+  @Test
+  public void testColdCacheRendersImageOnce() throws Exception {
+    final CountingImage image = makeImage();
+    final SVGImageMipmap mipmap = new SVGImageMipmap(image, null);
+    mipmap.setBudget(0L);
+
+    final BufferedImage painted = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = painted.createGraphics();
+    try {
+      mipmap.paint(g, new Rectangle(0, 0, 1920, 1080), 1.0f);
+    }
+    finally {
+      g.dispose();
+    }
+    // 4x3 missing tiles are painted by the only direct rendering
+    assertEquals(1, image.renders);
+
+    final BufferedImage direct = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D gd = direct.createGraphics();
+    try {
+      image.render(gd);
+    }
+    finally {
+      gd.dispose();
+    }
+    assertEquals(0xFF336699, painted.getRGB(10, 10));
+    for (int y = 0; y < 1080; y += 7) {
+      for (int x = 0; x < 1920; x += 7) {
+        assertEquals(direct.getRGB(x, y), painted.getRGB(x, y));
+      }
+    }
+  }
+}
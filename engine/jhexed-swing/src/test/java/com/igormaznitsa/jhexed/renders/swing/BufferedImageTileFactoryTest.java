@@ -0,0 +1,132 @@
+package com.igormaznitsa.jhexed.renders.swing;
+
+import com.igormaznitsa.jhexed.engine.DefaultIntegerHexModel;
+import com.igormaznitsa.jhexed.engine.HexEngine;
+import com.igormaznitsa.jhexed.engine.HexEngineModel;
+import com.igormaznitsa.jhexed.engine.misc.HexRect2D;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BufferedImageTileFactoryTest {
+
+  private static final int WIDTH = 700;
+  private static final int HEIGHT = 500;
+
+  private static final class WideBorderRender extends ColorHexRender {
+
+    private final Stroke wideStroke = new BasicStroke(5.0f);
+
+    @Override
+    public Stroke getStroke() {
+      return this.wideStroke;
+    }
+
+    @Override
+    public Color getBorderColor(final HexEngineModel<?> model, final int col, final int row) {
+      return new Color(0, 0, 255, 160);
+    }
+
+    @Override
+    public Color getFillColor(final HexEngineModel<?> model, final int col, final int row) {
+      return new Color((col * 37) & 0xFF, (row * 59) & 0xFF, 90, 200);
+    }
+
+    @Override
+    public void drawExtra(final HexEngine<Graphics2D> engine, final Graphics2D g, final int col, final int row, final Color borderColor, final Color fillColor) {
+    }
+  }
+
+  private static BufferedImage draw(final HexEngine<Graphics2D> engine, final HexRect2D rect, final boolean accurately, final ExecutorService executor) throws InterruptedException {
+    final BufferedImage result = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+    final Graphics2D gfx = result.createGraphics();
+    try {
+      if (executor == null) {
+        engine.drawArea(gfx, rect, accurately);
+      }
+      else {
+        engine.drawArea(gfx, rect, accurately, 64, executor, new BufferedImageTileFactory());
+      }
+    }
+    finally {
+      gfx.dispose();
+    }
+    return result;
+  }
+
+  private static int maxChannelDifference(final int argb1, final int argb2) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      result = Math.max(result, Math.abs(((argb1 >>> shift) & 0xFF) - ((argb2 >>> shift) & 0xFF)));
+    }
+    return result;
+  }
+
+  private static void assertTiledDrawArea(final int orientation, final boolean accurately, final boolean antialias) throws Exception {
+    final HexEngine<Graphics2D> engine = new HexEngine<Graphics2D>(32, 24, orientation);
+    final WideBorderRender render = new WideBorderRender();
+    render.setAntialias(antialias);
+    engine.setModel(new DefaultIntegerHexModel(40, 40, 0));
+    engine.setRenderer(render);
+    engine.setScale(1.3f, 0.9f);
+
+    // Java2D rasterizes in float numbers, so that coverage of antialiased edges
+    // and single pixels in hexagon corners can be a bit different for shifted
+    // coordinates of a tile, but cut borders and edges make a band of
+    // different pixels
+    final int tolerance = antialias ? 4 : 0;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      // rectangles are far from image sides, because Java2D rasterizes clipped shapes a bit differently
+      for (final HexRect2D rect : new HexRect2D[]{new HexRect2D(64, 64, 572, 372), new HexRect2D(45.5f, 70.25f, 530.3f, 310.6f)}) {
+        final BufferedImage etalon = draw(engine, rect, accurately, null);
+        final BufferedImage tiled = draw(engine, rect, accurately, executor);
+
+        // direct drawing can go out of the rectangle, so that only whole pixels of the rectangle are compared
+        final int x0 = (int) Math.ceil(rect.getLeft());
+        final int y0 = (int) Math.ceil(rect.getTop());
+        final int width = (int) Math.floor(rect.getRight()) - x0;
+        final int height = (int) Math.floor(rect.getBottom()) - y0;
+        final boolean[] different = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+            different[x + y * width] = maxChannelDifference(etalon.getRGB(x0 + x, y0 + y), tiled.getRGB(x0 + x, y0 + y)) > tolerance;
+          }
+        }
+        for (int y = 1; y < height; y++) {
+          for (int x = 1; x < width - 1; x++) {
+            if (different[x + y * width] && (different[x - 1 + y * width] || different[x - 1 + (y - 1) * width] || different[x + (y - 1) * width] || different[x + 1 + (y - 1) * width])) {
+              fail("Different pixels at " + (x0 + x) + ',' + (y0 + y) + " [" + Integer.toHexString(etalon.getRGB(x0 + x, y0 + y)) + " != " + Integer.toHexString(tiled.getRGB(x0 + x, y0 + y)) + ']');
+            }
+          }
+        }
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTiledDrawAreaMatchesDirectDrawing_Horizontal() throws Exception {
+    assertTiledDrawArea(HexEngine.ORIENTATION_HORIZONTAL, false, false);
+    assertTiledDrawArea(HexEngine.ORIENTATION_HORIZONTAL, true, false);
+    assertTiledDrawArea(HexEngine.ORIENTATION_HORIZONTAL, false, true);
+    assertTiledDrawArea(HexEngine.ORIENTATION_HORIZONTAL, true, true);
+  }
+
+  @Test
+  public void testTiledDrawAreaMatchesDirectDrawing_Vertical() throws Exception {
+    assertTiledDrawArea(HexEngine.ORIENTATION_VERTICAL, false, false);
+    assertTiledDrawArea(HexEngine.ORIENTATION_VERTICAL, true, false);
+    assertTiledDrawArea(HexEngine.ORIENTATION_VERTICAL, false, true);
+    assertTiledDrawArea(HexEngine.ORIENTATION_VERTICAL, true, true);
+  }
+}
@@ -0,0 +1,131 @@
+package com.igormaznitsa.jhexed.renders.swing;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StreamingPNGWriterTest {
+
+  private static BufferedImage makeImage(final int width, final int height, final long seed) {
+    final BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    final Random rnd = new Random(seed);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        // noise, gradients and transparent areas to exercise all filters
+        final int pixel;
+        switch ((x / 16 + y / 16) % 3) {
+          case 0:
+            pixel = rnd.nextInt();
+            break;
+          case 1:
+            pixel = 0xFF000000 | (x << 16) | (y << 8) | ((x + y) & 0xFF);
+            break;
+          default:
+            pixel = (x * 3 & 0xFF) << 24 | 0x336699;
+            break;
+        }
+        result.setRGB(x, y, pixel);
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameImage(final BufferedImage expected, final byte[] png) throws IOException {
+    final BufferedImage read = ImageIO.read(new ByteArrayInputStream(png));
+    assertNotNull(read);
+    assertEquals(expected.getWidth(), read.getWidth());
+    assertEquals(expected.getHeight(), read.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals("Pixel " + x + ',' + y, expected.getRGB(x, y), read.getRGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testStripsOfNonMultipleHeightReadBackByImageIO() throws Exception {
+    final int width = 301;
+    final int height = 257;
+    final int stripHeight = 64;
+    final BufferedImage image = makeImage(width, height, 1L);
+    final int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final StreamingPNGWriter writer = new StreamingPNGWriter(buffer, width, height);
+    try {
+      for (int y = 0; y < height; y += stripHeight) {
+        final int rows = Math.min(stripHeight, height - y);
+        writer.writeRows(argb, y * width, width, rows);
+        assertEquals(y + rows, writer.getWrittenRows());
+      }
+      writer.finish();
+    }
+    finally {
+      writer.close();
+    }
+
+    // more than one IDAT chunk for noise
+    assertTrue(buffer.size() > 64 * 1024);
+    assertSameImage(image, buffer.toByteArray());
+  }
+
+  @Test
+  public void testStripsOfImages() throws Exception {
+    final int width = 77;
+    final int height = 50;
+    final BufferedImage image = makeImage(width, height, 2L);
+
+    final BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    rgb.getGraphics().drawImage(image, 0, 0, null);
+
+    for (final BufferedImage source : new BufferedImage[]{image, rgb}) {
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final StreamingPNGWriter writer = new StreamingPNGWriter(buffer, width, height);
+      writer.writeRows(source, 0, 13);
+      writer.writeRows(source.getSubimage(0, 13, width, 30), 0, 30);
+      writer.writeRows(source, 43, 7);
+      writer.finish();
+      writer.close();
+      assertSameImage(source, buffer.toByteArray());
+    }
+  }
+
+  @Test
+  public void testSingleRow() throws Exception {
+    final BufferedImage image = makeImage(5, 1, 3L);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final StreamingPNGWriter writer = new StreamingPNGWriter(buffer, 5, 1, 9);
+    writer.writeRows(image, 0, 1);
+    writer.finish();
+    writer.close();
+    assertSameImage(image, buffer.toByteArray());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFinishWithoutAllRows() throws Exception {
+    final StreamingPNGWriter writer = new StreamingPNGWriter(new ByteArrayOutputStream(), 10, 10);
+    try {
+      writer.writeRows(new int[100], 0, 10, 9);
+      writer.finish();
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyRows() throws Exception {
+    final StreamingPNGWriter writer = new StreamingPNGWriter(new ByteArrayOutputStream(), 10, 10);
+    try {
+      writer.writeRows(new int[110], 0, 10, 11);
+    }
+    finally {
+      writer.close();
+    }
+  }
+}
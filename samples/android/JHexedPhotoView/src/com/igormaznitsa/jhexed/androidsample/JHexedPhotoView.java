@@ -140,7 +140,7 @@ public class JHexedPhotoView extends View implements HexEngineRender<Canvas> {
             final Random rnd = new Random();
             for (int c = 0; c < this.fieldWidth; c++) {
                 for (int r = 0; r < this.fieldHeight; r++) {
-                    this.hexModel.setValueAt(c, r, rnd.nextInt(icons.length));
+                    this.hexModel.setInt(c, r, rnd.nextInt(icons.length));
                 }
             }
         }
@@ -284,7 +284,7 @@ public class JHexedPhotoView extends View implements HexEngineRender<Canvas> {
         canvas.setMatrix(matrix);
 
         if (!this.isInEditMode()) {
-            final Bitmap icon = this.iconsOptimizedForHexagons[this.hexModel.getValueAt(col, row)];
+            final Bitmap icon = this.iconsOptimizedForHexagons[this.hexModel.getInt(col, row)];
             canvas.drawBitmap(icon, 0f, 0f, theHexPaint);
         }
         canvas.drawPath(this.hexPath, theHexPaint);